@@ -0,0 +1,30 @@
+package com.xray.bench;
+
+import com.xray.model.EntrypointIndex;
+import com.xray.spring.BeanDetector;
+import com.xray.spring.EntrypointDetector;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Spring detectors as a separate pass over the retained ASTs of the synthetic repo.
+ * Both only merge tags into existing drafts, so repeated invocations do the same work.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DetectorBenchmark {
+
+    @Benchmark
+    public EntrypointIndex entrypointDetector(RepoState repo) {
+        return EntrypointDetector.annotateEntrypoints(repo.astIndex);
+    }
+
+    @Benchmark
+    public void beanDetector(RepoState repo) {
+        BeanDetector.annotateBeans(repo.astIndex);
+    }
+}
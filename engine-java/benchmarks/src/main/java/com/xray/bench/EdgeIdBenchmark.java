@@ -0,0 +1,53 @@
+package com.xray.bench;
+
+import com.xray.parse.EdgeId;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.xray.model.Enums.*;
+
+/**
+ * EdgeId.of against the original per-call MessageDigest/String.format implementation, on realistic method ids.
+ * Run with -prof gc to compare allocations per edge.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EdgeIdBenchmark {
+
+    private static final int EDGES = 1024;
+
+    private String[] fromIds;
+    private String[] toIds;
+
+    @Setup
+    public void setUp() {
+        fromIds = new String[EDGES];
+        toIds = new String[EDGES];
+        for (int i = 0; i < EDGES; i++) {
+            fromIds[i] = "com.acme.orders.service.OrderService" + i + "#placeOrder(com.acme.orders.api.OrderRequest,java.lang.String):OrderResponse";
+            toIds[i] = "com.acme.orders.repo.OrderRepository" + (i % 97) + "#save(com.acme.orders.model.Order):Order";
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EDGES)
+    public void current(Blackhole blackhole) {
+        for (int i = 0; i < EDGES; i++) {
+            blackhole.consume(EdgeId.of(EdgeType.CALL, fromIds[i], toIds[i], null));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EDGES)
+    public void legacy(Blackhole blackhole) {
+        for (int i = 0; i < EDGES; i++) {
+            blackhole.consume(LegacyEdgeId.of(EdgeType.CALL, fromIds[i], toIds[i], null));
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.xray.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xray.flow.FlowGraph;
+import com.xray.flow.FlowTracer;
+import com.xray.io.JsonlWriter;
+import com.xray.io.OutputLayout;
+import com.xray.model.Edge;
+import com.xray.model.Flow;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static com.xray.model.Enums.*;
+
+/**
+ * Flow tracing on a synthetic call graph of @Param methods with @Param callsPerMethod CALL edges each (a fixed seed,
+ * callees mostly in the next "layer" so flows run deep) and @Param entrypoints HTTP entrypoints.
+ * trace is FlowTracer (flows.jsonl and impact.jsonl); mapBfs is the same breadth-first search over id strings with
+ * a HashMap adjacency and a HashSet per entrypoint, writing the same flows.jsonl on one thread (no impact.jsonl).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FlowBenchmark {
+
+    @Param({"200000"})
+    public int methods;
+
+    @Param({"3"})
+    public int callsPerMethod;
+
+    @Param({"500"})
+    public int entrypoints;
+
+    @Param({"6"})
+    public int maxDepth;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private Path outDir;
+    private FlowGraph graph;
+    private List<String> entrypointIds;
+    private Map<String, List<String>> adjacency;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Random random = new Random(11);
+        List<String> ids = new ArrayList<>(methods);
+        for (int i = 0; i < methods; i++) {
+            ids.add("com.acme.p" + (i % 100) + ".C" + (i / 10) + "#m" + i + "():void");
+        }
+        FlowGraph.Builder builder = FlowGraph.builder(ids);
+        adjacency = new HashMap<>();
+        int layer = Math.max(1, methods / 20);
+        for (int i = 0; i < methods; i++) {
+            for (int c = 0; c < callsPerMethod; c++) {
+                int callee = random.nextInt(10) < 8
+                        ? (i + layer + random.nextInt(layer)) % methods
+                        : random.nextInt(methods);
+                String from = ids.get(i);
+                String to = ids.get(callee);
+                builder.add(Edge.v1("e" + i + "-" + c, from, to, EdgeType.CALL, Confidence.MEDIUM));
+                adjacency.computeIfAbsent(from, k -> new ArrayList<>()).add(to);
+            }
+        }
+        graph = builder.build();
+        entrypointIds = new ArrayList<>(entrypoints);
+        for (int i = 0; i < entrypoints; i++) {
+            entrypointIds.add(ids.get(random.nextInt(layer)));
+        }
+        outDir = Files.createTempDirectory("xray-bench-flows");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        RepoState.deleteRecursively(outDir);
+    }
+
+    @Benchmark
+    public int trace() throws IOException {
+        return FlowTracer.write(graph, entrypointIds, maxDepth, new OutputLayout(outDir), objectMapper, JsonlWriter.Options.DEFAULT);
+    }
+
+    @Benchmark
+    public long mapBfs() throws IOException {
+        long reached = 0;
+        OutputLayout layout = new OutputLayout(outDir);
+        Files.createDirectories(layout.getFlowsDir());
+        try (JsonlWriter writer = new JsonlWriter(layout.getFlows(), objectMapper)) {
+            for (String entrypoint : entrypointIds) {
+                Set<String> visited = new HashSet<>(List.of(entrypoint));
+                List<Flow.Step> steps = new ArrayList<>(List.of(new Flow.Step(entrypoint, 0, -1)));
+                for (int head = 0; head < steps.size(); head++) {
+                    Flow.Step step = steps.get(head);
+                    if (step.depth() == maxDepth) {
+                        continue;
+                    }
+                    for (String callee : adjacency.getOrDefault(step.nodeId(), List.of())) {
+                        if (visited.add(callee)) {
+                            steps.add(new Flow.Step(callee, step.depth() + 1, head));
+                        }
+                    }
+                }
+                writer.writeObject(new Flow(entrypoint, false, steps));
+                reached += steps.size();
+            }
+            writer.commit();
+        }
+        return reached;
+    }
+}
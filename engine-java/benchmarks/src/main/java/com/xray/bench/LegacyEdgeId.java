@@ -0,0 +1,31 @@
+package com.xray.bench;
+
+import com.xray.model.Enums;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * EdgeId as it was before the allocation-light rewrite, kept as the benchmark baseline.
+ */
+final class LegacyEdgeId {
+
+    private LegacyEdgeId() {}
+
+    static String of(Enums.EdgeType type, String fromId, String toId, String extra) {
+        String payload = type + "|" + fromId + "|" + toId + "|" + (extra == null ? "" : extra);
+        return "e:" + sha256Hex(payload).substring(0, 16);
+    }
+
+    private static String sha256Hex(String s) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] d = md.digest(s.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (byte b : d) sb.append(String.format("%02x", b));
+            return sb.toString();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.xray.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xray.io.IndexWriter;
+import com.xray.io.JsonlWriter;
+import com.xray.io.NodeIndexes;
+import com.xray.io.OutputLayout;
+import com.xray.model.Node;
+import com.xray.parse.NodeBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Output of the synthetic repo: NodeBuilder.buildNodes streamed through JsonlWriter into nodes.jsonl,
+ * and the name/file indexes built as NodeIndexes and written through IndexWriter.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class OutputBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private Path outDir;
+    private OutputLayout layout;
+    private IndexWriter indexWriter;
+    private NodeIndexes indexes;
+
+    @Setup
+    public void setUp(RepoState repo) throws IOException {
+        outDir = Files.createTempDirectory("xray-bench-out");
+        layout = new OutputLayout(outDir);
+        indexWriter = new IndexWriter(objectMapper);
+        indexes = buildIndexes(repo);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        RepoState.deleteRecursively(outDir);
+    }
+
+    @Benchmark
+    public long nodesJsonl(RepoState repo) throws IOException {
+        long written = 0;
+        try (JsonlWriter writer = new JsonlWriter(layout.getNodes(), objectMapper)) {
+            for (Iterator<Node> nodes = NodeBuilder.buildNodes(repo.astIndex).iterator(); nodes.hasNext(); ) {
+                writer.writeObject(nodes.next());
+                written++;
+            }
+            writer.commit();
+        }
+        return written;
+    }
+
+    @Benchmark
+    public NodeIndexes buildIndexes(RepoState repo) {
+        NodeIndexes built = new NodeIndexes();
+        for (Iterator<Node> nodes = NodeBuilder.buildNodes(repo.astIndex).iterator(); nodes.hasNext(); ) {
+            built.add(nodes.next());
+        }
+        return built;
+    }
+
+    @Benchmark
+    public void indexes() throws IOException {
+        indexWriter.writeNameToIds(layout, indexes);
+        indexWriter.writeFileToIds(layout, indexes);
+    }
+}
@@ -0,0 +1,56 @@
+package com.xray.bench;
+
+import com.xray.model.ParsePipelineResult;
+import com.xray.parse.JavaParserFactory;
+import com.xray.parse.ParsePipeline;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Parsing and draft extraction: a single file at a time (the per-file work of ParsePipeline.parseFile)
+ * and the whole synthetic repo, sequential and on all cores.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ParseBenchmark {
+
+    private ParsePipeline sequential;
+    private ParsePipeline parallel;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        sequential = ParsePipeline.builder()
+                .javaParserFactory(JavaParserFactory::initialize)
+                .build();
+        parallel = ParsePipeline.builder()
+                .javaParserFactory(JavaParserFactory::initialize)
+                .workers(Runtime.getRuntime().availableProcessors())
+                .build();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public ParsePipelineResult parseFile(RepoState repo) {
+        Path file = repo.files.get(next++ % repo.files.size());
+        return sequential.parseAll(Stream.of(file));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public ParsePipelineResult parseRepo(RepoState repo) {
+        return sequential.parseAll(repo.files.stream());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public ParsePipelineResult parseRepoParallel(RepoState repo) {
+        return parallel.parseAll(repo.files.stream());
+    }
+}
@@ -0,0 +1,104 @@
+package com.xray.bench;
+
+import com.xray.model.ParsePipelineResult;
+import com.xray.parse.JavaParserFactory;
+import com.xray.parse.ParsePipeline;
+import com.xray.parse.ParseProfile;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Parser profiles compared on one corpus: sequential parse time of all of it with the compilation units retained,
+ * and the heap those units keep per file (used heap after a full GC, with and without them).
+ * <p>
+ * The corpus is a synthetic repo of `classes` classes unless -p corpus=/path/to/sources names a directory of real
+ * ones, e.g. java.base unpacked from the JDK's lib/src.zip. The per-file retained size is reported as the
+ * retainedBytesPerFile counter of the retained benchmark.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ParseProfileBenchmark {
+
+    @Param({"FAST", "FULL"})
+    public ParseProfile profile;
+
+    @Param({""})
+    public String corpus;
+
+    @Param({"1000"})
+    public int classes;
+
+    private Path generated;
+    private List<Path> files;
+    private ParsePipeline pipeline;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        if (corpus.isEmpty()) {
+            generated = Files.createTempDirectory("xray-bench-repo");
+            files = SyntheticRepo.generate(generated, classes);
+        } else {
+            try (Stream<Path> paths = Files.walk(Path.of(corpus))) {
+                files = paths.filter(path -> path.toString().endsWith(".java")).sorted().toList();
+            }
+        }
+        pipeline = ParsePipeline.builder()
+                .javaParserFactory(() -> JavaParserFactory.initialize(profile))
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (generated != null) {
+            RepoState.deleteRecursively(generated);
+        }
+    }
+
+    @Benchmark
+    public ParsePipelineResult parseCorpus() {
+        return pipeline.parseAll(files.stream());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public ParsePipelineResult retained(RetainedHeap heap, BenchmarkParams params) {
+        long before = usedAfterGc();
+        ParsePipelineResult result = pipeline.parseAll(files.stream());
+        long perFile = (usedAfterGc() - before) / Math.max(1, result.astIndex().fileToCu().size());
+        // event counters are summed over the measurement iterations: report each one's share of the mean
+        heap.retainedBytesPerFile = perFile / params.getMeasurement().getCount();
+        return result;
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class RetainedHeap {
+        public long retainedBytesPerFile;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            retainedBytesPerFile = 0;
+        }
+    }
+
+    private static long usedAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
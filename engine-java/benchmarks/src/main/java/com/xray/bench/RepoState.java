@@ -0,0 +1,52 @@
+package com.xray.bench;
+
+import com.xray.parse.AstIndex;
+import com.xray.parse.JavaParserFactory;
+import com.xray.parse.ParsePipeline;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * A synthetic repo of `classes` classes (override with -p classes=100000), generated once per trial,
+ * plus its parsed AstIndex with the compilation units retained.
+ */
+@State(Scope.Benchmark)
+public class RepoState {
+
+    @Param({"1000"})
+    public int classes;
+
+    public Path root;
+    public List<Path> files;
+    public AstIndex astIndex;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("xray-bench-repo");
+        files = SyntheticRepo.generate(root, classes);
+        astIndex = ParsePipeline.builder()
+                .javaParserFactory(JavaParserFactory::initialize)
+                .build()
+                .parseAll(files.stream())
+                .astIndex();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        deleteRecursively(root);
+    }
+
+    static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
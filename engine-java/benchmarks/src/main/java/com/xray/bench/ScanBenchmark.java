@@ -0,0 +1,85 @@
+package com.xray.bench;
+
+import com.xray.config.EngineConfig;
+import com.xray.parse.RepoScanner;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * RepoScanner on a checkout with vendored trees: a synthetic repo of @Param classes, plus node_modules, target and
+ * .git directories of @Param vendoredFiles files each (the trees real checkouts carry next to their sources).
+ * legacyWalk is the previous scanner, Files.walk over everything with the include filter applied per file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScanBenchmark {
+
+    private static final int FILES_PER_DIR = 20;
+
+    @Param({"2000"})
+    public int classes;
+
+    @Param({"50000"})
+    public int vendoredFiles;
+
+    private Path root;
+    private EngineConfig engineConfig;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("xray-bench-scan");
+        SyntheticRepo.generate(root, classes);
+        Files.writeString(root.resolve(".gitignore"), "target/\n");
+        for (String vendored : new String[]{"node_modules", "target", ".git"}) {
+            for (int i = 0; i < vendoredFiles; i++) {
+                Path dir = root.resolve(vendored).resolve("d" + i / (FILES_PER_DIR * FILES_PER_DIR)).resolve("e" + i / FILES_PER_DIR);
+                Files.createDirectories(dir);
+                Files.writeString(dir.resolve("f" + i + ".js"), "");
+            }
+        }
+        engineConfig = new EngineConfig(root, root.resolve(".xray"), EngineConfig.Options.builder()
+                .includeGlobs(Set.of("src/main/java/**"))
+                .excludeGlobs(Set.of("**/.git/**", "**/node_modules/**"))
+                .maxDepth(500)
+                .build());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        RepoState.deleteRecursively(root);
+    }
+
+    @Benchmark
+    public long findJavaFiles() throws IOException {
+        return RepoScanner.findJavaFiles(engineConfig).size();
+    }
+
+    @Benchmark
+    public long findSourceRoots() throws IOException {
+        return RepoScanner.findSourceRoots(engineConfig).size();
+    }
+
+    @Benchmark
+    public long legacyWalk() throws IOException {
+        PathMatcher include = FileSystems.getDefault().getPathMatcher("glob:src/main/java/**");
+        try (Stream<Path> files = Files.walk(root)) {
+            return files
+                    .filter(Files::isRegularFile)
+                    .filter(p -> p.toString().endsWith(".java"))
+                    .filter(p -> include.matches(root.relativize(p)))
+                    .count();
+        }
+    }
+}
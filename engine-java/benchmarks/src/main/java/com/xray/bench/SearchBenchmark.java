@@ -0,0 +1,95 @@
+package com.xray.bench;
+
+import com.xray.io.IndexWriter;
+import com.xray.io.NodeIndexes;
+import com.xray.io.OutputLayout;
+import com.xray.io.SearchIndex;
+import com.xray.model.Node;
+import com.xray.model.SourceRange;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.xray.model.Enums.*;
+
+/**
+ * Queries against index/search.bin built from @Param nodes class and method nodes with Spring-style names
+ * (a fixed seed, so every run indexes the same names).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+
+    private static final String[] WORDS = {
+            "Order", "Customer", "Invoice", "Payment", "Shipment", "Product", "Account", "User", "Audit", "Report",
+            "Service", "Repository", "Controller", "Mapper", "Client", "Handler", "Config", "Impl", "Dto", "Event"
+    };
+    private static final String[] VERBS = {"find", "save", "delete", "update", "get", "list", "create", "validate", "map", "send"};
+
+    @Param({"1000000"})
+    public int nodes;
+
+    private Path outDir;
+    private SearchIndex index;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(7);
+        NodeIndexes indexes = new NodeIndexes();
+        for (int i = 0; i < nodes; i++) {
+            boolean method = i % 5 != 0;
+            StringBuilder name = new StringBuilder(method ? VERBS[random.nextInt(VERBS.length)] : "");
+            for (int w = 0, n = 1 + random.nextInt(3); w < n; w++) {
+                name.append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            name.append(i % 1000);
+            String id = "com.acme.p" + (i % 100) + "." + name + (method ? "#m():void" : "");
+            indexes.add(Node.v1(id, method ? NodeKind.METHOD : NodeKind.CLASS, name.toString(), "com.acme.p" + (i % 100),
+                    null, null, new SourceRange("src/F" + i / 20 + ".java", 1, 1, 2, 1), List.of(), List.of(), List.of(), Map.of(), "h"));
+        }
+        outDir = Files.createTempDirectory("xray-bench-search");
+        OutputLayout layout = new OutputLayout(outDir);
+        new IndexWriter(null).writeSearchIndex(layout, indexes);
+        index = SearchIndex.open(layout.getSearchIndex());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        RepoState.deleteRecursively(outDir);
+    }
+
+    @Benchmark
+    public List<SearchIndex.Match> prefix() {
+        return index.prefix("findCustomerInv", 20);
+    }
+
+    @Benchmark
+    public List<SearchIndex.Match> substring() {
+        return index.substring("paymentmapper", 20);
+    }
+
+    @Benchmark
+    public List<SearchIndex.Match> substringRare() {
+        return index.substring("ditDtoEve", 20);
+    }
+
+    @Benchmark
+    public List<SearchIndex.Match> camelHump() {
+        return index.camelHump("spc", 20);
+    }
+
+    @Benchmark
+    public List<SearchIndex.Match> search() {
+        return index.search("ordserv", 20);
+    }
+}
@@ -0,0 +1,165 @@
+package com.xray.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates a Spring-style repo under root/src/main/java with the given number of classes, so benchmarks run on
+ * reproducible input without network or a checked-out project.
+ * <p>
+ * Classes come in slices of four (entity, repository, service, controller), 50 slices per package; the controller
+ * has HTTP mappings and calls the service, the service calls the repository. The output only depends on classCount.
+ * <p>
+ * Usage: java -cp xray-benchmarks.jar com.xray.bench.SyntheticRepo &lt;dir&gt; &lt;classCount&gt;
+ */
+public final class SyntheticRepo {
+
+    private static final int CLASSES_PER_SLICE = 4;
+    private static final int SLICES_PER_PACKAGE = 50;
+
+    private SyntheticRepo() {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: SyntheticRepo <dir> <classCount>");
+            System.exit(2);
+        }
+        List<Path> files = generate(Path.of(args[0]), Integer.parseInt(args[1]));
+        System.out.println("Generated " + files.size() + " files under " + args[0]);
+    }
+
+    /**
+     * Returns the generated files in a stable order. classCount is rounded up to a multiple of four.
+     */
+    public static List<Path> generate(Path root, int classCount) throws IOException {
+        Path sourceRoot = root.resolve("src/main/java");
+        int slices = Math.max(1, (classCount + CLASSES_PER_SLICE - 1) / CLASSES_PER_SLICE);
+        List<Path> files = new ArrayList<>(slices * CLASSES_PER_SLICE);
+        for (int i = 0; i < slices; i++) {
+            String packageName = "com.acme.shop.p" + (i / SLICES_PER_PACKAGE);
+            Path packageDir = sourceRoot.resolve(packageName.replace('.', '/'));
+            Files.createDirectories(packageDir);
+            files.add(write(packageDir, "Order" + i, entity(packageName, i)));
+            files.add(write(packageDir, "Order" + i + "Repository", repository(packageName, i)));
+            files.add(write(packageDir, "Order" + i + "Service", service(packageName, i)));
+            files.add(write(packageDir, "Order" + i + "Controller", controller(packageName, i)));
+        }
+        return files;
+    }
+
+    private static Path write(Path packageDir, String className, String source) throws IOException {
+        Path file = packageDir.resolve(className + ".java");
+        Files.writeString(file, source);
+        return file;
+    }
+
+    private static String entity(String packageName, int i) {
+        return """
+                package %1$s;
+
+                public class Order%2$d {
+                    private String id;
+                    private long amount;
+
+                    public String getId() { return id; }
+                    public void setId(String id) { this.id = id; }
+                    public long getAmount() { return amount; }
+                    public void setAmount(long amount) { this.amount = amount; }
+                }
+                """.formatted(packageName, i);
+    }
+
+    private static String repository(String packageName, int i) {
+        return """
+                package %1$s;
+
+                import java.util.List;
+                import org.springframework.stereotype.Repository;
+
+                @Repository
+                public interface Order%2$dRepository {
+                    Order%2$d findById(String id);
+                    List<Order%2$d> findAll();
+                    Order%2$d save(Order%2$d order);
+                }
+                """.formatted(packageName, i);
+    }
+
+    private static String service(String packageName, int i) {
+        return """
+                package %1$s;
+
+                import java.util.List;
+                import org.springframework.stereotype.Service;
+
+                @Service
+                public class Order%2$dService {
+                    private final Order%2$dRepository repository;
+
+                    public Order%2$dService(Order%2$dRepository repository) {
+                        this.repository = repository;
+                    }
+
+                    public Order%2$d find(String id) {
+                        return repository.findById(id);
+                    }
+
+                    public List<Order%2$d> list() {
+                        return repository.findAll();
+                    }
+
+                    public Order%2$d save(Order%2$d order) {
+                        validate(order);
+                        return repository.save(order);
+                    }
+
+                    private void validate(Order%2$d order) {
+                        if (order.getAmount() < 0) {
+                            throw new IllegalArgumentException("negative amount");
+                        }
+                    }
+                }
+                """.formatted(packageName, i);
+    }
+
+    private static String controller(String packageName, int i) {
+        return """
+                package %1$s;
+
+                import java.util.List;
+                import org.springframework.web.bind.annotation.*;
+
+                @RestController
+                @RequestMapping("/api/orders%2$d")
+                public class Order%2$dController {
+                    private final Order%2$dService service;
+
+                    public Order%2$dController(Order%2$dService service) {
+                        this.service = service;
+                    }
+
+                    @GetMapping("/{id}")
+                    public Order%2$d get(@PathVariable("id") String id) {
+                        return service.find(id);
+                    }
+
+                    @GetMapping
+                    public List<Order%2$d> list() {
+                        return service.list();
+                    }
+
+                    @PostMapping
+                    public Order%2$d create(@RequestBody Order%2$d order) {
+                        return service.save(order);
+                    }
+
+                    @RequestMapping(value = "/{id}", method = RequestMethod.DELETE)
+                    public void delete(@PathVariable("id") String id) {
+                    }
+                }
+                """.formatted(packageName, i);
+    }
+}
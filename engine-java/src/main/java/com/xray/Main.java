@@ -1,26 +1,43 @@
 package com.xray;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import com.github.javaparser.JavaParser;
 import com.xray.config.ArgsParser;
 import com.xray.config.EngineConfig;
-import com.xray.engine.Engine;
-import com.xray.parse.JavaParserFactory;
-import com.xray.parse.ParsePipeline;
+import com.xray.config.WatchConfig;
+import com.xray.daemon.EngineDaemon;
+import com.xray.engine.EngineFactory;
+import com.xray.watch.SourceWatcher;
+
+import java.util.concurrent.Callable;
 
 public class Main {
 
     public static void main(String[] args) throws Exception {
-        EngineConfig engineConfig = ArgsParser.parse(args);
-        ObjectMapper objectMapper = new ObjectMapper()
-                .registerModule(new JavaTimeModule())
-                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
-        JavaParser javaParser = JavaParserFactory.initialize();
-        ParsePipeline parsePipeline = new ParsePipeline(javaParser);
-        Engine engine = new Engine(parsePipeline, objectMapper);
+        if (ArgsParser.isDaemon(args)) {
+            new EngineDaemon(parseOrExit(() -> ArgsParser.parseDaemon(args))).run();
+            return;
+        }
+        if (ArgsParser.isWatch(args)) {
+            WatchConfig watchConfig = parseOrExit(() -> ArgsParser.parseWatch(args));
+            ObjectMapper objectMapper = EngineFactory.objectMapper();
+            try (SourceWatcher watcher = new SourceWatcher(
+                    sourceRoots -> EngineFactory.create(watchConfig.engineConfig(), sourceRoots, objectMapper, true), watchConfig)) {
+                watcher.run();
+            }
+            return;
+        }
+        EngineConfig engineConfig = parseOrExit(() -> ArgsParser.parse(args));
+        ObjectMapper objectMapper = EngineFactory.objectMapper();
+        EngineFactory.create(engineConfig, objectMapper, false).analyze(engineConfig);
+    }
 
-        engine.analyze(engineConfig);
+    private static <T> T parseOrExit(Callable<T> parsing) throws Exception {
+        try {
+            return parsing.call();
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+            return null;
+        }
     }
 }
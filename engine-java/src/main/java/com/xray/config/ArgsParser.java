@@ -1,15 +1,29 @@
 package com.xray.config;
 
+import com.xray.parse.ParseProfile;
+
+import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 
 public final class ArgsParser {
 
+    public static final String USAGE = "Usage: java -jar xray-engine.jar --input <repoPath> --out <outDir> [--parallel] [--workers <n>] [--prefetch <n>] [--incremental] [--streaming] [--resolve] [--classpath <jars>] [--resolve-cache <n>] [--slowest <n>] [--jfr <file>] [--binary-nodes] [--gzip] [--write-buffer <bytes>] [--shards <n>] [--exclude <globs>] [--max-depth <n>] [--parse-cache [--parse-cache-dir <dir>] [--parse-cache-mb <n>]] [--parse-profile <fast|full>] [--watch [--debounce <ms>]]\n"
+            + "       java -jar xray-engine.jar --daemon [--daemon-file <file>] [--idle-timeout <minutes>]";
+
+    /**
+     * Missing or invalid arguments throw IllegalArgumentException with a message meant for the user
+     */
     public static EngineConfig parse(String[] args) throws IOException {
         Map<String, String> argsMap = parseArgs(args);
 
@@ -17,21 +31,37 @@ public final class ArgsParser {
         String out = argsMap.get("out");
 
         if (input == null || out == null) {
-            System.err.println("Usage: java -jar xray-engine.jar --input <repoPath> --out <outDir>");
-            System.exit(2);
+            throw new IllegalArgumentException(USAGE);
         }
 
         Path repoRoot = Paths.get(input).toAbsolutePath().normalize();
         Path outDir = Path.of(out);
         Files.createDirectories(outDir);
 
-        EngineConfig.Options options = new EngineConfig.Options(
-                Set.of("src/main/java/**"),
-                Set.of(),
-                false,
-                false,
-                500
-        );
+        EngineConfig.Options options = EngineConfig.Options.builder()
+                .includeGlobs(Set.of("src/main/java/**"))
+                .excludeGlobs(excludeGlobs(argsMap))
+                .includeTests(false)
+                .enableSummaries(false)
+                .maxDepth(intArg(argsMap, "max-depth", 500, 0))
+                .parallelParsing(argsMap.containsKey("parallel"))
+                .parseWorkers(intArg(argsMap, "workers", Runtime.getRuntime().availableProcessors()))
+                .prefetchFiles(intArg(argsMap, "prefetch", 0))
+                .incremental(argsMap.containsKey("incremental"))
+                .streaming(argsMap.containsKey("streaming"))
+                .resolveSymbols(argsMap.containsKey("resolve"))
+                .classpath(pathListArg(argsMap, "classpath"))
+                .resolutionCacheSize(intArg(argsMap, "resolve-cache", 10_000))
+                .slowestFiles(intArg(argsMap, "slowest", 10))
+                .binaryNodes(argsMap.containsKey("binary-nodes"))
+                .gzipOutput(argsMap.containsKey("gzip"))
+                .writeBufferBytes(intArg(argsMap, "write-buffer", 1 << 20))
+                .outputShards(intArg(argsMap, "shards", 1))
+                .parseCacheDir(parseCacheDir(argsMap))
+                .parseCacheBytes(intArg(argsMap, "parse-cache-mb", 512) * (1L << 20))
+                .parseProfile(parseProfile(argsMap))
+                .jfrFile(argsMap.containsKey("jfr") ? Path.of(argsMap.get("jfr")).toAbsolutePath().normalize() : null)
+                .build();
         return new EngineConfig(
                 repoRoot,
                 outDir,
@@ -39,6 +69,31 @@ public final class ArgsParser {
         );
     }
 
+    public static boolean isWatch(String[] args) {
+        return parseArgs(args).containsKey("watch");
+    }
+
+    public static WatchConfig parseWatch(String[] args) throws IOException {
+        return new WatchConfig(
+                parse(args),
+                Duration.ofMillis(intArg(parseArgs(args), "debounce", 300))
+        );
+    }
+
+    public static boolean isDaemon(String[] args) {
+        return parseArgs(args).containsKey("daemon");
+    }
+
+    public static DaemonConfig parseDaemon(String[] args) {
+        Map<String, String> argsMap = parseArgs(args);
+        return new DaemonConfig(
+                argsMap.containsKey("daemon-file")
+                        ? Path.of(argsMap.get("daemon-file")).toAbsolutePath().normalize()
+                        : DaemonConfig.defaultDaemonFile(),
+                Duration.ofMinutes(intArg(argsMap, "idle-timeout", 30))
+        );
+    }
+
     private static Map<String, String> parseArgs(String[] args) {
         Map<String, String> m = new HashMap<>();
         for (int i = 0; i < args.length; i++) {
@@ -47,8 +102,131 @@ public final class ArgsParser {
                 m.put("input", args[++i]);
             } else if (a.equals("--out") && i + 1 < args.length) {
                 m.put("out", args[++i]);
+            } else if (a.equals("--parallel")) {
+                m.put("parallel", "true");
+            } else if (a.equals("--workers") && i + 1 < args.length) {
+                m.put("workers", args[++i]);
+            } else if (a.equals("--prefetch") && i + 1 < args.length) {
+                m.put("prefetch", args[++i]);
+            } else if (a.equals("--incremental")) {
+                m.put("incremental", "true");
+            } else if (a.equals("--streaming")) {
+                m.put("streaming", "true");
+            } else if (a.equals("--resolve")) {
+                m.put("resolve", "true");
+            } else if (a.equals("--classpath") && i + 1 < args.length) {
+                m.put("classpath", args[++i]);
+            } else if (a.equals("--resolve-cache") && i + 1 < args.length) {
+                m.put("resolve-cache", args[++i]);
+            } else if (a.equals("--slowest") && i + 1 < args.length) {
+                m.put("slowest", args[++i]);
+            } else if (a.equals("--jfr") && i + 1 < args.length) {
+                m.put("jfr", args[++i]);
+            } else if (a.equals("--binary-nodes")) {
+                m.put("binary-nodes", "true");
+            } else if (a.equals("--gzip")) {
+                m.put("gzip", "true");
+            } else if (a.equals("--write-buffer") && i + 1 < args.length) {
+                m.put("write-buffer", args[++i]);
+            } else if (a.equals("--shards") && i + 1 < args.length) {
+                m.put("shards", args[++i]);
+            } else if (a.equals("--exclude") && i + 1 < args.length) {
+                m.put("exclude", args[++i]);
+            } else if (a.equals("--max-depth") && i + 1 < args.length) {
+                m.put("max-depth", args[++i]);
+            } else if (a.equals("--parse-cache")) {
+                m.put("parse-cache", "true");
+            } else if (a.equals("--parse-cache-dir") && i + 1 < args.length) {
+                m.put("parse-cache-dir", args[++i]);
+            } else if (a.equals("--parse-cache-mb") && i + 1 < args.length) {
+                m.put("parse-cache-mb", args[++i]);
+            } else if (a.equals("--parse-profile") && i + 1 < args.length) {
+                m.put("parse-profile", args[++i]);
+            } else if (a.equals("--watch")) {
+                m.put("watch", "true");
+            } else if (a.equals("--debounce") && i + 1 < args.length) {
+                m.put("debounce", args[++i]);
+            } else if (a.equals("--daemon")) {
+                m.put("daemon", "true");
+            } else if (a.equals("--daemon-file") && i + 1 < args.length) {
+                m.put("daemon-file", args[++i]);
+            } else if (a.equals("--idle-timeout") && i + 1 < args.length) {
+                m.put("idle-timeout", args[++i]);
             }
         }
         return m;
     }
+
+    /**
+     * Never Java sources, and expensive to walk; --exclude adds comma separated globs (relative to the repo root).
+     * Build output such as target/ is usually covered by the repo's .gitignore.
+     */
+    private static Set<String> excludeGlobs(Map<String, String> argsMap) {
+        Set<String> excludeGlobs = new LinkedHashSet<>(List.of("**/.git/**", "**/node_modules/**"));
+        String value = argsMap.get("exclude");
+        if (value != null) {
+            Arrays.stream(value.split(","))
+                    .map(String::trim)
+                    .filter(s -> !s.isEmpty())
+                    .forEach(excludeGlobs::add);
+        }
+        return excludeGlobs;
+    }
+
+    /**
+     * --parse-cache uses parse/ in the xray cache dir, --parse-cache-dir (which implies --parse-cache) another dir
+     */
+    private static Path parseCacheDir(Map<String, String> argsMap) {
+        if (argsMap.containsKey("parse-cache-dir")) {
+            return Path.of(argsMap.get("parse-cache-dir")).toAbsolutePath().normalize();
+        }
+        return argsMap.containsKey("parse-cache") ? CacheDir.root().resolve("parse") : null;
+    }
+
+    private static ParseProfile parseProfile(Map<String, String> argsMap) {
+        String value = argsMap.getOrDefault("parse-profile", "fast");
+        try {
+            return ParseProfile.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid value for --parse-profile: " + value + " (expected fast or full)");
+        }
+    }
+
+    /**
+     * Entries separated by the platform path separator, like a java classpath
+     */
+    private static List<Path> pathListArg(Map<String, String> argsMap, String name) {
+        String value = argsMap.get(name);
+        if (value == null || value.isBlank()) {
+            return List.of();
+        }
+        return Arrays.stream(value.split(File.pathSeparator))
+                .filter(s -> !s.isBlank())
+                .map(s -> Paths.get(s).toAbsolutePath().normalize())
+                .toList();
+    }
+
+    private static int intArg(Map<String, String> argsMap, String name, int defaultValue) {
+        return intArg(argsMap, name, defaultValue, 1);
+    }
+
+    /**
+     * minimum: 0 for options where 0 means "no limit"
+     */
+    private static int intArg(Map<String, String> argsMap, String name, int defaultValue, int minimum) {
+        String value = argsMap.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed < minimum) {
+                throw new NumberFormatException();
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value for --" + name + ": " + value
+                    + (minimum > 0 ? " (expected a positive integer)" : " (expected a non-negative integer)"));
+        }
+    }
 }
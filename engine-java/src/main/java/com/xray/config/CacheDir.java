@@ -0,0 +1,22 @@
+package com.xray.config;
+
+import java.nio.file.Path;
+
+/**
+ * The per-user xray cache dir, home of the daemon file and the parse cache
+ */
+public final class CacheDir {
+
+    private CacheDir() {}
+
+    /**
+     * $XDG_CACHE_HOME/xray, ~/.cache/xray when XDG_CACHE_HOME is not set
+     */
+    public static Path root() {
+        String cacheHome = System.getenv("XDG_CACHE_HOME");
+        Path cacheDir = cacheHome == null || cacheHome.isBlank()
+                ? Path.of(System.getProperty("user.home"), ".cache")
+                : Path.of(cacheHome);
+        return cacheDir.resolve("xray");
+    }
+}
@@ -0,0 +1,17 @@
+package com.xray.config;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+public record DaemonConfig(
+        Path daemonFile,         // port, pid and token of the running daemon; default: ~/.cache/xray/daemon.json
+        Duration idleTimeout     // the daemon exits after this long without requests, default 30 minutes
+) {
+
+    /**
+     * daemon.json in the xray cache dir (see CacheDir)
+     */
+    public static Path defaultDaemonFile() {
+        return CacheDir.root().resolve("daemon.json");
+    }
+}
@@ -1,6 +1,10 @@
 package com.xray.config;
 
+import com.xray.parse.ParseProfile;
+import lombok.Builder;
+
 import java.nio.file.Path;
+import java.util.List;
 import java.util.Set;
 
 public record EngineConfig(
@@ -9,11 +13,29 @@ public record EngineConfig(
         Options options
 ) {
 
+    @Builder
     public record Options(
             Set<String> includeGlobs, // e.g. **/src/main/java/**
             Set<String> excludeGlobs, // e.g. **/target/**, **/.git/**
             boolean includeTests,     // default false
             boolean enableSummaries,  // default false
-            int maxDepth)              // for flow/impact BFS limits
+            int maxDepth,             // hops traced from each entrypoint for flows/ (flow/impact BFS limit), 0 = unbounded
+            boolean parallelParsing,  // default false
+            int parseWorkers,         // parse threads when parallelParsing, default: available processors
+            int prefetchFiles,        // files read ahead on virtual threads, 0 = read inline (default)
+            boolean incremental,      // reuse unchanged files from the previous run in outputDir, default false
+            boolean streaming,        // detect per file and drop each AST right after parsing, default false
+            boolean resolveSymbols,   // resolve types and calls with the symbol solver, default false
+            List<Path> classpath,     // dependency jars for symbol resolution
+            int resolutionCacheSize,  // types kept by the symbol solver cache, default 10000
+            int slowestFiles,         // slowest parsed files listed in meta.json profile, default 10
+            Path jfrFile,             // JFR recording of the run (with xray phase/file events), null = none
+            boolean binaryNodes,      // also write nodes.bin (columnar, memory-mappable), default false
+            boolean gzipOutput,       // write nodes/edges as gzip-compressed .jsonl.gz, default false
+            int writeBufferBytes,     // bytes buffered per output file before hitting the disk, default 1 MiB
+            int outputShards,         // nodes-XXXX.jsonl shards written concurrently, 1 = a single nodes.jsonl (default)
+            Path parseCacheDir,       // content-addressed parse results shared across runs and checkouts, null = off (default)
+            long parseCacheBytes,     // size bound of parseCacheDir, least recently used entries go first; default 512 MiB
+            ParseProfile parseProfile) // what parsed files keep besides AST and ranges, null = FAST (default)
     {}
 }
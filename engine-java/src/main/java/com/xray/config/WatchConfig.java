@@ -0,0 +1,8 @@
+package com.xray.config;
+
+import java.time.Duration;
+
+public record WatchConfig(
+        EngineConfig engineConfig,
+        Duration debounce        // quiet time that ends a burst of changes before re-analyzing, default 300 ms
+) {}
@@ -0,0 +1,269 @@
+package com.xray.daemon;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xray.config.ArgsParser;
+import com.xray.config.DaemonConfig;
+import com.xray.config.EngineConfig;
+import com.xray.engine.Engine;
+import com.xray.engine.EngineFactory;
+import com.xray.model.Meta;
+import com.xray.parse.ParseProfile;
+import com.xray.parse.RepoScanner;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Resident engine (--daemon): analyses run in a warm JVM instead of a fresh one per run. Engines are kept per
+ * parser setup and retain the drafts of their last run, so re-analyzing a repo only parses the files that changed.
+ * Symbol resolution is set up again for every run, since its solvers cache the source types they parse.
+ * <p>
+ * Protocol: one JSON request line per connection on a loopback port, answered with one JSON response line.
+ * The port and a random token are published in the daemon file (readable by the owner only); every request
+ * carries the token.
+ * <pre>
+ * {"token": "...", "command": "analyze", "args": ["--input", "/repo", "--out", "/repo/.xray"]}
+ * {"ok": true, "engineVersion": "0.0.1", "stats": {...}, "elapsedMs": 412}
+ * </pre>
+ * Commands: analyze (args as on the command line, with absolute paths), ping, shutdown. Analyses run one at a time.
+ */
+@Slf4j
+public final class EngineDaemon {
+
+    private static final int MAX_ENGINES = 4;
+    private static final int ACCEPT_POLL_MS = 1_000;
+    // a client that connects and never sends its line would otherwise hold activeRequests up, and the daemon alive
+    private static final int REQUEST_READ_TIMEOUT_MS = 30_000;
+
+    private final DaemonConfig config;
+    private final ObjectMapper objectMapper = EngineFactory.objectMapper();
+    private final String token;
+    // not synchronized: requests run on virtual threads, which a monitor would pin while the engine forks work
+    private final ReentrantLock analysisLock = new ReentrantLock();
+    private final AtomicInteger activeRequests = new AtomicInteger();
+    private final Map<EngineKey, Engine> engines = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<EngineKey, Engine> eldest) {
+            return size() > MAX_ENGINES;
+        }
+    };
+    private volatile boolean stopping;
+    private volatile long lastActivityNanos = System.nanoTime();
+
+    public EngineDaemon(DaemonConfig config) {
+        this.config = config;
+        byte[] tokenBytes = new byte[32];
+        new SecureRandom().nextBytes(tokenBytes);
+        this.token = HexFormat.of().formatHex(tokenBytes);
+    }
+
+    /**
+     * Serves until a shutdown request or the idle timeout; removes the daemon file on the way out
+     */
+    public void run() throws IOException {
+        try (ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            server.setSoTimeout(ACCEPT_POLL_MS);
+            writeDaemonFile(server.getLocalPort());
+            log.info("Engine daemon listening on {}:{} (daemon file {})",
+                    server.getInetAddress().getHostAddress(), server.getLocalPort(), config.daemonFile());
+            while (!stopping) {
+                try {
+                    Socket socket = server.accept();
+                    activeRequests.incrementAndGet();
+                    lastActivityNanos = System.nanoTime();
+                    Thread.ofVirtual().name("xray-daemon-request").start(() -> serve(socket));
+                } catch (SocketTimeoutException e) {
+                    if (activeRequests.get() == 0 && idleFor().compareTo(config.idleTimeout()) >= 0) {
+                        log.info("Engine daemon idle for {}, exiting", config.idleTimeout());
+                        stopping = true;
+                    }
+                }
+            }
+        } finally {
+            deleteDaemonFile();
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             OutputStream out = socket.getOutputStream()) {
+            socket.setSoTimeout(REQUEST_READ_TIMEOUT_MS);
+            String line = reader.readLine();
+            Response response = line == null ? Response.error("Empty request") : handle(line);
+            out.write(objectMapper.writeValueAsBytes(response));
+            out.write('\n');
+            out.flush();
+        } catch (IOException e) {
+            log.warn("Daemon request failed: {}", e.getMessage());
+        } finally {
+            lastActivityNanos = System.nanoTime();
+            activeRequests.decrementAndGet();
+        }
+    }
+
+    private Response handle(String line) {
+        Request request;
+        try {
+            request = objectMapper.readValue(line, Request.class);
+        } catch (IOException e) {
+            return Response.error("Malformed request: " + e.getMessage());
+        }
+        if (request.token() == null || !MessageDigest.isEqual(
+                token.getBytes(StandardCharsets.UTF_8), request.token().getBytes(StandardCharsets.UTF_8))) {
+            return Response.error("Invalid token");
+        }
+        return switch (request.command() == null ? "" : request.command()) {
+            case "ping" -> Response.ok(null, null);
+            case "shutdown" -> {
+                stopping = true;
+                yield Response.ok(null, null);
+            }
+            case "analyze" -> analyze(request.args() == null ? List.of() : request.args());
+            default -> Response.error("Unknown command: " + request.command());
+        };
+    }
+
+    private Response analyze(List<String> args) {
+        long start = System.nanoTime();
+        EngineConfig engineConfig;
+        try {
+            engineConfig = ArgsParser.parse(args.toArray(String[]::new));
+        } catch (IllegalArgumentException | IOException e) {
+            return Response.error(e.getMessage());
+        }
+        analysisLock.lock();
+        try {
+            Meta meta = engine(engineConfig).analyze(engineConfig);
+            return Response.ok(meta.stats(), Duration.ofNanos(System.nanoTime() - start).toMillis());
+        } catch (Exception e) {
+            log.error("Analysis failed", e);
+            return Response.error("Analysis failed: " + e);
+        } finally {
+            analysisLock.unlock();
+        }
+    }
+
+    /**
+     * The source roots are found once per request: they are part of the key and what a new engine resolves against
+     */
+    private Engine engine(EngineConfig engineConfig) throws IOException {
+        List<Path> sourceRoots = engineConfig.options().resolveSymbols()
+                ? List.copyOf(RepoScanner.findSourceRoots(engineConfig))
+                : List.of();
+        EngineKey key = EngineKey.of(engineConfig, sourceRoots);
+        Engine engine = engines.get(key);
+        if (engine == null) {
+            engine = EngineFactory.create(engineConfig, sourceRoots, objectMapper, true);
+            engines.put(key, engine);
+        }
+        return engine;
+    }
+
+    private Duration idleFor() {
+        return Duration.ofNanos(System.nanoTime() - lastActivityNanos);
+    }
+
+    /**
+     * Written to a temp file and moved into place, so clients never read a half-written file
+     */
+    private void writeDaemonFile(int port) throws IOException {
+        Path file = config.daemonFile();
+        Files.createDirectories(file.getParent());
+        Path temp = Files.createTempFile(file.getParent(), "daemon", ".tmp");
+        try {
+            Files.setPosixFilePermissions(temp, PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException e) {
+            // no POSIX permissions (Windows): the file stays in the user's cache dir
+        }
+        objectMapper.writeValue(temp.toFile(), new DaemonInfo(port, ProcessHandle.current().pid(), token, Engine.ENGINE_VERSION));
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Only our own file: a newer daemon may have replaced it in the meantime
+     */
+    private void deleteDaemonFile() {
+        try {
+            DaemonInfo info = objectMapper.readValue(config.daemonFile().toFile(), DaemonInfo.class);
+            if (token.equals(info.token())) {
+                Files.deleteIfExists(config.daemonFile());
+            }
+        } catch (IOException e) {
+            // already gone or unreadable, nothing to clean up
+        }
+    }
+
+    public record DaemonInfo(int port, long pid, String token, String engineVersion) {}
+
+    public record Request(String token, String command, List<String> args) {}
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Response(boolean ok, String error, String engineVersion, Meta.Stats stats, Long elapsedMs) {
+
+        static Response ok(Meta.Stats stats, Long elapsedMs) {
+            return new Response(true, null, Engine.ENGINE_VERSION, stats, elapsedMs);
+        }
+
+        static Response error(String message) {
+            return new Response(false, message, Engine.ENGINE_VERSION, null, null);
+        }
+    }
+
+    /**
+     * The options an Engine is wired from (see EngineFactory); source roots only matter with symbol resolution
+     */
+    private record EngineKey(
+            int workers,
+            int prefetchFiles,
+            boolean streaming,
+            int slowestFiles,
+            boolean resolveSymbols,
+            List<Path> classpath,
+            int resolutionCacheSize,
+            List<Path> sourceRoots,
+            Path parseCacheDir,
+            long parseCacheBytes,
+            ParseProfile parseProfile
+    ) {
+
+        static EngineKey of(EngineConfig engineConfig, List<Path> sourceRoots) {
+            EngineConfig.Options options = engineConfig.options();
+            return new EngineKey(
+                    options.parallelParsing() ? options.parseWorkers() : 1,
+                    options.prefetchFiles(),
+                    options.streaming(),
+                    options.slowestFiles(),
+                    options.resolveSymbols(),
+                    options.resolveSymbols() ? options.classpath() : List.of(),
+                    options.resolveSymbols() ? options.resolutionCacheSize() : 0,
+                    sourceRoots,
+                    options.parseCacheDir(),
+                    options.parseCacheBytes(),
+                    EngineFactory.parseProfile(options)
+            );
+        }
+    }
+}
@@ -2,110 +2,282 @@ package com.xray.engine;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.xray.config.EngineConfig;
+import com.xray.flow.FlowGraph;
+import com.xray.flow.FlowTracer;
+import com.xray.io.IncrementalState;
 import com.xray.io.IndexWriter;
 import com.xray.io.JsonlWriter;
 import com.xray.io.OutputLayout;
+import com.xray.io.ReplacedFile;
+import com.xray.metrics.JfrRecording;
+import com.xray.metrics.RunProfiler;
 import com.xray.model.*;
 import com.xray.parse.*;
-import com.xray.spring.BeanDetector;
 import com.xray.spring.EntrypointDetector;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Instant;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Stream;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Slf4j
 public final class Engine {
 
+    public static final String ENGINE_VERSION = "0.0.1";
+
     private final ParsePipeline parsePipeline;
     private final ObjectMapper objectMapper;
     private final IndexWriter indexWriter;
+    private final NodeOutputWriter nodeOutputWriter;
+    private final boolean retainDrafts;
+    // the last run only, whatever its output dir: drafts are sized like the repo
+    private volatile RetainedRun lastRun;
 
     public Engine(ParsePipeline parsePipeline, ObjectMapper objectMapper) {
+        this(parsePipeline, objectMapper, false);
+    }
+
+    /**
+     * retainDrafts: keep the drafts of the last run in memory and reuse them for the unchanged files of the next run
+     * into the same output dir, as an incremental run would from disk (for engines that outlive a run, like the daemon).
+     * Runs with symbol resolution neither keep nor reuse them.
+     */
+    public Engine(ParsePipeline parsePipeline, ObjectMapper objectMapper, boolean retainDrafts) {
         this.parsePipeline = parsePipeline;
         this.objectMapper = objectMapper;
         this.indexWriter = new IndexWriter(objectMapper);
+        this.nodeOutputWriter = new NodeOutputWriter(objectMapper, indexWriter);
+        this.retainDrafts = retainDrafts;
     }
 
-    public void analyze(EngineConfig engineConfig) throws IOException {
-        OutputLayout outputLayout = new OutputLayout(engineConfig.outputDir());
+    /**
+     * Returns what was written to meta.json
+     */
+    public Meta analyze(EngineConfig engineConfig) throws IOException {
+        Path jfrFile = engineConfig.options().jfrFile();
+        if (jfrFile == null) {
+            return analyzeProfiled(engineConfig);
+        }
+        try (JfrRecording ignored = JfrRecording.start(jfrFile)) {
+            return analyzeProfiled(engineConfig);
+        }
+    }
+
+    /**
+     * Every step runs as a RunProfiler phase; the resulting profile goes into meta.json
+     */
+    private Meta analyzeProfiled(EngineConfig engineConfig) throws IOException {
+        RunProfiler profiler = new RunProfiler();
+        EngineConfig.Options options = engineConfig.options();
+        OutputLayout outputLayout = new OutputLayout(engineConfig.outputDir(), options.gzipOutput());
+        JsonlWriter.Options largeOutputs = JsonlWriter.Options.builder()
+                .flushBytes(options.writeBufferBytes())
+                .gzip(options.gzipOutput())
+                .build();
 
         log.info("Scanning repo: {}", engineConfig.repoRoot().toAbsolutePath());
 
-        try (Stream<Path> files = RepoScanner.findJavaFiles(engineConfig)) {
-            ParsePipelineResult parsePipelineResult = parsePipeline.parseAll(files);
-            AstIndex astIndex = parsePipelineResult.astIndex();
-            EntrypointIndex entrypointIndex = EntrypointDetector.annotateEntrypoints(astIndex);
-            BeanDetector.annotateBeans(astIndex);
+        ReusableDrafts reusableDrafts = ReusableDrafts.NONE;
+        // like the parse cache, not with symbol resolution: an unchanged file's resolved call targets and parameter
+        // types depend on the files around it, which its content hash does not cover
+        Optional<RetainedRun> retained = options.resolveSymbols() ? Optional.empty() : retainedRun(outputLayout);
+        if (options.resolveSymbols()) {
+            if (options.incremental()) {
+                log.info("Unchanged files are not reused with symbol resolution, running a full analysis");
+            }
+        } else if (retained.isPresent()) {
+            reusableDrafts = retained.get().drafts();
+        } else if (options.incremental()) {
+            try (RunProfiler.Phase ignored = profiler.phase("load-previous")) {
+                reusableDrafts = IncrementalState.load(outputLayout, objectMapper, ENGINE_VERSION, options.resolveSymbols())
+                        .<ReusableDrafts>map(state -> state)
+                        .orElse(ReusableDrafts.NONE);
+            }
+        }
 
-            long nodesWritten = writeNodes(astIndex, outputLayout);
-            indexWriter.writeEntrypoints(outputLayout, entrypointIndex);
+        List<Path> files;
+        try (RunProfiler.Phase ignored = profiler.phase("scan")) {
+            files = RepoScanner.findJavaFiles(engineConfig);
+        }
+        ParsePipelineResult parsePipelineResult;
+        // reading and detection are fused into parsing
+        try (RunProfiler.Phase ignored = profiler.phase("parse")) {
+            parsePipelineResult = parsePipeline.parseAll(files.stream(), reusableDrafts);
+        }
+        if (parsePipelineResult.filesReused() > 0) {
+            log.info("Incremental run: reused {} unchanged files, parsed {}",
+                    parsePipelineResult.filesReused(),
+                    parsePipelineResult.filesParsedOk() + parsePipelineResult.filesParsedFailed());
+        }
+        AstIndex astIndex = parsePipelineResult.astIndex();
+        EntrypointIndex entrypointIndex;
+        try (RunProfiler.Phase ignored = profiler.phase("entrypoints")) {
+            // Detectors already ran per file inside the pipeline; reused drafts keep their tags/attributes
+            entrypointIndex = EntrypointDetector.collectEntrypoints(astIndex);
+        }
 
+        // with retained drafts the unchanged node shards of the last run can stay on disk
+        NodeOutputWriter.PreviousOutput previousOutput = retained
+                .map(run -> new NodeOutputWriter.PreviousOutput(run.nodeShards(), run.drafts().changedFiles(astIndex.fileHashes())))
+                .orElse(null);
+        List<Meta.NodeShard> nodeShards;
+        try (RunProfiler.Phase ignored = profiler.phase("write-nodes")) {
+            nodeShards = nodeOutputWriter.write(astIndex, outputLayout, largeOutputs, options.outputShards(), options.binaryNodes(), previousOutput);
+        }
+        long nodesWritten = nodeShards.stream().mapToLong(Meta.NodeShard::nodes).sum();
+        long edgesWritten;
+        FlowGraph.Builder flowGraph = FlowGraph.builder(astIndex.nodeDrafts().keySet());
+        try (RunProfiler.Phase ignored = profiler.phase("write-edges")) {
+            edgesWritten = writeEdges(astIndex, outputLayout, largeOutputs, flowGraph);
+        }
+        try (RunProfiler.Phase ignored = profiler.phase("flows")) {
+            FlowTracer.write(flowGraph.build(), entrypointIndex.http(), options.maxDepth(), outputLayout, objectMapper, largeOutputs);
+        }
+        try (RunProfiler.Phase ignored = profiler.phase("write-indexes")) {
+            indexWriter.writeEntrypoints(outputLayout, entrypointIndex);
+            writeClassRefs(astIndex, outputLayout);
+            writeFileHashes(astIndex, parsePipelineResult.parseProblems(), outputLayout);
             writeProblems(parsePipelineResult.parseProblems(), outputLayout);
-            writeMeta(parsePipelineResult, nodesWritten, engineConfig, outputLayout);
+            // nodes/edges of an earlier run written with the other compression setting
+            for (Path stale : outputLayout.getOtherCompressionOutputs()) {
+                Files.deleteIfExists(stale);
+            }
+        }
+
+        Profile profile = profiler.profile(parsePipelineResult.parseWork());
+        Meta meta = writeMeta(parsePipelineResult, nodesWritten, edgesWritten, profile, nodeShards, engineConfig, outputLayout);
+        if (retainDrafts && options.resolveSymbols()) {
+            lastRun = null;
+        } else if (retainDrafts) {
+            Set<String> filesWithProblems = parsePipelineResult.parseProblems().stream()
+                    .map(ParseProblem::file)
+                    .collect(Collectors.toSet());
+            lastRun = new RetainedRun(outputKey(outputLayout),
+                    RetainedDrafts.of(astIndex, filesWithProblems), meta.analyzedAt(), nodeShards);
         }
+        return meta;
+    }
+
+    /**
+     * The last run with its drafts if it went into this output dir, unless that output has been replaced since
+     * (another process analyzed into the same dir)
+     */
+    private Optional<RetainedRun> retainedRun(OutputLayout outputLayout) {
+        RetainedRun run = lastRun;
+        if (run == null || !run.outputDir().equals(outputKey(outputLayout))) {
+            return Optional.empty();
+        }
+        try {
+            String analyzedAt = objectMapper.readTree(outputLayout.getMeta().toFile()).path("analyzedAt").asText();
+            if (!run.analyzedAt().equals(Instant.parse(analyzedAt))) {
+                log.info("Output dir was written by another run, not reusing retained drafts");
+                return Optional.empty();
+            }
+        } catch (IOException | RuntimeException e) {
+            return Optional.empty();
+        }
+        return Optional.of(run);
+    }
+
+    private static Path outputKey(OutputLayout outputLayout) {
+        return outputLayout.getRoot().toAbsolutePath().normalize();
+    }
+
+    /**
+     * Edges go to disk as EdgeExtractor produces them, never collected in memory (EdgeExtractor emits every edge
+     * once, so there is nothing to deduplicate). Written edges also go into flowGraph, as int pairs.
+     */
+    private long writeEdges(AstIndex astIndex, OutputLayout outputLayout, JsonlWriter.Options writerOptions, FlowGraph.Builder flowGraph) throws IOException {
+        long[] edgesWritten = {0};
+        try (JsonlWriter edgeWriter = new JsonlWriter(outputLayout.getEdges(), objectMapper, writerOptions)) {
+            EdgeExtractor.extract(astIndex, edge -> {
+                try {
+                    edgeWriter.writeObject(edge);
+                    edgesWritten[0]++;
+                    flowGraph.add(edge);
+                } catch (IOException e) {
+                    log.error("Error writing edge, skipping", e);
+                }
+            });
+            edgeWriter.commit();
+        }
+        return edgesWritten[0];
+    }
+
+    /**
+     * Raw references per class, read back by incremental runs to rebuild edges of unchanged files
+     */
+    private void writeClassRefs(AstIndex astIndex, OutputLayout outputLayout) throws IOException {
+        Files.createDirectories(outputLayout.getIndexDir());
+        try (JsonlWriter writer = new JsonlWriter(outputLayout.getClassRefs(), objectMapper)) {
+            for (AstIndex.ClassRefs classRefs : astIndex.classRefs().values()) {
+                writer.writeObject(classRefs);
+            }
+            writer.commit();
+        }
+    }
+
+    /**
+     * Files with parse problems are left out so the next incremental run parses them again (and re-reports the problems)
+     */
+    private void writeFileHashes(AstIndex astIndex, List<ParseProblem> parseProblems, OutputLayout outputLayout) throws IOException {
+        Set<String> filesWithProblems = parseProblems.stream()
+                .map(ParseProblem::file)
+                .collect(Collectors.toSet());
+        Map<String, String> fileHashes = new LinkedHashMap<>(astIndex.fileHashes());
+        fileHashes.keySet().removeAll(filesWithProblems);
+        indexWriter.writeFileHashes(outputLayout, fileHashes);
     }
 
     private void writeProblems(List<ParseProblem> parseProblems, OutputLayout outputLayout) throws IOException {
-        if (parseProblems.isEmpty()) return;
+        if (parseProblems.isEmpty()) {
+            // don't leave problems of an earlier run behind
+            Files.deleteIfExists(outputLayout.getParseProblems());
+            return;
+        }
         try (JsonlWriter writer = new JsonlWriter(outputLayout.getParseProblems(), objectMapper)) {
             for (ParseProblem parseProblem : parseProblems) {
                 writer.writeObject(parseProblem);
             }
+            writer.commit();
         }
     }
 
-    private long writeNodes(AstIndex astIndex, OutputLayout outputLayout) throws IOException {
-        Map<String, List<String>> nameToIds = new HashMap<>();
-        Map<String, List<String>> fileToIds = new HashMap<>();
-        try (JsonlWriter nodeWriter = new JsonlWriter(outputLayout.getNodes(), objectMapper)) {
-            long nodesWritten = NodeBuilder.buildNodes(astIndex)
-                    .map(node -> {
-                        try {
-                            nodeWriter.writeObject(node);
-                            nameToIds.computeIfAbsent(node.name(), k -> new ArrayList<>()).add(node.id());
-                            nameToIds.computeIfAbsent(node.name().toLowerCase(), k -> new ArrayList<>()).add(node.id());
-                            nameToIds.computeIfAbsent(node.fqcn(), k -> new ArrayList<>()).add(node.id());
-                            fileToIds.computeIfAbsent(node.source().file(), k -> new ArrayList<>()).add(node.id());
-                            return true;
-                        } catch (IOException e) {
-                            log.error("Error writing node, skipping", e);
-                            return false;
-                        }
-                    })
-                    .filter(Boolean::booleanValue)
-                    .count();
-
-            indexWriter.writeNameToIds(outputLayout, nameToIds);
-            indexWriter.writeFileToIds(outputLayout, fileToIds);
-
-            return nodesWritten;
-        }
-    }
-
-    private void writeMeta(ParsePipelineResult parsePipelineResult, long nodesWritten, EngineConfig engineConfig, OutputLayout outputLayout) throws IOException {
+    private Meta writeMeta(ParsePipelineResult parsePipelineResult, long nodesWritten, long edgesWritten, Profile profile, List<Meta.NodeShard> nodeShards, EngineConfig engineConfig, OutputLayout outputLayout) throws IOException {
         Meta.Stats stats = new Meta.Stats(
                 parsePipelineResult.javaFilesFound(),
                 parsePipelineResult.filesParsedOk(),
                 parsePipelineResult.filesParsedFailed(),
-                nodesWritten
+                parsePipelineResult.filesReused(),
+                nodesWritten,
+                edgesWritten
         );
         Meta meta = new Meta(
-                "0.0.1",
+                ENGINE_VERSION,
                 SchemaVersion.V1,
                 Instant.now(),
                 engineConfig.repoRoot().toAbsolutePath().normalize().toString(),
                 engineConfig.options(),
-                stats
+                stats,
+                profile,
+                nodeShards
         );
 
-        objectMapper.writerWithDefaultPrettyPrinter().writeValue(outputLayout.getMeta().toFile(), meta);
+        // the server reloads the output when meta.json changes: replaced last, once everything it lists is in place
+        try (ReplacedFile replacedFile = new ReplacedFile(outputLayout.getMeta())) {
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(replacedFile.temp().toFile(), meta);
+            replacedFile.commit();
+        }
+        return meta;
     }
+
+    private record RetainedRun(Path outputDir, RetainedDrafts drafts, Instant analyzedAt, List<Meta.NodeShard> nodeShards) {}
 }
@@ -0,0 +1,97 @@
+package com.xray.engine;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.xray.config.EngineConfig;
+import com.xray.model.SchemaVersion;
+import com.xray.parse.JavaParserFactory;
+import com.xray.parse.ParseCache;
+import com.xray.parse.ParsePipeline;
+import com.xray.parse.ParseProfile;
+import com.xray.parse.RepoScanner;
+import com.xray.parse.SymbolResolution;
+import com.xray.spring.SpringDetectors;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * Wires an Engine (parser, pipeline, detectors) for a config; shared by the one-shot CLI and the daemon
+ */
+@Slf4j
+public final class EngineFactory {
+
+    private EngineFactory() {}
+
+    public static ObjectMapper objectMapper() {
+        return new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    public static Engine create(EngineConfig engineConfig, ObjectMapper objectMapper, boolean retainDrafts) throws IOException {
+        List<Path> sourceRoots = engineConfig.options().resolveSymbols() ? RepoScanner.findSourceRoots(engineConfig) : List.of();
+        return create(engineConfig, sourceRoots, objectMapper, retainDrafts);
+    }
+
+    /**
+     * sourceRoots: the repo's source roots (see RepoScanner.findSourceRoots), only read with symbol resolution.
+     * The resolution itself is set up again for every run (see ParsePipeline), so an engine that outlives a run
+     * resolves against the sources as they are now.
+     */
+    public static Engine create(EngineConfig engineConfig, List<Path> sourceRoots, ObjectMapper objectMapper, boolean retainDrafts) {
+        EngineConfig.Options options = engineConfig.options();
+        ParseProfile parseProfile = parseProfile(options);
+        Supplier<SymbolResolution> symbolResolution = null;
+        if (options.resolveSymbols()) {
+            List<Path> roots = List.copyOf(sourceRoots);
+            symbolResolution = () -> SymbolResolution.create(
+                    roots,
+                    options.classpath(),
+                    options.resolutionCacheSize(),
+                    parseProfile
+            );
+        }
+        ParsePipeline parsePipeline = ParsePipeline.builder()
+                .javaParserFactory(() -> JavaParserFactory.initialize(parseProfile))
+                .symbolResolution(symbolResolution)
+                .workers(options.parallelParsing() ? options.parseWorkers() : 1)
+                .prefetchFiles(options.prefetchFiles())
+                .detectors(SpringDetectors.all())
+                .releaseAsts(options.streaming())
+                .slowestFiles(options.slowestFiles())
+                .parseCache(parseCache(options, objectMapper))
+                .build();
+        return new Engine(parsePipeline, objectMapper, retainDrafts);
+    }
+
+    public static ParseProfile parseProfile(EngineConfig.Options options) {
+        return options.parseProfile() != null ? options.parseProfile() : ParseProfile.FAST;
+    }
+
+    /**
+     * Not with symbol resolution: resolved calls depend on the rest of the repo, which a file's content hash
+     * does not cover
+     */
+    private static ParseCache parseCache(EngineConfig.Options options, ObjectMapper objectMapper) {
+        if (options.parseCacheDir() == null) {
+            return null;
+        }
+        if (options.resolveSymbols()) {
+            log.info("Parse cache is not used with symbol resolution");
+            return null;
+        }
+        // per profile: under FULL, types and values printed from the AST (ids, annotation values) include attributed comments
+        return new ParseCache(
+                options.parseCacheDir(),
+                "v" + Engine.ENGINE_VERSION + "-s" + SchemaVersion.V1 + "-" + parseProfile(options).name().toLowerCase(Locale.ROOT),
+                options.parseCacheBytes(),
+                objectMapper
+        );
+    }
+}
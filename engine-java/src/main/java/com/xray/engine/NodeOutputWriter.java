@@ -0,0 +1,287 @@
+package com.xray.engine;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xray.io.BinaryNodeWriter;
+import com.xray.io.IndexWriter;
+import com.xray.io.JsonlWriter;
+import com.xray.io.NodeIndexes;
+import com.xray.io.OutputLayout;
+import com.xray.model.Meta;
+import com.xray.model.Node;
+import com.xray.parse.AstIndex;
+import com.xray.parse.NodeBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Writes the nodes plus name_to_ids.json / file_to_ids.json / search.bin, and nodes.bin when asked for.
+ * <p>
+ * With one shard everything goes to nodes.jsonl on the calling thread. With more, nodes are partitioned by the
+ * hash of their file path (a file's nodes always land in the same shard) into nodes-XXXX.jsonl files that are
+ * written concurrently, each building its own part of the indexes; the parts are merged in shard order afterwards.
+ * Given the previous output into the same dir, shards holding none of the changed files are kept as they are and
+ * only indexed again.
+ */
+@Slf4j
+final class NodeOutputWriter {
+
+    private final ObjectMapper objectMapper;
+    private final IndexWriter indexWriter;
+
+    NodeOutputWriter(ObjectMapper objectMapper, IndexWriter indexWriter) {
+        this.objectMapper = objectMapper;
+        this.indexWriter = indexWriter;
+    }
+
+    List<Meta.NodeShard> write(AstIndex astIndex, OutputLayout layout, JsonlWriter.Options writerOptions, int shards, boolean binaryNodes) throws IOException {
+        return write(astIndex, layout, writerOptions, shards, binaryNodes, null);
+    }
+
+    /**
+     * Returns the shard manifest for meta.json. Node files of an earlier run that are not part of this output
+     * (other shard count, nodes.bin without binaryNodes) are removed.
+     * <p>
+     * previous (optional): the output this run replaces, see PreviousOutput
+     */
+    List<Meta.NodeShard> write(AstIndex astIndex, OutputLayout layout, JsonlWriter.Options writerOptions, int shards, boolean binaryNodes, PreviousOutput previous) throws IOException {
+        if (!binaryNodes) {
+            Files.deleteIfExists(layout.getNodesBin());
+        }
+        List<Meta.NodeShard> manifest = shards <= 1
+                ? List.of(writeSingle(astIndex, layout, writerOptions, binaryNodes))
+                : writeSharded(astIndex, layout, writerOptions, shards, binaryNodes, previous);
+        deleteStaleNodeFiles(layout, manifest);
+        return manifest;
+    }
+
+    private Meta.NodeShard writeSingle(AstIndex astIndex, OutputLayout layout, JsonlWriter.Options writerOptions, boolean binaryNodes) throws IOException {
+        NodeIndexes indexes = new NodeIndexes();
+        long nodesWritten;
+        BinaryNodeWriter binaryNodeWriter = binaryNodes ? new BinaryNodeWriter(layout.getNodesBin(), objectMapper) : null;
+        try (JsonlWriter nodeWriter = new JsonlWriter(layout.getNodes(), objectMapper, writerOptions)) {
+            nodesWritten = writeNodes(NodeBuilder.buildNodes(astIndex), nodeWriter, binaryNodeWriter, indexes);
+            nodeWriter.commit();
+        }
+        if (binaryNodeWriter != null) {
+            binaryNodeWriter.commit();
+        }
+        indexWriter.writeNameToIds(layout, indexes);
+        indexWriter.writeFileToIds(layout, indexes);
+        indexWriter.writeSearchIndex(layout, indexes);
+        return manifestEntry(layout, layout.getNodes(), nodesWritten);
+    }
+
+    private List<Meta.NodeShard> writeSharded(AstIndex astIndex, OutputLayout layout, JsonlWriter.Options writerOptions, int shards, boolean binaryNodes, PreviousOutput previous) throws IOException {
+        List<List<AstIndex.NodeDraft>> partitions = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            partitions.add(new ArrayList<>());
+        }
+        for (AstIndex.NodeDraft draft : astIndex.nodeDrafts().values()) {
+            partitions.get(shardOf(draft.source().file(), shards)).add(draft);
+        }
+
+        List<Meta.NodeShard> kept = keptShards(layout, shards, previous);
+        List<Callable<ShardResult>> tasks = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            Path file = layout.nodeShard(i);
+            List<AstIndex.NodeDraft> partition = partitions.get(i);
+            // for nodes.bin, each shard collects the columns of its nodes (in partition order), merged afterwards
+            BinaryNodeWriter binaryNodeWriter = binaryNodes ? new BinaryNodeWriter(null, objectMapper) : null;
+            if (kept.get(i) != null) {
+                tasks.add(() -> indexShard(NodeBuilder.buildNodes(astIndex, partition), binaryNodeWriter));
+            } else {
+                tasks.add(() -> writeShard(NodeBuilder.buildNodes(astIndex, partition), file, writerOptions, binaryNodeWriter));
+            }
+        }
+
+        List<ShardResult> results = runAll(tasks, Math.min(tasks.size(), Runtime.getRuntime().availableProcessors()));
+        if (binaryNodes) {
+            writeBinaryNodes(astIndex, layout, shards, results);
+        }
+
+        // merged into shard 0's indexes, each shard's own dropped once merged: at most one shard is held twice
+        NodeIndexes merged = results.getFirst().indexes();
+        List<Meta.NodeShard> manifest = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            ShardResult result = results.set(i, null);
+            if (i > 0) {
+                merged.merge(result.indexes());
+            }
+            manifest.add(kept.get(i) != null
+                    ? kept.get(i)
+                    : manifestEntry(layout, layout.nodeShard(i), result.nodesWritten()));
+        }
+        indexWriter.writeNameToIds(layout, merged);
+        indexWriter.writeFileToIds(layout, merged);
+        indexWriter.writeSearchIndex(layout, merged);
+        return manifest;
+    }
+
+    private ShardResult writeShard(Stream<Node> nodes, Path file, JsonlWriter.Options writerOptions, BinaryNodeWriter binaryNodeWriter) throws IOException {
+        NodeIndexes indexes = new NodeIndexes();
+        try (JsonlWriter nodeWriter = new JsonlWriter(file, objectMapper, writerOptions)) {
+            long nodesWritten = writeNodes(nodes, nodeWriter, binaryNodeWriter, indexes);
+            nodeWriter.commit();
+            return new ShardResult(nodesWritten, indexes, binaryNodeWriter);
+        }
+    }
+
+    private static ShardResult indexShard(Stream<Node> nodes, BinaryNodeWriter binaryNodeWriter) {
+        NodeIndexes indexes = new NodeIndexes();
+        return new ShardResult(writeNodes(nodes, null, binaryNodeWriter, indexes), indexes, binaryNodeWriter);
+    }
+
+    /**
+     * nodes.bin stays one file in node order: the shards' nodes merged back by walking the drafts, each shard's
+     * nodes being in the order of its drafts. Shards hold their nodes as columns, never as Node objects.
+     */
+    private void writeBinaryNodes(AstIndex astIndex, OutputLayout layout, int shards, List<ShardResult> results) throws IOException {
+        int[] next = new int[shards];
+        BinaryNodeWriter binaryNodeWriter = new BinaryNodeWriter(layout.getNodesBin(), objectMapper);
+        for (AstIndex.NodeDraft draft : astIndex.nodeDrafts().values()) {
+            int shard = shardOf(draft.source().file(), shards);
+            binaryNodeWriter.copyNode(results.get(shard).binaryNodes(), next[shard]++);
+        }
+        binaryNodeWriter.commit();
+    }
+
+    /**
+     * Per shard, the previous manifest entry when that shard file can stay as it is (null when it must be written):
+     * same shard count and file name, untouched since (same size) and none of its files changed
+     */
+    private static List<Meta.NodeShard> keptShards(OutputLayout layout, int shards, PreviousOutput previous) throws IOException {
+        List<Meta.NodeShard> kept = new ArrayList<>(Collections.nCopies(shards, null));
+        if (previous == null || previous.nodeShards() == null || previous.nodeShards().size() != shards) {
+            return kept;
+        }
+        boolean[] dirty = new boolean[shards];
+        for (String file : previous.changedFiles()) {
+            dirty[shardOf(file, shards)] = true;
+        }
+        for (int i = 0; i < shards; i++) {
+            Meta.NodeShard entry = previous.nodeShards().get(i);
+            Path file = layout.nodeShard(i);
+            if (!dirty[i]
+                    && entry.file().equals(layout.getRoot().relativize(file).toString())
+                    && Files.isRegularFile(file)
+                    && Files.size(file) == entry.bytes()) {
+                kept.set(i, entry);
+            }
+        }
+        long keptCount = kept.stream().filter(Objects::nonNull).count();
+        if (keptCount > 0) {
+            log.info("Kept {} of {} node shards without changes", keptCount, shards);
+        }
+        return kept;
+    }
+
+    /**
+     * Writers may be null: no nodes.jsonl for a kept shard, no nodes.bin unless asked for
+     */
+    private static long writeNodes(Stream<Node> nodes, JsonlWriter nodeWriter, BinaryNodeWriter binaryNodeWriter, NodeIndexes indexes) {
+        return nodes
+                .map(node -> {
+                    try {
+                        // first: a shard's nodes.bin rows are matched to its drafts by position, nodes.jsonl may skip one
+                        if (binaryNodeWriter != null) {
+                            binaryNodeWriter.writeNode(node);
+                        }
+                        if (nodeWriter != null) {
+                            nodeWriter.writeObject(node);
+                        }
+                        if (indexes != null) {
+                            indexes.add(node);
+                        }
+                        return true;
+                    } catch (IOException e) {
+                        log.error("Error writing node, skipping", e);
+                        return false;
+                    }
+                })
+                .filter(Boolean::booleanValue)
+                .count();
+    }
+
+    private static <T> List<T> runAll(List<Callable<T>> tasks, int threads) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(
+                threads,
+                Thread.ofPlatform().name("xray-write-", 0).daemon(true).factory()
+        );
+        try {
+            List<Future<T>> futures = executor.invokeAll(tasks);
+            List<T> results = new ArrayList<>(futures.size());
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while writing node shards", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw new IllegalStateException("Node shard writer failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * String.hashCode is specified, so a file maps to the same shard on every run and JVM
+     */
+    static int shardOf(String file, int shards) {
+        return Math.floorMod(file.hashCode(), shards);
+    }
+
+    private static Meta.NodeShard manifestEntry(OutputLayout layout, Path file, long nodes) throws IOException {
+        return new Meta.NodeShard(layout.getRoot().relativize(file).toString(), nodes, Files.size(file));
+    }
+
+    private static void deleteStaleNodeFiles(OutputLayout layout, List<Meta.NodeShard> manifest) throws IOException {
+        Set<String> current = new HashSet<>();
+        manifest.forEach(shard -> current.add(shard.file()));
+        List<Path> stale = new ArrayList<>();
+        try (Stream<Path> files = Files.list(layout.getRoot())) {
+            files.filter(file -> {
+                        String name = file.getFileName().toString();
+                        return !current.contains(name)
+                                && (OutputLayout.NODE_SHARD.matcher(name).matches() || file.equals(layout.getNodes()));
+                    })
+                    .forEach(stale::add);
+        }
+        for (Path file : stale) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * binaryNodes: the shard's nodes collected for nodes.bin, only when it is written (null otherwise)
+     */
+    private record ShardResult(long nodesWritten, NodeIndexes indexes, BinaryNodeWriter binaryNodes) {}
+
+    /**
+     * The node shards of the run this output replaces, and the files (paths as in the nodes) whose nodes may differ
+     * from it: changed, added or removed since, or not known to be unchanged
+     */
+    record PreviousOutput(List<Meta.NodeShard> nodeShards, Set<String> changedFiles) {}
+}
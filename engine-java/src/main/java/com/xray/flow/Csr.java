@@ -0,0 +1,65 @@
+package com.xray.flow;
+
+import java.util.Arrays;
+
+/**
+ * Compressed sparse rows: the values of row r are values[offsets[r]] .. values[offsets[r + 1] - 1].
+ * Two int arrays for the whole relation, no per-row lists or boxed ints.
+ */
+final class Csr {
+
+    final int[] offsets;
+    final int[] values;
+
+    private Csr(int[] offsets, int[] values) {
+        this.offsets = offsets;
+        this.values = values;
+    }
+
+    int rowSize(int row) {
+        return offsets[row + 1] - offsets[row];
+    }
+
+    /**
+     * Counting sort of (row, value) pairs; values keep the order they were added in within their row
+     */
+    static Csr of(int rows, Pairs pairs) {
+        int[] offsets = new int[rows + 1];
+        for (int i = 0; i < pairs.size; i++) {
+            offsets[pairs.rows[i] + 1]++;
+        }
+        for (int row = 0; row < rows; row++) {
+            offsets[row + 1] += offsets[row];
+        }
+        int[] next = Arrays.copyOf(offsets, rows);
+        int[] values = new int[pairs.size];
+        for (int i = 0; i < pairs.size; i++) {
+            values[next[pairs.rows[i]]++] = pairs.values[i];
+        }
+        return new Csr(offsets, values);
+    }
+
+    /**
+     * Growable (row, value) pair list, the input of Csr.of
+     */
+    static final class Pairs {
+
+        private int[] rows = new int[16];
+        private int[] values = new int[16];
+        private int size;
+
+        void add(int row, int value) {
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            rows[size] = row;
+            values[size] = value;
+            size++;
+        }
+
+        int size() {
+            return size;
+        }
+    }
+}
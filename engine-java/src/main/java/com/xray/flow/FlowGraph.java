@@ -0,0 +1,100 @@
+package com.xray.flow;
+
+import com.xray.model.Edge;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.xray.model.Enums.*;
+
+/**
+ * The downstream graph flows are traced on, nodes numbered by ordinal and edges in CSR adjacency arrays
+ * (see Csr), so a traversal walks contiguous int arrays instead of id strings and maps.
+ * <p>
+ * Followed edges: ENTRYPOINT_TO_METHOD, CALL, DI, PERSISTENCE_HIT and OUTBOUND_CALL as they point, and OVERRIDE
+ * backwards (overridden method -> overriding method), so a call through an interface continues into its
+ * implementations. CONTAINS and IMPLEMENTS are structure, not flow, and are left out.
+ */
+public final class FlowGraph {
+
+    private final List<String> ids;
+    private final Map<String, Integer> ordinals;
+    private final Csr successors;
+
+    private FlowGraph(List<String> ids, Map<String, Integer> ordinals, Csr successors) {
+        this.ids = ids;
+        this.ordinals = ordinals;
+        this.successors = successors;
+    }
+
+    /**
+     * nodeIds: every node edges may refer to, in output order
+     */
+    public static Builder builder(Collection<String> nodeIds) {
+        return new Builder(nodeIds);
+    }
+
+    public int nodeCount() {
+        return ids.size();
+    }
+
+    public int edgeCount() {
+        return successors.values.length;
+    }
+
+    /**
+     * -1 for ids that are not nodes of the graph
+     */
+    public int ordinal(String id) {
+        return ordinals.getOrDefault(id, -1);
+    }
+
+    public String id(int ordinal) {
+        return ids.get(ordinal);
+    }
+
+    Csr successors() {
+        return successors;
+    }
+
+    public static final class Builder {
+
+        private final List<String> ids;
+        private final Map<String, Integer> ordinals;
+        private final Csr.Pairs edges = new Csr.Pairs();
+
+        private Builder(Collection<String> nodeIds) {
+            this.ids = List.copyOf(nodeIds);
+            this.ordinals = new HashMap<>(ids.size() * 2);
+            for (int i = 0; i < ids.size(); i++) {
+                ordinals.put(ids.get(i), i);
+            }
+        }
+
+        /**
+         * Edges of other types, and edges to or from ids that are not nodes, are ignored
+         */
+        public void add(Edge edge) {
+            switch (edge.type()) {
+                case ENTRYPOINT_TO_METHOD, CALL, DI, PERSISTENCE_HIT, OUTBOUND_CALL -> add(edge.fromId(), edge.toId());
+                case OVERRIDE -> add(edge.toId(), edge.fromId());
+                case CONTAINS, IMPLEMENTS -> {
+                }
+            }
+        }
+
+        private void add(String fromId, String toId) {
+            Integer from = ordinals.get(fromId);
+            Integer to = ordinals.get(toId);
+            if (from != null && to != null) {
+                edges.add(from, to);
+            }
+        }
+
+        public FlowGraph build() {
+            return new FlowGraph(ids, ordinals, Csr.of(ids.size(), edges));
+        }
+    }
+}
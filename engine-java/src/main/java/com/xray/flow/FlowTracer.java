@@ -0,0 +1,176 @@
+package com.xray.flow;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xray.io.JsonlWriter;
+import com.xray.io.OutputLayout;
+import com.xray.model.Flow;
+import com.xray.model.Impact;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Traces the flow of every entrypoint, a breadth-first search over the FlowGraph bounded by maxDepth, and writes
+ * flows/flows.jsonl (one Flow per entrypoint, in entrypoint order) and flows/impact.jsonl (one Impact per node
+ * reached by any flow, in node order).
+ * <p>
+ * Entrypoints are traced in parallel, a batch at a time so only one batch of flows is held before it is written.
+ * Each thread reuses one Traversal: a bitset of visited nodes and the BFS queue, sized to the graph once and
+ * cleared by walking only the nodes the last search visited.
+ * <p>
+ * Impact sets are the forward flows inverted (node -> flows that reached it) rather than a reverse search per
+ * node: the same entrypoints within the same number of hops, for the cost of writing the flows down once.
+ */
+@Slf4j
+public final class FlowTracer {
+
+    private static final int BATCH = 256; // entrypoints traced in parallel before their flows are written
+
+    private FlowTracer() {}
+
+    /**
+     * maxDepth: hops followed from each entrypoint, 0 = unbounded. Entrypoint ids that are not graph nodes are
+     * skipped. Returns the number of flows written.
+     */
+    public static int write(FlowGraph graph, List<String> entrypointIds, int maxDepth, OutputLayout layout,
+                            ObjectMapper objectMapper, JsonlWriter.Options writerOptions) throws IOException {
+        Files.createDirectories(layout.getFlowsDir());
+        int[] roots = entrypointIds.stream()
+                .mapToInt(graph::ordinal)
+                .filter(ordinal -> ordinal >= 0)
+                .toArray();
+        ThreadLocal<Traversal> traversals = ThreadLocal.withInitial(() -> new Traversal(graph.nodeCount()));
+        Csr.Pairs reachedBy = new Csr.Pairs(); // node -> index of a flow that reached it
+        int truncated = 0;
+        try (JsonlWriter writer = new JsonlWriter(layout.getFlows(), objectMapper, writerOptions)) {
+            for (int start = 0; start < roots.length; start += BATCH) {
+                Reach[] batch = IntStream.range(start, Math.min(start + BATCH, roots.length))
+                        .parallel()
+                        .mapToObj(i -> traversals.get().run(graph.successors(), roots[i], maxDepth))
+                        .toArray(Reach[]::new);
+                for (int i = 0; i < batch.length; i++) {
+                    Reach reach = batch[i];
+                    writer.writeObject(reach.toFlow(graph));
+                    for (int node : reach.nodes()) {
+                        reachedBy.add(node, start + i);
+                    }
+                    if (reach.truncated()) {
+                        truncated++;
+                    }
+                }
+            }
+            writer.commit();
+        }
+        writeImpact(graph, roots, Csr.of(graph.nodeCount(), reachedBy), layout, objectMapper, writerOptions);
+        log.info("Traced {} flows over {} nodes, {} edges ({} cut off at depth {})",
+                roots.length, graph.nodeCount(), graph.edgeCount(), truncated, maxDepth);
+        return roots.length;
+    }
+
+    private static void writeImpact(FlowGraph graph, int[] roots, Csr reachedBy, OutputLayout layout,
+                                    ObjectMapper objectMapper, JsonlWriter.Options writerOptions) throws IOException {
+        try (JsonlWriter writer = new JsonlWriter(layout.getImpact(), objectMapper, writerOptions)) {
+            for (int node = 0; node < graph.nodeCount(); node++) {
+                if (reachedBy.rowSize(node) == 0) {
+                    continue;
+                }
+                List<String> entrypointIds = new ArrayList<>(reachedBy.rowSize(node));
+                for (int i = reachedBy.offsets[node]; i < reachedBy.offsets[node + 1]; i++) {
+                    entrypointIds.add(graph.id(roots[reachedBy.values[i]]));
+                }
+                writer.writeObject(new Impact(graph.id(node), entrypointIds));
+            }
+            writer.commit();
+        }
+    }
+
+    /**
+     * One flow as ordinals, in BFS order: nodes[i] was reached at depths[i] from step froms[i] (-1 for the root)
+     */
+    record Reach(int[] nodes, int[] depths, int[] froms, boolean truncated) {
+
+        Flow toFlow(FlowGraph graph) {
+            List<Flow.Step> steps = new ArrayList<>(nodes.length);
+            for (int i = 0; i < nodes.length; i++) {
+                steps.add(new Flow.Step(graph.id(nodes[i]), depths[i], froms[i]));
+            }
+            return new Flow(graph.id(nodes[0]), truncated, steps);
+        }
+    }
+
+    /**
+     * Per-thread BFS state, reused across searches
+     */
+    static final class Traversal {
+
+        private final long[] visited;
+        private final int[] queue;
+        private final int[] depths;
+        private final int[] froms;
+
+        Traversal(int nodeCount) {
+            visited = new long[(nodeCount + 63) >>> 6];
+            queue = new int[nodeCount];
+            depths = new int[nodeCount];
+            froms = new int[nodeCount];
+        }
+
+        Reach run(Csr successors, int root, int maxDepth) {
+            int head = 0;
+            int tail = 0;
+            visit(root);
+            queue[tail] = root;
+            depths[tail] = 0;
+            froms[tail] = -1;
+            tail++;
+            boolean truncated = false;
+            while (head < tail) {
+                int step = head++;
+                int node = queue[step];
+                int depth = depths[step];
+                int first = successors.offsets[node];
+                int end = successors.offsets[node + 1];
+                if (maxDepth > 0 && depth >= maxDepth) {
+                    // level order: every node within maxDepth is queued by now, so an unvisited callee lies beyond
+                    for (int e = first; e < end && !truncated; e++) {
+                        truncated = !isVisited(successors.values[e]);
+                    }
+                    continue;
+                }
+                for (int e = first; e < end; e++) {
+                    int next = successors.values[e];
+                    if (!isVisited(next)) {
+                        visit(next);
+                        queue[tail] = next;
+                        depths[tail] = depth + 1;
+                        froms[tail] = step;
+                        tail++;
+                    }
+                }
+            }
+            Reach reach = new Reach(
+                    Arrays.copyOf(queue, tail),
+                    Arrays.copyOf(depths, tail),
+                    Arrays.copyOf(froms, tail),
+                    truncated
+            );
+            for (int i = 0; i < tail; i++) {
+                visited[queue[i] >>> 6] = 0;
+            }
+            return reach;
+        }
+
+        private boolean isVisited(int node) {
+            return (visited[node >>> 6] & (1L << node)) != 0;
+        }
+
+        private void visit(int node) {
+            visited[node >>> 6] |= 1L << node;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.xray.io;
+
+/**
+ * Layout of nodes.bin, the columnar binary form of nodes.jsonl. All numbers are little-endian int32 unless noted,
+ * and every section starts 4-byte aligned, so a reader can map the file and view each column as an int array
+ * (Java IntBuffer, JS Int32Array) without decoding anything up front.
+ * <pre>
+ * header     magic "XRNB", formatVersion, nodeCount, columnCount, stringCount, listIntCount,
+ *            columnsOffset (int64), listsOffset (int64), stringOffsetsOffset (int64), stringDataOffset (int64)
+ * columns    columnCount columns of nodeCount values each, in Column order
+ * lists      list values: [count, s1, s2, ...] runs; list columns hold the index of the run's count
+ * strings    stringCount + 1 offsets into the string data, then the UTF-8 string data (padded to 4 bytes)
+ * </pre>
+ * String columns hold an index into the string dictionary (each distinct string is stored once), NO_VALUE for null.
+ * Attributes are stored as their JSON text; annotations by name.
+ */
+public final class BinaryNodeFormat {
+
+    public static final int MAGIC = 'X' | 'R' << 8 | 'N' << 16 | 'B' << 24;
+    public static final int FORMAT_VERSION = 1;
+    public static final int HEADER_BYTES = 56;
+    public static final int NO_VALUE = -1;
+
+    private BinaryNodeFormat() {}
+
+    public enum Column {
+        ID,
+        KIND,
+        NAME,
+        FQCN,
+        SIGNATURE,
+        OWNER_ID,
+        FILE,
+        START_LINE,   // plain int
+        START_COL,    // plain int
+        END_LINE,     // plain int
+        END_COL,      // plain int
+        HASH,
+        MODIFIERS,    // list of strings
+        ANNOTATIONS,  // list of strings
+        TAGS,         // list of strings
+        ATTRIBUTES    // JSON text
+    }
+}
@@ -0,0 +1,150 @@
+package com.xray.io;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xray.model.Node;
+import com.xray.model.SourceRange;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static com.xray.io.BinaryNodeFormat.*;
+import static com.xray.model.Enums.*;
+
+/**
+ * Read-only view over a memory-mapped nodes.bin (see BinaryNodeFormat). Opening only checks the header; values are
+ * decoded when asked for, so any single node or column value is available without reading the rest of the file.
+ * Safe for concurrent readers.
+ */
+public final class BinaryNodeStore {
+
+    private static final TypeReference<Map<String, Object>> ATTRIBUTES = new TypeReference<>() {};
+
+    private final ByteBuffer data;
+    private final IntBuffer columns;
+    private final IntBuffer lists;
+    private final IntBuffer stringOffsets;
+    private final int stringDataOffset;
+    private final int nodeCount;
+    private final int stringCount;
+    private final ObjectMapper objectMapper;
+
+    private BinaryNodeStore(ByteBuffer data, ObjectMapper objectMapper) throws IOException {
+        this.data = data;
+        this.objectMapper = objectMapper;
+        if (data.limit() < HEADER_BYTES || data.getInt(0) != MAGIC) {
+            throw new IOException("Not a node store");
+        }
+        if (data.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("Unsupported node store version " + data.getInt(4));
+        }
+        nodeCount = data.getInt(8);
+        int columnCount = data.getInt(12);
+        stringCount = data.getInt(16);
+        int listIntCount = data.getInt(20);
+        if (columnCount != Column.values().length) {
+            throw new IOException("Unexpected column count " + columnCount);
+        }
+        columns = ints(Math.toIntExact(data.getLong(24)), columnCount * nodeCount);
+        lists = ints(Math.toIntExact(data.getLong(32)), listIntCount);
+        stringOffsets = ints(Math.toIntExact(data.getLong(40)), stringCount + 1);
+        stringDataOffset = Math.toIntExact(data.getLong(48));
+    }
+
+    /**
+     * Maps the file; files over 2 GB are not supported.
+     */
+    public static BinaryNodeStore open(Path file, ObjectMapper objectMapper) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Node store " + file + " is larger than 2 GB");
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new BinaryNodeStore(mapped.order(ByteOrder.LITTLE_ENDIAN), objectMapper);
+        }
+    }
+
+    public int size() {
+        return nodeCount;
+    }
+
+    public int stringCount() {
+        return stringCount;
+    }
+
+    /**
+     * Raw column value: a string id for string columns, a list position for list columns, the number itself otherwise
+     */
+    public int intValue(Column column, int row) {
+        return columns.get(column.ordinal() * nodeCount + row);
+    }
+
+    public String stringValue(Column column, int row) {
+        return string(intValue(column, row));
+    }
+
+    public List<String> listValue(Column column, int row) {
+        int start = intValue(column, row);
+        if (start == NO_VALUE) {
+            return null;
+        }
+        int count = lists.get(start);
+        List<String> values = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            values.add(string(lists.get(start + i)));
+        }
+        return values;
+    }
+
+    public String string(int id) {
+        if (id == NO_VALUE) {
+            return null;
+        }
+        int start = stringOffsets.get(id);
+        int length = stringOffsets.get(id + 1) - start;
+        byte[] bytes = new byte[length];
+        data.get(stringDataOffset + start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public Node node(int row) throws IOException {
+        String attributes = stringValue(Column.ATTRIBUTES, row);
+        String kind = stringValue(Column.KIND, row);
+        String file = stringValue(Column.FILE, row);
+        return Node.v1(
+                stringValue(Column.ID, row),
+                kind == null ? null : NodeKind.valueOf(kind),
+                stringValue(Column.NAME, row),
+                stringValue(Column.FQCN, row),
+                stringValue(Column.SIGNATURE, row),
+                stringValue(Column.OWNER_ID, row),
+                file == null ? null : new SourceRange(
+                        file,
+                        intValue(Column.START_LINE, row),
+                        intValue(Column.START_COL, row),
+                        intValue(Column.END_LINE, row),
+                        intValue(Column.END_COL, row)
+                ),
+                listValue(Column.MODIFIERS, row),
+                Objects.requireNonNullElse(listValue(Column.ANNOTATIONS, row), List.of()),
+                listValue(Column.TAGS, row),
+                attributes == null ? null : objectMapper.readValue(attributes, ATTRIBUTES),
+                stringValue(Column.HASH, row)
+        );
+    }
+
+    private IntBuffer ints(int offset, int count) {
+        return data.slice(offset, count * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+    }
+}
@@ -0,0 +1,159 @@
+package com.xray.io;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xray.model.AnnotationRef;
+import com.xray.model.Node;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.xray.io.BinaryNodeFormat.*;
+
+/**
+ * Writes nodes.bin (see BinaryNodeFormat). Nodes are collected as int columns plus an interned string dictionary,
+ * which need the full node set, so the file is only written on commit: a writer dropped before leaves nodes.bin as
+ * it was.
+ */
+public final class BinaryNodeWriter {
+
+    private final Path file;
+    private final ObjectMapper objectMapper;
+    private final IntList[] columns;
+    private final IntList lists = new IntList(1024);
+    private final Map<String, Integer> stringIds = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+    private int nodeCount;
+
+    /**
+     * file: where commit writes nodes.bin; null for a writer that only collects nodes for another one (see copyNode)
+     */
+    public BinaryNodeWriter(Path file, ObjectMapper objectMapper) {
+        this.file = file;
+        this.objectMapper = objectMapper;
+        this.columns = new IntList[Column.values().length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new IntList(1024);
+        }
+    }
+
+    public void writeNode(Node node) throws IOException {
+        put(Column.ID, string(node.id()));
+        put(Column.KIND, string(node.kind() == null ? null : node.kind().name()));
+        put(Column.NAME, string(node.name()));
+        put(Column.FQCN, string(node.fqcn()));
+        put(Column.SIGNATURE, string(node.signature()));
+        put(Column.OWNER_ID, string(node.ownerId()));
+        put(Column.FILE, string(node.source() == null ? null : node.source().file()));
+        put(Column.START_LINE, node.source() == null ? NO_VALUE : node.source().startLine());
+        put(Column.START_COL, node.source() == null ? NO_VALUE : node.source().startCol());
+        put(Column.END_LINE, node.source() == null ? NO_VALUE : node.source().endLine());
+        put(Column.END_COL, node.source() == null ? NO_VALUE : node.source().endCol());
+        put(Column.HASH, string(node.hash()));
+        put(Column.MODIFIERS, list(node.modifiers()));
+        put(Column.ANNOTATIONS, list(node.annotations() == null ? null : node.annotations().stream().map(AnnotationRef::name).toList()));
+        put(Column.TAGS, list(node.tags()));
+        put(Column.ATTRIBUTES, node.attributes() == null ? NO_VALUE : string(objectMapper.writeValueAsString(node.attributes())));
+        nodeCount++;
+    }
+
+    /**
+     * Adds node row of from, exactly as writeNode would have added that node: nodes collected by several writers
+     * (one per shard) are merged into one file in any order, without the nodes themselves being kept.
+     */
+    public void copyNode(BinaryNodeWriter from, int row) {
+        for (Column column : Column.values()) {
+            int value = from.columns[column.ordinal()].values[row];
+            put(column, switch (column) {
+                case START_LINE, START_COL, END_LINE, END_COL -> value;
+                case MODIFIERS, ANNOTATIONS, TAGS -> copyList(from, value);
+                default -> value == NO_VALUE ? NO_VALUE : string(from.strings.get(value));
+            });
+        }
+        nodeCount++;
+    }
+
+    public void commit() throws IOException {
+        List<byte[]> encoded = new ArrayList<>(strings.size());
+        long stringBytes = 0;
+        for (String s : strings) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            encoded.add(bytes);
+            stringBytes += bytes.length;
+        }
+        if (stringBytes > Integer.MAX_VALUE) {
+            throw new IOException("String dictionary of " + file + " exceeds 2 GB");
+        }
+
+        long columnsOffset = HEADER_BYTES;
+        long listsOffset = columnsOffset + (long) columns.length * nodeCount * Integer.BYTES;
+        long stringOffsetsOffset = listsOffset + (long) lists.size * Integer.BYTES;
+        long stringDataOffset = stringOffsetsOffset + (long) (strings.size() + 1) * Integer.BYTES;
+
+        try (SectionWriter writer = new SectionWriter(file)) {
+            writer.putInt(MAGIC)
+                    .putInt(FORMAT_VERSION)
+                    .putInt(nodeCount)
+                    .putInt(columns.length)
+                    .putInt(strings.size())
+                    .putInt(lists.size)
+                    .putLong(columnsOffset)
+                    .putLong(listsOffset)
+                    .putLong(stringOffsetsOffset)
+                    .putLong(stringDataOffset);
+            for (IntList column : columns) {
+                writer.putInts(column);
+            }
+            writer.putInts(lists);
+            writer.putStrings(encoded, stringBytes);
+            writer.commit();
+        }
+    }
+
+    private void put(Column column, int value) {
+        columns[column.ordinal()].add(value);
+    }
+
+    private int string(String s) {
+        if (s == null) {
+            return NO_VALUE;
+        }
+        Integer id = stringIds.get(s);
+        if (id == null) {
+            id = strings.size();
+            strings.add(s);
+            stringIds.put(s, id);
+        }
+        return id;
+    }
+
+    private int copyList(BinaryNodeWriter from, int start) {
+        if (start == NO_VALUE) {
+            return NO_VALUE;
+        }
+        int count = from.lists.values[start];
+        int copied = lists.size;
+        lists.add(count);
+        for (int i = 1; i <= count; i++) {
+            lists.add(string(from.strings.get(from.lists.values[start + i])));
+        }
+        return copied;
+    }
+
+    private int list(List<String> values) {
+        if (values == null) {
+            return NO_VALUE;
+        }
+        int start = lists.size;
+        lists.add(values.size());
+        for (String value : values) {
+            lists.add(string(value));
+        }
+        return start;
+    }
+
+}
@@ -0,0 +1,163 @@
+package com.xray.io;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xray.model.AnnotationRef;
+import com.xray.model.Node;
+import com.xray.model.SchemaVersion;
+import com.xray.parse.AstIndex;
+import com.xray.parse.ReusableDrafts;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Output of the previous run (.xray/), read back so unchanged files can skip parsing.
+ * <p>
+ * A file is reusable when its content hash matches file_hashes.json; its drafts are rebuilt from nodes.jsonl
+ * (or the node shards listed in meta.json) via file_to_ids.json and its class references from class_refs.jsonl. Files that are gone from the scan are simply never looked up, so their nodes are dropped.
+ */
+@Slf4j
+public final class IncrementalState implements ReusableDrafts {
+
+    private final Map<String, String> fileHashes;
+    private final Map<String, List<AstIndex.NodeDraft>> fileToDrafts;
+    private final Map<String, List<AstIndex.ClassRefs>> fileToClassRefs;
+
+    private IncrementalState(
+            Map<String, String> fileHashes,
+            Map<String, List<AstIndex.NodeDraft>> fileToDrafts,
+            Map<String, List<AstIndex.ClassRefs>> fileToClassRefs
+    ) {
+        this.fileHashes = fileHashes;
+        this.fileToDrafts = fileToDrafts;
+        this.fileToClassRefs = fileToClassRefs;
+    }
+
+    /**
+     * Empty when there is no usable previous output (first run, other engine/schema version, ids produced with
+     * symbol resolution switched the other way, unreadable files)
+     */
+    public static Optional<IncrementalState> load(OutputLayout layout, ObjectMapper objectMapper, String engineVersion, boolean resolveSymbols) {
+        if (!Files.exists(layout.getMeta()) || !Files.exists(layout.getFileHashes())
+                || !Files.exists(layout.getFileToIds()) || !Files.exists(layout.getClassRefs())) {
+            return Optional.empty();
+        }
+        try {
+            JsonNode meta = objectMapper.readTree(layout.getMeta().toFile());
+            if (!engineVersion.equals(meta.path("engineVersion").asText())
+                    || meta.path("schemaVersion").asInt() != SchemaVersion.V1) {
+                log.info("Previous analysis was produced by another engine/schema version, running a full analysis");
+                return Optional.empty();
+            }
+            if (meta.path("options").path("resolveSymbols").asBoolean(false) != resolveSymbols) {
+                log.info("Previous analysis used other symbol resolution settings, running a full analysis");
+                return Optional.empty();
+            }
+            List<Path> nodeFiles = nodeFiles(meta, layout);
+            if (!nodeFiles.stream().allMatch(Files::exists)) {
+                log.info("Previous node output is incomplete, running a full analysis");
+                return Optional.empty();
+            }
+
+            Map<String, String> fileHashes = objectMapper.readValue(layout.getFileHashes().toFile(), new TypeReference<>() {});
+            Map<String, List<String>> fileToIds = objectMapper.readValue(layout.getFileToIds().toFile(), new TypeReference<>() {});
+            Map<String, AstIndex.NodeDraft> draftsById = readDrafts(nodeFiles, objectMapper);
+            Map<String, List<AstIndex.ClassRefs>> fileToClassRefs = readClassRefs(layout.getClassRefs(), objectMapper);
+
+            Map<String, List<AstIndex.NodeDraft>> fileToDrafts = new HashMap<>();
+            for (String file : fileHashes.keySet()) {
+                List<AstIndex.NodeDraft> drafts = new ArrayList<>();
+                for (String id : fileToIds.getOrDefault(file, List.of())) {
+                    AstIndex.NodeDraft draft = draftsById.get(id);
+                    if (draft == null) {
+                        // inconsistent output, let the file be parsed again
+                        drafts = null;
+                        break;
+                    }
+                    drafts.add(draft);
+                }
+                if (drafts != null) {
+                    fileToDrafts.put(file, List.copyOf(drafts));
+                }
+            }
+            return Optional.of(new IncrementalState(fileHashes, fileToDrafts, fileToClassRefs));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring previous analysis output, running a full analysis: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public Optional<ReusedFile> lookup(Path file, String contentHash) {
+        String key = file.toString();
+        if (contentHash == null || !contentHash.equals(fileHashes.get(key))) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(fileToDrafts.get(key))
+                .map(drafts -> new ReusedFile(drafts, fileToClassRefs.getOrDefault(key, List.of())));
+    }
+
+    private static Map<String, List<AstIndex.ClassRefs>> readClassRefs(Path classRefsFile, ObjectMapper objectMapper) throws IOException {
+        Map<String, List<AstIndex.ClassRefs>> fileToClassRefs = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(classRefsFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                AstIndex.ClassRefs classRefs = objectMapper.readValue(line, AstIndex.ClassRefs.class);
+                fileToClassRefs.computeIfAbsent(classRefs.file(), k -> new ArrayList<>()).add(classRefs);
+            }
+        }
+        return fileToClassRefs;
+    }
+
+    /**
+     * The files listed in the meta.json shard manifest; nodes.jsonl for output written before there was one
+     */
+    private static List<Path> nodeFiles(JsonNode meta, OutputLayout layout) {
+        JsonNode nodeShards = meta.path("nodeShards");
+        if (!nodeShards.isArray() || nodeShards.isEmpty()) {
+            return List.of(layout.getNodes());
+        }
+        List<Path> files = new ArrayList<>();
+        nodeShards.forEach(shard -> files.add(layout.getRoot().resolve(shard.path("file").asText())));
+        return files;
+    }
+
+    private static Map<String, AstIndex.NodeDraft> readDrafts(List<Path> nodeFiles, ObjectMapper objectMapper) throws IOException {
+        Map<String, AstIndex.NodeDraft> draftsById = new HashMap<>();
+        for (Path nodes : nodeFiles) {
+            try (BufferedReader reader = JsonlReader.open(nodes)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) continue;
+                    Node node = objectMapper.readValue(line, Node.class);
+                    draftsById.put(node.id(), toDraft(node));
+                }
+            }
+        }
+        return draftsById;
+    }
+
+    private static AstIndex.NodeDraft toDraft(Node node) {
+        return new AstIndex.NodeDraft(
+                node.id(),
+                node.kind(),
+                node.name(),
+                node.fqcn(),
+                node.signature(),
+                node.ownerId(),
+                node.source(),
+                node.annotations() == null ? List.of() : node.annotations().stream().map(AnnotationRef::name).toList(),
+                node.modifiers() == null ? List.of() : node.modifiers(),
+                node.tags(),
+                node.attributes()
+        );
+    }
+}
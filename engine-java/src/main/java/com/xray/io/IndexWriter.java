@@ -1,16 +1,16 @@
 package com.xray.io;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.xray.model.EntrypointIndex;
-import com.xray.model.Node;
 import lombok.RequiredArgsConstructor;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
-import java.util.List;
 import java.util.Map;
 
 @RequiredArgsConstructor
@@ -21,40 +21,85 @@ public final class IndexWriter {
     /**
      * Writes name_to_ids.json
      */
-    public void writeNameToIds(OutputLayout layout, Map<String, List<String>> nameToIds) throws IOException {
-        writeIndex(layout.getIndexDir().resolve("name_to_ids.json"), nameToIds);
+    public void writeNameToIds(OutputLayout layout, NodeIndexes indexes) throws IOException {
+        writePostings(layout.getNameToIds(), indexes.names(), indexes);
     }
 
     /**
      * Writes file_to_ids.json
      */
-    public void writeFileToIds(OutputLayout layout, Map<String, List<String>> fileToIds) throws IOException {
-        writeIndex(layout.getIndexDir().resolve("file_to_ids.json"), fileToIds);
+    public void writeFileToIds(OutputLayout layout, NodeIndexes indexes) throws IOException {
+        writePostings(layout.getFileToIds(), indexes.files(), indexes);
+    }
+
+    /**
+     * Writes search.bin (prefix, substring and camel-hump lookup of class and method names, see SearchIndex)
+     */
+    public void writeSearchIndex(OutputLayout layout, NodeIndexes indexes) throws IOException {
+        Files.createDirectories(layout.getIndexDir());
+        SearchIndexWriter.write(layout.getSearchIndex(), indexes);
     }
 
     /**
      * Writes entrypoints.json
      */
     public void writeEntrypoints(OutputLayout layout, EntrypointIndex entrypoints) throws IOException {
-        writeIndex(layout.getIndexDir().resolve("entrypoints.json"), entrypoints);
+        writeIndex(layout.getEntrypointIndex(), entrypoints);
+    }
+
+    /**
+     * Writes file_hashes.json (file -> content hash, read back by incremental runs)
+     */
+    public void writeFileHashes(OutputLayout layout, Map<String, String> fileHashes) throws IOException {
+        writeIndex(layout.getFileHashes(), fileHashes);
+    }
+
+    /**
+     * Same JSON as a pretty-printed Map of key -> ids, generated key by key straight from the postings
+     */
+    private void writePostings(Path file, PostingIndex index, NodeIndexes indexes) throws IOException {
+        try (ReplacedFile replacedFile = new ReplacedFile(file)) {
+            try (OutputStream out = Files.newOutputStream(
+                    replacedFile.temp(),
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE
+            );
+                 JsonGenerator generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+                generator.useDefaultPrettyPrinter();
+                generator.writeStartObject();
+                for (Map.Entry<String, PostingIndex.Postings> entry : index.postings().entrySet()) {
+                    PostingIndex.Postings postings = entry.getValue();
+                    generator.writeFieldName(entry.getKey());
+                    generator.writeStartArray();
+                    for (int i = 0; i < postings.size(); i++) {
+                        generator.writeString(indexes.id(postings.get(i)));
+                    }
+                    generator.writeEndArray();
+                }
+                generator.writeEndObject();
+            }
+            replacedFile.commit();
+        }
     }
 
     /**
-     * Generic index writer (pretty-printed on purpose, these files are small)
+     * Generic index writer, pretty-printed. Streamed to the file as it is serialized: name_to_ids.json of a large
+     * repo runs into hundreds of MB, too much to hold as one byte[] next to the index itself.
      */
     private void writeIndex(Path file, Object index) throws IOException {
-        Files.createDirectories(file.getParent());
-
-        byte[] json = objectMapper
-                .writerWithDefaultPrettyPrinter()
-                .writeValueAsBytes(index);
-
-        Files.write(
-                file,
-                json,
-                StandardOpenOption.CREATE,
-                StandardOpenOption.TRUNCATE_EXISTING,
-                StandardOpenOption.WRITE
-        );
+        try (ReplacedFile replacedFile = new ReplacedFile(file)) {
+            try (OutputStream out = Files.newOutputStream(
+                    replacedFile.temp(),
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE
+            )) {
+                objectMapper
+                        .writerWithDefaultPrettyPrinter()
+                        .writeValue(out, index);
+            }
+            replacedFile.commit();
+        }
     }
 }
@@ -0,0 +1,26 @@
+package com.xray.io;
+
+import java.util.Arrays;
+
+/**
+ * Growable int array for the columns and sections collected before a binary file is written
+ */
+final class IntList {
+    int[] values;
+    int size;
+
+    IntList() {
+        this(4);
+    }
+
+    IntList(int capacity) {
+        this.values = new int[capacity];
+    }
+
+    void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+}
@@ -0,0 +1,33 @@
+package com.xray.io;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+public final class JsonlReader {
+
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private JsonlReader() {}
+
+    /**
+     * Line reader over a .jsonl file, or a gzip-compressed one when the name ends in .gz (see JsonlWriter.Options)
+     */
+    public static BufferedReader open(Path file) throws IOException {
+        InputStream in = Files.newInputStream(file);
+        try {
+            if (file.getFileName().toString().endsWith(".gz")) {
+                in = new GZIPInputStream(in, BUFFER_BYTES);
+            }
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_BYTES);
+    }
+}
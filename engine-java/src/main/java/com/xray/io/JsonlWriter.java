@@ -1,38 +1,103 @@
 package com.xray.io;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.Builder;
 
-import java.io.BufferedWriter;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPOutputStream;
 
+/**
+ * One JSON object per line. Objects are serialized by a streaming JsonGenerator straight into UTF-8 bytes
+ * (no intermediate String per object), collected in a buffer of flushBytes and written to the file channel
+ * when it fills up, optionally through gzip.
+ * <p>
+ * The lines go to a temp file that replaces file on commit (see ReplacedFile). Closing without commit, as when
+ * whatever produces the objects throws halfway, discards them and leaves the previous file in place.
+ */
 public final class JsonlWriter implements AutoCloseable {
 
-    private final BufferedWriter writer;
-    private final ObjectMapper objectMapper;
+    private final ReplacedFile replacedFile;
+    private final JsonGenerator generator;
+    private final ObjectWriter objectWriter;
 
     public JsonlWriter(Path file, ObjectMapper objectMapper) throws IOException {
-        this.writer = Files.newBufferedWriter(
-                file,
-                StandardCharsets.UTF_8,
+        this(file, objectMapper, Options.DEFAULT);
+    }
+
+    public JsonlWriter(Path file, ObjectMapper objectMapper, Options options) throws IOException {
+        this.replacedFile = new ReplacedFile(file);
+        FileChannel channel = FileChannel.open(
+                replacedFile.temp(),
                 StandardOpenOption.CREATE,
                 StandardOpenOption.TRUNCATE_EXISTING,
                 StandardOpenOption.WRITE
         );
-        this.objectMapper = objectMapper;
+        OutputStream out = Channels.newOutputStream(channel);
+        try {
+            if (options.gzip()) {
+                out = new GZIPOutputStream(out, options.flushBytes());
+            }
+            out = new BufferedOutputStream(out, options.flushBytes());
+            this.generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+            // lines are terminated explicitly, no " " between root values
+            this.generator.setRootValueSeparator(null);
+        } catch (IOException | RuntimeException e) {
+            try (replacedFile) {
+                out.close();
+            }
+            throw e;
+        }
+        // flushing after every object would push each line down to the channel
+        this.objectWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     }
 
     public void writeObject(Object object) throws IOException {
-        // one JSON object per line
-        writer.write(objectMapper.writeValueAsString(object));
-        writer.newLine();
+        objectWriter.writeValue(generator, object);
+        generator.writeRaw('\n');
+    }
+
+    /**
+     * Completes the file: everything written so far replaces file
+     */
+    public void commit() throws IOException {
+        // closes the buffer, gzip stream and channel underneath
+        generator.close();
+        replacedFile.commit();
     }
 
+    /**
+     * After commit, nothing left to do; before, the lines written are dropped
+     */
     @Override
     public void close() throws IOException {
-        writer.close();
+        try (replacedFile) {
+            generator.close();
+        }
+    }
+
+    /**
+     * flushBytes: bytes buffered before they are written to the file (default 1 MiB)
+     * gzip: compress the output; the file name is up to the caller (by convention *.jsonl.gz)
+     */
+    @Builder
+    public record Options(int flushBytes, boolean gzip) {
+
+        public static final Options DEFAULT = new Options(1 << 20, false);
+
+        public Options {
+            if (flushBytes <= 0) {
+                flushBytes = 1 << 20;
+            }
+        }
     }
 }
@@ -0,0 +1,71 @@
+package com.xray.io;
+
+import com.xray.model.Node;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.xray.model.Enums.*;
+
+/**
+ * In-memory form of name_to_ids.json (name, lowercase name, fqcn) and file_to_ids.json, plus the names that go
+ * into index/search.bin.
+ * <p>
+ * Nodes are numbered in the order they are added and each id string is held once; the indexes only store these
+ * ordinals, in primitive postings. IndexWriter turns ordinals back into ids while streaming the JSON out.
+ * <p>
+ * The postings stay in memory until every node is added: the JSON files list each key once with all its nodes, and
+ * those can come from any file or output shard, so no key is complete before the last node. What is held is
+ * bounded by ordinals rather than strings: per node an id reference (the node's own string) and at most five int
+ * postings, about 30 bytes; per distinct key a map entry and a posting array, about 100 bytes.
+ */
+public final class NodeIndexes {
+
+    private final List<String> ids = new ArrayList<>();
+    private final PostingIndex names = new PostingIndex();
+    private final PostingIndex files = new PostingIndex();
+    private final PostingIndex searchNames = new PostingIndex(); // class and method names, see SearchIndexWriter
+
+    public void add(Node node) {
+        int ordinal = ids.size();
+        ids.add(node.id());
+        names.add(node.name(), ordinal);
+        names.add(node.name().toLowerCase(), ordinal);
+        names.add(node.fqcn(), ordinal);
+        files.add(node.source().file(), ordinal);
+        if (node.kind() == NodeKind.CLASS || node.kind() == NodeKind.METHOD) {
+            searchNames.add(node.name(), ordinal);
+        }
+    }
+
+    /**
+     * Appends the nodes of other after the nodes already added, e.g. to combine the indexes of output shards
+     */
+    public void merge(NodeIndexes other) {
+        int offset = ids.size();
+        ids.addAll(other.ids);
+        names.addAll(other.names, offset);
+        files.addAll(other.files, offset);
+        searchNames.addAll(other.searchNames, offset);
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    String id(int ordinal) {
+        return ids.get(ordinal);
+    }
+
+    PostingIndex names() {
+        return names;
+    }
+
+    PostingIndex files() {
+        return files;
+    }
+
+    PostingIndex searchNames() {
+        return searchNames;
+    }
+}
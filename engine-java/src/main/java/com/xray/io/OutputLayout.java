@@ -3,26 +3,75 @@ package com.xray.io;
 import lombok.Getter;
 
 import java.nio.file.Path;
+import java.util.List;
+import java.util.regex.Pattern;
 
 @Getter
 public final class OutputLayout {
+
+    // nodes-0000.jsonl, nodes-0001.jsonl.gz, ... (sharded node output)
+    public static final Pattern NODE_SHARD = Pattern.compile("nodes-\\d{4}\\.jsonl(\\.gz)?");
+
     private final Path root;         // .xray/
-    private final Path nodes;    // .xray/nodes.jsonl
-    private final Path edges;    // .xray/edges.jsonl
+    private final Path nodes;    // .xray/nodes.jsonl (nodes.jsonl.gz when compressed)
+    private final Path nodesBin;  // .xray/nodes.bin (optional, see BinaryNodeFormat)
+    private final Path edges;    // .xray/edges.jsonl (edges.jsonl.gz when compressed)
     private final Path entrypoints;   // .xray/entrypoints.jsonl
     private final Path flowsDir;      // .xray/flows/
+    private final Path flows;         // .xray/flows/flows.jsonl, one Flow per entrypoint (flows.jsonl.gz when compressed)
+    private final Path impact;        // .xray/flows/impact.jsonl, entrypoints reaching each node (impact.jsonl.gz when compressed)
     private final Path indexDir;      // .xray/index/
+    private final Path nameToIds;     // .xray/index/name_to_ids.json
+    private final Path fileToIds;     // .xray/index/file_to_ids.json
+    private final Path searchIndex;   // .xray/index/search.bin (see SearchIndexFormat)
+    private final Path entrypointIndex; // .xray/index/entrypoints.json
+    private final Path fileHashes;    // .xray/index/file_hashes.json
+    private final Path classRefs;     // .xray/index/class_refs.jsonl
     private final Path meta;      // .xray/meta.json
     private final Path parseProblems; // .xray/parse_problems.jsonl
+    private final List<Path> otherCompressionOutputs; // nodes/edges/flows in the other (un)compressed form, stale if present
+    private final boolean compressed;
 
     public OutputLayout(Path root) {
+        this(root, false);
+    }
+
+    /**
+     * compressed: the large outputs (nodes, edges, flows) are gzip-compressed .jsonl.gz files
+     */
+    public OutputLayout(Path root, boolean compressed) {
         this.root = root;
-        nodes = root.resolve("nodes.jsonl");
-        edges = root.resolve("edges.jsonl");
+        this.compressed = compressed;
+        String jsonl = compressed ? ".jsonl.gz" : ".jsonl";
+        String otherJsonl = compressed ? ".jsonl" : ".jsonl.gz";
+        nodes = root.resolve("nodes" + jsonl);
+        nodesBin = root.resolve("nodes.bin");
+        edges = root.resolve("edges" + jsonl);
         entrypoints = root.resolve("entrypoints.jsonl");
         flowsDir = root.resolve("flows");
+        flows = flowsDir.resolve("flows" + jsonl);
+        impact = flowsDir.resolve("impact" + jsonl);
         indexDir = root.resolve("index");
+        nameToIds = indexDir.resolve("name_to_ids.json");
+        fileToIds = indexDir.resolve("file_to_ids.json");
+        searchIndex = indexDir.resolve("search.bin");
+        entrypointIndex = indexDir.resolve("entrypoints.json");
+        fileHashes = indexDir.resolve("file_hashes.json");
+        classRefs = indexDir.resolve("class_refs.jsonl");
         meta = root.resolve("meta.json");
         parseProblems = root.resolve("parse_problems.jsonl");
+        otherCompressionOutputs = List.of(
+                root.resolve("nodes" + otherJsonl),
+                root.resolve("edges" + otherJsonl),
+                flowsDir.resolve("flows" + otherJsonl),
+                flowsDir.resolve("impact" + otherJsonl)
+        );
+    }
+
+    /**
+     * .xray/nodes-XXXX.jsonl (.jsonl.gz when compressed), used instead of nodes.jsonl when output is sharded
+     */
+    public Path nodeShard(int shard) {
+        return root.resolve("nodes-%04d%s".formatted(shard, compressed ? ".jsonl.gz" : ".jsonl"));
     }
 }
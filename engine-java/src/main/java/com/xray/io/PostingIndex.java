@@ -0,0 +1,63 @@
+package com.xray.io;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * key -> node ordinals, kept as a growable int[] per key (no boxed lists, no per-key copies of node ids)
+ */
+final class PostingIndex {
+
+    private final Map<String, Postings> postings = new HashMap<>();
+
+    void add(String key, int ordinal) {
+        if (key == null) {
+            return;
+        }
+        postings.computeIfAbsent(key, k -> new Postings()).add(ordinal);
+    }
+
+    /**
+     * Appends other's postings with their ordinals shifted by ordinalOffset
+     */
+    void addAll(PostingIndex other, int ordinalOffset) {
+        other.postings.forEach((key, otherPostings) -> {
+            Postings target = postings.computeIfAbsent(key, k -> new Postings());
+            for (int i = 0; i < otherPostings.size; i++) {
+                target.add(otherPostings.ordinals[i] + ordinalOffset);
+            }
+        });
+    }
+
+    Map<String, Postings> postings() {
+        return postings;
+    }
+
+    static final class Postings {
+
+        private int[] ordinals = new int[2];
+        private int size;
+
+        /**
+         * A node is listed once per key even when several of its keys coincide (name == lowercase name)
+         */
+        void add(int ordinal) {
+            if (size > 0 && ordinals[size - 1] == ordinal) {
+                return;
+            }
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+            }
+            ordinals[size++] = ordinal;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int get(int i) {
+            return ordinals[i];
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.xray.io;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * An output file written next to its final path and moved over it when complete. Readers of the output dir (the
+ * server reads lines by offset) then see either the previous file or the new one, never a truncated one.
+ * <p>
+ * Closing without commit (the content failed halfway) deletes the temp file and leaves the previous file as it was.
+ */
+public final class ReplacedFile implements AutoCloseable {
+
+    private final Path file;
+    private final Path temp;
+
+    public ReplacedFile(Path file) throws IOException {
+        this.file = file;
+        Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        this.temp = createTemp(dir, file.getFileName().toString());
+    }
+
+    /**
+     * Where to write the content
+     */
+    public Path temp() {
+        return temp;
+    }
+
+    public void commit() throws IOException {
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Nothing left to delete after commit
+     */
+    @Override
+    public void close() throws IOException {
+        Files.deleteIfExists(temp);
+    }
+
+    /**
+     * Files.createTempFile would make it owner-only: created like any other output file instead, with the default
+     * permissions
+     */
+    private static Path createTemp(Path dir, String name) throws IOException {
+        while (true) {
+            Path temp = dir.resolve("." + name + "." + Long.toUnsignedString(ThreadLocalRandom.current().nextLong(), 36) + ".tmp");
+            try {
+                return Files.createFile(temp);
+            } catch (FileAlreadyExistsException e) {
+                // taken, draw another name
+            }
+        }
+    }
+}
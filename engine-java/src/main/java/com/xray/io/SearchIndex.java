@@ -0,0 +1,256 @@
+package com.xray.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.xray.io.SearchIndexFormat.*;
+
+/**
+ * Name search over a memory-mapped index/search.bin (see SearchIndexFormat). Every query is a handful of binary
+ * searches plus a walk over at most limit matches, it never scans the term dictionary (except substring queries
+ * shorter than a trigram). Matches come back in term order; names are compared ignoring case. Safe for concurrent
+ * readers.
+ */
+public final class SearchIndex {
+
+    private final ByteBuffer data;
+    private final int termCount;
+    private final int trigramCount;
+    private final int humpCount;
+    private final IntBuffer termNodeStarts;
+    private final IntBuffer termNodes;
+    private final IntBuffer trigramKeys;
+    private final IntBuffer trigramTermStarts;
+    private final IntBuffer trigramTerms;
+    private final IntBuffer humpTermStarts;
+    private final IntBuffer humpTerms;
+    private final IntBuffer stringOffsets;
+    private final int stringDataOffset;
+
+    private SearchIndex(ByteBuffer data) throws IOException {
+        this.data = data;
+        if (data.limit() < HEADER_BYTES || data.getInt(0) != MAGIC) {
+            throw new IOException("Not a search index");
+        }
+        if (data.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("Unsupported search index version " + data.getInt(4));
+        }
+        termCount = data.getInt(8);
+        trigramCount = data.getInt(12);
+        humpCount = data.getInt(16);
+        int stringCount = data.getInt(24);
+        termNodeStarts = ints(32, termCount + 1);
+        termNodes = ints(40, termNodeStarts.get(termCount));
+        trigramKeys = ints(48, trigramCount);
+        trigramTermStarts = ints(56, trigramCount + 1);
+        trigramTerms = ints(64, trigramTermStarts.get(trigramCount));
+        humpTermStarts = ints(72, humpCount + 1);
+        humpTerms = ints(80, humpTermStarts.get(humpCount));
+        stringOffsets = ints(88, stringCount + 1);
+        stringDataOffset = Math.toIntExact(data.getLong(96));
+    }
+
+    /**
+     * Maps the file; files over 2 GB are not supported.
+     */
+    public static SearchIndex open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Search index " + file + " is larger than 2 GB");
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new SearchIndex(mapped.order(ByteOrder.LITTLE_ENDIAN));
+        }
+    }
+
+    /**
+     * Number of distinct names
+     */
+    public int termCount() {
+        return termCount;
+    }
+
+    /**
+     * Names starting with prefix ("ordSer" -> OrderService, orderServiceImpl)
+     */
+    public List<Match> prefix(String prefix, int limit) {
+        List<Match> matches = new ArrayList<>();
+        for (int term = lowerBound(0, termCount, prefix, String.CASE_INSENSITIVE_ORDER); term < termCount && matches.size() < limit; term++) {
+            String name = term(term);
+            if (!name.regionMatches(true, 0, prefix, 0, prefix.length())) {
+                break;
+            }
+            matches.add(match(term, name));
+        }
+        return matches;
+    }
+
+    /**
+     * Names containing text anywhere ("rderSer" -> OrderService)
+     */
+    public List<Match> substring(String text, int limit) {
+        List<Match> matches = new ArrayList<>();
+        if (text.length() < 3) {
+            for (int term = 0; term < termCount && matches.size() < limit; term++) {
+                String name = term(term);
+                if (containsIgnoreCase(name, text)) {
+                    matches.add(match(term, name));
+                }
+            }
+            return matches;
+        }
+
+        // posting range [start, end) per distinct trigram of the query, rarest first
+        int[] keys = new int[text.length() - 2];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = trigram(text.charAt(i), text.charAt(i + 1), text.charAt(i + 2));
+        }
+        keys = Arrays.stream(keys).distinct().toArray();
+        int[][] ranges = new int[keys.length][];
+        for (int i = 0; i < keys.length; i++) {
+            int slot = binarySearch(trigramKeys, 0, trigramCount, keys[i]);
+            if (slot < 0) {
+                return matches;
+            }
+            ranges[i] = new int[]{trigramTermStarts.get(slot), trigramTermStarts.get(slot + 1)};
+        }
+        Arrays.sort(ranges, Comparator.comparingInt(range -> range[1] - range[0]));
+
+        for (int p = ranges[0][0]; p < ranges[0][1] && matches.size() < limit; p++) {
+            int term = trigramTerms.get(p);
+            boolean inAll = true;
+            for (int i = 1; i < ranges.length && inAll; i++) {
+                inAll = binarySearch(trigramTerms, ranges[i][0], ranges[i][1], term) >= 0;
+            }
+            if (inAll) {
+                String name = term(term);
+                // trigrams only narrow the candidates down, the text may still be missing or out of order
+                if (containsIgnoreCase(name, text)) {
+                    matches.add(match(term, name));
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Names whose word initials start with humps ("osi" or "OSI" -> OrderServiceImpl)
+     */
+    public List<Match> camelHump(String humps, int limit) {
+        String key = humps.toLowerCase();
+        List<Match> matches = new ArrayList<>();
+        for (int slot = lowerBound(termCount, termCount + humpCount, key, Comparator.naturalOrder()) - termCount;
+             slot < humpCount && matches.size() < limit; slot++) {
+            if (!string(termCount + slot).startsWith(key)) {
+                break;
+            }
+            for (int p = humpTermStarts.get(slot); p < humpTermStarts.get(slot + 1) && matches.size() < limit; p++) {
+                int term = humpTerms.get(p);
+                matches.add(match(term, term(term)));
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Type-ahead: prefix matches first, then camel-hump matches, then substring matches, each name once
+     */
+    public List<Match> search(String query, int limit) {
+        Set<Match> matches = new LinkedHashSet<>(prefix(query, limit));
+        if (matches.size() < limit) {
+            matches.addAll(camelHump(query, limit));
+        }
+        if (matches.size() < limit) {
+            matches.addAll(substring(query, limit));
+        }
+        return matches.stream().limit(limit).toList();
+    }
+
+    private Match match(int term, String name) {
+        int start = termNodeStarts.get(term);
+        int end = termNodeStarts.get(term + 1);
+        List<String> ids = new ArrayList<>(end - start);
+        for (int p = start; p < end; p++) {
+            ids.add(string(termCount + humpCount + termNodes.get(p)));
+        }
+        return new Match(name, ids);
+    }
+
+    private String term(int term) {
+        return string(term);
+    }
+
+    /**
+     * First string index in [from, to) not ordered before key
+     */
+    private int lowerBound(int from, int to, String key, Comparator<String> order) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (order.compare(string(mid), key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int binarySearch(IntBuffer values, int from, int to, int key) {
+        int low = from;
+        int high = to - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int value = values.get(mid);
+            if (value < key) {
+                low = mid + 1;
+            } else if (value > key) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean containsIgnoreCase(String name, String text) {
+        for (int i = 0; i + text.length() <= name.length(); i++) {
+            if (name.regionMatches(true, i, text, 0, text.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String string(int id) {
+        int start = stringOffsets.get(id);
+        int length = stringOffsets.get(id + 1) - start;
+        byte[] bytes = new byte[length];
+        data.get(stringDataOffset + start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private IntBuffer ints(int headerOffset, int count) {
+        int offset = Math.toIntExact(data.getLong(headerOffset));
+        return data.slice(offset, count * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+    }
+
+    /**
+     * A matching name and the ids of the class/method nodes carrying it
+     */
+    public record Match(String name, List<String> ids) {}
+}
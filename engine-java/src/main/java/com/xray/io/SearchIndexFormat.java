@@ -0,0 +1,59 @@
+package com.xray.io;
+
+/**
+ * Layout of index/search.bin, the name search index over class and method nodes. Like nodes.bin it is little-endian
+ * int32 sections at 4-byte aligned offsets, so it is used straight from a memory mapping.
+ * <pre>
+ * header             magic "XRSI", formatVersion, termCount, trigramCount, humpCount, idCount, stringCount, 0,
+ *                    then the int64 offsets of the sections below, in order
+ * termNodeStarts     termCount + 1 positions into termNodes
+ * termNodes          id ordinals of the nodes carrying each term
+ * trigramKeys        trigramCount keys (see trigram), ascending
+ * trigramTermStarts  trigramCount + 1 positions into trigramTerms
+ * trigramTerms       ordinals of the terms containing each trigram, ascending per trigram
+ * humpTermStarts     humpCount + 1 positions into humpTerms
+ * humpTerms          ordinals of the terms with each camel-hump key
+ * strings            stringCount + 1 offsets into the string data, then the UTF-8 string data (padded to 4 bytes):
+ *                    the terms in String.CASE_INSENSITIVE_ORDER, the hump keys in natural order, the node ids
+ * </pre>
+ * A term is a distinct node name. Its hump key is the lowercased first character of every word in it
+ * ("OrderServiceImpl" -> "osi", "find_by_id" -> "fbi").
+ */
+public final class SearchIndexFormat {
+
+    public static final int MAGIC = 'X' | 'R' << 8 | 'S' << 16 | 'I' << 24;
+    public static final int FORMAT_VERSION = 1;
+    public static final int HEADER_BYTES = 32 + 9 * Long.BYTES;
+
+    private SearchIndexFormat() {}
+
+    /**
+     * Key of three consecutive characters, case-folded. Characters are cut to 10 bits, so distinct trigrams outside
+     * Latin may share a key; matches are always verified against the term, a shared key only costs a candidate.
+     */
+    public static int trigram(char a, char b, char c) {
+        return (fold(a) & 0x3FF) << 20 | (fold(b) & 0x3FF) << 10 | (fold(c) & 0x3FF);
+    }
+
+    public static String humps(String name) {
+        StringBuilder humps = new StringBuilder();
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!Character.isLetterOrDigit(c)) {
+                continue;
+            }
+            char previous = i == 0 ? '_' : name.charAt(i - 1);
+            boolean wordStart = !Character.isLetterOrDigit(previous)
+                    || Character.isUpperCase(c) && !Character.isUpperCase(previous)
+                    || Character.isDigit(c) && !Character.isDigit(previous);
+            if (wordStart) {
+                humps.append(fold(c));
+            }
+        }
+        return humps.toString();
+    }
+
+    static char fold(char c) {
+        return Character.toLowerCase(c);
+    }
+}
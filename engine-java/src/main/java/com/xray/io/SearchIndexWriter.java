@@ -0,0 +1,136 @@
+package com.xray.io;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.xray.io.SearchIndexFormat.*;
+
+/**
+ * Writes index/search.bin (see SearchIndexFormat) from the class and method names collected in NodeIndexes
+ */
+final class SearchIndexWriter {
+
+    static final Comparator<String> TERM_ORDER = String.CASE_INSENSITIVE_ORDER.thenComparing(Comparator.naturalOrder());
+
+    private SearchIndexWriter() {}
+
+    static void write(Path file, NodeIndexes indexes) throws IOException {
+        Map<String, PostingIndex.Postings> names = indexes.searchNames().postings();
+        String[] terms = names.keySet().toArray(String[]::new);
+        Arrays.sort(terms, TERM_ORDER);
+
+        // only the ids of indexed nodes are stored, renumbered in term order
+        int[] idOrdinals = new int[indexes.size()];
+        Arrays.fill(idOrdinals, -1);
+        List<String> ids = new ArrayList<>();
+        IntList termNodeStarts = new IntList();
+        IntList termNodes = new IntList();
+        Map<Integer, IntList> trigramTerms = new HashMap<>();
+        Map<String, IntList> humpTerms = new HashMap<>();
+        for (int term = 0; term < terms.length; term++) {
+            termNodeStarts.add(termNodes.size);
+            PostingIndex.Postings postings = names.get(terms[term]);
+            for (int i = 0; i < postings.size(); i++) {
+                int ordinal = postings.get(i);
+                if (idOrdinals[ordinal] < 0) {
+                    idOrdinals[ordinal] = ids.size();
+                    ids.add(indexes.id(ordinal));
+                }
+                termNodes.add(idOrdinals[ordinal]);
+            }
+            String name = terms[term];
+            for (int i = 0; i + 3 <= name.length(); i++) {
+                IntList termsWithTrigram = trigramTerms.computeIfAbsent(
+                        trigram(name.charAt(i), name.charAt(i + 1), name.charAt(i + 2)), k -> new IntList());
+                if (termsWithTrigram.size == 0 || termsWithTrigram.values[termsWithTrigram.size - 1] != term) {
+                    termsWithTrigram.add(term);
+                }
+            }
+            humpTerms.computeIfAbsent(humps(name), k -> new IntList()).add(term);
+        }
+        termNodeStarts.add(termNodes.size);
+
+        int[] trigramKeys = trigramTerms.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+        String[] humpKeys = humpTerms.keySet().toArray(String[]::new);
+        Arrays.sort(humpKeys);
+
+        List<byte[]> strings = new ArrayList<>(terms.length + humpKeys.length + ids.size());
+        for (String term : terms) {
+            strings.add(term.getBytes(StandardCharsets.UTF_8));
+        }
+        for (String humpKey : humpKeys) {
+            strings.add(humpKey.getBytes(StandardCharsets.UTF_8));
+        }
+        for (String id : ids) {
+            strings.add(id.getBytes(StandardCharsets.UTF_8));
+        }
+        long stringBytes = strings.stream().mapToLong(bytes -> bytes.length).sum();
+        if (stringBytes > Integer.MAX_VALUE) {
+            throw new IOException("String data of " + file + " exceeds 2 GB");
+        }
+
+        long trigramTermCount = trigramTerms.values().stream().mapToLong(list -> list.size).sum();
+        long termNodeStartsOffset = HEADER_BYTES;
+        long termNodesOffset = termNodeStartsOffset + (long) (terms.length + 1) * Integer.BYTES;
+        long trigramKeysOffset = termNodesOffset + (long) termNodes.size * Integer.BYTES;
+        long trigramTermStartsOffset = trigramKeysOffset + (long) trigramKeys.length * Integer.BYTES;
+        long trigramTermsOffset = trigramTermStartsOffset + (long) (trigramKeys.length + 1) * Integer.BYTES;
+        long humpTermStartsOffset = trigramTermsOffset + trigramTermCount * Integer.BYTES;
+        long humpTermsOffset = humpTermStartsOffset + (long) (humpKeys.length + 1) * Integer.BYTES;
+        long stringOffsetsOffset = humpTermsOffset + (long) terms.length * Integer.BYTES;
+        long stringDataOffset = stringOffsetsOffset + (long) (strings.size() + 1) * Integer.BYTES;
+
+        try (SectionWriter writer = new SectionWriter(file)) {
+            writer.putInt(MAGIC)
+                    .putInt(FORMAT_VERSION)
+                    .putInt(terms.length)
+                    .putInt(trigramKeys.length)
+                    .putInt(humpKeys.length)
+                    .putInt(ids.size())
+                    .putInt(strings.size())
+                    .putInt(0)
+                    .putLong(termNodeStartsOffset)
+                    .putLong(termNodesOffset)
+                    .putLong(trigramKeysOffset)
+                    .putLong(trigramTermStartsOffset)
+                    .putLong(trigramTermsOffset)
+                    .putLong(humpTermStartsOffset)
+                    .putLong(humpTermsOffset)
+                    .putLong(stringOffsetsOffset)
+                    .putLong(stringDataOffset);
+
+            writer.putInts(termNodeStarts);
+            writer.putInts(termNodes);
+            for (int key : trigramKeys) {
+                writer.putInt(key);
+            }
+            int position = 0;
+            for (int key : trigramKeys) {
+                writer.putInt(position);
+                position += trigramTerms.get(key).size;
+            }
+            writer.putInt(position);
+            for (int key : trigramKeys) {
+                writer.putInts(trigramTerms.get(key));
+            }
+            position = 0;
+            for (String humpKey : humpKeys) {
+                writer.putInt(position);
+                position += humpTerms.get(humpKey).size;
+            }
+            writer.putInt(position);
+            for (String humpKey : humpKeys) {
+                writer.putInts(humpTerms.get(humpKey));
+            }
+            writer.putStrings(strings, stringBytes);
+            writer.commit();
+        }
+    }
+}
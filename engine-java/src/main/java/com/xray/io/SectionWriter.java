@@ -0,0 +1,103 @@
+package com.xray.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Buffered little-endian writer for the sectioned binary files (nodes.bin, index/search.bin): a header of ints and
+ * longs, int sections, and a string table of offsets followed by UTF-8 data. Like JsonlWriter it writes a temp file
+ * that replaces file on commit, and is dropped when closed before.
+ */
+final class SectionWriter implements AutoCloseable {
+
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private final ReplacedFile replacedFile;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+    SectionWriter(Path file) throws IOException {
+        this.replacedFile = new ReplacedFile(file);
+        this.channel = FileChannel.open(replacedFile.temp(),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    SectionWriter putInt(int value) throws IOException {
+        if (buffer.remaining() < Integer.BYTES) {
+            flush();
+        }
+        buffer.putInt(value);
+        return this;
+    }
+
+    SectionWriter putLong(long value) throws IOException {
+        if (buffer.remaining() < Long.BYTES) {
+            flush();
+        }
+        buffer.putLong(value);
+        return this;
+    }
+
+    void putInts(IntList ints) throws IOException {
+        for (int i = 0; i < ints.size; i++) {
+            putInt(ints.values[i]);
+        }
+    }
+
+    /**
+     * Writes strings.size() + 1 offsets, then the bytes of every string, padded so the file length stays a multiple
+     * of 4. stringBytes is the total length of strings.
+     */
+    void putStrings(List<byte[]> strings, long stringBytes) throws IOException {
+        int offset = 0;
+        putInt(offset);
+        for (byte[] bytes : strings) {
+            offset += bytes.length;
+            putInt(offset);
+        }
+        for (byte[] bytes : strings) {
+            int written = 0;
+            while (written < bytes.length) {
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+                int chunk = Math.min(buffer.remaining(), bytes.length - written);
+                buffer.put(bytes, written, chunk);
+                written += chunk;
+            }
+        }
+        for (long pad = (4 - stringBytes % 4) % 4; pad > 0; pad--) {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            buffer.put((byte) 0);
+        }
+    }
+
+    void commit() throws IOException {
+        try (channel) {
+            flush();
+        }
+        replacedFile.commit();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (replacedFile) {
+            channel.close();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
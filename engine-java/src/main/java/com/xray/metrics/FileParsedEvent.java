@@ -0,0 +1,47 @@
+package com.xray.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * One per parsed file, committed on the parsing thread
+ */
+@Name("com.xray.FileParsed")
+@Label("File Parsed")
+@Category("xray")
+public final class FileParsedEvent extends Event {
+
+    @Label("File")
+    String file;
+
+    @Label("CPU Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long cpuTime;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocatedBytes;
+
+    /**
+     * Call right before parsing the file, then finish() once it is parsed
+     */
+    public static FileParsedEvent start(String file) {
+        FileParsedEvent event = new FileParsedEvent();
+        event.file = file;
+        event.begin();
+        return event;
+    }
+
+    public void finish(ThreadUsage usage) {
+        end();
+        if (shouldCommit()) {
+            cpuTime = usage.cpuNanos();
+            allocatedBytes = usage.allocatedBytes();
+            commit();
+        }
+    }
+}
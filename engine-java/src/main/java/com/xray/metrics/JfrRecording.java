@@ -0,0 +1,59 @@
+package com.xray.metrics;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+
+/**
+ * JFR recording of one run: the JDK "default" settings plus the xray events (phases, parsed files), dumped to file
+ * on close. A recording that can't be started or dumped is logged and does not fail the analysis.
+ */
+@Slf4j
+public final class JfrRecording implements AutoCloseable {
+
+    private final Recording recording;
+    private final Path file;
+
+    private JfrRecording(Recording recording, Path file) {
+        this.recording = recording;
+        this.file = file;
+    }
+
+    public static JfrRecording start(Path file) {
+        Recording recording = null;
+        try {
+            recording = new Recording(Configuration.getConfiguration("default"));
+            recording.setName("xray");
+            recording.enable(PhaseEvent.class);
+            recording.enable(FileParsedEvent.class);
+            recording.start();
+        } catch (IOException | ParseException | RuntimeException e) {
+            log.warn("Could not start JFR recording, continuing without it: {}", e.getMessage());
+            if (recording != null) {
+                recording.close();
+            }
+            recording = null;
+        }
+        return new JfrRecording(recording, file);
+    }
+
+    @Override
+    public void close() {
+        if (recording == null) {
+            return;
+        }
+        try {
+            recording.stop();
+            recording.dump(file);
+            log.info("JFR recording written to {}", file);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not write JFR recording to {}: {}", file, e.getMessage());
+        } finally {
+            recording.close();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.xray.metrics;
+
+import com.xray.model.Profile;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * Sums per-file parse usage and keeps the slowest files (by wall time) in a bounded min-heap.
+ * Not thread-safe: fed from the thread that merges parse results.
+ */
+public final class ParseWorkRecorder {
+
+    private static final Comparator<Profile.FileTiming> BY_WALL_TIME = Comparator.comparingDouble(Profile.FileTiming::wallMs);
+
+    private final int slowestFiles;
+    private final PriorityQueue<Profile.FileTiming> slowest;
+    private long files;
+    private ThreadUsage total = new ThreadUsage(0, 0, 0);
+
+    public ParseWorkRecorder(int slowestFiles) {
+        this.slowestFiles = Math.max(0, slowestFiles);
+        this.slowest = new PriorityQueue<>(this.slowestFiles + 1, BY_WALL_TIME);
+    }
+
+    public void add(String file, ThreadUsage usage) {
+        files++;
+        total = total.plus(usage);
+        if (slowestFiles == 0) {
+            return;
+        }
+        slowest.add(new Profile.FileTiming(
+                file,
+                ThreadUsage.millis(usage.wallNanos()),
+                ThreadUsage.millis(usage.cpuNanos()),
+                usage.allocatedBytes()
+        ));
+        if (slowest.size() > slowestFiles) {
+            slowest.poll();
+        }
+    }
+
+    public Profile.ParseWork result() {
+        return new Profile.ParseWork(
+                files,
+                ThreadUsage.millis(total.cpuNanos()),
+                total.allocatedBytes(),
+                slowest.stream().sorted(BY_WALL_TIME.reversed()).toList()
+        );
+    }
+}
@@ -0,0 +1,107 @@
+package com.xray.metrics;
+
+import com.xray.model.Profile;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Profiles one analysis run: named phases measured on the calling thread, heap peak and GC activity since creation.
+ * <pre>
+ * try (RunProfiler.Phase phase = profiler.phase("parse")) { ... }
+ * </pre>
+ * Each phase is also committed as a com.xray.Phase JFR event when a recording is running.
+ */
+public final class RunProfiler {
+
+    private final List<Profile.Phase> phases = new ArrayList<>();
+    private final long gcCollectionsAtStart;
+    private final long gcTimeMsAtStart;
+
+    public RunProfiler() {
+        // peaks are JVM-wide; restart them so the figure belongs to this run
+        for (MemoryPoolMXBean pool : heapPools()) {
+            pool.resetPeakUsage();
+        }
+        gcCollectionsAtStart = gcCollections();
+        gcTimeMsAtStart = gcTimeMs();
+    }
+
+    public Phase phase(String name) {
+        return new Phase(name);
+    }
+
+    public Profile profile(Profile.ParseWork parseWork) {
+        long peakHeapBytes = 0;
+        for (MemoryPoolMXBean pool : heapPools()) {
+            peakHeapBytes += pool.getPeakUsage().getUsed();
+        }
+        return new Profile(
+                List.copyOf(phases),
+                parseWork,
+                new Profile.Memory(
+                        peakHeapBytes,
+                        gcCollections() - gcCollectionsAtStart,
+                        gcTimeMs() - gcTimeMsAtStart
+                )
+        );
+    }
+
+    public final class Phase implements AutoCloseable {
+
+        private final String name;
+        private final ThreadUsage start;
+        private final PhaseEvent event;
+
+        private Phase(String name) {
+            this.name = name;
+            this.event = new PhaseEvent();
+            event.phase = name;
+            event.begin();
+            this.start = ThreadUsage.current();
+        }
+
+        @Override
+        public void close() {
+            ThreadUsage usage = ThreadUsage.current().since(start);
+            phases.add(new Profile.Phase(
+                    name,
+                    ThreadUsage.millis(usage.wallNanos()),
+                    ThreadUsage.millis(usage.cpuNanos()),
+                    usage.allocatedBytes()
+            ));
+            event.end();
+            if (event.shouldCommit()) {
+                event.cpuTime = usage.cpuNanos();
+                event.allocatedBytes = usage.allocatedBytes();
+                event.commit();
+            }
+        }
+    }
+
+    private static List<MemoryPoolMXBean> heapPools() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP && pool.isValid())
+                .toList();
+    }
+
+    private static long gcCollections() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionCount());
+        }
+        return total;
+    }
+
+    private static long gcTimeMs() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+}
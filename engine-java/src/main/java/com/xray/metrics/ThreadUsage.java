@@ -0,0 +1,48 @@
+package com.xray.metrics;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Wall time plus the CPU time and allocated bytes of the current thread (ThreadMXBean), for measuring a stretch of
+ * work on one thread: ThreadUsage start = current(); ...; current().since(start).
+ * CPU or allocation figures are 0 when the JVM does not support measuring them.
+ */
+public record ThreadUsage(long wallNanos, long cpuNanos, long allocatedBytes) {
+
+    private static final com.sun.management.ThreadMXBean THREADS = threadMXBean();
+
+    public static ThreadUsage current() {
+        if (THREADS == null) {
+            return new ThreadUsage(System.nanoTime(), 0, 0);
+        }
+        return new ThreadUsage(
+                System.nanoTime(),
+                THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : 0,
+                THREADS.isThreadAllocatedMemoryEnabled() ? THREADS.getCurrentThreadAllocatedBytes() : 0
+        );
+    }
+
+    public ThreadUsage since(ThreadUsage start) {
+        return new ThreadUsage(
+                wallNanos - start.wallNanos,
+                cpuNanos - start.cpuNanos,
+                allocatedBytes - start.allocatedBytes
+        );
+    }
+
+    public ThreadUsage plus(ThreadUsage other) {
+        return new ThreadUsage(
+                wallNanos + other.wallNanos,
+                cpuNanos + other.cpuNanos,
+                allocatedBytes + other.allocatedBytes
+        );
+    }
+
+    static double millis(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        return ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads ? threads : null;
+    }
+}
@@ -39,4 +39,15 @@ public record Edge(
         //TODO id generation via hash
         return new Edge(id, fromId, toId, type, confidence, List.of(), Map.of(), SchemaVersion.V1);
     }
+
+    public static Edge v1(
+            String id,
+            String fromId,
+            String toId,
+            EdgeType type,
+            Confidence confidence,
+            List<Evidence> evidence
+    ) {
+        return new Edge(id, fromId, toId, type, confidence, evidence, Map.of(), SchemaVersion.V1);
+    }
 }
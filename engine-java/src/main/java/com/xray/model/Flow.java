@@ -0,0 +1,23 @@
+package com.xray.model;
+
+import java.util.List;
+
+/**
+ * Everything downstream of one entrypoint (flows/flows.jsonl), in breadth-first order: the entrypoint method,
+ * then what it calls, what those call, and so on, up to options.maxDepth hops. Steps refer to the step they were
+ * reached from by index rather than by id, which keeps long flows compact.
+ * <p>
+ * truncated: maxDepth cut the flow off, nodes at the last depth have callees that are not listed
+ */
+public record Flow(
+        String entrypointId,
+        boolean truncated,
+        List<Step> steps
+) {
+
+    public record Step(
+            String nodeId,
+            int depth,      // hops from the entrypoint, 0 for the entrypoint itself
+            int from        // index of the step this node was first reached from (previous step on a shortest path), -1 for the entrypoint
+    ) {}
+}
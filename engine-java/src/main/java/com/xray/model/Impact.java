@@ -0,0 +1,11 @@
+package com.xray.model;
+
+import java.util.List;
+
+/**
+ * The entrypoints whose flows reach a node (flows/impact.jsonl): what a change to the node can affect
+ */
+public record Impact(
+        String nodeId,
+        List<String> entrypointIds
+) {}
@@ -3,6 +3,7 @@ package com.xray.model;
 import com.xray.config.EngineConfig;
 
 import java.time.Instant;
+import java.util.List;
 
 public record Meta(
         String engineVersion,
@@ -10,11 +11,20 @@ public record Meta(
         Instant analyzedAt,
         String repoRoot,
         EngineConfig.Options options,
-        Stats stats
+        Stats stats,
+        Profile profile,
+        List<NodeShard> nodeShards // files holding the nodes, a single nodes.jsonl unless output is sharded
 ) {
 
     public record Stats (long javaFilesFound,
                          long filesParsedOk,
                          long filesParsedFailed,
-                         long nodesWritten) {}
+                         long filesReused,
+                         long nodesWritten,
+                         long edgesWritten) {}
+
+    /**
+     * file: relative to the output dir
+     */
+    public record NodeShard(String file, long nodes, long bytes) {}
 }
@@ -23,6 +23,7 @@ import static com.xray.model.Enums.*;
  * <p>
  * hash:
  * stable-ish content hash used for incremental rebuilds + summary caching
+ * (currently the content hash of the declaring file)
  */
 public record Node(
         String id,
@@ -50,14 +51,15 @@ public record Node(
             List<String> modifiers,
             List<String> annotations,
             List<String> tags,
-            Map<String, Object> attributes) {
+            Map<String, Object> attributes,
+            String hash) {
         List<AnnotationRef> annotationRefs = annotations.stream()
                 .map(a -> new AnnotationRef(a, null))
                 .toList();
         return new Node(
                 id, kind, name, fqcn, signature, ownerId, source,
                 modifiers, annotationRefs, tags, attributes,
-                null,
+                hash,
                 SchemaVersion.V1
         );
     }
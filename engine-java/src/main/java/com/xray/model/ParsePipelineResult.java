@@ -9,5 +9,7 @@ public record ParsePipelineResult(
         long javaFilesFound,
         long filesParsedOk,
         long filesParsedFailed,
-        List<ParseProblem> parseProblems) {
+        long filesReused,
+        List<ParseProblem> parseProblems,
+        Profile.ParseWork parseWork) {
 }
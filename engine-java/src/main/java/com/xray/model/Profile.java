@@ -0,0 +1,29 @@
+package com.xray.model;
+
+import java.util.List;
+
+/**
+ * Where a run spent its time and memory, written to meta.json.
+ * <p>
+ * Phase cpu/allocation figures are measured on the engine thread; work done by parse workers is in parse.
+ */
+public record Profile(
+        List<Phase> phases,
+        ParseWork parse,
+        Memory memory
+) {
+
+    public record Phase(String name, double wallMs, double cpuMs, long allocatedBytes) {}
+
+    /**
+     * Summed over every parsed file, whichever thread parsed it (reused files are not included)
+     */
+    public record ParseWork(long files, double cpuMs, long allocatedBytes, List<FileTiming> slowestFiles) {}
+
+    public record FileTiming(String file, double wallMs, double cpuMs, long allocatedBytes) {}
+
+    /**
+     * peakHeapBytes: sum of the peak usage of every heap pool during the run; gcTimeMs: accumulated collection time
+     */
+    public record Memory(long peakHeapBytes, long gcCollections, double gcTimeMs) {}
+}
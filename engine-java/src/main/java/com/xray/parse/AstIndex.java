@@ -22,13 +22,22 @@ public final class AstIndex {
     // Node source lookup (for building nodes later without holding Node objects)
     private final Map<String, NodeDraft> nodeDrafts; // nodeId -> draft data
 
+    // Unresolved type/call references per class, turned into edges by EdgeExtractor
+    private final Map<String, ClassRefs> classRefs; // classId -> refs
+
+    // Content hash of every file read this run (parsed or reused), keyed like SourceRange.file
+    private final Map<String, String> fileHashes; // "/repo/src/.../Foo.java" -> "3f2a9c..."
+
 
     public AstIndex() {
-        this.fileToCu = new HashMap<>();
-        this.fqcnToNodeId = new HashMap<>();
-        this.simpleNameToFqcns = new HashMap<>();
-        this.methodKeyToNodeId = new HashMap<>();
-        this.nodeDrafts = new HashMap<>();
+        // Insertion-ordered so output order follows file/declaration order, whichever parse mode filled the index
+        this.fileToCu = new LinkedHashMap<>();
+        this.fqcnToNodeId = new LinkedHashMap<>();
+        this.simpleNameToFqcns = new LinkedHashMap<>();
+        this.methodKeyToNodeId = new LinkedHashMap<>();
+        this.nodeDrafts = new LinkedHashMap<>();
+        this.classRefs = new LinkedHashMap<>();
+        this.fileHashes = new LinkedHashMap<>();
     }
 
     public Map<Path, CompilationUnit> fileToCu() { return Collections.unmodifiableMap(fileToCu); }
@@ -36,6 +45,8 @@ public final class AstIndex {
     public Map<String, List<String>> simpleNameToFqcns() { return Collections.unmodifiableMap(simpleNameToFqcns); }
     public Map<String, String> methodKeyToNodeId() { return Collections.unmodifiableMap(methodKeyToNodeId); }
     public Map<String, NodeDraft> nodeDrafts() { return Collections.unmodifiableMap(nodeDrafts); }
+    public Map<String, ClassRefs> classRefs() { return Collections.unmodifiableMap(classRefs); }
+    public Map<String, String> fileHashes() { return Collections.unmodifiableMap(fileHashes); }
 
     // Mutators used by ParsePipeline only:
     void putCompilationUnit(Path file, CompilationUnit cu) { fileToCu.put(file, cu); }
@@ -51,6 +62,40 @@ public final class AstIndex {
         nodeDrafts.put(nodeId, draft);
     }
 
+    /**
+     * Streaming mode: drops the ASTs once everything needed from them was extracted
+     */
+    void releaseCompilationUnits() { fileToCu.clear(); }
+
+    void indexClassRefs(ClassRefs refs) { classRefs.put(refs.classId(), refs); }
+
+    void putFileHash(Path file, String contentHash) { fileHashes.put(file.toString(), contentHash); }
+
+    /**
+     * Re-indexes a draft carried over from an earlier run (see ReusableDrafts)
+     */
+    void restoreDraft(NodeDraft draft) {
+        switch (draft.kind()) {
+            case CLASS -> indexType(draft.fqcn(), draft.name(), draft.id(), draft);
+            case METHOD -> indexMethod(draft.id(), draft.id(), draft);
+            default -> nodeDrafts.put(draft.id(), draft);
+        }
+    }
+
+    /**
+     * Appends a per-file index produced by ParsePipeline. Not thread-safe: the pipeline merges on one thread, in file order.
+     */
+    void merge(AstIndex fileIndex) {
+        fileToCu.putAll(fileIndex.fileToCu);
+        fqcnToNodeId.putAll(fileIndex.fqcnToNodeId);
+        fileIndex.simpleNameToFqcns.forEach((simpleName, fqcns) ->
+                simpleNameToFqcns.computeIfAbsent(simpleName, k -> new ArrayList<>()).addAll(fqcns));
+        methodKeyToNodeId.putAll(fileIndex.methodKeyToNodeId);
+        nodeDrafts.putAll(fileIndex.nodeDrafts);
+        classRefs.putAll(fileIndex.classRefs);
+        fileHashes.putAll(fileIndex.fileHashes);
+    }
+
     public void updateDraft(String nodeId, NodeDraft updated) {
         nodeDrafts.put(nodeId, updated);
     }
@@ -69,4 +114,26 @@ public final class AstIndex {
             List<String> tags,
             Map<String, Object> attributes
     ) {}
+
+    /**
+     * References of one class as written in source. Type names are resolved against the type inventory
+     * only after every file is indexed (see EdgeExtractor).
+     */
+    public record ClassRefs(
+            String classId,
+            String file,
+            String packageName,             // "" for the default package
+            List<String> imports,           // non-static imports, "com.a.Foo" or "com.a.*"
+            boolean isInterface,
+            List<String> extendedTypes,     // as written, type arguments dropped: "BaseService", "com.a.Base"
+            List<String> implementedTypes,
+            List<CallSite> callSites
+    ) {}
+
+    /**
+     * receiverType: "this" for unqualified/this calls, "super", or the declared type name of the receiver
+     * (fully qualified when the call was resolved).
+     * targetId: id of the called method when the symbol solver resolved it, otherwise null
+     */
+    public record CallSite(String callerId, String name, int argCount, String receiverType, int line, String targetId) {}
 }
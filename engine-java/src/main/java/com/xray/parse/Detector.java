@@ -0,0 +1,33 @@
+package com.xray.parse;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+
+import java.util.List;
+
+/**
+ * Plugs into the single traversal ParsePipeline makes over each CompilationUnit, so registering another detector
+ * does not add another walk over the AST.
+ * <p>
+ * visitClass is called once per class/interface declaration, after the drafts of the class and its methods were
+ * indexed; detectors enrich those drafts via AstIndex.updateDraft. Inside the pipeline the AstIndex holds the
+ * current file only and detectors run on parse workers, so implementations must be stateless (or thread-safe)
+ * and must not look at other files.
+ */
+public interface Detector {
+
+    void visitClass(ClassOrInterfaceDeclaration clazz, AstIndex astIndex);
+
+    /**
+     * Runs detectors over every CompilationUnit still retained in astIndex, outside the pipeline
+     */
+    static void runAll(AstIndex astIndex, List<Detector> detectors) {
+        for (CompilationUnit compilationUnit : astIndex.fileToCu().values()) {
+            for (ClassOrInterfaceDeclaration clazz : compilationUnit.findAll(ClassOrInterfaceDeclaration.class)) {
+                for (Detector detector : detectors) {
+                    detector.visitClass(clazz, astIndex);
+                }
+            }
+        }
+    }
+}
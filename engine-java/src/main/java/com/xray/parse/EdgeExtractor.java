@@ -0,0 +1,281 @@
+package com.xray.parse;
+
+import com.xray.model.Edge;
+import com.xray.model.Evidence;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+import static com.xray.model.Enums.*;
+
+/**
+ * Turns the drafts and ClassRefs of a fully built AstIndex into CONTAINS, IMPLEMENTS, OVERRIDE and CALL edges.
+ * <p>
+ * Edges are handed to the sink one by one, class by class, so the caller can stream them to disk; the only
+ * state held here is a per-class method table (proportional to the node count) and the CALL de-duplication
+ * set of the class being processed.
+ * <p>
+ * Resolution is syntactic: type names go through nested types, imports, the own package and wildcard imports,
+ * then fall back to a unique simple-name match (LOW). Calls match on receiver type, method name and argument
+ * count, searching the receiver type first and then its supertypes. Calls the symbol solver already resolved
+ * (CallSite.targetId) link straight to their target with HIGH confidence, as long as that target is a node.
+ */
+public final class EdgeExtractor {
+
+    private final AstIndex astIndex;
+    private final Map<String, List<MethodInfo>> classToMethods; // classId -> methods in declaration order
+    private final Map<String, List<String>> hierarchyCache;     // classId -> itself + in-repo supertypes
+
+    private EdgeExtractor(AstIndex astIndex) {
+        this.astIndex = astIndex;
+        this.classToMethods = new HashMap<>();
+        this.hierarchyCache = new HashMap<>();
+        for (AstIndex.NodeDraft draft : astIndex.nodeDrafts().values()) {
+            if (draft.kind() == NodeKind.METHOD && draft.ownerId() != null) {
+                classToMethods.computeIfAbsent(draft.ownerId(), k -> new ArrayList<>()).add(MethodInfo.of(draft));
+            }
+        }
+    }
+
+    public static void extract(AstIndex astIndex, Consumer<Edge> sink) {
+        new EdgeExtractor(astIndex).emitAll(sink);
+    }
+
+    private void emitAll(Consumer<Edge> sink) {
+        for (AstIndex.ClassRefs classRefs : astIndex.classRefs().values()) {
+            emitContains(classRefs, sink);
+            emitImplements(classRefs, sink);
+            emitOverrides(classRefs, sink);
+            emitCalls(classRefs, sink);
+        }
+    }
+
+    private void emitContains(AstIndex.ClassRefs classRefs, Consumer<Edge> sink) {
+        for (MethodInfo method : methodsOf(classRefs.classId())) {
+            sink.accept(edge(EdgeType.CONTAINS, classRefs.classId(), method.id(), Confidence.HIGH,
+                    new Evidence(method.file(), method.line(), "declaration", null, null)));
+        }
+    }
+
+    private void emitImplements(AstIndex.ClassRefs classRefs, Consumer<Edge> sink) {
+        for (String implementedType : classRefs.implementedTypes()) {
+            resolveType(implementedType, classRefs).ifPresent(target ->
+                    sink.accept(edge(EdgeType.IMPLEMENTS, classRefs.classId(), target.classId(), target.confidence(),
+                            new Evidence(classRefs.file(), classLine(classRefs.classId()), "implements-clause", implementedType, null))));
+        }
+    }
+
+    private void emitOverrides(AstIndex.ClassRefs classRefs, Consumer<Edge> sink) {
+        List<MethodInfo> methods = methodsOf(classRefs.classId());
+        if (methods.isEmpty()) {
+            return;
+        }
+        List<String> directSupertypes = directSupertypes(classRefs);
+        for (MethodInfo method : methods) {
+            Set<String> targets = new LinkedHashSet<>();
+            // nearest declaration along each supertype path
+            for (String supertype : directSupertypes) {
+                for (String ancestor : typeAndAncestors(supertype)) {
+                    Optional<MethodInfo> overridden = methodsOf(ancestor).stream()
+                            .filter(m -> m.signatureKey().equals(method.signatureKey()))
+                            .findFirst();
+                    if (overridden.isPresent()) {
+                        targets.add(overridden.get().id());
+                        break;
+                    }
+                }
+            }
+            for (String target : targets) {
+                sink.accept(edge(EdgeType.OVERRIDE, method.id(), target, Confidence.MEDIUM,
+                        new Evidence(method.file(), method.line(), "signature-match", method.signatureKey(), null)));
+            }
+        }
+    }
+
+    private void emitCalls(AstIndex.ClassRefs classRefs, Consumer<Edge> sink) {
+        Set<String> emitted = new HashSet<>(); // caller -> callee pairs of this class
+        Map<String, Optional<ResolvedType>> receivers = new HashMap<>(); // receiver type name -> resolution, this class
+        for (AstIndex.CallSite callSite : classRefs.callSites()) {
+            if (callSite.targetId() != null && astIndex.nodeDrafts().containsKey(callSite.targetId())) {
+                if (emitted.add(callSite.callerId() + "->" + callSite.targetId())) {
+                    sink.accept(edge(EdgeType.CALL, callSite.callerId(), callSite.targetId(), Confidence.HIGH,
+                            new Evidence(classRefs.file(), callSite.line(), "resolved-call",
+                                    callSite.name(), "receiver " + callSite.receiverType())));
+                }
+                continue;
+            }
+            // a resolved target that is no node (any more) is matched like an unresolved call, on its declaring type
+            Optional<ResolvedType> receiver = receivers.computeIfAbsent(callSite.receiverType(), k -> receiver(k, classRefs));
+            if (receiver.isEmpty()) {
+                continue;
+            }
+            List<String> searchOrder = ReferenceExtractor.SUPER_RECEIVER.equals(callSite.receiverType())
+                    ? ancestorsOf(receiver.get().classId())
+                    : typeAndAncestors(receiver.get().classId());
+
+            for (String classId : searchOrder) {
+                List<MethodInfo> candidates = methodsOf(classId).stream()
+                        .filter(m -> m.name().equals(callSite.name()) && m.accepts(callSite.argCount()))
+                        .toList();
+                if (candidates.isEmpty()) {
+                    continue;
+                }
+                Confidence confidence = candidates.size() == 1 && receiver.get().confidence() != Confidence.LOW
+                        ? Confidence.MEDIUM
+                        : Confidence.LOW;
+                for (MethodInfo candidate : candidates) {
+                    if (emitted.add(callSite.callerId() + "->" + candidate.id())) {
+                        sink.accept(edge(EdgeType.CALL, callSite.callerId(), candidate.id(), confidence,
+                                new Evidence(classRefs.file(), callSite.line(), "method-call",
+                                        callSite.name(), "receiver " + callSite.receiverType())));
+                    }
+                }
+                break;
+            }
+        }
+    }
+
+    private Optional<ResolvedType> receiver(String receiverType, AstIndex.ClassRefs classRefs) {
+        if (ReferenceExtractor.THIS_RECEIVER.equals(receiverType) || ReferenceExtractor.SUPER_RECEIVER.equals(receiverType)) {
+            return Optional.of(new ResolvedType(classRefs.classId(), Confidence.HIGH));
+        }
+        return resolveType(receiverType, classRefs);
+    }
+
+    private Optional<ResolvedType> resolveType(String typeName, AstIndex.ClassRefs context) {
+        Map<String, String> fqcnToNodeId = astIndex.fqcnToNodeId();
+
+        List<String> exactCandidates = new ArrayList<>();
+        exactCandidates.add(context.classId() + "." + typeName); // nested type of the current class
+        int dot = typeName.indexOf('.');
+        String firstSegment = dot < 0 ? typeName : typeName.substring(0, dot);
+        String remainder = dot < 0 ? "" : typeName.substring(dot);
+        for (String imported : context.imports()) {
+            if (imported.equals(firstSegment) || imported.endsWith("." + firstSegment)) {
+                exactCandidates.add(imported + remainder);
+            }
+        }
+        exactCandidates.add(context.packageName().isEmpty() ? typeName : context.packageName() + "." + typeName);
+        for (String imported : context.imports()) {
+            if (imported.endsWith(".*")) {
+                exactCandidates.add(imported.substring(0, imported.length() - 1) + typeName);
+            }
+        }
+        exactCandidates.add(typeName); // already fully qualified
+
+        for (String candidate : exactCandidates) {
+            String nodeId = fqcnToNodeId.get(candidate);
+            if (nodeId != null) {
+                return Optional.of(new ResolvedType(nodeId, Confidence.HIGH));
+            }
+        }
+
+        String simpleName = typeName.substring(typeName.lastIndexOf('.') + 1);
+        List<String> bySimpleName = astIndex.simpleNameToFqcns().getOrDefault(simpleName, List.of());
+        if (bySimpleName.size() == 1) {
+            return Optional.ofNullable(fqcnToNodeId.get(bySimpleName.getFirst()))
+                    .map(nodeId -> new ResolvedType(nodeId, Confidence.LOW));
+        }
+        return Optional.empty();
+    }
+
+    private List<String> directSupertypes(AstIndex.ClassRefs classRefs) {
+        List<String> supertypes = new ArrayList<>();
+        for (String typeName : classRefs.extendedTypes()) {
+            resolveType(typeName, classRefs).ifPresent(t -> supertypes.add(t.classId()));
+        }
+        for (String typeName : classRefs.implementedTypes()) {
+            resolveType(typeName, classRefs).ifPresent(t -> supertypes.add(t.classId()));
+        }
+        return supertypes;
+    }
+
+    /**
+     * classId followed by all of its in-repo supertypes, breadth-first (cycle-safe for broken code)
+     */
+    private List<String> typeAndAncestors(String classId) {
+        List<String> cached = hierarchyCache.get(classId);
+        if (cached != null) {
+            return cached;
+        }
+        List<String> ordered = new ArrayList<>();
+        Set<String> visited = new HashSet<>();
+        Deque<String> queue = new ArrayDeque<>();
+        queue.add(classId);
+        while (!queue.isEmpty()) {
+            String current = queue.poll();
+            if (!visited.add(current)) {
+                continue;
+            }
+            ordered.add(current);
+            AstIndex.ClassRefs refs = astIndex.classRefs().get(current);
+            if (refs != null) {
+                queue.addAll(directSupertypes(refs));
+            }
+        }
+        hierarchyCache.put(classId, ordered);
+        return ordered;
+    }
+
+    private List<String> ancestorsOf(String classId) {
+        List<String> ancestors = typeAndAncestors(classId);
+        return ancestors.subList(1, ancestors.size());
+    }
+
+    private List<MethodInfo> methodsOf(String classId) {
+        return classToMethods.getOrDefault(classId, List.of());
+    }
+
+    private int classLine(String classId) {
+        AstIndex.NodeDraft draft = astIndex.nodeDrafts().get(classId);
+        return draft == null ? -1 : draft.source().startLine();
+    }
+
+    private static Edge edge(EdgeType type, String fromId, String toId, Confidence confidence, Evidence evidence) {
+        return Edge.v1(EdgeId.of(type, fromId, toId, null), fromId, toId, type, confidence, List.of(evidence));
+    }
+
+    private record ResolvedType(String classId, Confidence confidence) {}
+
+    /**
+     * signatureKey is "name(params)" taken from the method id, e.g. "find(String,int)"
+     */
+    private record MethodInfo(String id, String name, String signatureKey, int paramCount, boolean varargs, String file, int line) {
+
+        static MethodInfo of(AstIndex.NodeDraft draft) {
+            String id = draft.id();
+            int open = id.indexOf('(', id.indexOf('#'));
+            int close = id.lastIndexOf("):");
+            String params = open >= 0 && close > open ? id.substring(open + 1, close) : "";
+            String signatureKey = open >= 0 && close > open ? id.substring(id.indexOf('#') + 1, close + 1) : draft.name();
+            return new MethodInfo(
+                    id,
+                    draft.name(),
+                    signatureKey,
+                    countParams(params),
+                    params.endsWith("..."),
+                    draft.source().file(),
+                    draft.source().startLine()
+            );
+        }
+
+        boolean accepts(int argCount) {
+            return varargs ? argCount >= paramCount - 1 : argCount == paramCount;
+        }
+
+        private static int countParams(String params) {
+            if (params.isBlank()) {
+                return 0;
+            }
+            int count = 1;
+            int depth = 0;
+            for (int i = 0; i < params.length(); i++) {
+                char c = params.charAt(i);
+                if (c == '<') depth++;
+                else if (c == '>') depth--;
+                else if (c == ',' && depth == 0) count++;
+            }
+            return count;
+        }
+    }
+}
@@ -3,26 +3,106 @@ package com.xray.parse;
 import com.xray.model.Enums;
 
 import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 
+/**
+ * "e:" + the first 16 hex chars of SHA-256("TYPE|fromId|toId|extra").
+ * <p>
+ * Called once per edge, so it avoids the per-call costs: the digest and buffers are per thread, the payload is
+ * encoded straight into a reused byte buffer (no concatenated payload string) and the hex is table based.
+ * Ids are byte-for-byte the ones earlier versions produced, so existing output stays comparable.
+ */
 public final class EdgeId {
 
+    private static final int ID_HEX_CHARS = 16;
+    private static final byte[] PREFIX = {'e', ':'};
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final ThreadLocal<Hasher> HASHER = ThreadLocal.withInitial(Hasher::new);
+
     private EdgeId() {}
 
     public static String of(Enums.EdgeType type, String fromId, String toId, String extra) {
-        String payload = type + "|" + fromId + "|" + toId + "|" + (extra == null ? "" : extra);
-        return "e:" + sha256Hex(payload).substring(0, 16); // short, deterministic
+        return HASHER.get().id(type, fromId, toId, extra == null ? "" : extra);
     }
 
-    private static String sha256Hex(String s) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            byte[] d = md.digest(s.getBytes(StandardCharsets.UTF_8));
-            StringBuilder sb = new StringBuilder();
-            for (byte b : d) sb.append(String.format("%02x", b));
-            return sb.toString();
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+    private static final class Hasher {
+
+        private final MessageDigest digest;
+        private final byte[] hash;
+        private final byte[] id = new byte[PREFIX.length + ID_HEX_CHARS];
+        private byte[] payload = new byte[256];
+        private int length;
+
+        Hasher() {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+            hash = new byte[digest.getDigestLength()];
+            System.arraycopy(PREFIX, 0, id, 0, PREFIX.length);
+        }
+
+        String id(Enums.EdgeType type, String fromId, String toId, String extra) {
+            length = 0;
+            append(type.toString());
+            append('|');
+            append(fromId);
+            append('|');
+            append(toId);
+            append('|');
+            append(extra);
+
+            digest.update(payload, 0, length);
+            try {
+                digest.digest(hash, 0, hash.length);
+            } catch (DigestException e) {
+                throw new IllegalStateException(e);
+            }
+            for (int i = 0; i < ID_HEX_CHARS / 2; i++) {
+                int b = hash[i] & 0xff;
+                id[PREFIX.length + 2 * i] = HEX[b >>> 4];
+                id[PREFIX.length + 2 * i + 1] = HEX[b & 0x0f];
+            }
+            return new String(id, StandardCharsets.US_ASCII);
+        }
+
+        private void append(char separator) {
+            ensureCapacity(1);
+            payload[length++] = (byte) separator;
+        }
+
+        /**
+         * ASCII is copied directly; anything else goes through the regular UTF-8 encoder. Parts never touch each other
+         * (they are '|' separated), so encoding them one by one gives the same bytes as encoding the joined string.
+         */
+        private void append(String s) {
+            int n = s.length();
+            ensureCapacity(n);
+            for (int i = 0; i < n; i++) {
+                char c = s.charAt(i);
+                if (c >= 0x80) {
+                    appendEncoded(s.substring(i));
+                    return;
+                }
+                payload[length++] = (byte) c;
+            }
+        }
+
+        private void appendEncoded(String s) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, payload, length, bytes.length);
+            length += bytes.length;
+        }
+
+        private void ensureCapacity(int extra) {
+            if (length + extra > payload.length) {
+                payload = Arrays.copyOf(payload, Math.max(payload.length * 2, length + extra));
+            }
         }
     }
 }
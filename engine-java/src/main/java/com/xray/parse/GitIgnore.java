@@ -0,0 +1,151 @@
+package com.xray.parse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * The rules of the .gitignore files from the repo root down to one directory. Deeper files win over shallower
+ * ones and later rules over earlier ones, as in git.
+ * <p>
+ * Supported: comments, negation (!), directory-only (trailing /) and anchored (leading or inner /) patterns,
+ * *, ?, ** and character classes. Not read: .git/info/exclude and the global excludes file.
+ * Immutable, so scopes are shared between directories scanned in parallel.
+ */
+final class GitIgnore {
+
+    static final GitIgnore NONE = new GitIgnore(null, "", List.of());
+
+    private static final String REGEX_SPECIALS = "\\.[]{}()<>*+-=!?^$|";
+
+    private final GitIgnore parent;
+    private final String base; // dir of the .gitignore relative to the repo root: "" or ending in "/"
+    private final List<Rule> rules;
+
+    private GitIgnore(GitIgnore parent, String base, List<Rule> rules) {
+        this.parent = parent;
+        this.base = base;
+        this.rules = rules;
+    }
+
+    /**
+     * The scope below dir: this one plus the rules of dir's .gitignore file (dir relative to the repo root)
+     */
+    GitIgnore child(String dir, Path gitIgnoreFile) throws IOException {
+        List<Rule> childRules = new ArrayList<>();
+        for (String line : Files.readAllLines(gitIgnoreFile)) {
+            Rule rule = Rule.parse(line);
+            if (rule != null) {
+                childRules.add(rule);
+            }
+        }
+        if (childRules.isEmpty()) {
+            return this;
+        }
+        return new GitIgnore(this, dir.isEmpty() || dir.endsWith("/") ? dir : dir + "/", List.copyOf(childRules));
+    }
+
+    /**
+     * path: relative to the repo root with / separators
+     */
+    boolean ignored(String path, boolean directory) {
+        for (GitIgnore scope = this; scope != null; scope = scope.parent) {
+            if (!path.startsWith(scope.base)) {
+                continue;
+            }
+            String relative = path.substring(scope.base.length());
+            for (int i = scope.rules.size() - 1; i >= 0; i--) {
+                Rule rule = scope.rules.get(i);
+                if (rule.matches(relative, directory)) {
+                    return !rule.negated();
+                }
+            }
+        }
+        return false;
+    }
+
+    record Rule(Pattern pattern, boolean negated, boolean directoryOnly) {
+
+        boolean matches(String path, boolean directory) {
+            return (directory || !directoryOnly) && pattern.matcher(path).matches();
+        }
+
+        /**
+         * null for blank lines and comments
+         */
+        static Rule parse(String line) {
+            String pattern = stripTrailingSpaces(line);
+            if (pattern.isEmpty() || pattern.startsWith("#")) {
+                return null;
+            }
+            boolean negated = pattern.startsWith("!");
+            if (negated) {
+                pattern = pattern.substring(1);
+            }
+            boolean directoryOnly = pattern.endsWith("/");
+            if (directoryOnly) {
+                pattern = pattern.substring(0, pattern.length() - 1);
+            }
+            // a slash anywhere but at the end anchors the pattern to the .gitignore's dir
+            boolean anchored = pattern.contains("/");
+            if (pattern.startsWith("/")) {
+                pattern = pattern.substring(1);
+            }
+            if (pattern.isEmpty()) {
+                return null;
+            }
+            return new Rule(Pattern.compile((anchored ? "" : "(?:.*/)?") + toRegex(pattern)), negated, directoryOnly);
+        }
+
+        private static String stripTrailingSpaces(String line) {
+            int end = line.length();
+            while (end > 0 && line.charAt(end - 1) == ' ' && (end < 2 || line.charAt(end - 2) != '\\')) {
+                end--;
+            }
+            return line.substring(0, end);
+        }
+
+        private static String toRegex(String pattern) {
+            StringBuilder regex = new StringBuilder();
+            int i = 0;
+            while (i < pattern.length()) {
+                char c = pattern.charAt(i);
+                boolean segmentStart = i == 0 || pattern.charAt(i - 1) == '/';
+                if (c == '*' && pattern.startsWith("**/", i) && segmentStart) {
+                    regex.append("(?:.*/)?");
+                    i += 3;
+                } else if (c == '*' && pattern.startsWith("**", i) && segmentStart && i + 2 == pattern.length()) {
+                    regex.append(".*");
+                    i += 2;
+                } else if (c == '*') {
+                    regex.append("[^/]*");
+                    i++;
+                } else if (c == '?') {
+                    regex.append("[^/]");
+                    i++;
+                } else if (c == '[' && pattern.indexOf(']', i + 2) > 0) {
+                    int close = pattern.indexOf(']', i + 2);
+                    String body = pattern.substring(i + 1, close);
+                    if (body.startsWith("!")) {
+                        body = "^" + body.substring(1);
+                    }
+                    regex.append('[').append(body.replace("\\", "\\\\").replace("[", "\\[")).append(']');
+                    i = close + 1;
+                } else {
+                    if (c == '\\' && i + 1 < pattern.length()) {
+                        c = pattern.charAt(++i);
+                    }
+                    if (REGEX_SPECIALS.indexOf(c) >= 0) {
+                        regex.append('\\');
+                    }
+                    regex.append(c);
+                    i++;
+                }
+            }
+            return regex.toString();
+        }
+    }
+}
@@ -1,16 +1,55 @@
 package com.xray.parse;
 
 import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
 import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.Processor;
+import com.github.javaparser.Range;
+import com.github.javaparser.ast.Node;
 
 import java.nio.charset.StandardCharsets;
 
 public final class JavaParserFactory {
 
     public static JavaParser initialize() {
-        return new JavaParser(new ParserConfiguration()
+        return initialize(ParseProfile.FAST);
+    }
+
+    public static JavaParser initialize(ParseProfile parseProfile) {
+        return new JavaParser(configuration(parseProfile));
+    }
+
+    /**
+     * Parser whose compilation units resolve symbols through the shared symbolResolution.
+     */
+    public static JavaParser initialize(SymbolResolution symbolResolution) {
+        return new JavaParser(symbolResolution.parserConfiguration());
+    }
+
+    static ParserConfiguration configuration(ParseProfile parseProfile) {
+        ParserConfiguration configuration = new ParserConfiguration()
                 .setCharacterEncoding(StandardCharsets.UTF_8)
-                .setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_21)
-        );
+                .setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_21);
+        if (parseProfile == ParseProfile.FAST) {
+            // setStoreTokens(false) would drop the node ranges along with the tokens, so the tokens go afterwards
+            configuration.setAttributeComments(false);
+            configuration.getProcessors().add(DropTokens::new);
+        }
+        return configuration;
+    }
+
+    /**
+     * Runs after the language level validators (which report problems by token range)
+     */
+    private static final class DropTokens extends Processor {
+
+        @Override
+        public void postProcess(ParseResult<? extends Node> result, ParserConfiguration configuration) {
+            result.getResult().ifPresent(root -> root.walk(node -> {
+                Range range = node.getRange().orElse(null);
+                node.setTokenRange(null);
+                node.setRange(range);
+            }));
+        }
     }
 }
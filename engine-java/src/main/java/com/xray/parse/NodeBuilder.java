@@ -2,16 +2,24 @@ package com.xray.parse;
 
 import com.xray.model.Node;
 
+import java.util.Collection;
 import java.util.stream.Stream;
 
 public final class NodeBuilder {
 
     public static Stream<Node> buildNodes(AstIndex astIndex) {
-        return astIndex.nodeDrafts().values().stream()
-                .map(NodeBuilder::toNode);
+        return buildNodes(astIndex, astIndex.nodeDrafts().values());
     }
 
-    private static Node toNode(AstIndex.NodeDraft nodeDraft) {
+    /**
+     * Nodes for a subset of the index's drafts (e.g. one output shard), hashes still come from the index
+     */
+    public static Stream<Node> buildNodes(AstIndex astIndex, Collection<AstIndex.NodeDraft> nodeDrafts) {
+        return nodeDrafts.stream()
+                .map(nodeDraft -> toNode(nodeDraft, astIndex.fileHashes().get(nodeDraft.source().file())));
+    }
+
+    private static Node toNode(AstIndex.NodeDraft nodeDraft, String hash) {
         return Node.v1(
                 nodeDraft.id(),
                 nodeDraft.kind(),
@@ -23,7 +31,8 @@ public final class NodeBuilder {
                 nodeDraft.modifiers(),
                 nodeDraft.annotations(),
                 nodeDraft.tags(),
-                nodeDraft.attributes()
+                nodeDraft.attributes(),
+                hash
         );
     }
 }
@@ -1,7 +1,9 @@
 package com.xray.parse;
 
+import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
 import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.type.Type;
 
 import java.util.stream.Collectors;
 
@@ -13,14 +15,34 @@ public final class NodeIdGenerator {
         return c.getFullyQualifiedName().orElse(c.getNameAsString());
     }
 
+    /**
+     * Parameter types are fully qualified when the compilation unit was parsed with a symbol resolver
+     * (see SymbolResolution), so overloads taking same-named types from different packages get distinct ids.
+     * Types that can't be resolved keep their source spelling.
+     */
     public static String generateMethodNodeId(String fqcn, MethodDeclaration m) {
+        boolean resolve = hasSymbolResolver(m);
         String params = m.getParameters().stream()
-                .map(p -> p.getType().toString()) // later: resolve to FQCN via symbol solver
+                .map(p -> resolve ? resolvedTypeName(p.getType()) : p.getType().toString())
                 .collect(Collectors.joining(","));
         String ret = m.getType().toString();
         return fqcn + "#" + m.getNameAsString() + "(" + params + "):" + ret;
     }
 
+    static boolean hasSymbolResolver(Node node) {
+        return node.findCompilationUnit()
+                .map(cu -> cu.containsData(Node.SYMBOL_RESOLVER_KEY))
+                .orElse(false);
+    }
+
+    private static String resolvedTypeName(Type type) {
+        try {
+            return type.resolve().describe();
+        } catch (RuntimeException e) {
+            return type.toString();
+        }
+    }
+
     public static String prettySignature(MethodDeclaration m) {
         return m.getDeclarationAsString(false, false, true);
     }
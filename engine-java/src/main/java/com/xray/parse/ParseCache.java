@@ -0,0 +1,217 @@
+package com.xray.parse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xray.model.ParseProblem;
+import com.xray.model.SourceRange;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed on-disk cache of per-file parse results (drafts after detection, class references, warnings),
+ * shared by every checkout and branch analyzed on the machine: a file whose content was parsed before, anywhere,
+ * skips JavaParser.
+ * <p>
+ * One JSON file per content hash under dir/&lt;version&gt;/ (version covers engine and schema, so results of other
+ * engines are never read). Entries carry no file path; it is filled in on lookup. Writes go through a temp file
+ * and an atomic move, so concurrent runs can share the dir.
+ * <p>
+ * Size-bounded LRU: hits refresh an entry's modification time, and after a run that stored entries the least
+ * recently used ones are removed until the cache is back under 90% of maxBytes.
+ * Files that failed to parse are not cached. Thread-safe.
+ */
+@Slf4j
+public final class ParseCache implements ReusableDrafts {
+
+    private final Path dir;
+    private final long maxBytes;
+    private final ObjectMapper objectMapper;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong stored = new AtomicLong();
+
+    /**
+     * root: the cache dir shared by all versions; version: engine and schema version of the entries
+     */
+    public ParseCache(Path root, String version, long maxBytes, ObjectMapper objectMapper) {
+        this.dir = root.resolve(version);
+        this.maxBytes = maxBytes;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public Optional<ReusedFile> lookup(Path file, String contentHash) {
+        if (contentHash == null) {
+            return Optional.empty();
+        }
+        Path entry = entry(contentHash);
+        CachedFile cached;
+        try {
+            cached = objectMapper.readValue(entry.toFile(), CachedFile.class);
+        } catch (IOException e) {
+            // missing (the usual miss), evicted meanwhile or unreadable
+            return Optional.empty();
+        }
+        touch(entry);
+        hits.incrementAndGet();
+        String fileName = file.toString();
+        return Optional.of(new ReusedFile(
+                cached.drafts().stream().map(draft -> withFile(draft, fileName)).toList(),
+                cached.classRefs().stream().map(refs -> withFile(refs, fileName)).toList(),
+                cached.parseProblems().stream().map(problem -> withFile(problem, fileName)).toList()
+        ));
+    }
+
+    /**
+     * fileIndex: the AstIndex of this one file after extraction and detection
+     */
+    void store(String contentHash, AstIndex fileIndex, List<ParseProblem> parseProblems) {
+        CachedFile cached = new CachedFile(
+                fileIndex.nodeDrafts().values().stream().map(draft -> withFile(draft, null)).toList(),
+                fileIndex.classRefs().values().stream().map(refs -> withFile(refs, null)).toList(),
+                parseProblems.stream().map(problem -> withFile(problem, null)).toList()
+        );
+        Path entry = entry(contentHash);
+        try {
+            Files.createDirectories(entry.getParent());
+            Path temp = Files.createTempFile(entry.getParent(), contentHash, ".tmp");
+            try {
+                objectMapper.writeValue(temp.toFile(), cached);
+                Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            stored.incrementAndGet();
+        } catch (IOException e) {
+            // a cache that cannot be written only costs the speedup
+            log.debug("Cannot write parse cache entry {}: {}", entry, e.getMessage());
+        }
+    }
+
+    /**
+     * End of a run: logs the hit count and evicts when entries were added
+     */
+    void finishRun() {
+        long storedThisRun = stored.getAndSet(0);
+        long hitsThisRun = hits.getAndSet(0);
+        if (hitsThisRun > 0 || storedThisRun > 0) {
+            log.info("Parse cache: {} hits, {} new entries", hitsThisRun, storedThisRun);
+        }
+        if (storedThisRun > 0) {
+            try {
+                evict();
+            } catch (IOException e) {
+                log.warn("Parse cache eviction failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Least recently used first until under 90% of maxBytes. Covers the entries of other versions too,
+     * which are never used again and so age out first.
+     */
+    void evict() throws IOException {
+        Path root = dir.getParent();
+        List<CacheEntry> entries = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                try {
+                    BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+                    if (attrs.isRegularFile()) {
+                        entries.add(new CacheEntry(file, attrs.size(), attrs.lastModifiedTime()));
+                    }
+                } catch (NoSuchFileException e) {
+                    // removed by a concurrent run
+                }
+            }
+        }
+        long total = entries.stream().mapToLong(CacheEntry::bytes).sum();
+        if (total <= maxBytes) {
+            return;
+        }
+        long target = maxBytes / 10 * 9;
+        entries.sort(Comparator.comparing(CacheEntry::lastUsed));
+        int removed = 0;
+        for (CacheEntry entry : entries) {
+            if (total <= target) {
+                break;
+            }
+            Files.deleteIfExists(entry.file());
+            total -= entry.bytes();
+            removed++;
+        }
+        log.info("Parse cache: evicted {} entries, {} bytes left", removed, total);
+    }
+
+    private Path entry(String contentHash) {
+        // two-character fan-out keeps directories small
+        return dir.resolve(contentHash.substring(0, Math.min(2, contentHash.length()))).resolve(contentHash + ".json");
+    }
+
+    private static void touch(Path entry) {
+        try {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // read-only cache: eviction order just gets less accurate
+        }
+    }
+
+    private static AstIndex.NodeDraft withFile(AstIndex.NodeDraft draft, String file) {
+        SourceRange source = draft.source();
+        return new AstIndex.NodeDraft(
+                draft.id(),
+                draft.kind(),
+                draft.name(),
+                draft.fqcn(),
+                draft.signature(),
+                draft.ownerId(),
+                source == null ? null : new SourceRange(file, source.startLine(), source.startCol(), source.endLine(), source.endCol()),
+                draft.annotations(),
+                draft.modifiers(),
+                draft.tags(),
+                draft.attributes()
+        );
+    }
+
+    private static AstIndex.ClassRefs withFile(AstIndex.ClassRefs refs, String file) {
+        return new AstIndex.ClassRefs(
+                refs.classId(),
+                file,
+                refs.packageName(),
+                refs.imports(),
+                refs.isInterface(),
+                refs.extendedTypes(),
+                refs.implementedTypes(),
+                refs.callSites()
+        );
+    }
+
+    private static ParseProblem withFile(ParseProblem problem, String file) {
+        return new ParseProblem(file, problem.severity(), problem.errorMessage(), problem.line(), problem.column());
+    }
+
+    /**
+     * The stored form, without file paths
+     */
+    record CachedFile(List<AstIndex.NodeDraft> drafts, List<AstIndex.ClassRefs> classRefs, List<ParseProblem> parseProblems) {
+
+        CachedFile {
+            drafts = drafts == null ? List.of() : drafts;
+            classRefs = classRefs == null ? List.of() : classRefs;
+            parseProblems = parseProblems == null ? List.of() : parseProblems;
+        }
+    }
+
+    private record CacheEntry(Path file, long bytes, FileTime lastUsed) {}
+}
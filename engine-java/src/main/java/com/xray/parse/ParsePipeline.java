@@ -8,15 +8,33 @@ import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
 import com.github.javaparser.ast.body.MethodDeclaration;
 import com.github.javaparser.ast.expr.AnnotationExpr;
 import com.github.javaparser.ast.nodeTypes.NodeWithRange;
+import com.xray.metrics.FileParsedEvent;
+import com.xray.metrics.ParseWorkRecorder;
+import com.xray.metrics.ThreadUsage;
 import com.xray.model.ParsePipelineResult;
 import com.xray.model.ParseProblem;
 import com.xray.model.SourceRange;
+import lombok.Builder;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 import static com.xray.model.Enums.*;
@@ -24,40 +42,222 @@ import static com.xray.model.Enums.*;
 @Slf4j
 public final class ParsePipeline {
 
-    private final JavaParser javaParser;
+    // Parsed files waiting to be merged, per worker. Bounds memory while keeping every worker busy.
+    private static final int IN_FLIGHT_PER_WORKER = 4;
 
-    public ParsePipeline(JavaParser javaParser) {
-        this.javaParser = javaParser;
+    private final Supplier<JavaParser> javaParserFactory;
+    private final Supplier<SymbolResolution> symbolResolution;
+    private final int workers;
+    private final int prefetchFiles;
+    private final List<Detector> detectors;
+    private final boolean releaseAsts;
+    private final int slowestFiles;
+    private final ParseCache parseCache;
+
+    /**
+     * JavaParser is not thread-safe, so with more than one worker each worker thread
+     * gets its own instance from javaParserFactory.
+     * <p>
+     * symbolResolution (optional) takes the place of javaParserFactory with parsers that resolve symbols. It is
+     * created afresh for every run and shared by that run's parsers: its solvers cache the types they have parsed,
+     * which would go stale once the sources change between runs.
+     * <p>
+     * prefetchFiles > 0 reads up to that many files ahead on virtual threads (see SourcePrefetcher);
+     * 0 reads each file on the thread that parses it.
+     * <p>
+     * detectors (optional) run inside the same traversal that extracts the drafts, on the parse workers.
+     * With releaseAsts the CompilationUnit is dropped right after that (streaming mode), so AstIndex.fileToCu()
+     * stays empty and memory follows the node count instead of the total source size.
+     * <p>
+     * Every parsed file is timed on its worker (see ParsePipelineResult.parseWork()); slowestFiles of them are kept.
+     * <p>
+     * parseCache (optional) is consulted for files that reusableDrafts does not cover, and filled with every
+     * successful parse.
+     */
+    @Builder
+    private ParsePipeline(
+            Supplier<JavaParser> javaParserFactory,
+            Supplier<SymbolResolution> symbolResolution,
+            int workers,
+            int prefetchFiles,
+            List<Detector> detectors,
+            boolean releaseAsts,
+            int slowestFiles,
+            ParseCache parseCache
+    ) {
+        this.javaParserFactory = Objects.requireNonNull(javaParserFactory, "javaParserFactory");
+        this.symbolResolution = symbolResolution;
+        this.workers = Math.max(1, workers);
+        this.prefetchFiles = Math.max(0, prefetchFiles);
+        this.detectors = detectors == null ? List.of() : List.copyOf(detectors);
+        this.releaseAsts = releaseAsts;
+        this.slowestFiles = Math.max(0, slowestFiles);
+        this.parseCache = parseCache;
     }
 
 
     public ParsePipelineResult parseAll(Stream<Path> files) {
+        return parseAll(files, ReusableDrafts.NONE);
+    }
+
+    /**
+     * Files whose content hash matches an entry in reusableDrafts are not parsed; their drafts are restored instead.
+     */
+    public ParsePipelineResult parseAll(Stream<Path> files, ReusableDrafts reusableDrafts) {
         AstIndex astIndex = new AstIndex();
         List<ParseProblem> parseProblems = new ArrayList<>();
         ParseStats stats = new ParseStats();
+        ParseWorkRecorder parseWork = new ParseWorkRecorder(slowestFiles);
 
-        //Explicit sequential - maybe will be swapped to parallel later
-        files.sequential().forEach(file -> {
-            ParseStatus parseStatus = parseFile(file, astIndex, parseProblems);
-            stats.add(parseStatus);
-        });
+        // Files are parsed into per-file results and merged on this thread in input order,
+        // so sequential and parallel runs fill the index identically.
+        Consumer<FileParseResult> merger = fileResult -> {
+            astIndex.merge(fileResult.fileIndex());
+            parseProblems.addAll(fileResult.parseProblems());
+            stats.add(fileResult.status());
+            if (fileResult.usage() != null) {
+                parseWork.add(fileResult.file().toString(), fileResult.usage());
+            }
+        };
+
+        Supplier<JavaParser> javaParsers = javaParsers();
+        Iterator<Path> paths = files.sequential().iterator();
+        if (prefetchFiles > 0) {
+            try (SourcePrefetcher prefetcher = new SourcePrefetcher(paths, prefetchFiles)) {
+                // already read by the prefetcher
+                parseSources(prefetcher, Function.identity(), javaParsers, reusableDrafts, merger);
+            }
+        } else {
+            parseSources(paths, SourceFile::read, javaParsers, reusableDrafts, merger);
+        }
+        if (parseCache != null) {
+            parseCache.finishRun();
+        }
 
         return new ParsePipelineResult(
                 astIndex,
                 stats.total,
                 stats.ok,
                 stats.parseFailed,
-                parseProblems
+                stats.reused,
+                parseProblems,
+                parseWork.result()
         );
     }
 
+    /**
+     * Parsers for one run
+     */
+    private Supplier<JavaParser> javaParsers() {
+        if (symbolResolution == null) {
+            return javaParserFactory;
+        }
+        SymbolResolution runResolution = symbolResolution.get();
+        return () -> JavaParserFactory.initialize(runResolution);
+    }
+
+    /**
+     * reader turns each input into a SourceFile; it runs on the parsing thread.
+     */
+    private <T> void parseSources(
+            Iterator<T> inputs,
+            Function<T, SourceFile> reader,
+            Supplier<JavaParser> javaParsers,
+            ReusableDrafts reusableDrafts,
+            Consumer<FileParseResult> merger
+    ) {
+        if (workers == 1) {
+            JavaParser javaParser = javaParsers.get();
+            inputs.forEachRemaining(input -> merger.accept(parseFile(reader.apply(input), javaParser, reusableDrafts)));
+        } else {
+            parseParallel(inputs, reader, javaParsers, reusableDrafts, merger);
+        }
+    }
+
+    private <T> void parseParallel(
+            Iterator<T> inputs,
+            Function<T, SourceFile> reader,
+            Supplier<JavaParser> javaParsers,
+            ReusableDrafts reusableDrafts,
+            Consumer<FileParseResult> merger
+    ) {
+        ThreadLocal<JavaParser> workerParsers = ThreadLocal.withInitial(javaParsers);
+        ExecutorService executor = Executors.newFixedThreadPool(
+                workers,
+                Thread.ofPlatform().name("xray-parse-", 0).daemon(true).factory()
+        );
+        try {
+            Deque<Future<FileParseResult>> inFlight = new ArrayDeque<>();
+            while (inputs.hasNext()) {
+                T input = inputs.next();
+                inFlight.add(executor.submit(() -> parseFile(reader.apply(input), workerParsers.get(), reusableDrafts)));
+                if (inFlight.size() >= workers * IN_FLIGHT_PER_WORKER) {
+                    merger.accept(await(inFlight.poll()));
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                merger.accept(await(inFlight.poll()));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static FileParseResult await(Future<FileParseResult> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for parse workers", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Parse worker failed", e.getCause());
+        }
+    }
+
+    /**
+     * Parses a single file into its own AstIndex; touches no shared state, so it is safe to run on any worker.
+     */
+    private FileParseResult parseFile(SourceFile source, JavaParser javaParser, ReusableDrafts reusableDrafts) {
+        AstIndex astIndex = new AstIndex();
+        List<ParseProblem> parseProblems = new ArrayList<>();
+        if (source.readError() == null) {
+            astIndex.putFileHash(source.file(), source.contentHash());
+            Optional<ReusableDrafts.ReusedFile> reused = reusableDrafts.lookup(source.file(), source.contentHash());
+            if (reused.isEmpty() && parseCache != null) {
+                reused = parseCache.lookup(source.file(), source.contentHash());
+            }
+            if (reused.isPresent()) {
+                reused.get().drafts().forEach(astIndex::restoreDraft);
+                reused.get().classRefs().forEach(astIndex::indexClassRefs);
+                parseProblems.addAll(reused.get().parseProblems());
+                return new FileParseResult(source.file(), astIndex, parseProblems, ParseStatus.REUSED, null);
+            }
+        }
+        FileParsedEvent event = FileParsedEvent.start(source.file().toString());
+        ThreadUsage start = ThreadUsage.current();
+        ParseStatus parseStatus = parseFile(source, javaParser, astIndex, parseProblems);
+        if (parseStatus == ParseStatus.OK && releaseAsts) {
+            astIndex.releaseCompilationUnits();
+        }
+        if (parseStatus == ParseStatus.OK && parseCache != null) {
+            parseCache.store(source.contentHash(), astIndex, parseProblems);
+        }
+        ThreadUsage usage = ThreadUsage.current().since(start);
+        event.finish(usage);
+        return new FileParseResult(source.file(), astIndex, parseProblems, parseStatus, usage);
+    }
+
     /**
      * MUTATES AstIndex and ParseProblem
      */
-    private ParseStatus parseFile(Path file, AstIndex astIndex, List<ParseProblem> parseProblems) {
+    private ParseStatus parseFile(SourceFile source, JavaParser javaParser, AstIndex astIndex, List<ParseProblem> parseProblems) {
+        Path file = source.file();
         ParseResult<CompilationUnit> result;
         try {
-            result = javaParser.parse(file);
+            if (source.readError() != null) {
+                throw source.readError();
+            }
+            result = javaParser.parse(source.reader());
         } catch (IOException | RuntimeException e) {
             log.error("Skipping file - Error reading {}, error message {}", file, e.getMessage());
             parseProblems.add(ParseProblem.error(file.toString(), e.getMessage()));
@@ -83,8 +283,14 @@ public final class ParsePipeline {
             }
         }
         CompilationUnit compilationUnit = result.getResult().get();
+        compilationUnit.setStorage(file, StandardCharsets.UTF_8);
         astIndex.putCompilationUnit(file, compilationUnit);
 
+        // one String per file, shared by all of its drafts
+        String fileName = file.toString();
+        String packageName = ReferenceExtractor.packageName(compilationUnit);
+        List<String> imports = ReferenceExtractor.imports(compilationUnit);
+
         for (ClassOrInterfaceDeclaration c : compilationUnit.findAll(ClassOrInterfaceDeclaration.class)) {
             String className = c.getNameAsString();
             String classFqn = c.getFullyQualifiedName().orElse(className);
@@ -95,7 +301,7 @@ public final class ParsePipeline {
             List<String> classAnnotations = c.getAnnotations().stream()
                     .map(AnnotationExpr::getNameAsString)
                     .toList();
-            SourceRange classSourceRange = sourceRange(file, c);
+            SourceRange classSourceRange = sourceRange(fileName, c);
 
             AstIndex.NodeDraft classDraft = new AstIndex.NodeDraft(
                     classId,
@@ -113,6 +319,8 @@ public final class ParsePipeline {
 
             astIndex.indexType(classFqn, className, classId, classDraft);
 
+            Map<String, String> fieldTypes = ReferenceExtractor.fieldTypes(c);
+            List<AstIndex.CallSite> callSites = new ArrayList<>();
             for (MethodDeclaration m : c.getMethods()) {
                 String methodName = m.getNameAsString();
 
@@ -132,7 +340,7 @@ public final class ParsePipeline {
                         classFqn,
                         NodeIdGenerator.prettySignature(m),
                         classId,
-                        sourceRange(file, m),
+                        sourceRange(fileName, m),
                         methodAnnotations,
                         methodModifiers,
                         null,
@@ -140,36 +348,61 @@ public final class ParsePipeline {
                 );
 
                 astIndex.indexMethod(methodKey, methodId, methodDraft);
+                callSites.addAll(ReferenceExtractor.callSites(m, methodId, fieldTypes));
+            }
+
+            astIndex.indexClassRefs(new AstIndex.ClassRefs(
+                    classId,
+                    fileName,
+                    packageName,
+                    imports,
+                    c.isInterface(),
+                    ReferenceExtractor.typeNames(c.getExtendedTypes()),
+                    ReferenceExtractor.typeNames(c.getImplementedTypes()),
+                    List.copyOf(callSites)
+            ));
+
+            // Fused detection: detectors see the class here instead of walking the AST again
+            for (Detector detector : detectors) {
+                detector.visitClass(c, astIndex);
             }
         }
 
         return ParseStatus.OK;
     }
 
+    /**
+     * usage: parse, extraction and detection of the file on its worker; null when the file was reused
+     */
+    private record FileParseResult(Path file, AstIndex fileIndex, List<ParseProblem> parseProblems, ParseStatus status, ThreadUsage usage) {}
+
     private enum ParseStatus {
         OK,
-        PARSE_FAILED
+        PARSE_FAILED,
+        REUSED
     }
 
     private static final class ParseStats {
         long total;
         long ok;
         long parseFailed;
+        long reused;
 
         void add(ParseStatus s) {
             total++;
             switch (s) {
                 case OK -> ok++;
                 case PARSE_FAILED -> parseFailed++;
+                case REUSED -> reused++;
             }
         }
     }
 
-    private static SourceRange sourceRange(Path file, NodeWithRange<?> node) {
+    private static SourceRange sourceRange(String file, NodeWithRange<?> node) {
         int startLine = node.getBegin().map(p -> p.line).orElse(-1);
         int startCol = node.getBegin().map(p -> p.column).orElse(-1);
         int endLine = node.getEnd().map(p -> p.line).orElse(-1);
         int endCol = node.getEnd().map(p -> p.column).orElse(-1);
-        return new SourceRange(file.toString(), startLine, startCol, endLine, endCol);
+        return new SourceRange(file, startLine, startCol, endLine, endCol);
     }
 }
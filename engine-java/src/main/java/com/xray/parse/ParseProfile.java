@@ -0,0 +1,17 @@
+package com.xray.parse;
+
+/**
+ * How much of the source a parsed compilation unit keeps beyond what the engine reads from it.
+ * <p>
+ * The engine only needs the AST and the line/column range of each node. JavaParser also keeps, by default, the
+ * full token list of the file (every node points into it, which is most of a unit's retained size) and attributes
+ * each comment to the node it precedes. FAST drops both: comments are not attributed and the token ranges are
+ * replaced by the plain ranges they were computed from. FULL is JavaParser's default configuration.
+ * <p>
+ * Output differs in one place: under FULL, a Javadoc placed after a method's annotations is attributed to its
+ * return type and shows up wherever that type is printed, such as method ids.
+ */
+public enum ParseProfile {
+    FAST,
+    FULL
+}
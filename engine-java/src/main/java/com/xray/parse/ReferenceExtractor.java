@@ -0,0 +1,191 @@
+package com.xray.parse;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+import com.github.javaparser.ast.type.Type;
+import com.github.javaparser.resolution.declarations.ResolvedMethodDeclaration;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Syntactic reference extraction: supertypes, imports and call sites with the best-effort declared type of their
+ * receiver. Receivers that can't be typed from declarations (chained calls, etc.) are dropped.
+ * <p>
+ * When the compilation unit carries a symbol resolver (see SymbolResolution), calls are resolved first and keep the
+ * id of the called method; calls the solver can't handle fall back to the syntactic receiver.
+ */
+final class ReferenceExtractor {
+
+    static final String THIS_RECEIVER = "this";
+    static final String SUPER_RECEIVER = "super";
+
+    private ReferenceExtractor() {}
+
+    static String packageName(CompilationUnit compilationUnit) {
+        return compilationUnit.getPackageDeclaration()
+                .map(p -> p.getNameAsString())
+                .orElse("");
+    }
+
+    static List<String> imports(CompilationUnit compilationUnit) {
+        return compilationUnit.getImports().stream()
+                .filter(i -> !i.isStatic())
+                .map(ReferenceExtractor::importName)
+                .toList();
+    }
+
+    static List<String> typeNames(NodeList<ClassOrInterfaceType> types) {
+        return types.stream()
+                .map(ClassOrInterfaceType::getNameWithScope)
+                .toList();
+    }
+
+    /**
+     * field name -> declared type name
+     */
+    static Map<String, String> fieldTypes(ClassOrInterfaceDeclaration clazz) {
+        Map<String, String> fieldTypes = new HashMap<>();
+        for (FieldDeclaration field : clazz.getFields()) {
+            for (VariableDeclarator variable : field.getVariables()) {
+                typeName(variable.getType()).ifPresent(t -> fieldTypes.put(variable.getNameAsString(), t));
+            }
+        }
+        return fieldTypes;
+    }
+
+    static List<AstIndex.CallSite> callSites(MethodDeclaration method, String methodId, Map<String, String> fieldTypes) {
+        if (method.getBody().isEmpty()) {
+            return List.of();
+        }
+        List<MethodCallExpr> calls = method.getBody().get().findAll(MethodCallExpr.class);
+        if (calls.isEmpty()) {
+            return List.of();
+        }
+
+        // params and locals shadow fields
+        Map<String, String> variableTypes = new HashMap<>(fieldTypes);
+        for (Parameter parameter : method.getParameters()) {
+            typeName(parameter.getType()).ifPresent(t -> variableTypes.put(parameter.getNameAsString(), t));
+        }
+        for (VariableDeclarator local : method.getBody().get().findAll(VariableDeclarator.class)) {
+            typeName(local.getType()).ifPresent(t -> variableTypes.put(local.getNameAsString(), t));
+        }
+
+        boolean resolve = NodeIdGenerator.hasSymbolResolver(method);
+        List<AstIndex.CallSite> callSites = new ArrayList<>(calls.size());
+        for (MethodCallExpr call : calls) {
+            if (resolve) {
+                Optional<ResolvedMethodDeclaration> target = resolve(call);
+                if (target.isPresent()) {
+                    // calls into the JDK, dependencies or non-class types have no target node: nothing to link
+                    targetId(target.get()).ifPresent(targetId -> callSites.add(new AstIndex.CallSite(
+                            methodId,
+                            call.getNameAsString(),
+                            call.getArguments().size(),
+                            target.get().declaringType().getQualifiedName(),
+                            call.getBegin().map(p -> p.line).orElse(-1),
+                            targetId
+                    )));
+                    continue;
+                }
+            }
+            Optional<String> receiverType = call.getScope()
+                    .map(scope -> receiverType(scope, variableTypes))
+                    .orElse(Optional.of(THIS_RECEIVER));
+            if (receiverType.isEmpty()) {
+                continue;
+            }
+            callSites.add(new AstIndex.CallSite(
+                    methodId,
+                    call.getNameAsString(),
+                    call.getArguments().size(),
+                    receiverType.get(),
+                    call.getBegin().map(p -> p.line).orElse(-1),
+                    null
+            ));
+        }
+        return callSites;
+    }
+
+    private static Optional<ResolvedMethodDeclaration> resolve(MethodCallExpr call) {
+        try {
+            return Optional.of(call.resolve());
+        } catch (RuntimeException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Same id the pipeline gives the declaration, computed from its AST (only source-declared class methods have one)
+     */
+    private static Optional<String> targetId(ResolvedMethodDeclaration target) {
+        try {
+            return target.toAst(MethodDeclaration.class)
+                    .flatMap(declaration -> declaration.getParentNode()
+                            .filter(ClassOrInterfaceDeclaration.class::isInstance)
+                            .map(ClassOrInterfaceDeclaration.class::cast)
+                            .map(owner -> NodeIdGenerator.generateMethodNodeId(
+                                    NodeIdGenerator.generateClassNodeId(owner), declaration)));
+        } catch (RuntimeException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static Optional<String> receiverType(Expression scope, Map<String, String> variableTypes) {
+        if (scope.isThisExpr()) {
+            return Optional.of(THIS_RECEIVER);
+        }
+        if (scope.isSuperExpr()) {
+            return Optional.of(SUPER_RECEIVER);
+        }
+        if (scope.isNameExpr()) {
+            String name = scope.asNameExpr().getNameAsString();
+            String declared = variableTypes.get(name);
+            if (declared != null) {
+                return Optional.of(declared);
+            }
+            // Foo.bar(): static call on a type
+            return looksLikeType(name) ? Optional.of(name) : Optional.empty();
+        }
+        if (scope.isFieldAccessExpr()) {
+            var fieldAccess = scope.asFieldAccessExpr();
+            if (fieldAccess.getScope().isThisExpr()) {
+                return Optional.ofNullable(variableTypes.get(fieldAccess.getNameAsString()));
+            }
+            // com.acme.Foo.bar(): static call on a qualified type
+            String qualified = fieldAccess.toString();
+            return looksLikeType(fieldAccess.getNameAsString()) ? Optional.of(qualified) : Optional.empty();
+        }
+        return Optional.empty();
+    }
+
+    private static Optional<String> typeName(Type type) {
+        if (type.isClassOrInterfaceType()) {
+            return Optional.of(type.asClassOrInterfaceType().getNameWithScope());
+        }
+        return Optional.empty();
+    }
+
+    private static boolean looksLikeType(String name) {
+        return !name.isEmpty() && Character.isUpperCase(name.charAt(0));
+    }
+
+    private static String importName(ImportDeclaration importDeclaration) {
+        return importDeclaration.isAsterisk()
+                ? importDeclaration.getNameAsString() + ".*"
+                : importDeclaration.getNameAsString();
+    }
+}
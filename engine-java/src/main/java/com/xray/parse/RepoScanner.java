@@ -1,32 +1,308 @@
 package com.xray.parse;
 
 import com.xray.config.EngineConfig;
+import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
-import java.util.stream.Stream;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 
+/**
+ * Finds the files and source roots of a repo without descending into directories that cannot contribute:
+ * those matched by excludeGlobs or by the repo's .gitignore files, the output dir, and (for Java files) everything
+ * outside the literal prefixes of includeGlobs (src/main/java for src/main/java/**).
+ */
+@Slf4j
 public final class RepoScanner {
 
+    // directories listed at the same time; bounds open file handles on wide trees
+    private static final int MAX_CONCURRENT_LISTINGS = 64;
+
     /**
-     * Caller should close stream as to not leak file handles
+     * Directories are listed in parallel on virtual threads; files come out in the same depth-first order as a
+     * sequential walk. Symbolic links to files are followed, links to directories are not.
      */
-    public static Stream<Path> findJavaFiles(EngineConfig engineConfig) throws IOException {
+    public static List<Path> findJavaFiles(EngineConfig engineConfig) throws IOException {
+        Path root = engineConfig.repoRoot().toAbsolutePath().normalize();
         List<PathMatcher> includes = new ArrayList<>();
         for (String includeGlob : engineConfig.options().includeGlobs()) {
             includes.add(FileSystems.getDefault().getPathMatcher("glob:" + includeGlob));
         }
+        Filter filter = Filter.of(engineConfig, root);
 
+        List<Path> files = new ArrayList<>();
+        try (ExecutorService executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("xray-scan-", 0).factory())) {
+            Traversal traversal = new Traversal(root, filter, includes, executor);
+            for (Path walkRoot : walkRoots(root, engineConfig.options().includeGlobs())) {
+                GitIgnore scope = scopeOf(root, walkRoot, filter);
+                if (scope != null) {
+                    files.addAll(traversal.scan(walkRoot, scope));
+                }
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Maven/Gradle style source roots (src/main/java, plus src/test/java with includeTests) anywhere in the repo,
+     * for the symbol solver. Falls back to the repo root when there are none.
+     */
+    public static List<Path> findSourceRoots(EngineConfig engineConfig) throws IOException {
         Path root = engineConfig.repoRoot().toAbsolutePath().normalize();
+        boolean includeTests = engineConfig.options().includeTests();
+        Filter filter = Filter.of(engineConfig, root);
+        List<Path> sourceRoots = new ArrayList<>();
+        Deque<GitIgnore> scopes = new ArrayDeque<>();
+        scopes.push(GitIgnore.NONE);
+
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (!dir.equals(root) && filter.skipDirectory(dir, scopes.peek())) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                if (dir.endsWith("src/main/java") || (includeTests && dir.endsWith("src/test/java"))) {
+                    sourceRoots.add(dir);
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                scopes.push(filter.scopeBelow(dir, scopes.peek(), Files.isRegularFile(dir.resolve(".gitignore"))));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                scopes.pop();
+                if (e != null) {
+                    throw e;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        sourceRoots.sort(null);
+        return sourceRoots.isEmpty() ? List.of(root) : List.copyOf(sourceRoots);
+    }
+
+    /**
+     * Where Java files can be: the longest literal directory prefix of every include glob, nested ones dropped.
+     * The repo root when there are no includes or one starts with a wildcard.
+     */
+    static List<Path> walkRoots(Path root, Set<String> includeGlobs) {
+        if (includeGlobs.isEmpty()) {
+            return List.of(root);
+        }
+        List<Path> prefixes = new ArrayList<>();
+        for (String includeGlob : includeGlobs) {
+            String[] segments = includeGlob.split("/");
+            Path prefix = root;
+            // the last segment names files, not a directory
+            for (int i = 0; i < segments.length - 1 && isLiteral(segments[i]); i++) {
+                prefix = prefix.resolve(segments[i]);
+            }
+            if (prefix.equals(root)) {
+                return List.of(root);
+            }
+            prefixes.add(prefix.normalize());
+        }
+        prefixes.sort(null);
+        List<Path> walkRoots = new ArrayList<>();
+        for (Path prefix : prefixes) {
+            if (walkRoots.isEmpty() || !prefix.startsWith(walkRoots.getLast())) {
+                walkRoots.add(prefix);
+            }
+        }
+        return walkRoots;
+    }
+
+    private static boolean isLiteral(String segment) {
+        for (char c : segment.toCharArray()) {
+            if ("*?[{\\".indexOf(c) >= 0) {
+                return false;
+            }
+        }
+        return !segment.isEmpty() && !segment.equals(".") && !segment.equals("..");
+    }
+
+    /**
+     * The .gitignore scope that applies inside walkRoot, or null when walkRoot is missing or itself skipped
+     */
+    private static GitIgnore scopeOf(Path root, Path walkRoot, Filter filter) {
+        if (!Files.isDirectory(walkRoot)) {
+            return null;
+        }
+        GitIgnore scope = GitIgnore.NONE;
+        Path dir = root;
+        for (Path segment : root.relativize(walkRoot)) {
+            scope = filter.scopeBelow(dir, scope, Files.isRegularFile(dir.resolve(".gitignore")));
+            dir = dir.resolve(segment);
+            if (filter.skipDirectory(dir, scope)) {
+                return null;
+            }
+        }
+        return scope;
+    }
 
-        return Files.walk(root)
-                .filter(Files::isRegularFile)
-                .filter(p -> p.toString().endsWith(".java"))
-                .filter(p -> {
-                    Path rel = root.relativize(p.toAbsolutePath().normalize());
-                    return includes.isEmpty() || includes.stream().anyMatch(m -> m.matches(rel));
-                });
+    /**
+     * Parallel depth-first listing: each subdirectory is listed on its own virtual thread, and its files are
+     * spliced back in at the subdirectory's position
+     */
+    private static final class Traversal {
+
+        private final Path root;
+        private final Filter filter;
+        private final List<PathMatcher> includes;
+        private final ExecutorService executor;
+        private final Semaphore listings = new Semaphore(MAX_CONCURRENT_LISTINGS);
+
+        Traversal(Path root, Filter filter, List<PathMatcher> includes, ExecutorService executor) {
+            this.root = root;
+            this.filter = filter;
+            this.includes = includes;
+            this.executor = executor;
+        }
+
+        /**
+         * scope: the .gitignore rules that apply to dir's entries, except dir's own .gitignore
+         */
+        List<Path> scan(Path dir, GitIgnore scope) throws IOException {
+            List<Path> entries = list(dir);
+            boolean hasGitIgnore = entries.stream().anyMatch(entry -> entry.getFileName().toString().equals(".gitignore"));
+            GitIgnore entryScope = filter.scopeBelow(dir, scope, hasGitIgnore);
+
+            // a Path is a file, a Future the files below a subdirectory
+            List<Object> parts = new ArrayList<>(entries.size());
+            for (Path entry : entries) {
+                BasicFileAttributes attrs;
+                try {
+                    attrs = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                } catch (IOException e) {
+                    log.warn("Skipping {}: {}", entry, e.getMessage());
+                    continue;
+                }
+                if (attrs.isDirectory()) {
+                    if (!filter.skipDirectory(entry, entryScope)) {
+                        parts.add(executor.submit(() -> scan(entry, entryScope)));
+                    }
+                } else if (entry.getFileName().toString().endsWith(".java")
+                        && (attrs.isRegularFile() || (attrs.isSymbolicLink() && Files.isRegularFile(entry)))
+                        && included(entry)
+                        && !filter.skipFile(entry, entryScope)) {
+                    parts.add(entry);
+                }
+            }
+
+            List<Path> files = new ArrayList<>();
+            for (Object part : parts) {
+                if (part instanceof Path file) {
+                    files.add(file);
+                } else {
+                    files.addAll(await(part));
+                }
+            }
+            return files;
+        }
+
+        private List<Path> list(Path dir) throws IOException {
+            listings.acquireUninterruptibly();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+                List<Path> entries = new ArrayList<>();
+                stream.forEach(entries::add);
+                return entries;
+            } finally {
+                listings.release();
+            }
+        }
+
+        private boolean included(Path file) {
+            Path rel = root.relativize(file);
+            return includes.isEmpty() || includes.stream().anyMatch(m -> m.matches(rel));
+        }
+
+        @SuppressWarnings("unchecked")
+        private static List<Path> await(Object future) throws IOException {
+            try {
+                return ((Future<List<Path>>) future).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while scanning the repo", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException io) {
+                    throw io;
+                }
+                if (e.getCause() instanceof UncheckedIOException io) {
+                    throw io.getCause();
+                }
+                throw new IllegalStateException("Repo scan failed", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * excludeGlobs are matched against paths relative to the repo root. A glob ending in a double-star segment
+     * also prunes the directory itself, and one starting with a double-star segment also matches at the top level,
+     * so a target glob with both skips target/ as well as module/target/.
+     */
+    private record Filter(Path root, Path outputDir, List<PathMatcher> excludedFiles, List<PathMatcher> excludedDirectories) {
+
+        static Filter of(EngineConfig engineConfig, Path root) {
+            List<PathMatcher> files = new ArrayList<>();
+            List<PathMatcher> directories = new ArrayList<>();
+            Set<String> excludeGlobs = engineConfig.options().excludeGlobs();
+            for (String excludeGlob : excludeGlobs == null ? Set.<String>of() : excludeGlobs) {
+                List<String> variants = excludeGlob.startsWith("**/")
+                        ? List.of(excludeGlob, excludeGlob.substring(3))
+                        : List.of(excludeGlob);
+                for (String variant : variants) {
+                    files.add(FileSystems.getDefault().getPathMatcher("glob:" + variant));
+                    if (variant.endsWith("/**")) {
+                        directories.add(FileSystems.getDefault().getPathMatcher("glob:" + variant.substring(0, variant.length() - 3)));
+                    }
+                }
+            }
+            Path outputDir = engineConfig.outputDir() == null ? null : engineConfig.outputDir().toAbsolutePath().normalize();
+            return new Filter(root, outputDir, files, directories);
+        }
+
+        boolean skipDirectory(Path dir, GitIgnore scope) {
+            if (dir.equals(outputDir)) {
+                return true;
+            }
+            Path rel = root.relativize(dir);
+            return excludedDirectories.stream().anyMatch(m -> m.matches(rel)) || scope.ignored(unixPath(rel), true);
+        }
+
+        boolean skipFile(Path file, GitIgnore scope) {
+            Path rel = root.relativize(file);
+            return excludedFiles.stream().anyMatch(m -> m.matches(rel)) || scope.ignored(unixPath(rel), false);
+        }
+
+        /**
+         * scope extended with dir's .gitignore when it has one; a file that cannot be read is skipped
+         */
+        GitIgnore scopeBelow(Path dir, GitIgnore scope, boolean hasGitIgnore) {
+            if (!hasGitIgnore) {
+                return scope;
+            }
+            try {
+                return scope.child(unixPath(root.relativize(dir)), dir.resolve(".gitignore"));
+            } catch (IOException e) {
+                log.warn("Cannot read {}: {}", dir.resolve(".gitignore"), e.getMessage());
+                return scope;
+            }
+        }
+
+        private static String unixPath(Path rel) {
+            return rel.toString().replace('\\', '/');
+        }
     }
 }
@@ -0,0 +1,81 @@
+package com.xray.parse;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Drafts of a run that are still in memory, the in-process counterpart of IncrementalState: a long-running engine
+ * keeps them so the next run over the same repo skips unchanged files without reading the previous output back.
+ */
+public final class RetainedDrafts implements ReusableDrafts {
+
+    private final Map<String, String> fileHashes;
+    private final Map<String, List<AstIndex.NodeDraft>> fileToDrafts;
+    private final Map<String, List<AstIndex.ClassRefs>> fileToClassRefs;
+
+    private RetainedDrafts(
+            Map<String, String> fileHashes,
+            Map<String, List<AstIndex.NodeDraft>> fileToDrafts,
+            Map<String, List<AstIndex.ClassRefs>> fileToClassRefs
+    ) {
+        this.fileHashes = fileHashes;
+        this.fileToDrafts = fileToDrafts;
+        this.fileToClassRefs = fileToClassRefs;
+    }
+
+    /**
+     * Files with parse problems are left out, like in file_hashes.json, so they are parsed (and reported) again
+     */
+    public static RetainedDrafts of(AstIndex astIndex, Collection<String> filesWithProblems) {
+        Map<String, String> fileHashes = new HashMap<>(astIndex.fileHashes());
+        fileHashes.keySet().removeAll(filesWithProblems);
+
+        Map<String, List<AstIndex.NodeDraft>> fileToDrafts = new HashMap<>();
+        for (AstIndex.NodeDraft draft : astIndex.nodeDrafts().values()) {
+            fileToDrafts.computeIfAbsent(draft.source().file(), k -> new ArrayList<>()).add(draft);
+        }
+        Map<String, List<AstIndex.ClassRefs>> fileToClassRefs = new HashMap<>();
+        for (AstIndex.ClassRefs classRefs : astIndex.classRefs().values()) {
+            fileToClassRefs.computeIfAbsent(classRefs.file(), k -> new ArrayList<>()).add(classRefs);
+        }
+        return new RetainedDrafts(fileHashes, fileToDrafts, fileToClassRefs);
+    }
+
+    /**
+     * Files whose nodes may differ between this run and one with currentHashes: new or changed content, gone,
+     * or left out here (parse problems)
+     */
+    public Set<String> changedFiles(Map<String, String> currentHashes) {
+        Set<String> changed = new HashSet<>();
+        currentHashes.forEach((file, hash) -> {
+            if (!hash.equals(fileHashes.get(file))) {
+                changed.add(file);
+            }
+        });
+        for (String file : fileToDrafts.keySet()) {
+            if (!currentHashes.containsKey(file)) {
+                changed.add(file);
+            }
+        }
+        return changed;
+    }
+
+    @Override
+    public Optional<ReusedFile> lookup(Path file, String contentHash) {
+        String key = file.toString();
+        if (contentHash == null || !contentHash.equals(fileHashes.get(key))) {
+            return Optional.empty();
+        }
+        return Optional.of(new ReusedFile(
+                List.copyOf(fileToDrafts.getOrDefault(key, List.of())),
+                List.copyOf(fileToClassRefs.getOrDefault(key, List.of()))
+        ));
+    }
+}
@@ -0,0 +1,33 @@
+package com.xray.parse;
+
+import com.xray.model.ParseProblem;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Per-file extraction results of an earlier run, offered to ParsePipeline so unchanged files skip parsing.
+ * Implementations are queried from parse workers and must be thread-safe.
+ */
+@FunctionalInterface
+public interface ReusableDrafts {
+
+    ReusableDrafts NONE = (file, contentHash) -> Optional.empty();
+
+    /**
+     * Results for file if it was analyzed before with exactly this content hash, in their original order.
+     */
+    Optional<ReusedFile> lookup(Path file, String contentHash);
+
+    /**
+     * parseProblems: warnings of the parse the drafts came from, reported again (only ParseCache keeps them;
+     * earlier runs leave files with problems out, so they are parsed again)
+     */
+    record ReusedFile(List<AstIndex.NodeDraft> drafts, List<AstIndex.ClassRefs> classRefs, List<ParseProblem> parseProblems) {
+
+        public ReusedFile(List<AstIndex.NodeDraft> drafts, List<AstIndex.ClassRefs> classRefs) {
+            this(drafts, classRefs, List.of());
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.xray.parse;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * A source file read fully into memory, or the error that prevented reading it.
+ */
+record SourceFile(Path file, CharBuffer content, String contentHash, IOException readError) {
+
+    /**
+     * Decodes as UTF-8 (same as JavaParserFactory); malformed input is replaced, like JavaParser's own readers do.
+     */
+    static SourceFile read(Path file) {
+        try {
+            byte[] bytes = Files.readAllBytes(file);
+            return new SourceFile(file, StandardCharsets.UTF_8.decode(ByteBuffer.wrap(bytes)), contentHash(bytes), null);
+        } catch (IOException e) {
+            return new SourceFile(file, null, null, e);
+        }
+    }
+
+    Reader reader() {
+        return new CharArrayReader(content.array(), content.arrayOffset() + content.position(), content.remaining());
+    }
+
+    /**
+     * Short, deterministic hash of the raw file bytes (first 64 bits of SHA-256, hex)
+     */
+    static String contentHash(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.xray.parse;
+
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Reads source files ahead of the parser on virtual threads, so slow disks (network mounts) overlap with parsing.
+ * <p>
+ * Reads are started in input order and handed out in the same order. At most {@code capacity} files are read
+ * ahead; once the queue is full the producer blocks until the consumer catches up (backpressure).
+ * <p>
+ * Caller should close the prefetcher to stop outstanding reads.
+ */
+final class SourcePrefetcher implements Iterator<SourceFile>, AutoCloseable {
+
+    private static final Future<SourceFile> END = CompletableFuture.completedFuture(null);
+
+    private final BlockingQueue<Future<SourceFile>> queue;
+    private final ExecutorService readers;
+    private Future<SourceFile> head;
+
+    SourcePrefetcher(Iterator<Path> files, int capacity) {
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.readers = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("xray-read-", 0).factory());
+        readers.submit(() -> produce(files));
+    }
+
+    private void produce(Iterator<Path> files) {
+        try {
+            while (files.hasNext()) {
+                Path file = files.next();
+                queue.put(readers.submit(() -> SourceFile.read(file)));
+            }
+        } catch (InterruptedException e) {
+            // closed by the consumer
+            Thread.currentThread().interrupt();
+            return;
+        } catch (RuntimeException e) {
+            // e.g. UncheckedIOException from a directory walk; surfaced to the consumer in order
+            putQuietly(CompletableFuture.failedFuture(e));
+        }
+        putQuietly(END);
+    }
+
+    private void putQuietly(Future<SourceFile> future) {
+        try {
+            queue.put(future);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (head == null) {
+            try {
+                head = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for source reads", e);
+            }
+        }
+        return head != END;
+    }
+
+    @Override
+    public SourceFile next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Future<SourceFile> next = head;
+        head = null;
+        try {
+            return next.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for source reads", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Source read failed", e.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        readers.shutdownNow();
+    }
+}
@@ -0,0 +1,160 @@
+package com.xray.parse;
+
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.type.Type;
+import com.github.javaparser.resolution.SymbolResolver;
+import com.github.javaparser.resolution.TypeSolver;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.resolution.model.SymbolReference;
+import com.github.javaparser.resolution.types.ResolvedType;
+import com.github.javaparser.symbolsolver.JavaSymbolSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.JarTypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.JavaParserTypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One symbol solver shared by every parse worker: JDK types via reflection, the repo's source roots and the given
+ * dependency jars, behind a memoizing type solver whose cache is bounded (LRU) by cacheSize.
+ * <p>
+ * javaparser's resolution caches data on shared AST nodes and inside its type solvers without synchronization, so
+ * all resolution goes through one lock. Parsing itself stays parallel; with the memoized lookups every type is
+ * solved once, which keeps resolution cost close to linear in the number of references.
+ */
+@Slf4j
+public final class SymbolResolution {
+
+    private final Object lock = new Object();
+    private final ParserConfiguration parserConfiguration;
+    private final MemoizingTypeSolver typeSolver;
+
+    private SymbolResolution(ParserConfiguration parserConfiguration, CombinedTypeSolver combinedTypeSolver, int cacheSize) {
+        this.parserConfiguration = parserConfiguration;
+        this.typeSolver = new MemoizingTypeSolver(combinedTypeSolver, cacheSize, lock);
+        // nested lookups made by the combined solver (and the source solvers in it) go through the cache as well
+        combinedTypeSolver.setParent(typeSolver);
+        parserConfiguration.setSymbolResolver(new LockingSymbolResolver(new JavaSymbolSolver(typeSolver), lock));
+    }
+
+    /**
+     * Unreadable jars are logged and skipped.
+     */
+    public static SymbolResolution create(Collection<Path> sourceRoots, Collection<Path> jars, int cacheSize, ParseProfile parseProfile) {
+        ParserConfiguration parserConfiguration = JavaParserFactory.configuration(parseProfile);
+        List<TypeSolver> solvers = new ArrayList<>();
+        solvers.add(new ReflectionTypeSolver());
+        for (Path sourceRoot : sourceRoots) {
+            // files parsed by the source solvers get the same (locking) symbol resolver as the pipeline's
+            solvers.add(new JavaParserTypeSolver(sourceRoot, parserConfiguration, cacheSize));
+        }
+        for (Path jar : jars) {
+            try {
+                solvers.add(new JarTypeSolver(jar));
+            } catch (IOException | RuntimeException e) {
+                log.warn("Skipping classpath entry {} - {}", jar, e.getMessage());
+            }
+        }
+        return new SymbolResolution(parserConfiguration, new CombinedTypeSolver(solvers), cacheSize);
+    }
+
+    /**
+     * Parser configuration with the shared symbol resolver installed; compilation units parsed with it can be resolved.
+     */
+    public ParserConfiguration parserConfiguration() {
+        return parserConfiguration;
+    }
+
+    public TypeSolver typeSolver() {
+        return typeSolver;
+    }
+
+    private static final class MemoizingTypeSolver implements TypeSolver {
+
+        private final TypeSolver delegate;
+        private final Object lock;
+        private final Map<String, SymbolReference<ResolvedReferenceTypeDeclaration>> cache;
+        private TypeSolver parent;
+
+        MemoizingTypeSolver(TypeSolver delegate, int cacheSize, Object lock) {
+            this.delegate = delegate;
+            this.lock = lock;
+            this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, SymbolReference<ResolvedReferenceTypeDeclaration>> eldest) {
+                    return size() > cacheSize;
+                }
+            };
+        }
+
+        @Override
+        public TypeSolver getParent() {
+            return parent;
+        }
+
+        @Override
+        public void setParent(TypeSolver parent) {
+            this.parent = parent;
+        }
+
+        @Override
+        public SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveType(String name) {
+            synchronized (lock) {
+                SymbolReference<ResolvedReferenceTypeDeclaration> cached = cache.get(name);
+                if (cached == null) {
+                    cached = delegate.tryToSolveType(name);
+                    cache.put(name, cached);
+                }
+                return cached;
+            }
+        }
+
+        @Override
+        public SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveTypeInModule(String qualifiedModuleName, String simpleTypeName) {
+            synchronized (lock) {
+                return delegate.tryToSolveTypeInModule(qualifiedModuleName, simpleTypeName);
+            }
+        }
+    }
+
+    private record LockingSymbolResolver(SymbolResolver delegate, Object lock) implements SymbolResolver {
+
+        @Override
+        public <T> T resolveDeclaration(Node node, Class<T> resultClass) {
+            synchronized (lock) {
+                return delegate.resolveDeclaration(node, resultClass);
+            }
+        }
+
+        @Override
+        public <T> T toResolvedType(Type javaparserType, Class<T> resultClass) {
+            synchronized (lock) {
+                return delegate.toResolvedType(javaparserType, resultClass);
+            }
+        }
+
+        @Override
+        public ResolvedType calculateType(Expression expression) {
+            synchronized (lock) {
+                return delegate.calculateType(expression);
+            }
+        }
+
+        @Override
+        public ResolvedReferenceTypeDeclaration toTypeDeclaration(Node node) {
+            synchronized (lock) {
+                return delegate.toTypeDeclaration(node);
+            }
+        }
+    }
+}
@@ -1,31 +1,32 @@
 package com.xray.spring;
 
-import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
 import com.github.javaparser.ast.expr.AnnotationExpr;
 import com.xray.model.SpringBeanAnnotationAttributes;
 import com.xray.parse.AstIndex;
+import com.xray.parse.Detector;
 import com.xray.parse.NodeIdGenerator;
 
-import java.nio.file.Path;
 import java.util.*;
 
-public final class BeanDetector {
+public final class BeanDetector implements Detector {
 
     //TODO method mapping
-    public static void annotateBeans(AstIndex astIndex) {
-        for (Map.Entry<Path, CompilationUnit> pathToCompilationUnit : astIndex.fileToCu().entrySet()) {
-            CompilationUnit compilationUnit = pathToCompilationUnit.getValue();
-            for (ClassOrInterfaceDeclaration clazz : compilationUnit.findAll(ClassOrInterfaceDeclaration.class)) {
-                Optional<ClassBeanContext> classBeanContext = identifyClassBeanInformation(clazz);
-                if (classBeanContext.isEmpty()) {
-                    continue;
-                }
-
-                annotateClassBeans(astIndex, clazz, classBeanContext.get());
-            }
+    @Override
+    public void visitClass(ClassOrInterfaceDeclaration clazz, AstIndex astIndex) {
+        Optional<ClassBeanContext> classBeanContext = identifyClassBeanInformation(clazz);
+        if (classBeanContext.isEmpty()) {
+            return;
         }
 
+        annotateClassBeans(astIndex, clazz, classBeanContext.get());
+    }
+
+    /**
+     * Standalone run over the compilation units retained in astIndex (the pipeline normally runs this detector)
+     */
+    public static void annotateBeans(AstIndex astIndex) {
+        Detector.runAll(astIndex, List.of(new BeanDetector()));
     }
 
     private static void annotateClassBeans(AstIndex astIndex, ClassOrInterfaceDeclaration clazz, ClassBeanContext classBeanContext) {
@@ -1,19 +1,16 @@
 package com.xray.spring;
 
-import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
 import com.github.javaparser.ast.body.MethodDeclaration;
 import com.github.javaparser.ast.expr.AnnotationExpr;
 import com.xray.model.EntrypointIndex;
 import com.xray.parse.AstIndex;
+import com.xray.parse.Detector;
 import com.xray.parse.NodeIdGenerator;
 
-import java.nio.file.Path;
 import java.util.*;
 
-public final class EntrypointDetector {
-
-    private EntrypointDetector() {}
+public final class EntrypointDetector implements Detector {
 
     private static final String REST_CONTROLLER_ANNOTATION = "RestController";
     private static final String CONTROLLER_ANNOTATION = "Controller";
@@ -42,19 +39,32 @@ public final class EntrypointDetector {
             PATCH_MAPPING_ANNOTATION, HTTP_PATCH_TAG
     );
 
-    public static EntrypointIndex annotateEntrypoints(AstIndex astIndex) {
-        List<String> httpEntrypoints = new ArrayList<>();
-        for (Map.Entry<Path, CompilationUnit> pathToCompilationUnit : astIndex.fileToCu().entrySet()) {
-            CompilationUnit compilationUnit = pathToCompilationUnit.getValue();
-            for (ClassOrInterfaceDeclaration clazz : compilationUnit.findAll(ClassOrInterfaceDeclaration.class)) {
-                Optional<ControllerContext> controllerContext = buildControllerContext(clazz);
-                if (controllerContext.isEmpty()) {
-                    continue;
-                }
-                annotateClassMethods(astIndex, clazz, controllerContext.get(), httpEntrypoints);
-            }
+    @Override
+    public void visitClass(ClassOrInterfaceDeclaration clazz, AstIndex astIndex) {
+        Optional<ControllerContext> controllerContext = buildControllerContext(clazz);
+        if (controllerContext.isEmpty()) {
+            return;
         }
+        annotateClassMethods(astIndex, clazz, controllerContext.get());
+    }
 
+    /**
+     * Standalone run over the compilation units retained in astIndex (the pipeline normally runs this detector)
+     */
+    public static EntrypointIndex annotateEntrypoints(AstIndex astIndex) {
+        Detector.runAll(astIndex, List.of(new EntrypointDetector()));
+        return collectEntrypoints(astIndex);
+    }
+
+    /**
+     * Entrypoints recorded on the drafts, in draft order (file, then declaration order).
+     * Also covers drafts reused from an earlier run, whose compilation units were never parsed.
+     */
+    public static EntrypointIndex collectEntrypoints(AstIndex astIndex) {
+        List<String> httpEntrypoints = astIndex.nodeDrafts().values().stream()
+                .filter(draft -> draft.tags() != null && draft.tags().contains(SPRING_ENTRYPOINT_TAG))
+                .map(AstIndex.NodeDraft::id)
+                .toList();
         return new EntrypointIndex(httpEntrypoints);
     }
 
@@ -78,13 +88,13 @@ public final class EntrypointDetector {
         ));
     }
 
-    private static void annotateClassMethods(AstIndex astIndex, ClassOrInterfaceDeclaration clazz, ControllerContext controllerContext, List<String> httpEntrypoints) {
+    private static void annotateClassMethods(AstIndex astIndex, ClassOrInterfaceDeclaration clazz, ControllerContext controllerContext) {
         for (MethodDeclaration method : clazz.getMethods()) {
             Optional<MethodEntrypointData> methodEntrypointData = detectMethodEntrypoint(method);
             if (methodEntrypointData.isEmpty()) {
                 continue;
             }
-            updateMethodDraft(astIndex, method, controllerContext, methodEntrypointData.get(), httpEntrypoints);
+            updateMethodDraft(astIndex, method, controllerContext, methodEntrypointData.get());
         }
     }
 
@@ -143,8 +153,7 @@ public final class EntrypointDetector {
             AstIndex astIndex,
             MethodDeclaration method,
             ControllerContext controllerContext,
-            MethodEntrypointData methodEntrypointData,
-            List<String> httpEntrypoints
+            MethodEntrypointData methodEntrypointData
     ) {
         String nodeId = NodeIdGenerator.generateMethodNodeId(controllerContext.classFqcn(), method);
         AstIndex.NodeDraft existingMethodDraft = astIndex.nodeDrafts().get(nodeId);
@@ -169,7 +178,6 @@ public final class EntrypointDetector {
                 Map.copyOf(mergedAttributes)
         );
         astIndex.updateDraft(nodeId, updatedMethodDraft);
-        httpEntrypoints.add(updatedMethodDraft.id());
     }
 
     private static Set<String> mergeTags(AstIndex.NodeDraft existingMethodDraft, MethodEntrypointData methodEntrypointData) {
@@ -0,0 +1,20 @@
+package com.xray.spring;
+
+import com.xray.parse.Detector;
+
+import java.util.List;
+
+public final class SpringDetectors {
+
+    private SpringDetectors() {}
+
+    /**
+     * Every Spring detector, in the order they run for each class
+     */
+    public static List<Detector> all() {
+        return List.of(
+                new EntrypointDetector(),
+                new BeanDetector()
+        );
+    }
+}
@@ -0,0 +1,213 @@
+package com.xray.watch;
+
+import com.xray.config.EngineConfig;
+import com.xray.config.WatchConfig;
+import com.xray.engine.Engine;
+import com.xray.parse.RepoScanner;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Watch mode (--watch): analyzes once, then again after every burst of changes under the source roots.
+ * <p>
+ * Events are coalesced until the source roots have been quiet for the debounce time, so a save-all or a branch
+ * switch triggers one run. The engine must retain drafts (see Engine): each run then parses only the files whose
+ * content changed and rewrites only the node shards holding them. Which files changed is decided by content hash,
+ * not by the events themselves, so lost events (OVERFLOW) and saves without changes are handled the same way.
+ * <p>
+ * The repo root is watched as well: a directory created outside the source roots (a new module) makes the next run
+ * look for source roots again and watch the new ones. With symbol resolution, which resolves against the source
+ * roots, the engine is then rebuilt for them.
+ */
+@Slf4j
+public final class SourceWatcher implements AutoCloseable {
+
+    private final Function<List<Path>, Engine> engines;
+    private final EngineConfig engineConfig;
+    private final long debounceMillis;
+    private final Path repoRoot;
+    private final Path outputDir;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> watchedDirs = new HashMap<>();
+    private List<Path> sourceRoots = List.of();
+    private Engine engine;
+    // set when a directory appears outside the source roots
+    private boolean rescanSourceRoots;
+
+    public SourceWatcher(Engine engine, WatchConfig watchConfig) throws IOException {
+        this(sourceRoots -> engine, watchConfig);
+    }
+
+    /**
+     * engines builds the engine for the repo's source roots (see EngineFactory.create)
+     */
+    public SourceWatcher(Function<List<Path>, Engine> engines, WatchConfig watchConfig) throws IOException {
+        this.engines = engines;
+        this.engineConfig = watchConfig.engineConfig();
+        this.debounceMillis = watchConfig.debounce().toMillis();
+        this.repoRoot = engineConfig.repoRoot().toAbsolutePath().normalize();
+        this.outputDir = engineConfig.outputDir().toAbsolutePath().normalize();
+        this.watchService = FileSystems.getDefault().newWatchService();
+    }
+
+    /**
+     * Runs until closed or interrupted. A failed run is logged and the next change triggers another.
+     */
+    public void run() throws IOException {
+        // registered before the first run so edits made during it are not missed
+        watchedDirs.put(repoRoot.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), repoRoot);
+        updateSourceRoots();
+        analyze(Set.of());
+        log.info("Watching {} directories for changes", watchedDirs.size());
+        try {
+            while (true) {
+                Set<Path> touched = new TreeSet<>();
+                WatchKey key = watchService.take();
+                boolean overflow = collect(key, touched);
+                // debounce: keep collecting until nothing happens for debounceMillis
+                while ((key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null) {
+                    overflow |= collect(key, touched);
+                }
+                if (overflow || rescanSourceRoots) {
+                    rescanSourceRoots = false;
+                    updateSourceRoots();
+                }
+                if (overflow || !touched.isEmpty()) {
+                    analyze(touched);
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            // closed
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Watches source roots that are new since the last scan; the engine is built again when they changed and it
+     * resolves symbols (otherwise it keeps its retained drafts)
+     */
+    private void updateSourceRoots() {
+        List<Path> found;
+        try {
+            found = RepoScanner.findSourceRoots(engineConfig);
+        } catch (IOException e) {
+            log.warn("Cannot scan for source roots: {}", e.getMessage());
+            return;
+        }
+        if (engine != null && found.equals(sourceRoots)) {
+            return;
+        }
+        for (Path sourceRoot : found) {
+            if (!sourceRoots.contains(sourceRoot)) {
+                try {
+                    registerTree(sourceRoot);
+                } catch (IOException e) {
+                    log.warn("Cannot watch {}: {}", sourceRoot, e.getMessage());
+                }
+            }
+        }
+        if (engine != null) {
+            log.info("Source roots changed: {}", found);
+        }
+        if (engine == null || engineConfig.options().resolveSymbols()) {
+            engine = engines.apply(found);
+        }
+        sourceRoots = found;
+    }
+
+    private void analyze(Set<Path> touched) {
+        if (!touched.isEmpty()) {
+            log.info("Changed: {}", touched.size() <= 5 ? touched : touched.size() + " paths");
+        }
+        try {
+            engine.analyze(engineConfig);
+        } catch (IOException | RuntimeException e) {
+            log.error("Analysis failed, waiting for the next change", e);
+        }
+    }
+
+    /**
+     * Adds the Java files and directories behind key's events to touched (new directories are watched from now on)
+     * and re-arms key. Returns true when events were lost.
+     */
+    private boolean collect(WatchKey key, Set<Path> touched) {
+        Path dir = watchedDirs.get(key);
+        boolean overflow = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                overflow = true;
+                continue;
+            }
+            if (dir == null) {
+                continue;
+            }
+            Path path = dir.resolve((Path) event.context());
+            if (path.startsWith(outputDir)) {
+                continue;
+            }
+            boolean directory = Files.isDirectory(path);
+            if (event.kind() == ENTRY_CREATE && directory) {
+                if (sourceRoots.stream().noneMatch(path::startsWith)) {
+                    rescanSourceRoots = true;
+                } else {
+                    try {
+                        registerTree(path);
+                    } catch (IOException e) {
+                        log.warn("Cannot watch {}: {}", path, e.getMessage());
+                    }
+                }
+            }
+            if (event.kind() == ENTRY_DELETE && sourceRoots.stream().anyMatch(root -> root.startsWith(path))) {
+                rescanSourceRoots = true;
+            }
+            // a deleted directory is no longer a directory; it matters if it was watched
+            if (directory || path.toString().endsWith(".java") || watchedDirs.containsValue(path)) {
+                touched.add(path);
+            }
+        }
+        if (!key.reset()) {
+            watchedDirs.remove(key);
+        }
+        return overflow;
+    }
+
+    private void registerTree(Path root) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                Path normalized = dir.toAbsolutePath().normalize();
+                if (normalized.startsWith(outputDir)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                watchedDirs.put(normalized.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), normalized);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+}
@@ -0,0 +1,174 @@
+package com.xray.daemon;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xray.config.DaemonConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EngineDaemonTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void analyzesRepeatedlyReusingUnchangedFilesAndShutsDown() throws Exception {
+        Path repo = tempDir.resolve("repo");
+        Path sources = repo.resolve("src/main/java/com/acme");
+        Files.createDirectories(sources);
+        Files.writeString(sources.resolve("OrderService.java"), """
+                package com.acme;
+                @Service
+                class OrderService { void place() {} }
+                """);
+        Files.writeString(sources.resolve("Audit.java"), """
+                package com.acme;
+                class Audit { void record() {} }
+                """);
+        Path out = tempDir.resolve("out");
+        Path daemonFile = tempDir.resolve("cache/daemon.json");
+
+        Thread daemon = Thread.ofPlatform().start(() -> {
+            try {
+                new EngineDaemon(new DaemonConfig(daemonFile, Duration.ofMinutes(5))).run();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        try {
+            EngineDaemon.DaemonInfo info = awaitDaemonFile(daemonFile);
+            List<String> args = List.of("--input", repo.toString(), "--out", out.toString());
+
+            JsonNode first = send(info, new EngineDaemon.Request(info.token(), "analyze", args));
+            assertTrue(first.path("ok").asBoolean(), first.toString());
+            assertEquals(2, first.path("stats").path("filesParsedOk").asLong());
+            assertEquals(0, first.path("stats").path("filesReused").asLong());
+
+            Files.writeString(sources.resolve("Audit.java"), """
+                    package com.acme;
+                    class Audit { void record() {} void purge() {} }
+                    """);
+            JsonNode second = send(info, new EngineDaemon.Request(info.token(), "analyze", args));
+            assertTrue(second.path("ok").asBoolean(), second.toString());
+            assertEquals(1, second.path("stats").path("filesReused").asLong());
+            assertEquals(1, second.path("stats").path("filesParsedOk").asLong());
+            assertTrue(Files.readString(out.resolve("nodes.jsonl")).contains("purge"));
+
+            JsonNode badToken = send(info, new EngineDaemon.Request("nope", "analyze", args));
+            assertFalse(badToken.path("ok").asBoolean());
+            JsonNode badArgs = send(info, new EngineDaemon.Request(info.token(), "analyze", List.of("--input", repo.toString())));
+            assertFalse(badArgs.path("ok").asBoolean());
+            assertTrue(badArgs.path("error").asText().startsWith("Usage:"));
+
+            assertTrue(send(info, new EngineDaemon.Request(info.token(), "shutdown", null)).path("ok").asBoolean());
+            daemon.join(Duration.ofSeconds(10));
+            assertFalse(daemon.isAlive());
+            assertFalse(Files.exists(daemonFile));
+        } finally {
+            daemon.interrupt();
+        }
+    }
+
+    @Test
+    void resolvesAgainstTypesEditedBetweenRequests() throws Exception {
+        Path repo = tempDir.resolve("repo");
+        Path sources = repo.resolve("src/main/java/com/acme");
+        Files.createDirectories(sources);
+        Files.writeString(sources.resolve("Order.java"), """
+                package com.acme;
+                public class Order {
+                    public Order next() { return this; }
+                    public void ship() {}
+                }
+                """);
+        Files.writeString(sources.resolve("Service.java"), """
+                package com.acme;
+                class Service { void handle(Order order) { order.next().ship(); } }
+                """);
+        Path out = tempDir.resolve("out");
+        Path daemonFile = tempDir.resolve("cache/daemon.json");
+
+        Thread daemon = Thread.ofPlatform().start(() -> {
+            try {
+                new EngineDaemon(new DaemonConfig(daemonFile, Duration.ofMinutes(5))).run();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        try {
+            EngineDaemon.DaemonInfo info = awaitDaemonFile(daemonFile);
+            List<String> args = List.of("--input", repo.toString(), "--out", out.toString(), "--resolve");
+
+            assertTrue(send(info, new EngineDaemon.Request(info.token(), "analyze", args)).path("ok").asBoolean());
+            assertTrue(hasResolvedCall(out, "com.acme.Order#ship():void"));
+
+            // a method the first run's solver never saw on Order
+            Files.writeString(sources.resolve("Order.java"), """
+                    package com.acme;
+                    public class Order {
+                        public Order next() { return this; }
+                        public void ship() {}
+                        public void cancel() {}
+                    }
+                    """);
+            Files.writeString(sources.resolve("Service.java"), """
+                    package com.acme;
+                    class Service { void handle(Order order) { order.next().cancel(); } }
+                    """);
+            assertTrue(send(info, new EngineDaemon.Request(info.token(), "analyze", args)).path("ok").asBoolean());
+            assertTrue(hasResolvedCall(out, "com.acme.Order#cancel():void"));
+
+            send(info, new EngineDaemon.Request(info.token(), "shutdown", null));
+            daemon.join(Duration.ofSeconds(10));
+        } finally {
+            daemon.interrupt();
+        }
+    }
+
+    private boolean hasResolvedCall(Path out, String toId) throws IOException {
+        for (String line : Files.readAllLines(out.resolve("edges.jsonl"))) {
+            JsonNode edge = objectMapper.readTree(line);
+            if (edge.path("type").asText().equals("CALL") && edge.path("toId").asText().equals(toId)
+                    && edge.path("confidence").asText().equals("HIGH")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private EngineDaemon.DaemonInfo awaitDaemonFile(Path daemonFile) throws Exception {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!Files.exists(daemonFile)) {
+            assertTrue(System.nanoTime() < deadline, "daemon did not start");
+            Thread.sleep(20);
+        }
+        return objectMapper.readValue(daemonFile.toFile(), EngineDaemon.DaemonInfo.class);
+    }
+
+    private JsonNode send(EngineDaemon.DaemonInfo info, EngineDaemon.Request request) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), info.port());
+             OutputStream out = socket.getOutputStream();
+             BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+            out.write(objectMapper.writeValueAsBytes(request));
+            out.write('\n');
+            out.flush();
+            return objectMapper.readTree(reader.readLine());
+        }
+    }
+}
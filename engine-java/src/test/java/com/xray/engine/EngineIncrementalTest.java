@@ -0,0 +1,175 @@
+package com.xray.engine;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.xray.config.EngineConfig;
+import com.xray.parse.JavaParserFactory;
+import com.xray.parse.ParsePipeline;
+import com.xray.spring.SpringDetectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EngineIncrementalTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @Test
+    void incrementalRunReparsesOnlyChangedFilesAndMatchesFullRun() throws IOException {
+        Path repo = tempDir.resolve("repo");
+        Path sources = repo.resolve("src/main/java/com/acme");
+        Files.createDirectories(sources);
+        Files.writeString(sources.resolve("OrderController.java"), """
+                package com.acme;
+                @RestController
+                class OrderController {
+                    @GetMapping("/orders") String list() { return "ok"; }
+                }
+                """);
+        Files.writeString(sources.resolve("OrderService.java"), """
+                package com.acme;
+                @Service
+                class OrderService { void place() {} }
+                """);
+        Files.writeString(sources.resolve("Legacy.java"), """
+                package com.acme;
+                class Legacy { void old() {} }
+                """);
+
+        Path incrementalOut = tempDir.resolve("incremental");
+        analyze(repo, incrementalOut, false);
+
+        Files.writeString(sources.resolve("OrderService.java"), """
+                package com.acme;
+                @Service
+                class OrderService { void place() {} void cancel() { place(); } }
+                """);
+        Files.delete(sources.resolve("Legacy.java"));
+        Files.writeString(sources.resolve("Audit.java"), """
+                package com.acme;
+                @Component
+                class Audit { void record() {} }
+                """);
+
+        analyze(repo, incrementalOut, true);
+        Path fullOut = tempDir.resolve("full");
+        analyze(repo, fullOut, false);
+
+        JsonNode stats = objectMapper.readTree(incrementalOut.resolve("meta.json").toFile()).path("stats");
+        assertEquals(3, stats.path("javaFilesFound").asLong());
+        assertEquals(1, stats.path("filesReused").asLong());
+        assertEquals(2, stats.path("filesParsedOk").asLong());
+
+        String nodes = Files.readString(incrementalOut.resolve("nodes.jsonl"));
+        assertFalse(nodes.contains("Legacy"));
+        assertTrue(nodes.contains("cancel"));
+        assertTrue(Files.readString(incrementalOut.resolve("edges.jsonl")).contains("\"CALL\""));
+        assertEquals(Files.readString(fullOut.resolve("nodes.jsonl")), nodes);
+        assertTrue(Files.readString(incrementalOut.resolve("index/entrypoints.json")).contains("OrderController#list"));
+        assertEquals(
+                Files.readString(fullOut.resolve("index/entrypoints.json")),
+                Files.readString(incrementalOut.resolve("index/entrypoints.json"))
+        );
+        assertEquals(
+                Files.readString(fullOut.resolve("edges.jsonl")),
+                Files.readString(incrementalOut.resolve("edges.jsonl"))
+        );
+        assertEquals(
+                Files.readString(fullOut.resolve("index/file_hashes.json")),
+                Files.readString(incrementalOut.resolve("index/file_hashes.json"))
+        );
+    }
+
+    @Test
+    void resolvedCallsFollowACalleeSignatureChangedInAnotherFile() throws IOException {
+        Path repo = tempDir.resolve("repo");
+        Path sources = repo.resolve("src/main/java/com/acme");
+        Files.createDirectories(sources);
+        Files.writeString(sources.resolve("Order.java"), """
+                package com.acme;
+                public class Order { public void ship(String carrier) {} }
+                """);
+        Files.writeString(sources.resolve("Service.java"), """
+                package com.acme;
+                class Service { void handle(Order order) { order.ship("ups"); } }
+                """);
+
+        Path incrementalOut = tempDir.resolve("incremental");
+        analyzeResolved(repo, incrementalOut, false);
+        assertTrue(callTargets(incrementalOut).contains("com.acme.Order#ship(java.lang.String):void"));
+
+        // Service.java is unchanged, the target of its call is not
+        Files.writeString(sources.resolve("Order.java"), """
+                package com.acme;
+                public class Order { public void ship(CharSequence carrier) {} }
+                """);
+        analyzeResolved(repo, incrementalOut, true);
+        Path fullOut = tempDir.resolve("full");
+        analyzeResolved(repo, fullOut, false);
+
+        assertEquals(List.of("com.acme.Order#ship(java.lang.CharSequence):void"), callTargets(incrementalOut));
+        assertEquals(
+                Files.readString(fullOut.resolve("edges.jsonl")),
+                Files.readString(incrementalOut.resolve("edges.jsonl"))
+        );
+    }
+
+    private void analyze(Path repo, Path out, boolean incremental) throws IOException {
+        Files.createDirectories(out);
+        EngineConfig.Options options = EngineConfig.Options.builder()
+                .includeGlobs(Set.of("src/main/java/**"))
+                .excludeGlobs(Set.of())
+                .maxDepth(500)
+                .incremental(incremental)
+                .build();
+        ParsePipeline parsePipeline = ParsePipeline.builder()
+                .javaParserFactory(JavaParserFactory::initialize)
+                .detectors(SpringDetectors.all())
+                .build();
+        Engine engine = new Engine(parsePipeline, objectMapper);
+        engine.analyze(new EngineConfig(repo, out, options));
+    }
+
+    private void analyzeResolved(Path repo, Path out, boolean incremental) throws IOException {
+        Files.createDirectories(out);
+        EngineConfig engineConfig = new EngineConfig(repo, out, EngineConfig.Options.builder()
+                .includeGlobs(Set.of("src/main/java/**"))
+                .excludeGlobs(Set.of())
+                .maxDepth(500)
+                .incremental(incremental)
+                .resolveSymbols(true)
+                .resolutionCacheSize(1_000)
+                .classpath(List.of())
+                .build());
+        EngineFactory.create(engineConfig, objectMapper, false).analyze(engineConfig);
+    }
+
+    /**
+     * Targets of the HIGH confidence (resolved) CALL edges
+     */
+    private List<String> callTargets(Path out) throws IOException {
+        List<String> targets = new ArrayList<>();
+        for (String line : Files.readAllLines(out.resolve("edges.jsonl"))) {
+            JsonNode edge = objectMapper.readTree(line);
+            if (edge.path("type").asText().equals("CALL") && edge.path("confidence").asText().equals("HIGH")) {
+                targets.add(edge.path("toId").asText());
+            }
+        }
+        return targets;
+    }
+}
@@ -0,0 +1,192 @@
+package com.xray.engine;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.xray.config.EngineConfig;
+import com.xray.parse.JavaParserFactory;
+import com.xray.parse.ParsePipeline;
+import com.xray.spring.SpringDetectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedOutputTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @Test
+    void shardedOutputHoldsTheSameNodesAndIndexesAsASingleFile() throws IOException {
+        Path repo = writeRepo(12);
+        Path single = tempDir.resolve("single");
+        Path sharded = tempDir.resolve("sharded");
+        analyze(repo, single, 1, false);
+        analyze(repo, sharded, 4, false);
+
+        assertFalse(Files.exists(sharded.resolve("nodes.jsonl")));
+        JsonNode manifest = objectMapper.readTree(sharded.resolve("meta.json").toFile()).path("nodeShards");
+        assertEquals(4, manifest.size());
+        long manifestNodes = 0;
+        Set<String> shardLines = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            JsonNode shard = manifest.get(i);
+            assertEquals("nodes-%04d.jsonl".formatted(i), shard.path("file").asText());
+            Path file = sharded.resolve(shard.path("file").asText());
+            assertEquals(Files.size(file), shard.path("bytes").asLong());
+            List<String> lines = Files.readAllLines(file);
+            assertEquals(lines.size(), shard.path("nodes").asLong());
+            manifestNodes += lines.size();
+            shardLines.addAll(lines);
+        }
+
+        List<String> singleLines = Files.readAllLines(single.resolve("nodes.jsonl"));
+        assertEquals(singleLines.size(), manifestNodes);
+        assertEquals(new HashSet<>(singleLines), shardLines);
+        assertEquals(manifestNodes, objectMapper.readTree(sharded.resolve("meta.json").toFile()).path("stats").path("nodesWritten").asLong());
+
+        assertEquals(readIndex(single.resolve("index/file_to_ids.json")), readIndex(sharded.resolve("index/file_to_ids.json")));
+        assertEquals(readIndex(single.resolve("index/name_to_ids.json")), readIndex(sharded.resolve("index/name_to_ids.json")));
+    }
+
+    @Test
+    void shardedBinaryNodesMatchASingleFile() throws IOException {
+        Path repo = writeRepo(12);
+        Path single = tempDir.resolve("single");
+        Path sharded = tempDir.resolve("sharded");
+        analyze(repo, single, 1, false, true);
+        analyze(repo, sharded, 4, false, true);
+
+        assertArrayEquals(Files.readAllBytes(single.resolve("nodes.bin")), Files.readAllBytes(sharded.resolve("nodes.bin")));
+    }
+
+    @Test
+    void changingTheShardCountRemovesStaleNodeFilesAndIncrementalRunsReadAllShards() throws IOException {
+        Path repo = writeRepo(6);
+        Path out = tempDir.resolve("out");
+        analyze(repo, out, 3, false);
+        analyze(repo, out, 2, true);
+
+        JsonNode meta = objectMapper.readTree(out.resolve("meta.json").toFile());
+        assertEquals(6, meta.path("stats").path("filesReused").asLong());
+        assertFalse(Files.exists(out.resolve("nodes-0002.jsonl")));
+
+        analyze(repo, out, 1, true);
+        assertTrue(Files.exists(out.resolve("nodes.jsonl")));
+        assertFalse(Files.exists(out.resolve("nodes-0000.jsonl")));
+        assertFalse(Files.exists(out.resolve("nodes-0001.jsonl")));
+        assertEquals(6, objectMapper.readTree(out.resolve("meta.json").toFile()).path("stats").path("filesReused").asLong());
+    }
+
+    @Test
+    void retainedRunsRewriteOnlyTheShardsOfChangedFiles() throws IOException {
+        Path repo = writeRepo(8);
+        Path out = tempDir.resolve("out");
+        Engine engine = new Engine(ParsePipeline.builder()
+                .javaParserFactory(JavaParserFactory::initialize)
+                .detectors(SpringDetectors.all())
+                .build(), objectMapper, true);
+        EngineConfig engineConfig = config(repo, out, 4, false);
+        engine.analyze(engineConfig);
+
+        FileTime marker = FileTime.fromMillis(0);
+        for (int i = 0; i < 4; i++) {
+            Files.setLastModifiedTime(out.resolve("nodes-%04d.jsonl".formatted(i)), marker);
+        }
+        Path changed = repo.resolve("src/main/java/com/acme/Service3.java");
+        Files.writeString(changed, """
+                package com.acme;
+                class Service3 { void run() {} void stop() {} }
+                """);
+        engine.analyze(engineConfig);
+
+        int changedShard = NodeOutputWriter.shardOf(changed.toString(), 4);
+        for (int i = 0; i < 4; i++) {
+            Path shard = out.resolve("nodes-%04d.jsonl".formatted(i));
+            assertEquals(i != changedShard, Files.getLastModifiedTime(shard).equals(marker), "shard " + i);
+        }
+        assertTrue(Files.readString(out.resolve("nodes-%04d.jsonl".formatted(changedShard))).contains("stop"));
+
+        // same output as a fresh run
+        Path fresh = tempDir.resolve("fresh");
+        analyze(repo, fresh, 4, false);
+        JsonNode manifest = objectMapper.readTree(out.resolve("meta.json").toFile()).path("nodeShards");
+        assertEquals(objectMapper.readTree(fresh.resolve("meta.json").toFile()).path("nodeShards"), manifest);
+        for (int i = 0; i < 4; i++) {
+            String name = "nodes-%04d.jsonl".formatted(i);
+            assertEquals(Files.readString(fresh.resolve(name)), Files.readString(out.resolve(name)), name);
+        }
+        assertEquals(readIndex(fresh.resolve("index/name_to_ids.json")), readIndex(out.resolve("index/name_to_ids.json")));
+    }
+
+    private Path writeRepo(int classes) throws IOException {
+        Path repo = tempDir.resolve("repo");
+        Path sources = repo.resolve("src/main/java/com/acme");
+        Files.createDirectories(sources);
+        for (int i = 0; i < classes; i++) {
+            Files.writeString(sources.resolve("Service" + i + ".java"), """
+                    package com.acme;
+                    @Service
+                    class Service%1$d { void run() {} String name%1$d() { return "s"; } }
+                    """.formatted(i));
+        }
+        return repo;
+    }
+
+    /**
+     * Id order inside a list follows shard order, so compare the lists as sets
+     */
+    private Map<String, Set<String>> readIndex(Path file) throws IOException {
+        Map<String, List<String>> index = objectMapper.readValue(file.toFile(), new TypeReference<>() {});
+        Map<String, Set<String>> sorted = new TreeMap<>();
+        index.forEach((key, ids) -> sorted.put(key, new TreeSet<>(ids)));
+        return sorted;
+    }
+
+    private void analyze(Path repo, Path out, int shards, boolean incremental) throws IOException {
+        analyze(repo, out, shards, incremental, false);
+    }
+
+    private void analyze(Path repo, Path out, int shards, boolean incremental, boolean binaryNodes) throws IOException {
+        ParsePipeline parsePipeline = ParsePipeline.builder()
+                .javaParserFactory(JavaParserFactory::initialize)
+                .detectors(SpringDetectors.all())
+                .build();
+        new Engine(parsePipeline, objectMapper).analyze(config(repo, out, shards, incremental, binaryNodes));
+    }
+
+    private EngineConfig config(Path repo, Path out, int shards, boolean incremental) throws IOException {
+        return config(repo, out, shards, incremental, false);
+    }
+
+    private EngineConfig config(Path repo, Path out, int shards, boolean incremental, boolean binaryNodes) throws IOException {
+        Files.createDirectories(out);
+        EngineConfig.Options options = EngineConfig.Options.builder()
+                .includeGlobs(Set.of("src/main/java/**"))
+                .excludeGlobs(Set.of())
+                .maxDepth(500)
+                .incremental(incremental)
+                .outputShards(shards)
+                .binaryNodes(binaryNodes)
+                .build();
+        return new EngineConfig(repo, out, options);
+    }
+}
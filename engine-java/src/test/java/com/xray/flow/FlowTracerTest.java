@@ -0,0 +1,167 @@
+package com.xray.flow;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.xray.config.ArgsParser;
+import com.xray.config.EngineConfig;
+import com.xray.engine.Engine;
+import com.xray.model.Flow;
+import com.xray.model.Impact;
+import com.xray.parse.JavaParserFactory;
+import com.xray.parse.ParsePipeline;
+import com.xray.spring.SpringDetectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlowTracerTest {
+
+    private static final String LIST = "com.acme.web.OrderController#list():String";
+    private static final String PLACE = "com.acme.web.OrderController#place(String):void";
+    private static final String SERVICE_PLACE = "com.acme.service.OrderService#place(String):void";
+    private static final String IMPL_PLACE = "com.acme.service.DefaultOrderService#place(String):void";
+    private static final String IMPL_AUDIT = "com.acme.service.DefaultOrderService#audit(String):void";
+    private static final String REPO_SAVE = "com.acme.repo.OrderRepository#save(String):void";
+
+    @TempDir
+    Path tempDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private Path repo;
+
+    @BeforeEach
+    void writeRepo() throws IOException {
+        repo = tempDir.resolve("repo");
+        write("web/OrderController.java", """
+                package com.acme.web;
+                import com.acme.service.OrderService;
+                @RestController
+                class OrderController {
+                    private final OrderService orderService;
+                    @GetMapping("/orders") String list() { return "ok"; }
+                    @PostMapping("/orders") void place(String order) { orderService.place(order); }
+                }
+                """);
+        write("service/OrderService.java", """
+                package com.acme.service;
+                public interface OrderService { void place(String order); }
+                """);
+        write("service/DefaultOrderService.java", """
+                package com.acme.service;
+                import com.acme.repo.OrderRepository;
+                @Service
+                class DefaultOrderService implements OrderService {
+                    private final OrderRepository orderRepository;
+                    public void place(String order) { audit(order); orderRepository.save(order); }
+                    void audit(String order) { place(order); }
+                }
+                """);
+        write("repo/OrderRepository.java", """
+                package com.acme.repo;
+                @Repository
+                public interface OrderRepository { void save(String order); }
+                """);
+    }
+
+    @Test
+    void tracesEntrypointsThroughInterfacesDownToRepositories() throws IOException {
+        Path out = analyze(500);
+
+        Map<String, Flow> flows = flows(out);
+        assertEquals(Set.of(LIST, PLACE), flows.keySet());
+        assertEquals(List.of(new Flow.Step(LIST, 0, -1)), flows.get(LIST).steps());
+
+        Flow place = flows.get(PLACE);
+        assertFalse(place.truncated());
+        assertEquals(List.of(
+                new Flow.Step(PLACE, 0, -1),
+                new Flow.Step(SERVICE_PLACE, 1, 0),
+                new Flow.Step(IMPL_PLACE, 2, 1),
+                new Flow.Step(IMPL_AUDIT, 3, 2),
+                new Flow.Step(REPO_SAVE, 3, 2)
+        ), place.steps());
+
+        Map<String, List<String>> impact = impact(out);
+        assertEquals(List.of(PLACE), impact.get(REPO_SAVE));
+        assertEquals(List.of(LIST), impact.get(LIST));
+        assertFalse(impact.containsKey("com.acme.web.OrderController"));
+    }
+
+    @Test
+    void stopsAtMaxDepth() throws IOException {
+        Path out = analyze(2);
+
+        Flow place = flows(out).get(PLACE);
+        assertTrue(place.truncated());
+        assertEquals(List.of(PLACE, SERVICE_PLACE, IMPL_PLACE), place.steps().stream().map(Flow.Step::nodeId).toList());
+        assertFalse(flows(out).get(LIST).truncated());
+        assertFalse(impact(out).containsKey(REPO_SAVE));
+    }
+
+    @Test
+    void maxDepthZeroFromTheCommandLineIsUnbounded() throws IOException {
+        EngineConfig engineConfig = ArgsParser.parse(new String[]{
+                "--input", repo.toString(), "--out", tempDir.resolve("out").toString(), "--max-depth", "0"});
+        assertEquals(0, engineConfig.options().maxDepth());
+        Path out = analyze(engineConfig.options().maxDepth());
+
+        Flow place = flows(out).get(PLACE);
+        assertFalse(place.truncated());
+        assertEquals(List.of(PLACE, SERVICE_PLACE, IMPL_PLACE, IMPL_AUDIT, REPO_SAVE),
+                place.steps().stream().map(Flow.Step::nodeId).toList());
+        assertEquals(List.of(PLACE), impact(out).get(REPO_SAVE));
+    }
+
+    private Map<String, Flow> flows(Path out) throws IOException {
+        List<Flow> flows = new ArrayList<>();
+        for (String line : Files.readAllLines(out.resolve("flows/flows.jsonl"))) {
+            flows.add(objectMapper.readValue(line, Flow.class));
+        }
+        return flows.stream().collect(Collectors.toMap(Flow::entrypointId, flow -> flow));
+    }
+
+    private Map<String, List<String>> impact(Path out) throws IOException {
+        List<Impact> impact = new ArrayList<>();
+        for (String line : Files.readAllLines(out.resolve("flows/impact.jsonl"))) {
+            impact.add(objectMapper.readValue(line, Impact.class));
+        }
+        return impact.stream().collect(Collectors.toMap(Impact::nodeId, Impact::entrypointIds));
+    }
+
+    private void write(String file, String content) throws IOException {
+        Path path = repo.resolve("src/main/java/com/acme").resolve(file);
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, content);
+    }
+
+    private Path analyze(int maxDepth) throws IOException {
+        Path out = tempDir.resolve("out");
+        Files.createDirectories(out);
+        EngineConfig.Options options = EngineConfig.Options.builder()
+                .includeGlobs(Set.of("src/main/java/**"))
+                .excludeGlobs(Set.of())
+                .maxDepth(maxDepth)
+                .build();
+        ParsePipeline parsePipeline = ParsePipeline.builder()
+                .javaParserFactory(JavaParserFactory::initialize)
+                .detectors(SpringDetectors.all())
+                .build();
+        new Engine(parsePipeline, objectMapper).analyze(new EngineConfig(repo, out, options));
+        return out;
+    }
+}
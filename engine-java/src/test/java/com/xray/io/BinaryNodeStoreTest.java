@@ -0,0 +1,68 @@
+package com.xray.io;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xray.model.Node;
+import com.xray.model.SourceRange;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.xray.io.BinaryNodeFormat.*;
+import static com.xray.model.Enums.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryNodeStoreTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void roundTripsNodesThroughTheMappedStore() throws IOException {
+        List<Node> nodes = new ArrayList<>();
+        nodes.add(Node.v1("com.acme.Foo", NodeKind.CLASS, "Foo", "com.acme.Foo", null, null,
+                new SourceRange("src/Foo.java", 3, 1, 20, 1),
+                List.of("public"), List.of("RestController"), null, null, "abc"));
+        nodes.add(Node.v1("com.acme.Foo#get(String):Größe", NodeKind.METHOD, "get", "com.acme.Foo", "Größe get(String id)",
+                "com.acme.Foo", new SourceRange("src/Foo.java", 5, 5, 7, 5),
+                List.of("public"), List.of("GetMapping"), List.of("spring.entrypoint.http", "http.GET"),
+                Map.of("httpPath", "/foo/{id}"), "abc"));
+        for (int i = 0; i < 5_000; i++) {
+            nodes.add(Node.v1("com.acme.Bar" + i, NodeKind.CLASS, "Bar" + i, "com.acme.Bar" + i, null, null,
+                    new SourceRange("src/Bar" + i + ".java", 1, 1, 2, 1), List.of(), List.of(), List.of(), Map.of(), "h" + i));
+        }
+
+        Path file = tempDir.resolve("nodes.bin");
+        BinaryNodeWriter writer = new BinaryNodeWriter(file, objectMapper);
+        for (Node node : nodes) {
+            writer.writeNode(node);
+        }
+        writer.commit();
+
+        BinaryNodeStore store = BinaryNodeStore.open(file, objectMapper);
+        assertEquals(nodes.size(), store.size());
+        for (int i = 0; i < nodes.size(); i++) {
+            assertEquals(nodes.get(i), store.node(i));
+        }
+        assertEquals(0, Files.size(file) % 4);
+        // shared strings are stored once
+        assertEquals(store.intValue(Column.FILE, 0), store.intValue(Column.FILE, 1));
+        assertEquals(NO_VALUE, store.intValue(Column.SIGNATURE, 0));
+        assertEquals(7, store.intValue(Column.END_LINE, 1));
+    }
+
+    @Test
+    void rejectsOtherFiles() throws IOException {
+        Path file = tempDir.resolve("nodes.jsonl");
+        Files.writeString(file, "{\"id\":\"x\"}\n".repeat(10));
+
+        assertThrows(IOException.class, () -> BinaryNodeStore.open(file, objectMapper));
+    }
+}
@@ -0,0 +1,78 @@
+package com.xray.io;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xray.model.Node;
+import com.xray.model.SourceRange;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.xray.model.Enums.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void writesPostingsAsTheKeyToIdsJsonOfMergedShards() throws IOException {
+        NodeIndexes first = new NodeIndexes();
+        first.add(node("com.acme.Foo", NodeKind.CLASS, "Foo", "com.acme.Foo", "src/Foo.java"));
+        first.add(node("com.acme.Foo#run():void", NodeKind.METHOD, "run", "com.acme.Foo", "src/Foo.java"));
+        NodeIndexes second = new NodeIndexes();
+        second.add(node("com.acme.Bar", NodeKind.CLASS, "Bar", "com.acme.Bar", "src/Bar.java"));
+        second.add(node("com.acme.Bar#run():void", NodeKind.METHOD, "run", "com.acme.Bar", "src/Bar.java"));
+
+        NodeIndexes merged = new NodeIndexes();
+        merged.merge(first);
+        merged.merge(second);
+        assertEquals(4, merged.size());
+
+        OutputLayout layout = new OutputLayout(tempDir);
+        IndexWriter indexWriter = new IndexWriter(objectMapper);
+        indexWriter.writeNameToIds(layout, merged);
+        indexWriter.writeFileToIds(layout, merged);
+
+        Map<String, List<String>> nameToIds = read(layout.getNameToIds());
+        Map<String, List<String>> expectedNames = new LinkedHashMap<>();
+        expectedNames.put("Foo", List.of("com.acme.Foo"));
+        expectedNames.put("foo", List.of("com.acme.Foo"));
+        expectedNames.put("com.acme.Foo", List.of("com.acme.Foo", "com.acme.Foo#run():void"));
+        // "run" is both name and lowercase name, each method is listed once
+        expectedNames.put("run", List.of("com.acme.Foo#run():void", "com.acme.Bar#run():void"));
+        expectedNames.put("Bar", List.of("com.acme.Bar"));
+        expectedNames.put("bar", List.of("com.acme.Bar"));
+        expectedNames.put("com.acme.Bar", List.of("com.acme.Bar", "com.acme.Bar#run():void"));
+        assertEquals(expectedNames, nameToIds);
+
+        assertEquals(
+                Map.of("src/Foo.java", List.of("com.acme.Foo", "com.acme.Foo#run():void"),
+                        "src/Bar.java", List.of("com.acme.Bar", "com.acme.Bar#run():void")),
+                read(layout.getFileToIds())
+        );
+        // still the pretty-printed layout of the previous Map based writer
+        assertEquals(
+                objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(read(layout.getFileToIds())).length(),
+                Files.readString(layout.getFileToIds()).length()
+        );
+    }
+
+    private Map<String, List<String>> read(Path file) throws IOException {
+        return objectMapper.readValue(file.toFile(), new TypeReference<>() {});
+    }
+
+    private static Node node(String id, NodeKind kind, String name, String fqcn, String file) {
+        return Node.v1(id, kind, name, fqcn, null, null, new SourceRange(file, 1, 1, 2, 1),
+                List.of(), List.of(), List.of(), Map.of(), "h");
+    }
+}
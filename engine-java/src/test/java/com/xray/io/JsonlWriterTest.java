@@ -0,0 +1,109 @@
+package com.xray.io;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xray.model.Node;
+import com.xray.model.SourceRange;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static com.xray.model.Enums.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class JsonlWriterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void writesOneCompactObjectPerLine() throws IOException {
+        List<Node> nodes = nodes(3);
+        Path file = tempDir.resolve("nodes.jsonl");
+        // tiny flush size: objects span several buffer flushes
+        try (JsonlWriter writer = new JsonlWriter(file, objectMapper, JsonlWriter.Options.builder().flushBytes(16).build())) {
+            for (Node node : nodes) {
+                writer.writeObject(node);
+            }
+            writer.commit();
+        }
+
+        StringBuilder expected = new StringBuilder();
+        for (Node node : nodes) {
+            expected.append(objectMapper.writeValueAsString(node)).append('\n');
+        }
+        assertEquals(expected.toString(), Files.readString(file));
+    }
+
+    @Test
+    void gzipOutputReadsBackThroughJsonlReader() throws IOException {
+        List<Node> nodes = nodes(2_000);
+        Path file = tempDir.resolve("nodes.jsonl.gz");
+        try (JsonlWriter writer = new JsonlWriter(file, objectMapper, JsonlWriter.Options.builder().gzip(true).build())) {
+            for (Node node : nodes) {
+                writer.writeObject(node);
+            }
+            writer.commit();
+        }
+
+        List<Node> read = new ArrayList<>();
+        try (BufferedReader reader = JsonlReader.open(file)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                read.add(objectMapper.readValue(line, Node.class));
+            }
+        }
+        assertEquals(nodes, read);
+        assertTrue(Files.size(file) < nodes.size() * 50L, "expected compressed output");
+    }
+
+    @Test
+    void failedWriteLeavesPreviousFileInPlace() throws IOException {
+        Path file = tempDir.resolve("edges.jsonl");
+        Files.writeString(file, "{\"previous\":true}\n");
+
+        assertThrows(IllegalStateException.class, () -> {
+            try (JsonlWriter writer = new JsonlWriter(file, objectMapper)) {
+                writer.writeObject(nodes(1).getFirst());
+                throw new IllegalStateException("producer failed");
+            }
+        });
+
+        assertEquals("{\"previous\":true}\n", Files.readString(file));
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(List.of(file), files.toList());
+        }
+    }
+
+    @Test
+    void committedFileHasDefaultPermissions() throws IOException {
+        assumeTrue(tempDir.getFileSystem().supportedFileAttributeViews().contains("posix"));
+        Path plain = Files.createFile(tempDir.resolve("plain.json"));
+        Path file = tempDir.resolve("nodes.jsonl");
+        try (JsonlWriter writer = new JsonlWriter(file, objectMapper)) {
+            writer.commit();
+        }
+
+        assertEquals(Files.getPosixFilePermissions(plain), Files.getPosixFilePermissions(file));
+    }
+
+    private static List<Node> nodes(int count) {
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            nodes.add(Node.v1("com.acme.Ünïcode" + i + "#run():void", NodeKind.METHOD, "run", "com.acme.Ünïcode" + i,
+                    "void run()", "com.acme.Ünïcode" + i, new SourceRange("src/Ünïcode" + i + ".java", 1, 1, 3, 1),
+                    List.of("public"), List.of("GetMapping"), List.of("http.GET"), Map.of("httpPath", "/run"), "h" + i));
+        }
+        return nodes;
+    }
+}
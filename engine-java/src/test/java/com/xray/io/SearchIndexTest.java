@@ -0,0 +1,102 @@
+package com.xray.io;
+
+import com.xray.model.Node;
+import com.xray.model.SourceRange;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static com.xray.model.Enums.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void answersPrefixSubstringAndCamelHumpQueries() throws IOException {
+        NodeIndexes indexes = new NodeIndexes();
+        indexes.add(node("com.acme.OrderService", NodeKind.CLASS, "OrderService"));
+        indexes.add(node("com.acme.OrderServiceImpl", NodeKind.CLASS, "OrderServiceImpl"));
+        indexes.add(node("com.acme.OrderServiceImpl#findById(String):Order", NodeKind.METHOD, "findById"));
+        indexes.add(node("com.acme.Other#findById(long):Other", NodeKind.METHOD, "findById"));
+        indexes.add(node("com.acme.Größe#übersetze():void", NodeKind.METHOD, "übersetze"));
+        indexes.add(node("com.acme.Registry#service():Object", NodeKind.METHOD, "service"));
+        indexes.add(node("bean:orderService", NodeKind.BEAN, "orderServiceBean"));
+
+        SearchIndex index = open(indexes);
+        assertEquals(5, index.termCount());
+
+        assertEquals(List.of("OrderService", "OrderServiceImpl"), names(index.prefix("orderser", 10)));
+        assertEquals(List.of("OrderService"), names(index.prefix("Order", 1)));
+        assertEquals(List.of(), names(index.prefix("Orderx", 10)));
+
+        assertEquals(List.of("OrderService", "OrderServiceImpl"), names(index.substring("RSERV", 10)));
+        assertEquals(List.of("OrderServiceImpl"), names(index.substring("impl", 10)));
+        assertEquals(List.of("übersetze"), names(index.substring("ÜBERS", 10)));
+        assertEquals(List.of("findById"), names(index.substring("yi", 10)));
+        assertEquals(List.of(), names(index.substring("ServiceOrder", 10)));
+
+        assertEquals(List.of("OrderServiceImpl"), names(index.camelHump("OSI", 10)));
+        assertEquals(List.of("OrderService", "OrderServiceImpl"), names(index.camelHump("os", 10)));
+        assertEquals(List.of("findById"), names(index.camelHump("fbi", 10)));
+
+        SearchIndex.Match findById = index.prefix("findById", 10).get(0);
+        assertEquals(List.of("com.acme.OrderServiceImpl#findById(String):Order", "com.acme.Other#findById(long):Other"), findById.ids());
+
+        // prefix matches rank before camel-hump and substring matches
+        assertEquals(List.of("service", "OrderService", "OrderServiceImpl"), names(index.search("serv", 10)));
+        assertEquals(List.of("OrderServiceImpl"), names(index.search("osi", 10)));
+    }
+
+    @Test
+    void matchesABruteForceScanOnGeneratedNames() throws IOException {
+        Random random = new Random(42);
+        String[] words = {"Order", "Service", "Repository", "find", "By", "Id", "save", "Http", "Client", "Impl", "x", "Ä"};
+        NodeIndexes indexes = new NodeIndexes();
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            StringBuilder name = new StringBuilder();
+            for (int w = 0, n = 1 + random.nextInt(4); w < n; w++) {
+                name.append(words[random.nextInt(words.length)]);
+            }
+            names.add(name.toString());
+            indexes.add(node("n" + i, i % 2 == 0 ? NodeKind.CLASS : NodeKind.METHOD, name.toString()));
+        }
+        SearchIndex index = open(indexes);
+
+        for (String query : List.of("ord", "ORDERSERV", "serviceorder", "yid", "Impl", "Ä", "httpcl", "zzz", "ByIdx")) {
+            TreeSet<String> expectedPrefix = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+            TreeSet<String> expectedSubstring = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+            for (String name : names) {
+                if (name.toLowerCase().startsWith(query.toLowerCase())) expectedPrefix.add(name);
+                if (name.toLowerCase().contains(query.toLowerCase())) expectedSubstring.add(name);
+            }
+            assertEquals(expectedPrefix, new TreeSet<>(names(index.prefix(query, Integer.MAX_VALUE))), query);
+            assertEquals(expectedSubstring, new TreeSet<>(names(index.substring(query, Integer.MAX_VALUE))), query);
+        }
+    }
+
+    private SearchIndex open(NodeIndexes indexes) throws IOException {
+        OutputLayout layout = new OutputLayout(tempDir);
+        new IndexWriter(null).writeSearchIndex(layout, indexes);
+        return SearchIndex.open(layout.getSearchIndex());
+    }
+
+    private static List<String> names(List<SearchIndex.Match> matches) {
+        return matches.stream().map(SearchIndex.Match::name).toList();
+    }
+
+    private static Node node(String id, NodeKind kind, String name) {
+        return Node.v1(id, kind, name, id, null, null, new SourceRange("src/A.java", 1, 1, 2, 1),
+                List.of(), List.of(), List.of(), Map.of(), "h");
+    }
+}
@@ -0,0 +1,41 @@
+package com.xray.metrics;
+
+import com.xray.model.Profile;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParseWorkRecorderTest {
+
+    @Test
+    void keepsTheSlowestFilesSlowestFirstAndSumsEverything() {
+        ParseWorkRecorder recorder = new ParseWorkRecorder(2);
+        recorder.add("A.java", usage(3, 1, 100));
+        recorder.add("B.java", usage(9, 2, 200));
+        recorder.add("C.java", usage(1, 3, 300));
+        recorder.add("D.java", usage(5, 4, 400));
+
+        Profile.ParseWork parseWork = recorder.result();
+
+        assertEquals(4, parseWork.files());
+        assertEquals(10.0, parseWork.cpuMs());
+        assertEquals(1000, parseWork.allocatedBytes());
+        assertEquals(List.of("B.java", "D.java"), parseWork.slowestFiles().stream().map(Profile.FileTiming::file).toList());
+        assertEquals(9.0, parseWork.slowestFiles().getFirst().wallMs());
+    }
+
+    @Test
+    void zeroSlowestFilesKeepsOnlyTotals() {
+        ParseWorkRecorder recorder = new ParseWorkRecorder(0);
+        recorder.add("A.java", usage(3, 1, 100));
+
+        assertEquals(1, recorder.result().files());
+        assertTrue(recorder.result().slowestFiles().isEmpty());
+    }
+
+    private static ThreadUsage usage(long wallMs, long cpuMs, long allocatedBytes) {
+        return new ThreadUsage(wallMs * 1_000_000, cpuMs * 1_000_000, allocatedBytes);
+    }
+}
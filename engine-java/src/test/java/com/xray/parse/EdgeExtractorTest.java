@@ -0,0 +1,128 @@
+package com.xray.parse;
+
+import com.xray.model.Edge;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static com.xray.model.Enums.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class EdgeExtractorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void extractsContainsImplementsOverrideAndCallEdges() throws IOException {
+        List<Edge> edges = extract(Map.of(
+                "OrderRepository.java", """
+                        package com.acme.repo;
+                        public interface OrderRepository {
+                            void save(String order);
+                        }
+                        """,
+                "JdbcOrderRepository.java", """
+                        package com.acme.repo;
+                        class JdbcOrderRepository implements OrderRepository {
+                            public void save(String order) { validate(order); }
+                            private void validate(String order) {}
+                        }
+                        """,
+                "OrderService.java", """
+                        package com.acme.service;
+                        import com.acme.repo.OrderRepository;
+                        class OrderService {
+                            private final OrderRepository orderRepository;
+                            OrderService(OrderRepository orderRepository) { this.orderRepository = orderRepository; }
+                            void place(String order) {
+                                orderRepository.save(order);
+                                this.orderRepository.save(order);
+                                Ids.next();
+                                unknown().call();
+                            }
+                        }
+                        """,
+                "Ids.java", """
+                        package com.acme.service;
+                        class Ids { static String next() { return ""; } }
+                        """
+        ));
+
+        assertHasEdge(edges, EdgeType.CONTAINS, "com.acme.service.OrderService", "com.acme.service.OrderService#place(String):void");
+        assertHasEdge(edges, EdgeType.IMPLEMENTS, "com.acme.repo.JdbcOrderRepository", "com.acme.repo.OrderRepository");
+        assertHasEdge(edges, EdgeType.OVERRIDE,
+                "com.acme.repo.JdbcOrderRepository#save(String):void",
+                "com.acme.repo.OrderRepository#save(String):void");
+        assertHasEdge(edges, EdgeType.CALL,
+                "com.acme.service.OrderService#place(String):void",
+                "com.acme.repo.OrderRepository#save(String):void");
+        assertHasEdge(edges, EdgeType.CALL,
+                "com.acme.service.OrderService#place(String):void",
+                "com.acme.service.Ids#next():String");
+        assertHasEdge(edges, EdgeType.CALL,
+                "com.acme.repo.JdbcOrderRepository#save(String):void",
+                "com.acme.repo.JdbcOrderRepository#validate(String):void");
+
+        // the same caller -> callee pair is emitted once even when called twice
+        assertEquals(1, edges.stream()
+                .filter(e -> e.type() == EdgeType.CALL && e.toId().equals("com.acme.repo.OrderRepository#save(String):void"))
+                .count());
+        assertEquals(edges.size(), edges.stream().map(Edge::id).distinct().count());
+    }
+
+    @Test
+    void callsResolveThroughSuperclassAndOverloadsByArgumentCount() throws IOException {
+        List<Edge> edges = extract(Map.of(
+                "Base.java", """
+                        package com.acme;
+                        class Base {
+                            void log(String message) {}
+                            void log(String message, Object arg) {}
+                        }
+                        """,
+                "Child.java", """
+                        package com.acme;
+                        class Child extends Base {
+                            void run() { log("a", 1); super.log("b"); }
+                        }
+                        """
+        ));
+
+        assertHasEdge(edges, EdgeType.CALL, "com.acme.Child#run():void", "com.acme.Base#log(String,Object):void");
+        assertHasEdge(edges, EdgeType.CALL, "com.acme.Child#run():void", "com.acme.Base#log(String):void");
+        assertTrue(edges.stream().noneMatch(e -> e.type() == EdgeType.IMPLEMENTS));
+    }
+
+    private List<Edge> extract(Map<String, String> sources) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (Map.Entry<String, String> source : sources.entrySet()) {
+            Path file = tempDir.resolve(source.getKey());
+            Files.writeString(file, source.getValue());
+            files.add(file);
+        }
+        AstIndex astIndex = ParsePipeline.builder()
+                .javaParserFactory(JavaParserFactory::initialize)
+                .build()
+                .parseAll(files.stream().sorted())
+                .astIndex();
+        List<Edge> edges = new ArrayList<>();
+        EdgeExtractor.extract(astIndex, edges::add);
+        return edges;
+    }
+
+    private static void assertHasEdge(List<Edge> edges, EdgeType type, String fromId, String toId) {
+        assertTrue(
+                edges.stream().anyMatch(e -> e.type() == type && e.fromId().equals(fromId) && e.toId().equals(toId)),
+                () -> "Missing " + type + " edge " + fromId + " -> " + toId + " in " + Stream.of(edges.toArray())
+                        .map(Object::toString).toList()
+        );
+    }
+}
@@ -0,0 +1,73 @@
+package com.xray.parse;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import static com.xray.model.Enums.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class EdgeIdTest {
+
+    @Test
+    void matchesTheStringBasedSha256Ids() throws Exception {
+        List<String[]> cases = List.of(
+                new String[]{"com.acme.A", "com.acme.A#run():void", null},
+                new String[]{"com.acme.A#run(String,int):void", "com.acme.B#call(java.util.List<java.lang.String>):void", "x"},
+                new String[]{"", "", ""},
+                new String[]{"com.acme.Größe#übersetze(String):void", "日本.語#処理():void", "é"},
+                new String[]{"a😀b", "lone\uD800surrogate", "|"},
+                new String[]{"x".repeat(1_000), "y".repeat(5_000), null}
+        );
+        for (EdgeType type : EdgeType.values()) {
+            for (String[] c : cases) {
+                assertEquals(referenceId(type, c[0], c[1], c[2]), EdgeId.of(type, c[0], c[1], c[2]));
+            }
+        }
+    }
+
+    @Test
+    void idsAreUniqueAcrossManyEdgesAndThreads() throws Exception {
+        int edges = 200_000;
+        Callable<Set<String>> generate = () -> {
+            Set<String> ids = new HashSet<>();
+            for (int i = 0; i < edges; i++) {
+                ids.add(EdgeId.of(EdgeType.CALL, "com.acme.C" + (i % 1000) + "#m" + i + "():void", "com.acme.T#t" + i + "():void", null));
+            }
+            return ids;
+        };
+
+        Set<String> sequential = generate.call();
+        assertEquals(edges, sequential.size(), "64-bit edge ids collided");
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Set<String>>> futures = IntStream.range(0, 4).mapToObj(i -> executor.submit(generate)).toList();
+            for (Future<Set<String>> future : futures) {
+                assertEquals(sequential, future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * The original implementation: one concatenated payload, SHA-256, String.format hex
+     */
+    private static String referenceId(EdgeType type, String fromId, String toId, String extra) throws Exception {
+        String payload = type + "|" + fromId + "|" + toId + "|" + (extra == null ? "" : extra);
+        byte[] d = MessageDigest.getInstance("SHA-256").digest(payload.getBytes(StandardCharsets.UTF_8));
+        StringBuilder sb = new StringBuilder();
+        for (byte b : d) sb.append(String.format("%02x", b));
+        return "e:" + sb.substring(0, 16);
+    }
+}
@@ -0,0 +1,133 @@
+package com.xray.parse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xray.model.ParsePipelineResult;
+import com.xray.spring.SpringDetectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParseCacheTest {
+
+    private static final long UNBOUNDED = Long.MAX_VALUE;
+
+    @TempDir
+    Path tempDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void unchangedFilesInAnotherCheckoutComeFromTheCache() throws IOException {
+        Path cacheDir = tempDir.resolve("cache");
+        List<Path> branchA = writeSources(tempDir.resolve("a"), 10);
+        // same content at other paths, plus one changed file
+        List<Path> branchB = writeSources(tempDir.resolve("b"), 10);
+        Files.writeString(branchB.get(4), Files.readString(branchB.get(4)).replace("void save", "void store"));
+
+        ParsePipelineResult first = pipeline(new ParseCache(cacheDir, "v1", UNBOUNDED, objectMapper)).parseAll(branchA.stream());
+        assertEquals(10, first.filesParsedOk());
+        assertEquals(0, first.filesReused());
+
+        ParsePipelineResult cached = pipeline(new ParseCache(cacheDir, "v1", UNBOUNDED, objectMapper)).parseAll(branchB.stream());
+        assertEquals(9, cached.filesReused());
+        assertEquals(1, cached.filesParsedOk());
+
+        ParsePipelineResult uncached = pipeline(null).parseAll(branchB.stream());
+        assertEquals(nodesJsonl(uncached.astIndex()), nodesJsonl(cached.astIndex()));
+        assertEquals(List.copyOf(uncached.astIndex().classRefs().values()), List.copyOf(cached.astIndex().classRefs().values()));
+        assertTrue(nodesJsonl(cached.astIndex()).contains("spring.service"));
+
+        // entries of another engine version are never read
+        ParsePipelineResult otherVersion = pipeline(new ParseCache(cacheDir, "v2", UNBOUNDED, objectMapper)).parseAll(branchB.stream());
+        assertEquals(0, otherVersion.filesReused());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntriesBeyondTheSizeBound() throws IOException {
+        Path cacheDir = tempDir.resolve("cache");
+        List<Path> files = writeSources(tempDir.resolve("repo"), 10);
+        pipeline(new ParseCache(cacheDir, "v1", UNBOUNDED, objectMapper)).parseAll(files.stream());
+        List<Path> entries = entries(cacheDir);
+        assertEquals(10, entries.size());
+        long total = 0;
+        for (Path entry : entries) {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(0));
+            total += Files.size(entry);
+        }
+
+        // a hit makes an entry recently used
+        ParseCache cache = new ParseCache(cacheDir, "v1", total / 2, objectMapper);
+        String usedHash = SourceFile.read(files.get(7)).contentHash();
+        assertTrue(cache.lookup(files.get(7), usedHash).isPresent());
+        cache.evict();
+
+        List<Path> left = entries(cacheDir);
+        assertTrue(left.size() < 10 && !left.isEmpty(), left.toString());
+        assertTrue(left.stream().mapToLong(this::size).sum() <= total / 2);
+        assertTrue(left.stream().anyMatch(entry -> entry.getFileName().toString().equals(usedHash + ".json")));
+    }
+
+    private ParsePipeline pipeline(ParseCache parseCache) {
+        return ParsePipeline.builder()
+                .javaParserFactory(JavaParserFactory::initialize)
+                .detectors(SpringDetectors.all())
+                .parseCache(parseCache)
+                .build();
+    }
+
+    private List<Path> entries(Path cacheDir) throws IOException {
+        try (Stream<Path> files = Files.walk(cacheDir)) {
+            return files.filter(Files::isRegularFile).toList();
+        }
+    }
+
+    private long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static List<Path> writeSources(Path dir, int count) throws IOException {
+        Files.createDirectories(dir);
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Path file = dir.resolve("Service" + i + ".java");
+            Files.writeString(file, """
+                    package com.acme.p%d;
+
+                    @Service
+                    class Service%d {
+                        private final OrderRepository repo;
+                        String find(String id) { return repo.load(id); }
+                        void save(java.util.List<String> items) { find("x"); }
+                    }
+                    """.formatted(i % 3, i));
+            files.add(file);
+        }
+        return files;
+    }
+
+    private static String nodesJsonl(AstIndex astIndex) {
+        ObjectMapper objectMapper = new ObjectMapper();
+        StringBuilder sb = new StringBuilder();
+        NodeBuilder.buildNodes(astIndex).forEach(node -> {
+            try {
+                sb.append(objectMapper.writeValueAsString(node)).append('\n');
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        });
+        return sb.toString();
+    }
+}
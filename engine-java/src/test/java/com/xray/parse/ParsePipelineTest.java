@@ -0,0 +1,190 @@
+package com.xray.parse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.xray.model.ParsePipelineResult;
+import com.xray.spring.SpringDetectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParsePipelineTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void parallelParsingProducesSameNodesAsSequential() throws IOException {
+        List<Path> files = writeSources(40);
+
+        ParsePipelineResult sequential = pipeline(1, 0)
+                .parseAll(files.stream());
+        ParsePipelineResult parallel = pipeline(4, 0)
+                .parseAll(files.stream());
+
+        assertEquals(sequential.javaFilesFound(), parallel.javaFilesFound());
+        assertEquals(sequential.filesParsedOk(), parallel.filesParsedOk());
+        assertEquals(sequential.filesParsedFailed(), parallel.filesParsedFailed());
+        assertEquals(sequential.parseProblems(), parallel.parseProblems());
+        assertEquals(nodesJsonl(sequential.astIndex()), nodesJsonl(parallel.astIndex()));
+    }
+
+    @Test
+    void parallelParsingCollectsProblemsFromBrokenFiles() throws IOException {
+        List<Path> files = writeSources(8);
+        Path broken = tempDir.resolve("Broken.java");
+        Files.writeString(broken, "class Broken { void m( }");
+        files.add(3, broken);
+
+        ParsePipelineResult result = pipeline(3, 0)
+                .parseAll(files.stream());
+
+        assertEquals(9, result.javaFilesFound());
+        assertEquals(8, result.filesParsedOk());
+        assertEquals(1, result.filesParsedFailed());
+        assertFalse(result.parseProblems().isEmpty());
+        assertTrue(result.parseProblems().stream().allMatch(p -> p.file().equals(broken.toString())));
+    }
+
+    @Test
+    void prefetchedReadsProduceSameNodesAsInlineReads() throws IOException {
+        List<Path> files = writeSources(25);
+
+        ParsePipelineResult inline = pipeline(1, 0)
+                .parseAll(files.stream());
+        ParsePipelineResult prefetchedSequential = pipeline(1, 4)
+                .parseAll(files.stream());
+        ParsePipelineResult prefetchedParallel = pipeline(3, 2)
+                .parseAll(files.stream());
+
+        assertEquals(nodesJsonl(inline.astIndex()), nodesJsonl(prefetchedSequential.astIndex()));
+        assertEquals(nodesJsonl(inline.astIndex()), nodesJsonl(prefetchedParallel.astIndex()));
+        assertEquals(25, prefetchedParallel.filesParsedOk());
+    }
+
+    @Test
+    void prefetchReportsUnreadableFileAsProblem() throws IOException {
+        List<Path> files = writeSources(3);
+        Path missing = tempDir.resolve("Missing.java");
+        files.add(1, missing);
+
+        ParsePipelineResult result = pipeline(2, 2)
+                .parseAll(files.stream());
+
+        assertEquals(4, result.javaFilesFound());
+        assertEquals(3, result.filesParsedOk());
+        assertEquals(1, result.filesParsedFailed());
+        assertEquals(missing.toString(), result.parseProblems().getFirst().file());
+    }
+
+    @Test
+    void streamingModeDetectsPerFileAndReleasesAsts() throws IOException {
+        List<Path> files = writeSources(12);
+
+        ParsePipelineResult retained = ParsePipeline.builder()
+                .javaParserFactory(JavaParserFactory::initialize)
+                .build()
+                .parseAll(files.stream());
+        Detector.runAll(retained.astIndex(), SpringDetectors.all());
+
+        ParsePipelineResult streamed = ParsePipeline.builder()
+                .javaParserFactory(JavaParserFactory::initialize)
+                .workers(3)
+                .detectors(SpringDetectors.all())
+                .releaseAsts(true)
+                .build()
+                .parseAll(files.stream());
+
+        assertEquals(12, retained.astIndex().fileToCu().size());
+        assertTrue(streamed.astIndex().fileToCu().isEmpty());
+        assertEquals(nodesJsonl(retained.astIndex()), nodesJsonl(streamed.astIndex()));
+        assertTrue(nodesJsonl(streamed.astIndex()).contains("spring.service"));
+    }
+
+    @Test
+    void fastProfileKeepsRangesWithoutTokensOrComments() throws IOException {
+        List<Path> files = writeSources(6);
+        Path commented = tempDir.resolve("Commented.java");
+        Files.writeString(commented, """
+                package com.acme;
+
+                /** Javadoc */
+                @Service
+                class Commented {
+                    // line comment
+                    void run() { helper(); }
+                    void helper() {}
+                }
+                """);
+        files.add(commented);
+
+        ParsePipelineResult full = ParsePipeline.builder()
+                .javaParserFactory(() -> JavaParserFactory.initialize(ParseProfile.FULL))
+                .build()
+                .parseAll(files.stream());
+        ParsePipelineResult fast = ParsePipeline.builder()
+                .javaParserFactory(() -> JavaParserFactory.initialize(ParseProfile.FAST))
+                .build()
+                .parseAll(files.stream());
+
+        assertEquals(nodesJsonl(full.astIndex()), nodesJsonl(fast.astIndex()));
+        CompilationUnit fullCu = full.astIndex().fileToCu().get(commented);
+        CompilationUnit fastCu = fast.astIndex().fileToCu().get(commented);
+        assertEquals(2, fullCu.getAllComments().size());
+        assertTrue(fastCu.getAllComments().isEmpty());
+        assertTrue(fullCu.getTokenRange().isPresent());
+        assertTrue(fastCu.findAll(Node.class).stream().noneMatch(node -> node.getTokenRange().isPresent()));
+        MethodCallExpr call = fastCu.findFirst(MethodCallExpr.class).orElseThrow();
+        assertEquals(7, call.getBegin().orElseThrow().line);
+        assertEquals(fullCu.findFirst(MethodCallExpr.class).orElseThrow().getRange(), call.getRange());
+    }
+
+    private static ParsePipeline pipeline(int workers, int prefetchFiles) {
+        return ParsePipeline.builder()
+                .javaParserFactory(JavaParserFactory::initialize)
+                .workers(workers)
+                .prefetchFiles(prefetchFiles)
+                .build();
+    }
+
+    private List<Path> writeSources(int count) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Path file = tempDir.resolve("Service" + i + ".java");
+            Files.writeString(file, """
+                    package com.acme.p%d;
+
+                    @Service
+                    class Service%d {
+                        String find(String id) { return id; }
+                        void save(java.util.List<String> items) {}
+                        static class Inner { int size() { return 0; } }
+                    }
+                    """.formatted(i % 5, i));
+            files.add(file);
+        }
+        return files;
+    }
+
+    private static String nodesJsonl(AstIndex astIndex) {
+        ObjectMapper objectMapper = new ObjectMapper();
+        StringBuilder sb = new StringBuilder();
+        NodeBuilder.buildNodes(astIndex).forEach(node -> {
+            try {
+                sb.append(objectMapper.writeValueAsString(node)).append('\n');
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        });
+        return sb.toString();
+    }
+}
@@ -0,0 +1,135 @@
+package com.xray.parse;
+
+import com.xray.config.EngineConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RepoScannerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void skipsExcludedAndIgnoredFilesAndDirectories() throws IOException {
+        Path repo = tempDir.resolve("repo");
+        Path sources = repo.resolve("src/main/java/com/acme");
+        write(repo.resolve(".gitignore"), "# build output\n*.generated.java\n!Keep.generated.java\n");
+        write(sources.resolve("OrderService.java"), "class OrderService {}");
+        write(sources.resolve("Orders.generated.java"), "class Orders {}");
+        write(sources.resolve("Keep.generated.java"), "class Keep {}");
+        write(sources.resolve(".gitignore"), "gen/\n/Local*.java\n");
+        write(sources.resolve("gen/Gen.java"), "class Gen {}");
+        write(sources.resolve("LocalDraft.java"), "class LocalDraft {}");
+        write(sources.resolve("billing/LocalInvoice.java"), "class LocalInvoice {}");
+        write(sources.resolve("legacy/Old.java"), "class Old {}");
+        write(sources.resolve("node_modules/pkg/Vendored.java"), "class Vendored {}");
+        write(repo.resolve("other/Outside.java"), "class Outside {}");
+
+        List<String> files = javaFiles(config(repo, Set.of("src/main/java/**"), Set.of("**/node_modules/**", "**/legacy/**")));
+
+        assertEquals(List.of(
+                "src/main/java/com/acme/Keep.generated.java",
+                "src/main/java/com/acme/OrderService.java",
+                // anchored to its .gitignore's dir, so only matches there
+                "src/main/java/com/acme/billing/LocalInvoice.java"
+        ), files.stream().sorted().toList());
+    }
+
+    @Test
+    void listsFilesInTheOrderOfASequentialWalk() throws IOException {
+        Path repo = tempDir.resolve("repo");
+        for (int module = 0; module < 4; module++) {
+            for (int pkg = 0; pkg < 5; pkg++) {
+                for (int cls = 0; cls < 3; cls++) {
+                    write(repo.resolve("src/main/java/m%d/p%d/C%d.java".formatted(module, pkg, cls)), "class C {}");
+                }
+                write(repo.resolve("src/main/java/m%d/p%d/notes.txt".formatted(module, pkg)), "");
+            }
+        }
+
+        List<Path> expected;
+        try (Stream<Path> walk = Files.walk(repo.toAbsolutePath().normalize())) {
+            expected = walk.filter(p -> p.toString().endsWith(".java")).toList();
+        }
+        assertEquals(expected, RepoScanner.findJavaFiles(config(repo, Set.of("src/main/java/**"), Set.of())));
+    }
+
+    @Test
+    void findsSourceRootsOutsideIgnoredAndExcludedDirectories() throws IOException {
+        Path repo = tempDir.resolve("repo");
+        write(repo.resolve(".gitignore"), "target/\n");
+        Files.createDirectories(repo.resolve("api/src/main/java"));
+        Files.createDirectories(repo.resolve("core/src/main/java"));
+        Files.createDirectories(repo.resolve("core/src/test/java"));
+        Files.createDirectories(repo.resolve("core/target/generated-sources/src/main/java"));
+        Files.createDirectories(repo.resolve("web/node_modules/lib/src/main/java"));
+
+        List<Path> roots = RepoScanner.findSourceRoots(config(repo, Set.of(), Set.of("**/node_modules/**")));
+
+        Path root = repo.toAbsolutePath().normalize();
+        assertEquals(List.of(root.resolve("api/src/main/java"), root.resolve("core/src/main/java")), roots);
+    }
+
+    @Test
+    void walksOnlyTheLiteralPrefixesOfIncludeGlobs() {
+        Path root = Path.of("/repo");
+        assertEquals(List.of(root.resolve("src/main/java")),
+                RepoScanner.walkRoots(root, Set.of("src/main/java/**", "src/main/java/com/**")));
+        assertEquals(List.of(root.resolve("a/src"), root.resolve("b")),
+                RepoScanner.walkRoots(root, Set.of("a/src/**/*.java", "b/*/Main.java")));
+        assertEquals(List.of(root), RepoScanner.walkRoots(root, Set.of("src/main/java/**", "**/gen/*.java")));
+        assertEquals(List.of(root), RepoScanner.walkRoots(root, Set.of()));
+    }
+
+    @Test
+    void gitIgnoreRulesFollowGitPatternSemantics() {
+        assertTrue(matches("*.log", "a/b/debug.log", false));
+        assertTrue(matches("build/", "module/build", true));
+        assertFalse(matches("build/", "module/build", false));
+        assertTrue(matches("/dist", "dist", true));
+        assertFalse(matches("/dist", "web/dist", true));
+        assertTrue(matches("docs/**/*.md", "docs/a/b/c.md", false));
+        assertTrue(matches("docs/**/*.md", "docs/c.md", false));
+        assertTrue(matches("**/gen", "a/gen", true));
+        assertTrue(matches("**/gen", "gen", true));
+        assertTrue(matches("out/**", "out/x/y", false));
+        assertTrue(matches("Test[0-9].java", "Test7.java", false));
+        assertFalse(matches("Test[!0-9].java", "Test7.java", false));
+        assertNull(GitIgnore.Rule.parse("# comment"));
+        assertNull(GitIgnore.Rule.parse("   "));
+        assertTrue(GitIgnore.Rule.parse("!keep.log").negated());
+    }
+
+    private static boolean matches(String rule, String path, boolean directory) {
+        return GitIgnore.Rule.parse(rule).matches(path, directory);
+    }
+
+    private List<String> javaFiles(EngineConfig engineConfig) throws IOException {
+        Path root = engineConfig.repoRoot().toAbsolutePath().normalize();
+        return RepoScanner.findJavaFiles(engineConfig).stream()
+                .map(file -> root.relativize(file).toString().replace('\\', '/'))
+                .toList();
+    }
+
+    private EngineConfig config(Path repo, Set<String> includeGlobs, Set<String> excludeGlobs) {
+        return new EngineConfig(repo, repo.resolve(".xray"), EngineConfig.Options.builder()
+                .includeGlobs(includeGlobs)
+                .excludeGlobs(excludeGlobs)
+                .maxDepth(500)
+                .build());
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+}
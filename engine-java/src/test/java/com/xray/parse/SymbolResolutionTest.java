@@ -0,0 +1,95 @@
+package com.xray.parse;
+
+import com.xray.model.Edge;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static com.xray.model.Enums.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SymbolResolutionTest {
+
+    private static final Map<String, String> SOURCES = new TreeMap<>(Map.of(
+            "com/acme/a/Order.java", """
+                    package com.acme.a;
+                    public class Order {
+                        public Order next() { return this; }
+                        public void ship() {}
+                    }
+                    """,
+            "com/acme/b/Order.java", """
+                    package com.acme.b;
+                    public class Order {}
+                    """,
+            "com/acme/Service.java", """
+                    package com.acme;
+                    import java.util.List;
+                    class Service {
+                        void handle(com.acme.a.Order order) { order.next().ship(); }
+                        void handle(com.acme.b.Order order) {}
+                        void handleAll(List<com.acme.a.Order> orders) { orders.forEach(o -> o.ship()); }
+                    }
+                    """
+    ));
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void resolvedParameterTypesKeepOverloadsApart() throws IOException {
+        AstIndex astIndex = parse(1);
+
+        assertTrue(astIndex.nodeDrafts().containsKey("com.acme.Service#handle(com.acme.a.Order):void"));
+        assertTrue(astIndex.nodeDrafts().containsKey("com.acme.Service#handle(com.acme.b.Order):void"));
+        assertTrue(astIndex.nodeDrafts().containsKey("com.acme.Service#handleAll(java.util.List<com.acme.a.Order>):void"));
+    }
+
+    @Test
+    void resolvedCallsLinkChainedReceivers() throws IOException {
+        List<Edge> edges = new ArrayList<>();
+        EdgeExtractor.extract(parse(1), edges::add);
+
+        // order.next().ship(): the chained receiver has no declared type, only the solver can link it
+        assertTrue(edges.stream().anyMatch(e -> e.type() == EdgeType.CALL
+                && e.fromId().equals("com.acme.Service#handle(com.acme.a.Order):void")
+                && e.toId().equals("com.acme.a.Order#ship():void")
+                && e.confidence() == Confidence.HIGH));
+        assertTrue(edges.stream().anyMatch(e -> e.type() == EdgeType.CALL
+                && e.toId().equals("com.acme.a.Order#next():Order")));
+    }
+
+    @Test
+    void parallelResolutionMatchesSequential() throws IOException {
+        AstIndex sequential = parse(1);
+        AstIndex parallel = parse(4);
+
+        assertEquals(sequential.nodeDrafts(), parallel.nodeDrafts());
+        assertEquals(sequential.classRefs(), parallel.classRefs());
+    }
+
+    private AstIndex parse(int workers) throws IOException {
+        Path sourceRoot = tempDir.resolve("src/main/java");
+        List<Path> files = new ArrayList<>();
+        for (Map.Entry<String, String> source : SOURCES.entrySet()) {
+            Path file = sourceRoot.resolve(source.getKey());
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, source.getValue());
+            files.add(file);
+        }
+        SymbolResolution symbolResolution = SymbolResolution.create(List.of(sourceRoot), List.of(), 1_000, ParseProfile.FAST);
+        return ParsePipeline.builder()
+                .javaParserFactory(() -> JavaParserFactory.initialize(symbolResolution))
+                .workers(workers)
+                .build()
+                .parseAll(files.stream())
+                .astIndex();
+    }
+}
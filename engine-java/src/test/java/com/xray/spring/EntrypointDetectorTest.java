@@ -152,7 +152,9 @@ class EntrypointDetectorTest {
         Path sourceFile = tempDir.resolve(fileName);
         Files.writeString(sourceFile, source);
 
-        ParsePipeline parsePipeline = new ParsePipeline(JavaParserFactory.initialize());
+        ParsePipeline parsePipeline = ParsePipeline.builder()
+                .javaParserFactory(JavaParserFactory::initialize)
+                .build();
         return parsePipeline.parseAll(Stream.of(sourceFile)).astIndex();
     }
 
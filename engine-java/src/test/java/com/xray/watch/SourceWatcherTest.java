@@ -0,0 +1,173 @@
+package com.xray.watch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xray.config.EngineConfig;
+import com.xray.config.WatchConfig;
+import com.xray.engine.Engine;
+import com.xray.engine.EngineFactory;
+import com.xray.parse.JavaParserFactory;
+import com.xray.parse.ParsePipeline;
+import com.xray.spring.SpringDetectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SourceWatcherTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ObjectMapper objectMapper = EngineFactory.objectMapper();
+
+    @Test
+    void reanalyzesAfterChangesReusingUntouchedFiles() throws Exception {
+        Path repo = tempDir.resolve("repo");
+        Path sources = repo.resolve("src/main/java/com/acme");
+        Files.createDirectories(sources);
+        Files.writeString(sources.resolve("OrderService.java"), """
+                package com.acme;
+                class OrderService { void place() {} }
+                """);
+        Files.writeString(sources.resolve("Audit.java"), """
+                package com.acme;
+                class Audit { void record() {} }
+                """);
+        Path out = tempDir.resolve("out");
+        Files.createDirectories(out);
+        EngineConfig engineConfig = new EngineConfig(repo, out, EngineConfig.Options.builder()
+                .includeGlobs(Set.of("src/main/java/**"))
+                .excludeGlobs(Set.of())
+                .maxDepth(500)
+                .outputShards(1)
+                .build());
+        Engine engine = new Engine(ParsePipeline.builder()
+                .javaParserFactory(JavaParserFactory::initialize)
+                .detectors(SpringDetectors.all())
+                .build(), objectMapper, true);
+
+        SourceWatcher watcher = new SourceWatcher(engine, new WatchConfig(engineConfig, Duration.ofMillis(50)));
+        Thread watching = Thread.ofPlatform().start(() -> {
+            try {
+                watcher.run();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        try {
+            awaitTrue(() -> meta(out).has("stats"));
+            assertEquals(2, meta(out).path("stats").path("filesParsedOk").asLong());
+
+            Files.writeString(sources.resolve("Audit.java"), """
+                    package com.acme;
+                    class Audit { void record() {} void purge() {} }
+                    """);
+            Path billing = Files.createDirectories(sources.resolve("billing"));
+            Files.writeString(billing.resolve("Invoice.java"), """
+                    package com.acme.billing;
+                    class Invoice { void send() {} }
+                    """);
+            awaitTrue(() -> {
+                String nodes = Files.readString(out.resolve("nodes.jsonl"));
+                // meta.json is written last
+                return nodes.contains("purge") && nodes.contains("Invoice")
+                        && meta(out).path("stats").path("javaFilesFound").asLong() == 3;
+            });
+            JsonNode stats = meta(out).path("stats");
+            assertTrue(stats.path("filesReused").asLong() >= 1, stats.toString());
+        } finally {
+            watcher.close();
+            watching.join(Duration.ofSeconds(10));
+        }
+        assertFalse(watching.isAlive());
+    }
+
+    @Test
+    void watchesModulesCreatedAfterStart() throws Exception {
+        Path repo = tempDir.resolve("repo");
+        Path orders = repo.resolve("orders/src/main/java/com/acme");
+        Files.createDirectories(orders);
+        Files.writeString(orders.resolve("OrderService.java"), """
+                package com.acme;
+                class OrderService { void place() {} }
+                """);
+        Path out = Files.createDirectories(repo.resolve(".xray"));
+        EngineConfig engineConfig = new EngineConfig(repo, out, EngineConfig.Options.builder()
+                .includeGlobs(Set.of())
+                .excludeGlobs(Set.of())
+                .maxDepth(500)
+                .outputShards(1)
+                .resolveSymbols(true)
+                .resolutionCacheSize(1_000)
+                .classpath(List.of())
+                .build());
+        List<List<Path>> engineRoots = new CopyOnWriteArrayList<>();
+
+        SourceWatcher watcher = new SourceWatcher(sourceRoots -> {
+            engineRoots.add(sourceRoots);
+            return EngineFactory.create(engineConfig, sourceRoots, objectMapper, true);
+        }, new WatchConfig(engineConfig, Duration.ofMillis(50)));
+        Thread watching = Thread.ofPlatform().start(() -> {
+            try {
+                watcher.run();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        try {
+            awaitTrue(() -> meta(out).path("stats").path("filesParsedOk").asLong() == 1);
+
+            Path billing = Files.createDirectories(repo.resolve("billing/src/main/java/com/acme/billing"));
+            Files.writeString(billing.resolve("Invoice.java"), """
+                    package com.acme.billing;
+                    class Invoice { void send() {} }
+                    """);
+            awaitTrue(() -> Files.readString(out.resolve("nodes.jsonl")).contains("Invoice"));
+
+            // files of the new module are watched from now on
+            Files.writeString(billing.resolve("Invoice.java"), """
+                    package com.acme.billing;
+                    class Invoice { void send() {} void cancel() {} }
+                    """);
+            awaitTrue(() -> Files.readString(out.resolve("nodes.jsonl")).contains("cancel"));
+            assertEquals(List.of(repo.resolve("billing/src/main/java"), repo.resolve("orders/src/main/java")),
+                    engineRoots.getLast());
+        } finally {
+            watcher.close();
+            watching.join(Duration.ofSeconds(10));
+        }
+        assertFalse(watching.isAlive());
+    }
+
+    private JsonNode meta(Path out) throws IOException {
+        return objectMapper.readTree(out.resolve("meta.json").toFile());
+    }
+
+    /**
+     * Output files are replaced while the watcher runs, so failed reads count as not yet
+     */
+    private static void awaitTrue(Callable<Boolean> condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(20).toNanos();
+        while (true) {
+            try {
+                if (condition.call()) {
+                    return;
+                }
+            } catch (Exception e) {
+                // retry
+            }
+            assertTrue(System.nanoTime() < deadline, "condition not met in time");
+            Thread.sleep(50);
+        }
+    }
+}
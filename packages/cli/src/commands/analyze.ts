@@ -3,11 +3,28 @@ import path from "node:path";
 import { run, runInherit } from "../lib/proc.js";
 import { ensureDir } from "../lib/fs.js";
 import { assetPath } from "../lib/assets.js";
+import { type DaemonResponse, findDaemon, sendDaemonRequest } from "../lib/daemon.js";
 
-export async function analyzeCmd(repoPath: string) {
+export async function analyzeCmd(repoPath: string, opts: { watch?: boolean } = {}) {
   const repoRoot = path.resolve(repoPath);
   const outDir = path.join(repoRoot, ".xray");
   ensureDir(outDir);
+  const engineArgs = ["--input", repoRoot, "--out", outDir];
+
+  // A running daemon (xray daemon start) skips JVM startup and reuses what it parsed last time;
+  // watch mode keeps its own engine in the foreground instead
+  const daemon = opts.watch ? null : await findDaemon();
+  if (daemon) {
+    console.log("Analyzing repo:", repoRoot, `(engine daemon, pid ${daemon.pid})`);
+    const res = await sendDaemonRequest(daemon, "analyze", engineArgs)
+      .catch((e: Error): DaemonResponse => ({ ok: false, error: e.message }));
+    if (res.ok) {
+      console.log(`Done in ${res.elapsedMs} ms. Artifacts in:`, outDir);
+      return;
+    }
+    console.error("Engine daemon failed:", res.error);
+    console.error("Falling back to a one-off engine run");
+  }
 
   const java = await run("java", ["-version"]);
   if (java.code !== 0) {
@@ -24,8 +41,9 @@ export async function analyzeCmd(repoPath: string) {
 
   console.log("Analyzing repo:", repoRoot);
   console.log("Output dir:", outDir);
+  if (opts.watch) console.log("Watching for changes, Ctrl+C to stop");
 
-  const code = await runInherit("java", ["-jar", jar, "--input", repoRoot, "--out", outDir]);
+  const code = await runInherit("java", ["-jar", jar, ...engineArgs, ...(opts.watch ? ["--watch"] : [])]);
   if (code !== 0) {
     console.error(`Analyzer failed (exit code ${code}).`);
     process.exit(code);
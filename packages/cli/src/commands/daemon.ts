@@ -0,0 +1,46 @@
+import fs from "node:fs";
+import path from "node:path";
+import { assetPath } from "../lib/assets.js";
+import { daemonDir, findDaemon, sendDaemonRequest, startDaemon } from "../lib/daemon.js";
+
+export async function daemonCmd(action: string, opts: { idleTimeout?: string }) {
+  const running = await findDaemon();
+
+  if (action === "status") {
+    if (running) console.log(`Engine daemon running (pid ${running.pid}, port ${running.port}, engine ${running.engineVersion})`);
+    else console.log("Engine daemon not running");
+    return;
+  }
+
+  if (action === "stop") {
+    if (!running) {
+      console.log("Engine daemon not running");
+      return;
+    }
+    await sendDaemonRequest(running, "shutdown");
+    console.log(`Engine daemon stopped (pid ${running.pid})`);
+    return;
+  }
+
+  if (action !== "start") {
+    console.error(`Unknown action: ${action} (expected start, stop or status)`);
+    process.exit(2);
+  }
+
+  if (running) {
+    console.log(`Engine daemon already running (pid ${running.pid})`);
+    return;
+  }
+  const jar = assetPath("xray-engine.jar");
+  if (!fs.existsSync(jar)) {
+    console.error("Engine jar not found:", jar);
+    console.error("Run: npm run bundle -w xray");
+    process.exit(1);
+  }
+  const info = await startDaemon(jar, opts.idleTimeout);
+  if (!info) {
+    console.error("Engine daemon did not start, see", path.join(daemonDir(), "daemon.log"));
+    process.exit(1);
+  }
+  console.log(`Engine daemon started (pid ${info.pid}); xray analyze will use it`);
+}
@@ -2,6 +2,7 @@ import { Command } from "commander";
 import { doctorCmd } from "./commands/doctor.js";
 import { openCmd } from "./commands/open.js";
 import { analyzeCmd } from "./commands/analyze.js";
+import { daemonCmd } from "./commands/daemon.js";
 
 const program = new Command();
 
@@ -21,7 +22,15 @@ program
 program
     .command("analyze")
     .argument("[path]", "repo path", ".")
+    .option("--watch", "keep running and re-analyze changed files")
     .description("Analyze project and generate .xray artifacts")
     .action(analyzeCmd);
 
+program
+    .command("daemon")
+    .argument("[action]", "start | stop | status", "start")
+    .option("--idle-timeout <minutes>", "exit after this many idle minutes (default 30)")
+    .description("Keep a warm engine running that xray analyze reuses")
+    .action(daemonCmd);
+
 program.parse();
@@ -0,0 +1,84 @@
+import fs from "node:fs";
+import net from "node:net";
+import os from "node:os";
+import path from "node:path";
+import { spawn } from "node:child_process";
+
+export type DaemonInfo = { port: number; pid: number; token: string; engineVersion: string };
+
+export type DaemonResponse = {
+  ok: boolean;
+  error?: string;
+  engineVersion?: string;
+  stats?: Record<string, number>;
+  elapsedMs?: number;
+};
+
+// Same location as DaemonConfig.defaultDaemonFile in the engine
+export function daemonDir() {
+  const cacheHome = process.env.XDG_CACHE_HOME?.trim() || path.join(os.homedir(), ".cache");
+  return path.join(cacheHome, "xray");
+}
+
+export function daemonFile() {
+  return path.join(daemonDir(), "daemon.json");
+}
+
+function readDaemonInfo(): DaemonInfo | null {
+  try {
+    return JSON.parse(fs.readFileSync(daemonFile(), "utf8")) as DaemonInfo;
+  } catch {
+    return null;
+  }
+}
+
+// One request per connection, answered with one JSON line (see EngineDaemon)
+export function sendDaemonRequest(info: DaemonInfo, command: string, args?: string[]): Promise<DaemonResponse> {
+  return new Promise((resolve, reject) => {
+    const socket = net.connect({ host: "127.0.0.1", port: info.port });
+    let data = "";
+    socket.setEncoding("utf8");
+    socket.on("connect", () => socket.write(JSON.stringify({ token: info.token, command, args }) + "\n"));
+    socket.on("data", (chunk: string) => (data += chunk));
+    socket.on("end", () => {
+      try {
+        resolve(JSON.parse(data) as DaemonResponse);
+      } catch (e) {
+        reject(e);
+      }
+    });
+    socket.on("error", reject);
+  });
+}
+
+// The running daemon, or null; a daemon file left behind by a daemon that is gone is removed
+export async function findDaemon(): Promise<DaemonInfo | null> {
+  const info = readDaemonInfo();
+  if (!info) return null;
+  try {
+    const res = await sendDaemonRequest(info, "ping");
+    return res.ok ? info : null;
+  } catch {
+    fs.rmSync(daemonFile(), { force: true });
+    return null;
+  }
+}
+
+// Starts a detached daemon logging to daemon.log and waits until it answers
+export async function startDaemon(jar: string, idleTimeoutMinutes?: string): Promise<DaemonInfo | null> {
+  fs.mkdirSync(daemonDir(), { recursive: true });
+  const log = fs.openSync(path.join(daemonDir(), "daemon.log"), "a");
+  const args = ["-jar", jar, "--daemon", "--daemon-file", daemonFile()];
+  if (idleTimeoutMinutes) args.push("--idle-timeout", idleTimeoutMinutes);
+  const child = spawn("java", args, { detached: true, stdio: ["ignore", log, log] });
+  child.unref();
+  fs.closeSync(log);
+
+  const deadline = Date.now() + 15_000;
+  while (Date.now() < deadline) {
+    const info = await findDaemon();
+    if (info) return info;
+    await new Promise((r) => setTimeout(r, 100));
+  }
+  return null;
+}
@@ -0,0 +1,275 @@
+import crypto from "node:crypto";
+import fs from "node:fs";
+import os from "node:os";
+import path from "node:path";
+import { Readable, type Transform } from "node:stream";
+import { pipeline } from "node:stream/promises";
+import zlib from "node:zlib";
+import type express from "express";
+import { type GraphStore, type LineArtifact } from "./graph";
+import { type LineIndex } from "./lines";
+
+export type Encoding = "br" | "gzip" | "identity";
+
+const ENCODINGS: Encoding[] = ["br", "gzip", "identity"];
+const ARTIFACT_DIRS = [".", "index", "flows"]; // where the engine writes, relative to the output dir
+const DEFAULT_PAGE_LINES = 1000;
+const MAX_PAGE_LINES = 10_000;
+const NEWLINE = Buffer.from("\n");
+
+type Artifact = {
+    name: string;     // path relative to the output dir, without .gz
+    file: string;
+    gzipped: boolean; // written with --gzip
+    bytes: number;    // on disk
+};
+
+/**
+ * Engine artifacts over HTTP, for clients that need more than GraphStore queries return.
+ *
+ * Whole files: /api/artifacts/<name> in the encoding the client prefers (br, gzip, identity). The engine writes
+ * each file in one encoding; the others are compressed (or decompressed) once per analysis into a temp dir and
+ * served from there, so a variant costs its compression once, not per request. Until a variant is ready the
+ * stored encoding is served when the client accepts it. The temp dir belongs to this server (output dir and
+ * process) and is removed by close(), or by the next server of the output dir when this one never got to it.
+ *
+ * Pages: /api/stream/<nodes|edges|flows|impact> as NDJSON, limit lines from an opaque cursor; the response
+ * links the next page. Cursors name the analysis they were issued for and fail with 410 once it is replaced.
+ *
+ * Every response carries a strong ETag made of GraphStore.tag (a hash of meta.json), the resource and its
+ * encoding, with Cache-Control: no-cache: a reload after an unchanged analysis is a 304. Whole files also
+ * answer Range requests (on the encoded bytes).
+ */
+export class ArtifactServer {
+    private readonly variants = new Map<string, Promise<string>>(); // variant file -> its compression
+    private readonly ready = new Set<string>();
+    private tag = "";
+    private listing: Artifact[] = [];
+
+    constructor(private readonly store: GraphStore, private readonly variantRoot = defaultVariantRoot(store.outDir)) {}
+
+    list(): { name: string; bytes: number }[] {
+        return this.artifacts().map(({ name, bytes }) => ({ name, bytes }));
+    }
+
+    async send(req: express.Request, res: express.Response, name: string) {
+        const artifact = this.artifacts().find((candidate) => candidate.name === name);
+        if (!artifact) {
+            res.status(404).json({ ok: false, error: `Unknown artifact: ${name}` });
+            return;
+        }
+        const stored: Encoding = artifact.gzipped ? "gzip" : "identity";
+        let encoding = negotiate(req);
+        let file = artifact.file;
+        if (encoding !== stored) {
+            const variant = this.variant(artifact, encoding);
+            if (this.ready.has(variant.file)) {
+                file = variant.file;
+            } else if (req.acceptsEncodings(stored)) {
+                encoding = stored;
+            } else {
+                file = await variant.done;
+            }
+        }
+        res.set({
+            "ETag": `"${this.tag}-${name}-${encoding}"`,
+            "Cache-Control": "no-cache",
+            "Vary": "Accept-Encoding",
+            "Content-Type": contentType(name),
+        });
+        if (encoding !== "identity") {
+            res.set("Content-Encoding", encoding);
+        }
+        // send answers If-None-Match and Range/If-Range against the ETag set above
+        res.sendFile(file, { etag: false, lastModified: false, cacheControl: false });
+    }
+
+    async page(req: express.Request, res: express.Response, artifact: LineArtifact) {
+        const tag = this.store.tag();
+        const cursor = typeof req.query.cursor === "string" ? req.query.cursor : "";
+        const [cursorTag, cursorLine] = cursor ? cursor.split(".") : [tag, "0"];
+        const from = Number.parseInt(cursorLine ?? "", 10);
+        if (cursorTag !== tag || !(from >= 0)) {
+            res.status(410).json({ ok: false, error: "Stale or invalid cursor, the analysis changed: start from the first page" });
+            return;
+        }
+        const requested = Number.parseInt(typeof req.query.limit === "string" ? req.query.limit : "", 10);
+        const limit = requested > 0 ? Math.min(requested, MAX_PAGE_LINES) : DEFAULT_PAGE_LINES;
+        const encoding = negotiate(req);
+        res.set({
+            "ETag": `"${tag}-${artifact}-${from}-${limit}-${encoding}"`,
+            "Cache-Control": "no-cache",
+            "Vary": "Accept-Encoding",
+        });
+        if (req.fresh) {
+            res.status(304).end();
+            return;
+        }
+
+        const lines = this.store.lines(artifact);
+        const to = Math.min(from + limit, lines.size);
+        res.set({ "Content-Type": "application/x-ndjson", "X-Total-Count": String(lines.size) });
+        if (to < lines.size) {
+            const next = `${tag}.${to}`;
+            res.set({ "X-Next-Cursor": next, "Link": `<${req.baseUrl}${req.path}?cursor=${next}&limit=${limit}>; rel="next"` });
+        }
+        if (encoding !== "identity") {
+            res.set("Content-Encoding", encoding);
+        }
+        await pipeline([Readable.from(linesOf(lines, from, to)), ...encoder(encoding, 4), res]);
+    }
+
+    /**
+     * The artifacts of the current analysis; a new analysis drops the variants of the previous one
+     */
+    private artifacts(): Artifact[] {
+        const tag = this.store.tag();
+        if (tag !== this.tag) {
+            const previous = this.tag;
+            this.tag = tag;
+            this.variants.clear();
+            this.ready.clear();
+            this.listing = listArtifacts(this.store.outDir);
+            if (previous) {
+                fs.rm(path.join(this.variantRoot, previous), { recursive: true, force: true }, () => {});
+            }
+        }
+        return this.listing;
+    }
+
+    /**
+     * Removes every variant written by this server
+     */
+    close() {
+        const pending = [...this.variants.values()];
+        this.variants.clear();
+        this.ready.clear();
+        fs.rmSync(this.variantRoot, { recursive: true, force: true });
+        // compressions still running recreate their directory
+        void Promise.allSettled(pending).then(() => fs.rm(this.variantRoot, { recursive: true, force: true }, () => {}));
+    }
+
+    private variant(artifact: Artifact, encoding: Encoding): { file: string; done: Promise<string> } {
+        const file = path.join(this.variantRoot, this.tag, `${artifact.name}.${encoding}`);
+        let done = this.variants.get(file);
+        if (!done) {
+            done = compress(artifact, encoding, file).then(() => {
+                this.ready.add(file);
+                return file;
+            });
+            // a failed compression is retried by the next request
+            done.catch(() => this.variants.delete(file));
+            this.variants.set(file, done);
+        }
+        return { file, done };
+    }
+}
+
+/**
+ * Per output dir and process: servers of other repos, or of the same one, never share (or delete) each other's variants.
+ * Roots left behind by servers of this output dir that are gone (killed before close) are removed.
+ */
+function defaultVariantRoot(outDir: string): string {
+    const key = crypto.createHash("sha1").update(path.resolve(outDir)).digest("hex").slice(0, 12);
+    const prefix = `xray-server-${key}-`;
+    removeStaleVariantRoots(prefix);
+    return path.join(os.tmpdir(), `${prefix}${process.pid}`);
+}
+
+function removeStaleVariantRoots(prefix: string) {
+    let names: string[];
+    try {
+        names = fs.readdirSync(os.tmpdir());
+    } catch {
+        return;
+    }
+    for (const name of names) {
+        const pid = Number(name.slice(prefix.length));
+        if (name.startsWith(prefix) && Number.isInteger(pid) && pid > 0 && !isRunning(pid)) {
+            fs.rmSync(path.join(os.tmpdir(), name), { recursive: true, force: true });
+        }
+    }
+}
+
+function isRunning(pid: number): boolean {
+    try {
+        process.kill(pid, 0);
+        return true;
+    } catch (err) {
+        // EPERM: running, as another user
+        return (err as NodeJS.ErrnoException).code === "EPERM";
+    }
+}
+
+function* linesOf(lines: LineIndex, from: number, to: number): Generator<Buffer> {
+    for (let line = from; line < to; line++) {
+        yield Buffer.concat([lines.read(line), NEWLINE]);
+    }
+}
+
+/**
+ * Writes the artifact in the given encoding to file, through a temp file so a half-written variant is never served
+ */
+async function compress(artifact: Artifact, encoding: Encoding, file: string) {
+    await fs.promises.mkdir(path.dirname(file), { recursive: true });
+    const temp = `${file}.${process.pid}.tmp`;
+    const decode: Transform[] = artifact.gzipped ? [zlib.createGunzip()] : [];
+    await pipeline([fs.createReadStream(artifact.file), ...decode, ...encoder(encoding, 5, artifact.bytes), fs.createWriteStream(temp)]);
+    await fs.promises.rename(temp, file);
+}
+
+/**
+ * brotliQuality: 11 (the default) takes minutes on artifacts of hundreds of MB, the lower levels compress nearly as well
+ */
+function encoder(encoding: Encoding, brotliQuality: number, sizeHint = 0): Transform[] {
+    switch (encoding) {
+        case "br":
+            return [zlib.createBrotliCompress({
+                params: {
+                    [zlib.constants.BROTLI_PARAM_QUALITY]: brotliQuality,
+                    [zlib.constants.BROTLI_PARAM_SIZE_HINT]: sizeHint,
+                },
+            })];
+        case "gzip":
+            return [zlib.createGzip()];
+        case "identity":
+            return [];
+    }
+}
+
+function negotiate(req: express.Request): Encoding {
+    return (req.acceptsEncodings(ENCODINGS) || "identity") as Encoding;
+}
+
+function listArtifacts(outDir: string): Artifact[] {
+    const artifacts: Artifact[] = [];
+    for (const dir of ARTIFACT_DIRS) {
+        let entries: fs.Dirent[];
+        try {
+            entries = fs.readdirSync(path.join(outDir, dir), { withFileTypes: true });
+        } catch {
+            continue;
+        }
+        for (const entry of entries) {
+            if (!entry.isFile() || entry.name.startsWith(".")) {
+                continue;
+            }
+            const file = path.join(outDir, dir, entry.name);
+            const gzipped = entry.name.endsWith(".gz");
+            artifacts.push({
+                name: path.posix.join(dir, gzipped ? entry.name.slice(0, -3) : entry.name),
+                file,
+                gzipped,
+                bytes: fs.statSync(file).size,
+            });
+        }
+    }
+    return artifacts;
+}
+
+function contentType(name: string): string {
+    if (name.endsWith(".jsonl")) {
+        return "application/x-ndjson";
+    }
+    return name.endsWith(".json") ? "application/json" : "application/octet-stream";
+}
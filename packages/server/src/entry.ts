@@ -1,13 +1,34 @@
+import os from "node:os";
+import { isMainThread } from "node:worker_threads";
+import { isGraphLoader, runGraphLoader } from "./graph";
+import { runQueryWorker } from "./pool";
 import { startServer } from "./server";
 
 
 const port = Number(process.env.XRAY_PORT || "4173");
 const uiDir = process.env.XRAY_UI_DIR!;
 const repoRoot = process.env.XRAY_REPO_ROOT!;
+const outDir = process.env.XRAY_OUT_DIR || undefined;
+const queryWorkers = Number(process.env.XRAY_QUERY_WORKERS) || undefined;
 
-if (!uiDir || !repoRoot) {
-    console.error("Missing XRAY_UI_DIR or XRAY_REPO_ROOT");
-    process.exit(1);
-}
+if (isGraphLoader()) {
+    // GraphStore loads the graph for traversals on a thread running this bundle
+    runGraphLoader();
+} else if (!isMainThread) {
+    // a QueryPool worker: the pool starts this bundle as its worker script
+    runQueryWorker();
+} else {
+    if (!uiDir || !repoRoot) {
+        console.error("Missing XRAY_UI_DIR or XRAY_REPO_ROOT");
+        process.exit(1);
+    }
 
-startServer({ port, uiDir, repoRoot });
\ No newline at end of file
+    const { shutdown } = startServer({ port, uiDir, repoRoot, outDir, workerScript: __filename, queryWorkers });
+    // Ctrl-C on xray open, or a kill: the process ends without the http server ever closing
+    for (const signal of ["SIGINT", "SIGTERM"] as const) {
+        process.once(signal, () => {
+            shutdown();
+            process.exit(128 + os.constants.signals[signal]);
+        });
+    }
+}
\ No newline at end of file
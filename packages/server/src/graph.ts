@@ -0,0 +1,629 @@
+import crypto from "node:crypto";
+import fs from "node:fs";
+import path from "node:path";
+import { parentPort, Worker, workerData } from "node:worker_threads";
+import { type LineColumns, LineFile, LineIndex, stringField } from "./lines";
+import { LruCache } from "./lru";
+
+const CACHE_ENTRIES = 2000;
+
+const EDGE_TYPES = ["CONTAINS", "DI", "CALL", "ENTRYPOINT_TO_METHOD", "PERSISTENCE_HIT", "OUTBOUND_CALL", "OVERRIDE", "IMPLEMENTS"];
+
+export type Json = Record<string, unknown>;
+
+export type Direction = "out" | "in" | "both";
+
+// .jsonl artifacts that can be paged through by line (see GraphStore.lines)
+export const LINE_ARTIFACTS = ["nodes", "edges", "flows", "impact"] as const;
+
+export type LineArtifact = typeof LINE_ARTIFACTS[number];
+
+export type Neighbour = {
+    direction: "out" | "in";
+    edge: Json;
+    node: Json;
+};
+
+/**
+ * Edge columns and adjacency of one analysis (tag), in SharedArrayBuffers: posting it to a worker shares the
+ * memory instead of copying it (see QueryPool)
+ */
+export type SharedGraph = {
+    tag: string;
+    nodeCount: number;
+    from: Int32Array;
+    to: Int32Array;
+    types: Uint8Array; // index into EDGE_TYPES
+    outgoing: Adjacency;
+    incoming: Adjacency;
+};
+
+export class NotAnalyzedError extends Error {}
+
+/**
+ * Read side of an engine output dir (.xray/) for the query API.
+ *
+ * Each artifact is loaded on first use into ordinal-based structures: node ids are numbered once, and everything
+ * else (name and file postings, edge adjacency) holds typed arrays of ordinals. Node and edge JSON stays in the
+ * .jsonl files; only the byte range of each line is kept and a line is parsed when a query returns it.
+ * Results are kept in an LRU cache. Everything is dropped when meta.json changes, i.e. after the next analysis.
+ *
+ * The node and edge tables behind sharedGraph() are built on a loader thread when loaderScript is given (a full
+ * scan of the node and edge files, decompressed under --gzip), so the first traversal after an analysis does not
+ * stall the event loop; see runGraphLoader.
+ */
+export class GraphStore {
+    private readonly cache = new LruCache<string, unknown>(CACHE_ENTRIES);
+    private metaMtime = -1;
+    private metaTag = "";
+    private nodes: NodeTable | null = null;
+    private edges: EdgeTable | null = null;
+    private names: NameIndex | null = null;
+    private files: Map<string, Int32Array> | null = null;
+    private shared: SharedGraph | null = null;
+    private loading: Promise<void> | null = null;
+    private loadError: Error | null = null;
+    private readonly flowLines = new Map<string, LineIndex>();
+
+    /**
+     * loaderScript: the module that calls runGraphLoader on worker threads; without it the graph is loaded on the
+     * calling thread
+     */
+    constructor(readonly outDir: string, private readonly loaderScript?: string) {}
+
+    /**
+     * Identifies the current analysis: a hash of meta.json, which every run rewrites (analyzedAt, stats).
+     * Anything derived from the output alone can use it as its version, e.g. in ETags.
+     */
+    tag(): string {
+        this.refresh();
+        return this.metaTag;
+    }
+
+    /**
+     * The cached result of compute for key, computed on a miss against the current output
+     */
+    query<T>(key: string, compute: () => T): T {
+        this.refresh();
+        const cached = this.cache.get(key);
+        if (cached !== undefined) {
+            return cached as T;
+        }
+        const result = compute();
+        this.cache.set(key, result);
+        return result;
+    }
+
+    meta(): Json {
+        return readJson(path.join(this.outDir, "meta.json"));
+    }
+
+    node(id: string): Json | null {
+        const nodes = this.nodeTable();
+        const ordinal = nodes.ordinals.get(id);
+        return ordinal === undefined ? null : nodes.read(ordinal);
+    }
+
+    /**
+     * Exact match on name, lowercase name or fqcn
+     */
+    nodesNamed(name: string, limit: number): Json[] {
+        const names = this.nameIndex();
+        const key = lowerBound(names.keys, name);
+        if (names.keys[key] !== name) {
+            return [];
+        }
+        return this.readAll(names.postings.subarray(names.offsets[key], names.offsets[key + 1]), limit);
+    }
+
+    /**
+     * Case-insensitive name prefix (the lowercase names in name_to_ids.json), shortest keys first within a prefix run
+     */
+    search(prefix: string, limit: number): Json[] {
+        const names = this.nameIndex();
+        const lower = prefix.toLowerCase();
+        const found = new Set<number>();
+        for (let key = lowerBound(names.keys, lower); key < names.keys.length && found.size < limit; key++) {
+            if (!names.keys[key].startsWith(lower)) {
+                break;
+            }
+            for (let i = names.offsets[key]; i < names.offsets[key + 1] && found.size < limit; i++) {
+                found.add(names.postings[i]);
+            }
+        }
+        return this.readAll(Int32Array.from(found), limit);
+    }
+
+    nodesInFile(file: string): Json[] {
+        const ordinals = this.fileIndex().get(file);
+        return ordinals ? this.readAll(ordinals, ordinals.length) : [];
+    }
+
+    entrypoints(): Json[] {
+        const index = readJson(path.join(this.outDir, "index", "entrypoints.json")) as { http?: string[] };
+        const nodes = this.nodeTable();
+        return (index.http ?? [])
+            .map((id) => nodes.ordinals.get(id))
+            .filter((ordinal): ordinal is number => ordinal !== undefined)
+            .map((ordinal) => nodes.read(ordinal));
+    }
+
+    /**
+     * Edges of a node with the node at the other end; types: edge types to keep, empty for all
+     */
+    neighbours(id: string, direction: Direction, types: string[], limit: number): Neighbour[] | null {
+        const nodes = this.nodeTable();
+        const ordinal = nodes.ordinals.get(id);
+        if (ordinal === undefined) {
+            return null;
+        }
+        const edges = this.edgeTable();
+        const typeCodes = new Set(types.map((type) => EDGE_TYPES.indexOf(type)));
+        const result: Neighbour[] = [];
+        const collect = (adjacency: Adjacency, other: Int32Array, dir: "out" | "in") => {
+            for (let i = adjacency.offsets[ordinal]; i < adjacency.offsets[ordinal + 1] && result.length < limit; i++) {
+                const edge = adjacency.edges[i];
+                if (typeCodes.size === 0 || typeCodes.has(edges.types[edge])) {
+                    result.push({ direction: dir, edge: edges.read(edge), node: nodes.read(other[edge]) });
+                }
+            }
+        };
+        if (direction !== "in") {
+            collect(edges.outgoing, edges.to, "out");
+        }
+        if (direction !== "out") {
+            collect(edges.incoming, edges.from, "in");
+        }
+        return result;
+    }
+
+    ordinal(id: string): number | undefined {
+        return this.nodeTable().ordinals.get(id);
+    }
+
+    nodesAt(ordinals: ArrayLike<number>): Json[] {
+        return this.readAll(ordinals, ordinals.length);
+    }
+
+    edgesAt(edges: ArrayLike<number>): Json[] {
+        const table = this.edgeTable();
+        return Array.from(edges, (edge) => table.read(edge));
+    }
+
+    /**
+     * The graph structure for queries that run in workers; ordinals in their results are those of nodesAt and edgesAt.
+     * Null while it is being loaded on the loader thread: the load starts with the first call after an analysis.
+     * A failed load is thrown once, the next call starts over.
+     */
+    sharedGraph(): SharedGraph | null {
+        this.refresh();
+        if (!this.shared && (this.edges || !this.loaderScript)) {
+            const edges = this.edgeTable();
+            const { from, to, types, outgoing, incoming } = edges;
+            this.shared = { tag: this.metaTag, nodeCount: this.nodeTable().ids.length, from, to, types, outgoing, incoming };
+        }
+        if (this.shared) {
+            return this.shared;
+        }
+        if (this.loadError) {
+            const err = this.loadError;
+            this.loadError = null;
+            throw err;
+        }
+        this.loading ??= this.loadOffThread();
+        return null;
+    }
+
+    /**
+     * Line by line view of a .jsonl artifact, nodes across all shards; indexed on first use
+     */
+    lines(artifact: LineArtifact): LineIndex {
+        switch (artifact) {
+            case "nodes":
+                return this.nodeTable().lines;
+            case "edges":
+                return this.edgeTable().lines;
+            case "flows":
+            case "impact": {
+                let lines = this.flowLines.get(artifact);
+                if (!lines) {
+                    lines = LineIndex.build([LineFile.open(jsonlFile(path.join(this.outDir, "flows"), artifact))]);
+                    this.flowLines.set(artifact, lines);
+                }
+                return lines;
+            }
+        }
+    }
+
+    private readAll(ordinals: ArrayLike<number>, limit: number): Json[] {
+        const nodes = this.nodeTable();
+        const result: Json[] = [];
+        for (let i = 0; i < ordinals.length && i < limit; i++) {
+            result.push(nodes.read(ordinals[i]));
+        }
+        return result;
+    }
+
+    private refresh() {
+        let mtime: number;
+        try {
+            mtime = fs.statSync(path.join(this.outDir, "meta.json")).mtimeMs;
+        } catch {
+            throw new NotAnalyzedError(`No analysis output in ${this.outDir}, run: xray analyze`);
+        }
+        if (mtime !== this.metaMtime) {
+            this.nodes?.close();
+            this.edges?.close();
+            this.flowLines.forEach((lines) => lines.close());
+            this.nodes = this.edges = this.names = this.files = this.shared = null;
+            this.loading = this.loadError = null;
+            this.flowLines.clear();
+            this.cache.clear();
+            this.metaMtime = mtime;
+            this.metaTag = crypto.createHash("sha1").update(fs.readFileSync(path.join(this.outDir, "meta.json"))).digest("hex").slice(0, 16);
+        }
+    }
+
+    /**
+     * Runs runGraphLoader on descriptors opened here, so the tables read the files this analysis wrote even if
+     * the next one replaces them meanwhile. The result is dropped when the analysis changed before it arrived;
+     * tables built on this thread in the meantime (a node or neighbours query) are kept. Never rejects: a failure
+     * goes to loadError.
+     */
+    private async loadOffThread() {
+        const tag = this.metaTag;
+        const opened: { file: string; fd: number }[] = [];
+        const open = (file: string) => {
+            const entry = { file, fd: fs.openSync(file, "r") };
+            opened.push(entry);
+            return entry;
+        };
+        let request: LoadRequest | null = null;
+        let loaded: LoadedGraph | null = null;
+        let failure: unknown = null;
+        try {
+            request = { graphLoader: { nodeFiles: this.nodeFiles().map(open), edges: open(jsonlFile(this.outDir, "edges")) } };
+            loaded = await new Promise<LoadedGraph>((resolve, reject) => {
+                const worker = new Worker(this.loaderScript!, { workerData: request });
+                worker.once("message", resolve);
+                worker.once("error", reject);
+                worker.once("exit", (code) => reject(new Error(`Graph loader exited with code ${code}`)));
+            });
+        } catch (err) {
+            failure = err;
+        }
+        let current = false;
+        try {
+            this.refresh();
+            current = this.metaTag === tag;
+        } catch {
+            // output removed, the next request reports it
+        }
+        if (!current || !loaded || !request) {
+            opened.forEach(({ fd }) => fs.closeSync(fd));
+            if (current) {
+                this.loading = null;
+                this.loadError = failure instanceof Error ? failure : new Error(String(failure));
+            }
+            return;
+        }
+        this.loading = null;
+        const { nodeFiles, edges } = request.graphLoader;
+        const { nodeContent } = loaded;
+        if (!this.nodes) {
+            const files = nodeFiles.map(({ file, fd }, i) => LineFile.fromDescriptor(file, fd, buffer(nodeContent[i])));
+            this.nodes = NodeTable.of(loaded.nodeIds, LineIndex.of(files, loaded.nodeLines));
+        } else {
+            nodeFiles.forEach(({ fd }) => fs.closeSync(fd));
+        }
+        if (!this.edges) {
+            const file = LineFile.fromDescriptor(edges.file, edges.fd, buffer(loaded.edgeContent));
+            this.edges = EdgeTable.of(LineIndex.of([file], loaded.edgeLines), loaded.edgeColumns);
+        } else {
+            fs.closeSync(edges.fd);
+        }
+    }
+
+    private nodeFiles(): string[] {
+        const shards = (this.meta().nodeShards as { file: string }[] | undefined) ?? [];
+        return shards.length > 0
+            ? shards.map((shard) => path.join(this.outDir, shard.file))
+            : [jsonlFile(this.outDir, "nodes")];
+    }
+
+    private nodeTable(): NodeTable {
+        if (!this.nodes) {
+            this.nodes = NodeTable.build(this.nodeFiles().map((file) => LineFile.open(file)));
+        }
+        return this.nodes;
+    }
+
+    private edgeTable(): EdgeTable {
+        if (!this.edges) {
+            this.edges = EdgeTable.build(LineFile.open(jsonlFile(this.outDir, "edges")), this.nodeTable());
+        }
+        return this.edges;
+    }
+
+    private nameIndex(): NameIndex {
+        if (!this.names) {
+            this.names = NameIndex.load(path.join(this.outDir, "index", "name_to_ids.json"), this.nodeTable());
+        }
+        return this.names;
+    }
+
+    private fileIndex(): Map<string, Int32Array> {
+        if (!this.files) {
+            const nodes = this.nodeTable();
+            const fileToIds = readJson(path.join(this.outDir, "index", "file_to_ids.json")) as Record<string, string[]>;
+            this.files = new Map(Object.entries(fileToIds).map(([file, ids]) => [file, nodes.ordinalsOf(ids)]));
+        }
+        return this.files;
+    }
+}
+
+/**
+ * Node ids by ordinal, ordinal = line number across the node shards
+ */
+class NodeTable {
+    private constructor(
+        readonly ids: string[],
+        readonly ordinals: Map<string, number>,
+        readonly lines: LineIndex,
+    ) {}
+
+    static build(files: LineFile[]): NodeTable {
+        const ids: string[] = [];
+        const lines = LineIndex.build(files, (line) => {
+            ids.push(stringField(line, "id")!);
+        });
+        return NodeTable.of(ids, lines);
+    }
+
+    static of(ids: string[], lines: LineIndex): NodeTable {
+        const ordinals = new Map<string, number>();
+        ids.forEach((id, ordinal) => ordinals.set(id, ordinal));
+        return new NodeTable(ids, ordinals, lines);
+    }
+
+    read(ordinal: number): Json {
+        return this.lines.readJson(ordinal);
+    }
+
+    /**
+     * Ids that are not nodes (stale index entries) are left out
+     */
+    ordinalsOf(ids: string[]): Int32Array {
+        const ordinals: number[] = [];
+        for (const id of ids) {
+            const ordinal = this.ordinals.get(id);
+            if (ordinal !== undefined) {
+                ordinals.push(ordinal);
+            }
+        }
+        return Int32Array.from(ordinals);
+    }
+
+    close() {
+        this.lines.close();
+    }
+}
+
+export type Adjacency = {
+    offsets: Int32Array; // edges of node n: edges[offsets[n]] .. edges[offsets[n + 1] - 1]
+    edges: Int32Array;   // edge ordinals
+};
+
+/**
+ * Edge endpoints and types by edge ordinal, the line of each edge in edges.jsonl, and CSR adjacency in both
+ * directions. Edges with an end that is not a node get no ordinal. The endpoint, type and adjacency arrays are
+ * shared memory (see SharedGraph).
+ */
+class EdgeTable {
+    private constructor(
+        readonly lines: LineIndex,
+        readonly from: Int32Array,
+        readonly to: Int32Array,
+        readonly types: Uint8Array,
+        private readonly lineOf: Int32Array,
+        readonly outgoing: Adjacency,
+        readonly incoming: Adjacency,
+    ) {}
+
+    static of(lines: LineIndex, columns: EdgeColumns): EdgeTable {
+        const { from, to, types, lineOf, outgoing, incoming } = columns;
+        return new EdgeTable(lines, from, to, types, lineOf, outgoing, incoming);
+    }
+
+    static build(file: LineFile, nodes: NodeTable): EdgeTable {
+        const from: number[] = [];
+        const to: number[] = [];
+        const types: number[] = [];
+        const lineOf: number[] = [];
+        const lines = LineIndex.build([file], (line, lineNumber) => {
+            const fromOrdinal = nodes.ordinals.get(stringField(line, "fromId")!);
+            const toOrdinal = nodes.ordinals.get(stringField(line, "toId")!);
+            if (fromOrdinal === undefined || toOrdinal === undefined) {
+                return;
+            }
+            from.push(fromOrdinal);
+            to.push(toOrdinal);
+            types.push(EDGE_TYPES.indexOf(stringField(line, "type")!));
+            lineOf.push(lineNumber);
+        });
+        const fromArray = sharedInt32(from.length);
+        fromArray.set(from);
+        const toArray = sharedInt32(to.length);
+        toArray.set(to);
+        const typeArray = new Uint8Array(new SharedArrayBuffer(types.length));
+        typeArray.set(types);
+        return new EdgeTable(lines, fromArray, toArray, typeArray, Int32Array.from(lineOf),
+            adjacency(nodes.ids.length, fromArray), adjacency(nodes.ids.length, toArray));
+    }
+
+    columns(): EdgeColumns {
+        const { from, to, types, lineOf, outgoing, incoming } = this;
+        return { from, to, types, lineOf, outgoing, incoming };
+    }
+
+    read(edge: number): Json {
+        return this.lines.readJson(this.lineOf[edge]);
+    }
+
+    close() {
+        this.lines.close();
+    }
+}
+
+/**
+ * Counting sort of edge ordinals by their node, which keeps file order within a node
+ */
+function adjacency(nodeCount: number, nodeOf: Int32Array): Adjacency {
+    const offsets = sharedInt32(nodeCount + 1);
+    for (const node of nodeOf) {
+        offsets[node + 1]++;
+    }
+    for (let node = 0; node < nodeCount; node++) {
+        offsets[node + 1] += offsets[node];
+    }
+    const next = offsets.slice(0, nodeCount);
+    const edges = sharedInt32(nodeOf.length);
+    nodeOf.forEach((node, edge) => {
+        edges[next[node]++] = edge;
+    });
+    return { offsets, edges };
+}
+
+type EdgeColumns = {
+    from: Int32Array;
+    to: Int32Array;
+    types: Uint8Array;
+    lineOf: Int32Array;
+    outgoing: Adjacency;
+    incoming: Adjacency;
+};
+
+type LoadRequest = { graphLoader: { nodeFiles: { file: string; fd: number }[]; edges: { file: string; fd: number } } };
+
+/**
+ * The tables as columns; gzipped files come back decompressed, so they are not inflated twice
+ */
+type LoadedGraph = {
+    nodeIds: string[];
+    nodeLines: LineColumns;
+    nodeContent: (Uint8Array | null)[];
+    edgeLines: LineColumns;
+    edgeContent: Uint8Array | null;
+    edgeColumns: EdgeColumns;
+};
+
+/**
+ * Whether this thread was started as a graph loader (see GraphStore)
+ */
+export function isGraphLoader(): boolean {
+    return (workerData as Partial<LoadRequest> | null)?.graphLoader !== undefined;
+}
+
+/**
+ * The loader side of GraphStore: builds the node and edge tables from the descriptors it was given, posts them
+ * back as columns and exits. Shared arrays are shared, the others are moved rather than copied.
+ */
+export function runGraphLoader() {
+    const { nodeFiles, edges } = (workerData as LoadRequest).graphLoader;
+    const nodeLineFiles = nodeFiles.map(({ file, fd }) => LineFile.fromDescriptor(file, fd));
+    const nodeTable = NodeTable.build(nodeLineFiles);
+    const edgeFile = LineFile.fromDescriptor(edges.file, edges.fd);
+    const edgeTable = EdgeTable.build(edgeFile, nodeTable);
+    const loaded: LoadedGraph = {
+        nodeIds: nodeTable.ids,
+        nodeLines: nodeTable.lines.columns(),
+        nodeContent: nodeLineFiles.map((file) => file.content()),
+        edgeLines: edgeTable.lines.columns(),
+        edgeContent: edgeFile.content(),
+        edgeColumns: edgeTable.columns(),
+    };
+    const arrays: (ArrayBufferView | null)[] = [
+        ...Object.values(loaded.nodeLines), ...Object.values(loaded.edgeLines), loaded.edgeColumns.lineOf,
+        ...loaded.nodeContent, loaded.edgeContent,
+    ];
+    // only arrays that own their whole buffer: a view into a larger one would take the rest along
+    const transfer = arrays
+        .filter((array): array is ArrayBufferView => array !== null && !(array.buffer instanceof SharedArrayBuffer)
+            && array.byteOffset === 0 && array.byteLength === array.buffer.byteLength)
+        .map((array) => array.buffer as ArrayBuffer);
+    parentPort!.postMessage(loaded, [...new Set(transfer)]);
+}
+
+function buffer(content: Uint8Array | null): Buffer | null {
+    return content && Buffer.from(content.buffer, content.byteOffset, content.byteLength);
+}
+
+function sharedInt32(length: number): Int32Array {
+    return new Int32Array(new SharedArrayBuffer(length * Int32Array.BYTES_PER_ELEMENT));
+}
+
+/**
+ * name_to_ids.json as sorted keys and CSR postings of node ordinals, for binary-searched exact and prefix lookups
+ */
+class NameIndex {
+    private constructor(
+        readonly keys: string[],
+        readonly offsets: Int32Array,
+        readonly postings: Int32Array,
+    ) {}
+
+    static load(file: string, nodes: NodeTable): NameIndex {
+        const nameToIds = readJson(file) as Record<string, string[]>;
+        const keys = Object.keys(nameToIds).sort();
+        const offsets = new Int32Array(keys.length + 1);
+        const postings: Int32Array[] = keys.map((key, i) => {
+            const ordinals = nodes.ordinalsOf(nameToIds[key]);
+            offsets[i + 1] = offsets[i] + ordinals.length;
+            return ordinals;
+        });
+        const flat = new Int32Array(offsets[keys.length]);
+        postings.forEach((ordinals, i) => flat.set(ordinals, offsets[i]));
+        return new NameIndex(keys, offsets, flat);
+    }
+}
+
+/**
+ * Bit per EDGE_TYPES index of the given edge types, 0 (no filter) when empty; unknown types match nothing
+ */
+export function edgeTypeMask(types: string[]): number {
+    let mask = 0;
+    for (const type of types) {
+        const code = EDGE_TYPES.indexOf(type);
+        mask |= code < 0 ? 1 << 31 : 1 << code;
+    }
+    return mask;
+}
+
+/**
+ * First index whose key is >= key
+ */
+function lowerBound(keys: string[], key: string): number {
+    let low = 0;
+    let high = keys.length;
+    while (low < high) {
+        const mid = (low + high) >>> 1;
+        if (keys[mid] < key) {
+            low = mid + 1;
+        } else {
+            high = mid;
+        }
+    }
+    return low;
+}
+
+/**
+ * dir/name.jsonl, or name.jsonl.gz when the engine ran with --gzip
+ */
+function jsonlFile(dir: string, name: string): string {
+    const plain = path.join(dir, `${name}.jsonl`);
+    return fs.existsSync(plain) ? plain : `${plain}.gz`;
+}
+
+function readJson(file: string): Json {
+    return JSON.parse(fs.readFileSync(file, "utf8"));
+}
@@ -0,0 +1,192 @@
+import fs from "node:fs";
+import zlib from "node:zlib";
+
+const NEWLINE = 0x0a;
+const CHUNK_BYTES = 4 << 20;
+
+/**
+ * A .jsonl (or .jsonl.gz) artifact, scanned once to index its lines and then read back a line at a time by offset.
+ * Plain files stay on disk; gzip files cannot be read at an offset, so they are held decompressed in memory.
+ * The descriptor opened for the scan is kept for the reads: the engine replaces its files by rename, so offsets keep
+ * pointing into the file that was indexed even after a newer analysis has landed.
+ */
+export class LineFile {
+    private constructor(private readonly file: string, private readonly inflated: Buffer | null, private fd: number | null = null) {}
+
+    static open(file: string): LineFile {
+        return new LineFile(file, file.endsWith(".gz") ? zlib.gunzipSync(fs.readFileSync(file)) : null);
+    }
+
+    /**
+     * The file behind fd, a descriptor opened by another thread of this process (descriptors are per process).
+     * inflated: the content when gzipped, if already decompressed; otherwise it is read from fd.
+     */
+    static fromDescriptor(file: string, fd: number, inflated?: Buffer | null): LineFile {
+        if (inflated === undefined) {
+            inflated = file.endsWith(".gz") ? zlib.gunzipSync(fs.readFileSync(fd)) : null;
+        }
+        return new LineFile(file, inflated, fd);
+    }
+
+    /**
+     * The decompressed content of a gzipped file, null for a plain one
+     */
+    content(): Buffer | null {
+        return this.inflated;
+    }
+
+    /**
+     * Calls fn with every non-empty line (without its newline) and the line's offset. The line is a view into a
+     * reused buffer, valid only during the call.
+     */
+    forEachLine(fn: (line: Buffer, offset: number) => void) {
+        if (this.inflated) {
+            scan(this.inflated, 0, true, fn);
+            return;
+        }
+        const fd = this.descriptor();
+        let buffer = Buffer.allocUnsafe(CHUNK_BYTES);
+        let carry = 0;    // bytes of an unfinished line at the start of buffer
+        let position = 0; // file offset of buffer[0]
+        for (;;) {
+            const read = fs.readSync(fd, buffer, carry, buffer.length - carry, position + carry);
+            const filled = carry + read;
+            const consumed = scan(buffer.subarray(0, filled), position, read === 0, fn);
+            if (read === 0) {
+                return;
+            }
+            carry = filled - consumed;
+            if (carry === buffer.length) {
+                // a line longer than the buffer
+                const bigger = Buffer.allocUnsafe(buffer.length * 2);
+                buffer.copy(bigger, 0, 0, filled);
+                buffer = bigger;
+            } else {
+                buffer.copy(buffer, 0, consumed, filled);
+            }
+            position += consumed;
+        }
+    }
+
+    read(offset: number, length: number): Buffer {
+        if (this.inflated) {
+            return this.inflated.subarray(offset, offset + length);
+        }
+        const line = Buffer.allocUnsafe(length);
+        fs.readSync(this.descriptor(), line, 0, length, offset);
+        return line;
+    }
+
+    private descriptor(): number {
+        if (this.fd === null) {
+            this.fd = fs.openSync(this.file, "r");
+        }
+        return this.fd;
+    }
+
+    close() {
+        if (this.fd !== null) {
+            fs.closeSync(this.fd);
+            this.fd = null;
+        }
+    }
+}
+
+export type LineColumns = {
+    file: Uint16Array;
+    offset: Float64Array;
+    length: Uint32Array;
+};
+
+/**
+ * Where every line of one or more LineFiles is (file, offset, length), in file order, so any line can be read
+ * back by its number without rescanning
+ */
+export class LineIndex {
+    private constructor(
+        private readonly files: LineFile[],
+        private readonly file: Uint16Array,
+        private readonly offset: Float64Array,
+        private readonly length: Uint32Array,
+    ) {}
+
+    /**
+     * An index built elsewhere (see columns()), over the same files
+     */
+    static of(files: LineFile[], columns: LineColumns): LineIndex {
+        return new LineIndex(files, columns.file, columns.offset, columns.length);
+    }
+
+    /**
+     * onLine: sees every line with its number while the index is built (the line is only valid during the call)
+     */
+    static build(files: LineFile[], onLine?: (line: Buffer, lineNumber: number) => void): LineIndex {
+        const file: number[] = [];
+        const offset: number[] = [];
+        const length: number[] = [];
+        files.forEach((lineFile, index) => lineFile.forEachLine((line, at) => {
+            onLine?.(line, offset.length);
+            file.push(index);
+            offset.push(at);
+            length.push(line.length);
+        }));
+        return new LineIndex(files, Uint16Array.from(file), Float64Array.from(offset), Uint32Array.from(length));
+    }
+
+    get size(): number {
+        return this.offset.length;
+    }
+
+    columns(): LineColumns {
+        return { file: this.file, offset: this.offset, length: this.length };
+    }
+
+    read(lineNumber: number): Buffer {
+        return this.files[this.file[lineNumber]].read(this.offset[lineNumber], this.length[lineNumber]);
+    }
+
+    readJson(lineNumber: number): Record<string, unknown> {
+        return JSON.parse(this.read(lineNumber).toString("utf8"));
+    }
+
+    close() {
+        this.files.forEach((file) => file.close());
+    }
+}
+
+/**
+ * Hands the complete lines of data to fn; returns the bytes consumed (up to the last newline, everything when final)
+ */
+function scan(data: Buffer, base: number, final: boolean, fn: (line: Buffer, offset: number) => void): number {
+    let start = 0;
+    for (let end = data.indexOf(NEWLINE, start); end >= 0; end = data.indexOf(NEWLINE, start)) {
+        if (end > start) {
+            fn(data.subarray(start, end), base + start);
+        }
+        start = end + 1;
+    }
+    if (final && start < data.length) {
+        fn(data.subarray(start), base + start);
+        return data.length;
+    }
+    return start;
+}
+
+/**
+ * The value of a top-level string field, read straight from the line bytes; for fields the engine writes before
+ * any nested object (Jackson writes record fields in declaration order, without whitespace)
+ */
+export function stringField(line: Buffer, key: string): string | undefined {
+    const pattern = `"${key}":"`;
+    const at = line.indexOf(pattern);
+    if (at < 0) {
+        return undefined;
+    }
+    const start = at + Buffer.byteLength(pattern);
+    const end = line.indexOf(0x22, start);
+    if (end < 0 || line.subarray(start, end).includes(0x5c)) {
+        // escaped characters, leave them to the JSON parser
+        return JSON.parse(line.toString("utf8"))[key];
+    }
+    return line.toString("utf8", start, end);
+}
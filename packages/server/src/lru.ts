@@ -0,0 +1,30 @@
+/**
+ * Least recently used cache on top of Map insertion order: a hit moves the entry to the back,
+ * the entry at the front goes first when capacity is exceeded.
+ */
+export class LruCache<K, V> {
+    private readonly entries = new Map<K, V>();
+
+    constructor(private readonly capacity: number) {}
+
+    get(key: K): V | undefined {
+        const value = this.entries.get(key);
+        if (value !== undefined) {
+            this.entries.delete(key);
+            this.entries.set(key, value);
+        }
+        return value;
+    }
+
+    set(key: K, value: V) {
+        this.entries.delete(key);
+        this.entries.set(key, value);
+        if (this.entries.size > this.capacity) {
+            this.entries.delete(this.entries.keys().next().value as K);
+        }
+    }
+
+    clear() {
+        this.entries.clear();
+    }
+}
@@ -0,0 +1,298 @@
+import { parentPort, Worker } from "node:worker_threads";
+import { type SharedGraph } from "./graph";
+import { type PathResult, type Query, type ResultOf, runQuery, type TraverseResult } from "./queries";
+
+const STOP_GRACE_MS = 1000; // past its budget, a worker that has not answered is terminated
+const LATENCY_WINDOW = 1024; // completed queries the percentiles are computed over
+
+type Task = {
+    id: number;
+    graph: SharedGraph;
+    query: Query;
+    budgetMs: number;
+    cancel: Int32Array; // shared with the worker, 1 = stop
+    signal?: AbortSignal;
+    queuedAt: number;
+    resolve: (result: TraverseResult | PathResult) => void;
+    reject: (err: Error) => void;
+    abort: () => void;
+};
+
+type Slot = {
+    worker: Worker;
+    graphTag: string; // the graph the worker holds
+    task: Task | null;
+    timer: NodeJS.Timeout | null;
+};
+
+type TaskMessage = { id: number; graph?: SharedGraph; query: Query; budgetMs: number; cancel: Int32Array };
+
+type ReplyMessage = { id: number; result?: TraverseResult | PathResult; error?: string };
+
+export type Percentiles = { samples: number; p50: number; p90: number; p99: number; max: number };
+
+export type PoolStats = {
+    workers: number;
+    busy: number;
+    queued: number;
+    maxQueued: number;
+    completed: number;  // answered, including overBudget
+    overBudget: number; // answered with a partial result when the budget ran out
+    cancelled: number;  // the client went away
+    timedOut: number;   // no answer within budget + grace, the worker was replaced
+    failed: number;
+    rejected: number;   // queue full
+    latencyMs: Percentiles;   // queued to answered
+    queueWaitMs: Percentiles;
+};
+
+export class PoolBusyError extends Error {}
+
+export class QueryTimeoutError extends Error {}
+
+export class QueryCancelledError extends Error {}
+
+/**
+ * Graph queries that can walk the whole graph (traversals, paths) on worker threads, so they never block the
+ * event loop that serves everything else.
+ *
+ * Workers get the graph as a SharedGraph: its typed arrays are SharedArrayBuffers, so every worker reads the
+ * arrays GraphStore loaded instead of a copy. A worker is sent a graph once per analysis, with its first query
+ * against it.
+ *
+ * Each query has a time budget. The worker polls its deadline and a shared cancel flag (set when the client goes
+ * away) while it searches and answers with what it has when either trips; a worker that does not answer within
+ * the budget and a grace period is terminated and replaced. Queries wait in a bounded FIFO queue while all workers
+ * are busy; beyond maxQueued they are rejected with PoolBusyError.
+ *
+ * The worker side is runQueryWorker, started by the script when it is not on the main thread.
+ */
+export class QueryPool {
+    private readonly slots: Slot[] = [];
+    private readonly queue: Task[] = [];
+    private readonly latency = new LatencyWindow(LATENCY_WINDOW);
+    private readonly queueWait = new LatencyWindow(LATENCY_WINDOW);
+    private readonly counts = { completed: 0, overBudget: 0, cancelled: 0, timedOut: 0, failed: 0, rejected: 0 };
+    private nextId = 1;
+    private closed = false;
+
+    /**
+     * script: the module that calls runQueryWorker on worker threads
+     */
+    constructor(private readonly script: string, size: number, private readonly maxQueued = size * 16) {
+        for (let i = 0; i < size; i++) {
+            this.slots.push(this.spawn());
+        }
+    }
+
+    run<Q extends Query>(graph: SharedGraph, query: Q, budgetMs: number, signal?: AbortSignal): Promise<ResultOf<Q>> {
+        if (this.closed) {
+            return Promise.reject(new Error("Query pool is closed"));
+        }
+        if (signal?.aborted) {
+            return Promise.reject(new QueryCancelledError("Query cancelled"));
+        }
+        if (this.queue.length >= this.maxQueued) {
+            this.counts.rejected++;
+            return Promise.reject(new PoolBusyError(`Query queue is full (${this.maxQueued} waiting)`));
+        }
+        return new Promise((resolve, reject) => {
+            const task: Task = {
+                id: this.nextId++,
+                graph,
+                query,
+                budgetMs,
+                cancel: new Int32Array(new SharedArrayBuffer(Int32Array.BYTES_PER_ELEMENT)),
+                signal,
+                queuedAt: performance.now(),
+                resolve: resolve as (result: TraverseResult | PathResult) => void,
+                reject,
+                abort: () => this.abort(task),
+            };
+            signal?.addEventListener("abort", task.abort, { once: true });
+            this.queue.push(task);
+            this.dispatch();
+        });
+    }
+
+    stats(): PoolStats {
+        return {
+            workers: this.slots.length,
+            busy: this.slots.filter((slot) => slot.task).length,
+            queued: this.queue.length,
+            maxQueued: this.maxQueued,
+            ...this.counts,
+            latencyMs: this.latency.percentiles(),
+            queueWaitMs: this.queueWait.percentiles(),
+        };
+    }
+
+    async close() {
+        this.closed = true;
+        for (const task of this.queue.splice(0)) {
+            this.settle(task);
+            task.reject(new Error("Query pool is closed"));
+        }
+        await Promise.all(this.slots.map((slot) => {
+            slot.worker.removeAllListeners();
+            if (slot.task) {
+                this.settle(slot.task);
+                slot.task.reject(new Error("Query pool is closed"));
+            }
+            return slot.worker.terminate();
+        }));
+    }
+
+    private spawn(): Slot {
+        const slot: Slot = { worker: new Worker(this.script), graphTag: "", task: null, timer: null };
+        slot.worker.on("message", (reply: ReplyMessage) => this.finish(slot, reply));
+        slot.worker.on("error", (err) => this.replace(slot, err));
+        slot.worker.on("exit", (code) => this.replace(slot, new Error(`Query worker exited with code ${code}`)));
+        // idle workers do not keep the process alive
+        slot.worker.unref();
+        return slot;
+    }
+
+    private dispatch() {
+        for (const slot of this.slots) {
+            if (this.queue.length === 0) {
+                return;
+            }
+            if (!slot.task) {
+                this.start(slot, this.queue.shift()!);
+            }
+        }
+    }
+
+    private start(slot: Slot, task: Task) {
+        slot.task = task;
+        this.queueWait.add(performance.now() - task.queuedAt);
+        const message: TaskMessage = { id: task.id, query: task.query, budgetMs: task.budgetMs, cancel: task.cancel };
+        if (slot.graphTag !== task.graph.tag) {
+            message.graph = task.graph;
+            slot.graphTag = task.graph.tag;
+        }
+        slot.worker.ref();
+        slot.worker.postMessage(message);
+        slot.timer = setTimeout(() => {
+            this.counts.timedOut++;
+            this.replace(slot, new QueryTimeoutError(`Query did not stop within its ${task.budgetMs} ms budget`));
+        }, task.budgetMs + STOP_GRACE_MS);
+    }
+
+    private finish(slot: Slot, reply: ReplyMessage) {
+        const task = slot.task;
+        if (!task || task.id !== reply.id) {
+            return;
+        }
+        this.release(slot);
+        this.settle(task);
+        if (task.signal?.aborted) {
+            this.counts.cancelled++;
+            task.reject(new QueryCancelledError("Query cancelled"));
+        } else if (reply.error !== undefined) {
+            this.counts.failed++;
+            task.reject(new Error(reply.error));
+        } else {
+            this.counts.completed++;
+            if (!reply.result!.complete) {
+                this.counts.overBudget++;
+            }
+            this.latency.add(performance.now() - task.queuedAt);
+            task.resolve(reply.result!);
+        }
+        this.dispatch();
+    }
+
+    /**
+     * Fails the worker's query with err and starts a new worker in its place
+     */
+    private replace(slot: Slot, err: Error) {
+        if (this.closed) {
+            return;
+        }
+        const task = slot.task;
+        this.release(slot);
+        slot.worker.removeAllListeners();
+        slot.worker.terminate();
+        this.slots[this.slots.indexOf(slot)] = this.spawn();
+        if (task) {
+            this.settle(task);
+            if (!(err instanceof QueryTimeoutError)) {
+                this.counts.failed++;
+            }
+            task.reject(err);
+        }
+        this.dispatch();
+    }
+
+    private abort(task: Task) {
+        const queued = this.queue.indexOf(task);
+        if (queued >= 0) {
+            this.queue.splice(queued, 1);
+            this.counts.cancelled++;
+            task.reject(new QueryCancelledError("Query cancelled"));
+        } else {
+            // running: the worker stops at its next check and finish rejects
+            Atomics.store(task.cancel, 0, 1);
+        }
+    }
+
+    private release(slot: Slot) {
+        if (slot.timer) {
+            clearTimeout(slot.timer);
+            slot.timer = null;
+        }
+        slot.task = null;
+        slot.worker.unref();
+    }
+
+    private settle(task: Task) {
+        task.signal?.removeEventListener("abort", task.abort);
+    }
+}
+
+/**
+ * The worker side of QueryPool: answers queries against the last graph it was sent
+ */
+export function runQueryWorker() {
+    let graph: SharedGraph | null = null;
+    parentPort!.on("message", (task: TaskMessage) => {
+        graph = task.graph ?? graph;
+        const deadline = performance.now() + task.budgetMs;
+        const stopped = () => Atomics.load(task.cancel, 0) !== 0 || performance.now() > deadline;
+        let reply: ReplyMessage;
+        try {
+            reply = { id: task.id, result: runQuery(graph!, task.query, stopped) };
+        } catch (err) {
+            reply = { id: task.id, error: err instanceof Error ? err.message : String(err) };
+        }
+        parentPort!.postMessage(reply);
+    });
+}
+
+/**
+ * The last size samples in a ring
+ */
+class LatencyWindow {
+    private readonly samples: Float64Array;
+    private count = 0;
+
+    constructor(size: number) {
+        this.samples = new Float64Array(size);
+    }
+
+    add(ms: number) {
+        this.samples[this.count++ % this.samples.length] = ms;
+    }
+
+    percentiles(): Percentiles {
+        const sorted = this.samples.slice(0, Math.min(this.count, this.samples.length)).sort();
+        const at = (p: number) => sorted.length === 0 ? 0 : round(sorted[Math.min(sorted.length - 1, Math.floor(p * sorted.length))]);
+        return { samples: sorted.length, p50: at(0.5), p90: at(0.9), p99: at(0.99), max: at(1) };
+    }
+}
+
+function round(ms: number): number {
+    return Math.round(ms * 100) / 100;
+}
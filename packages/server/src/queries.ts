@@ -0,0 +1,155 @@
+import { type Adjacency, type Direction, type SharedGraph } from "./graph";
+
+const CHECK_EVERY = 1024; // nodes expanded between two stop checks
+
+/**
+ * Nodes reachable from start, breadth first; maxDepth 0 = unbounded
+ */
+export type TraverseQuery = {
+    kind: "traverse";
+    start: number;
+    direction: Direction;
+    typeMask: number; // see edgeTypeMask
+    maxDepth: number;
+    limit: number;    // of returned ordinals, reached counts all
+};
+
+/**
+ * A shortest path between two nodes
+ */
+export type PathQuery = {
+    kind: "path";
+    from: number;
+    to: number;
+    direction: Direction;
+    typeMask: number;
+};
+
+export type Query = TraverseQuery | PathQuery;
+
+export type TraverseResult = {
+    complete: boolean;     // false: stopped early (budget or cancellation), reached is a lower bound
+    reached: number;       // nodes reached, start excluded
+    depthLimited: boolean; // there were nodes beyond maxDepth
+    ordinals: number[];    // first limit reached nodes in breadth-first order
+    depths: number[];
+};
+
+export type PathResult = {
+    complete: boolean; // false: stopped before the search finished, a missing path proves nothing
+    nodes: number[] | null;
+    edges: number[];   // edges[i] connects nodes[i] and nodes[i + 1]
+};
+
+export type ResultOf<Q extends Query> = Q extends TraverseQuery ? TraverseResult : PathResult;
+
+/**
+ * Runs a query against the graph; stopped is polled while the search runs and ends it early when true
+ */
+export function runQuery(graph: SharedGraph, query: Query, stopped: () => boolean): TraverseResult | PathResult {
+    switch (query.kind) {
+        case "traverse":
+            return traverse(graph, query, stopped);
+        case "path":
+            return shortestPath(graph, query, stopped);
+    }
+}
+
+type Side = [adjacency: Adjacency, other: Int32Array];
+
+function sides(graph: SharedGraph, direction: Direction): Side[] {
+    const sides: Side[] = [];
+    if (direction !== "in") {
+        sides.push([graph.outgoing, graph.to]);
+    }
+    if (direction !== "out") {
+        sides.push([graph.incoming, graph.from]);
+    }
+    return sides;
+}
+
+function traverse(graph: SharedGraph, query: TraverseQuery, stopped: () => boolean): TraverseResult {
+    const visited = new Uint32Array((graph.nodeCount + 31) >>> 5);
+    const queue = new Int32Array(graph.nodeCount);
+    const depths = new Int32Array(graph.nodeCount);
+    const followed = sides(graph, query.direction);
+    let head = 0;
+    let tail = 0;
+    let complete = true;
+    let depthLimited = false;
+    visited[query.start >>> 5] |= 1 << (query.start & 31);
+    queue[tail++] = query.start;
+    while (head < tail) {
+        if (head % CHECK_EVERY === 0 && stopped()) {
+            complete = false;
+            break;
+        }
+        const node = queue[head];
+        const depth = depths[head++];
+        for (const [adjacency, other] of followed) {
+            for (let i = adjacency.offsets[node]; i < adjacency.offsets[node + 1]; i++) {
+                const edge = adjacency.edges[i];
+                const next = other[edge];
+                if ((query.typeMask !== 0 && (query.typeMask & (1 << graph.types[edge])) === 0)
+                    || (visited[next >>> 5] & (1 << (next & 31))) !== 0) {
+                    continue;
+                }
+                if (query.maxDepth > 0 && depth >= query.maxDepth) {
+                    depthLimited = true;
+                    break;
+                }
+                visited[next >>> 5] |= 1 << (next & 31);
+                depths[tail] = depth + 1;
+                queue[tail++] = next;
+            }
+        }
+    }
+    const returned = Math.min(tail, query.limit + 1);
+    return {
+        complete,
+        reached: tail - 1,
+        depthLimited,
+        ordinals: Array.from(queue.subarray(1, returned)),
+        depths: Array.from(depths.subarray(1, returned)),
+    };
+}
+
+function shortestPath(graph: SharedGraph, query: PathQuery, stopped: () => boolean): PathResult {
+    // -1: not reached; the start node is its own parent
+    const parentEdge = new Int32Array(graph.nodeCount).fill(-1);
+    const parentNode = new Int32Array(graph.nodeCount).fill(-1);
+    const queue = new Int32Array(graph.nodeCount);
+    const followed = sides(graph, query.direction);
+    let head = 0;
+    let tail = 0;
+    parentNode[query.from] = query.from;
+    queue[tail++] = query.from;
+    while (head < tail && parentNode[query.to] < 0) {
+        if (head % CHECK_EVERY === 0 && stopped()) {
+            return { complete: false, nodes: null, edges: [] };
+        }
+        const node = queue[head++];
+        for (const [adjacency, other] of followed) {
+            for (let i = adjacency.offsets[node]; i < adjacency.offsets[node + 1]; i++) {
+                const edge = adjacency.edges[i];
+                const next = other[edge];
+                if ((query.typeMask !== 0 && (query.typeMask & (1 << graph.types[edge])) === 0) || parentNode[next] >= 0) {
+                    continue;
+                }
+                parentNode[next] = node;
+                parentEdge[next] = edge;
+                queue[tail++] = next;
+            }
+        }
+    }
+    if (parentNode[query.to] < 0) {
+        return { complete: true, nodes: null, edges: [] };
+    }
+    const nodes = [query.to];
+    const edges: number[] = [];
+    for (let node = query.to; node !== query.from; node = parentNode[node]) {
+        edges.push(parentEdge[node]);
+        nodes.push(parentNode[node]);
+    }
+    return { complete: true, nodes: nodes.reverse(), edges: edges.reverse() };
+}
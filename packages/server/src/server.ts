@@ -1,25 +1,244 @@
 import express from "express";
+import os from "node:os";
 import path from "path";
+import { ArtifactServer } from "./artifacts";
+import { type Direction, edgeTypeMask, GraphStore, LINE_ARTIFACTS, type LineArtifact, NotAnalyzedError, type SharedGraph } from "./graph";
+import { PoolBusyError, QueryCancelledError, QueryPool, QueryTimeoutError } from "./pool";
+import { type Query, type ResultOf } from "./queries";
+
+const DEFAULT_LIMIT = 50;
+const MAX_LIMIT = 1000;
+const DEFAULT_BUDGET_MS = 2000;
+const MAX_BUDGET_MS = 30_000;
 
 export type StartOpts = {
     port: number;
     uiDir: string;
     repoRoot: string;
+    outDir?: string; // engine output, default: repoRoot/.xray
+    workerScript: string; // runs runQueryWorker (see QueryPool) or runGraphLoader (see GraphStore) off the main thread
+    queryWorkers?: number; // default: one per core but one, at most 4
 }
 
 export function startServer(opts: StartOpts) {
     const app = express();
+    const store = new GraphStore(opts.outDir ?? path.join(opts.repoRoot, ".xray"), opts.workerScript);
+    const artifacts = new ArtifactServer(store);
+    const pool = new QueryPool(opts.workerScript, opts.queryWorkers ?? Math.max(1, Math.min(4, os.availableParallelism() - 1)));
+
+    /**
+     * Runs query on the pool and replies with render(result), unless the analysis changed meanwhile (the ordinals
+     * in the result are those of the graph the query ran on). The query is cancelled when the client goes away.
+     */
+    const pooled = <Q extends Query>(req: express.Request, res: express.Response, next: express.NextFunction,
+                                      graph: SharedGraph, query: Q, render: (result: ResultOf<Q>) => unknown) => {
+        const closed = new AbortController();
+        res.on("close", () => closed.abort());
+        pool.run(graph, query, budgetParam(req.query.budgetMs), closed.signal)
+            .then((result) => {
+                if (store.tag() !== graph.tag) {
+                    res.status(503).json({ ok: false, error: "The analysis changed during the query, retry" });
+                    return;
+                }
+                res.json(render(result));
+            })
+            .catch(next);
+    };
 
     app.get("/api/meta", (_req, res) => {
         res.json({ ok: true, repoRoot: opts.repoRoot });
     });
 
+    // Graph queries, answered from the engine output (see GraphStore); ids and names go in the query string
+    app.get("/api/node", (req, res) => {
+        const id = param(req.query.id);
+        reply(res, store.query(`node:${id}`, () => store.node(id)));
+    });
+
+    app.get("/api/nodes/by-name", (req, res) => {
+        const name = param(req.query.name);
+        const limit = limitParam(req.query.limit);
+        reply(res, store.query(`name:${limit}:${name}`, () => store.nodesNamed(name, limit)));
+    });
+
+    app.get("/api/nodes/search", (req, res) => {
+        const prefix = param(req.query.q);
+        const limit = limitParam(req.query.limit);
+        if (!prefix) {
+            res.status(400).json({ ok: false, error: "Missing q" });
+            return;
+        }
+        reply(res, store.query(`search:${limit}:${prefix}`, () => store.search(prefix, limit)));
+    });
+
+    app.get("/api/nodes/by-file", (req, res) => {
+        const file = param(req.query.file);
+        reply(res, store.query(`file:${file}`, () => store.nodesInFile(file)));
+    });
+
+    app.get("/api/entrypoints", (_req, res) => {
+        reply(res, store.query("entrypoints", () => store.entrypoints()));
+    });
+
+    app.get("/api/neighbours", (req, res) => {
+        const id = param(req.query.id);
+        const direction = directionParam(req.query.direction, "both");
+        const types = typesParam(req.query.types);
+        const limit = limitParam(req.query.limit);
+        reply(res, store.query(`neighbours:${direction}:${types}:${limit}:${id}`, () => store.neighbours(id, direction, types, limit)));
+    });
+
+    // Walks over the whole graph run on worker threads within a time budget (budgetMs, see QueryPool); a result
+    // with complete: false is what was found when the budget ran out. 503 while the graph is being loaded.
+    app.get("/api/traverse", (req, res, next) => {
+        const graph = store.sharedGraph();
+        if (!graph) {
+            loading(res);
+            return;
+        }
+        const start = store.ordinal(param(req.query.id));
+        if (start === undefined) {
+            reply(res, null);
+            return;
+        }
+        const depth = Number.parseInt(param(req.query.depth), 10);
+        const limit = limitParam(req.query.limit);
+        pooled(req, res, next, graph, {
+            kind: "traverse",
+            start,
+            direction: directionParam(req.query.direction, "out"),
+            typeMask: edgeTypeMask(typesParam(req.query.types)),
+            maxDepth: depth > 0 ? depth : 0,
+            limit,
+        }, (result) => ({
+            complete: result.complete,
+            reached: result.reached,
+            depthLimited: result.depthLimited,
+            nodes: store.nodesAt(result.ordinals).map((node, i) => ({ depth: result.depths[i], node })),
+        }));
+    });
+
+    app.get("/api/path", (req, res, next) => {
+        const graph = store.sharedGraph();
+        if (!graph) {
+            loading(res);
+            return;
+        }
+        const from = store.ordinal(param(req.query.from));
+        const to = store.ordinal(param(req.query.to));
+        if (from === undefined || to === undefined) {
+            reply(res, null);
+            return;
+        }
+        pooled(req, res, next, graph, {
+            kind: "path",
+            from,
+            to,
+            direction: directionParam(req.query.direction, "out"),
+            typeMask: edgeTypeMask(typesParam(req.query.types)),
+        }, (result) => ({
+            complete: result.complete,
+            path: result.nodes && { nodes: store.nodesAt(result.nodes), edges: store.edgesAt(result.edges) },
+        }));
+    });
+
+    // Queue depth and latency percentiles of the query pool
+    app.get("/api/pool", (_req, res) => {
+        res.json(pool.stats());
+    });
+
+    // Engine output files, whole (compressed variants, ranges) or as NDJSON pages (see ArtifactServer)
+    app.get("/api/artifacts", (_req, res) => {
+        res.json(artifacts.list());
+    });
+
+    app.get("/api/artifacts/*", (req, res, next) => {
+        artifacts.send(req, res, req.params[0]).catch(next);
+    });
+
+    app.get("/api/stream/:artifact", (req, res, next) => {
+        const artifact = req.params.artifact as LineArtifact;
+        if (!LINE_ARTIFACTS.includes(artifact)) {
+            res.status(404).json({ ok: false, error: `Not a line artifact: ${artifact}, expected one of ${LINE_ARTIFACTS.join(", ")}` });
+            return;
+        }
+        artifacts.page(req, res, artifact).catch(next);
+    });
+
+    // thrown by the store when there is no analysis output to serve yet, and by the query pool
+    app.use("/api", (err: unknown, _req: express.Request, res: express.Response, next: express.NextFunction) => {
+        if (err instanceof NotAnalyzedError) {
+            res.status(404).json({ ok: false, error: err.message });
+        } else if (err instanceof PoolBusyError) {
+            res.status(503).set("Retry-After", "1").json({ ok: false, error: err.message });
+        } else if (err instanceof QueryTimeoutError) {
+            res.status(504).json({ ok: false, error: err.message });
+        } else if (!(err instanceof QueryCancelledError)) {
+            // cancelled: the client is gone, there is no one to answer
+            next(err);
+        }
+    });
+
     app.use(express.static(opts.uiDir));
     app.get("*", (_req, res) => {
         res.sendFile(path.join(opts.uiDir, "index.html"));
     });
 
-    return app.listen(opts.port, "127.0.0.1", () => {
+    const server = app.listen(opts.port, "127.0.0.1", () => {
         console.log(`XRAY_SERVER_URL=http://127.0.0.1:${opts.port}`);
-    })
-}
\ No newline at end of file
+    });
+    server.on("close", () => {
+        pool.close();
+        artifacts.close();
+    });
+    /**
+     * For a process about to exit: stops listening and removes the artifact variants right away, without waiting
+     * for open connections to end
+     */
+    const shutdown = () => {
+        server.close();
+        pool.close();
+        artifacts.close();
+    };
+    return { server, shutdown };
+}
+
+/**
+ * The graph for traversals is loaded off the main thread after each analysis; clients retry
+ */
+function loading(res: express.Response) {
+    res.set("Retry-After", "1").status(503).json({ ok: false, error: "Loading the graph, retry shortly" });
+}
+
+function reply(res: express.Response, result: unknown) {
+    if (result === null) {
+        res.status(404).json({ ok: false, error: "Unknown node" });
+        return;
+    }
+    res.json(result);
+}
+
+function param(value: unknown): string {
+    return typeof value === "string" ? value : "";
+}
+
+function directionParam(value: unknown, fallback: Direction): Direction {
+    return (["out", "in", "both"].includes(param(value)) ? param(value) : fallback) as Direction;
+}
+
+/**
+ * Comma-separated edge types, sorted so equal filters make equal cache keys
+ */
+function typesParam(value: unknown): string[] {
+    return param(value).split(",").filter((type) => type !== "").sort();
+}
+
+function budgetParam(value: unknown): number {
+    const budget = Number.parseInt(param(value), 10);
+    return Number.isFinite(budget) && budget > 0 ? Math.min(budget, MAX_BUDGET_MS) : DEFAULT_BUDGET_MS;
+}
+
+function limitParam(value: unknown): number {
+    const limit = Number.parseInt(param(value), 10);
+    return Number.isFinite(limit) && limit > 0 ? Math.min(limit, MAX_LIMIT) : DEFAULT_LIMIT;
+}
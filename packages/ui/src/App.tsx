@@ -1,4 +1,8 @@
-import { useEffect, useState } from "react";
+import { useCallback, useEffect, useState, useSyncExternalStore } from "react";
+import { GraphView } from "./components/GraphView";
+import { NodeBrowser } from "./components/NodeBrowser";
+import { NodeDetails } from "./components/NodeDetails";
+import { GraphClient } from "./graph/client";
 import "./App.css";
 
 type Meta = {
@@ -9,6 +13,7 @@ type Meta = {
 export default function App() {
   const [meta, setMeta] = useState<Meta | null>(null);
   const [err, setErr] = useState<string | null>(null);
+  const [client] = useState(() => new GraphClient());
 
   useEffect(() => {
     fetch("/api/meta")
@@ -20,23 +25,51 @@ export default function App() {
       .catch((e) => setErr(String(e)));
   }, []);
 
+  // the graph worker lives as long as the app is mounted
+  useEffect(() => client.connect(), [client]);
+
   return (
-    <div style={{ padding: 24, fontFamily: "system-ui, sans-serif" }}>
-      <h1 style={{ margin: 0 }}>X-Ray Dashboard</h1>
-      <p style={{ marginTop: 8, opacity: 0.8 }}>
-        UI build + bundle smoke test
-      </p>
-
-      <div style={{ marginTop: 16 }}>
-        <h2 style={{ fontSize: 16 }}>Server /api/meta</h2>
-        {err && <pre style={{ whiteSpace: "pre-wrap" }}>{err}</pre>}
-        {!err && !meta && <div>Loading…</div>}
-        {meta && (
-          <pre style={{ whiteSpace: "pre-wrap" }}>
-            {JSON.stringify(meta, null, 2)}
-          </pre>
-        )}
-      </div>
+    <div className="app">
+      <header className="app-header">
+        <h1>X-Ray Dashboard</h1>
+        {meta && <span className="app-repo">{meta.repoRoot}</span>}
+        {err && <span className="app-error">{err}</span>}
+        <LoadStatus client={client} />
+      </header>
+      <Explorer client={client} />
     </div>
   );
 }
+
+function useClientVersion(client: GraphClient): number {
+  return useSyncExternalStore(
+    useCallback((listener: () => void) => client.subscribe(listener), [client]),
+    () => client.version,
+  );
+}
+
+function LoadStatus({ client }: { client: GraphClient }) {
+  useClientVersion(client);
+  if (client.error) return <span className="app-error">{client.error}</span>;
+  return (
+    <span className="app-status">
+      {client.rows.length.toLocaleString()} nodes, {client.edgeCount.toLocaleString()} edges
+      {!client.loaded && " (loading…)"}
+    </span>
+  );
+}
+
+function Explorer({ client }: { client: GraphClient }) {
+  const version = useClientVersion(client);
+  const [selected, setSelected] = useState(-1);
+  const selectId = useCallback((id: string) => setSelected(client.ordinals.get(id) ?? -1), [client]);
+  const row = selected >= 0 ? client.rows[selected] : undefined;
+
+  return (
+    <main className="explorer">
+      <NodeBrowser client={client} version={version} selected={selected} onSelect={setSelected} />
+      <GraphView client={client} selected={selected} onSelect={setSelected} />
+      {row && <NodeDetails row={row} onSelectId={selectId} />}
+    </main>
+  );
+}
@@ -0,0 +1,176 @@
+import { useEffect, useRef } from "react";
+import type { GraphClient } from "../graph/client";
+import { createRenderer, type Renderer, type View } from "../graph/renderer";
+
+const CLICK_SLOP = 4;   // px a pointer may move and still click
+const PICK_RADIUS = 8;  // px
+const ZOOM_STEP = 1.0015; // per wheel delta unit
+
+type Props = {
+  client: GraphClient;
+  selected: number;
+  onSelect: (ordinal: number) => void;
+};
+
+/**
+ * The dependency graph as laid out by the graph worker, drawn by a WebGL (or canvas) renderer.
+ *
+ * Drawing happens in a requestAnimationFrame loop, only in frames after something changed: new positions or
+ * edges from the worker, the view (pan: drag, zoom: wheel) or the selection. Nothing here goes through React
+ * state, so a frame is one draw call per layer whatever the node count. The view follows the layout until the
+ * user moves it.
+ */
+export function GraphView({ client, selected, onSelect }: Props) {
+  const canvasRef = useRef<HTMLCanvasElement>(null);
+  const selectedRef = useRef(selected);
+  const dirtyRef = useRef({ scene: true, view: true });
+  const viewRef = useRef<View>({ cx: 0, cy: 0, zoom: 1 });
+  const movedRef = useRef(false);
+
+  useEffect(() => {
+    selectedRef.current = selected;
+    dirtyRef.current.view = true;
+    // bring a node selected elsewhere into view
+    const canvas = canvasRef.current;
+    if (!canvas || selected < 0 || selected >= client.positionCount) return;
+    const view = viewRef.current;
+    const x = (client.positions[selected * 2] - view.cx) * view.zoom;
+    const y = (client.positions[selected * 2 + 1] - view.cy) * view.zoom;
+    if (Math.abs(x) > canvas.clientWidth / 2 || Math.abs(y) > canvas.clientHeight / 2) {
+      view.cx = client.positions[selected * 2];
+      view.cy = client.positions[selected * 2 + 1];
+      movedRef.current = true;
+    }
+  }, [client, selected]);
+
+  useEffect(() => {
+    client.setLayoutRunning(true);
+    return () => client.setLayoutRunning(false);
+  }, [client]);
+
+  useEffect(() => {
+    const canvas = canvasRef.current!;
+    const dirty = dirtyRef.current;
+    const view = viewRef.current;
+    let renderer: Renderer;
+    try {
+      renderer = createRenderer(canvas);
+    } catch (e) {
+      console.error(e);
+      return;
+    }
+
+    const unsubscribe = client.onScene(() => {
+      dirty.scene = true;
+      if (!movedRef.current) fit(view, client.positions, client.positionCount, canvas);
+    });
+    const resize = new ResizeObserver(() => {
+      canvas.width = Math.round(canvas.clientWidth * devicePixelRatio);
+      canvas.height = Math.round(canvas.clientHeight * devicePixelRatio);
+      if (!movedRef.current) fit(view, client.positions, client.positionCount, canvas);
+      dirty.view = true;
+    });
+    resize.observe(canvas);
+
+    let frame = requestAnimationFrame(function draw() {
+      if ((dirty.scene || dirty.view) && canvas.clientWidth > 0) {
+        // edges index nodes: draw them once every node has a position
+        const complete = client.positionCount >= client.rows.length;
+        renderer.draw({
+          positions: client.positions,
+          count: client.positionCount,
+          kinds: client.kinds,
+          edges: client.edges,
+          edgeCount: complete ? client.edgeCount : 0,
+          selected: selectedRef.current,
+        }, view, canvas.clientWidth, canvas.clientHeight, dirty.scene);
+        dirty.scene = dirty.view = false;
+      }
+      frame = requestAnimationFrame(draw);
+    });
+
+    // pan by dragging, select by clicking
+    let drag: { x: number; y: number; moved: boolean } | null = null;
+    const onPointerDown = (e: PointerEvent) => {
+      drag = { x: e.clientX, y: e.clientY, moved: false };
+      canvas.setPointerCapture(e.pointerId);
+    };
+    const onPointerMove = (e: PointerEvent) => {
+      if (!drag) return;
+      const dx = e.clientX - drag.x;
+      const dy = e.clientY - drag.y;
+      if (!drag.moved && Math.hypot(dx, dy) < CLICK_SLOP) return;
+      drag.moved = true;
+      movedRef.current = true;
+      view.cx -= dx / view.zoom;
+      view.cy -= dy / view.zoom;
+      drag.x = e.clientX;
+      drag.y = e.clientY;
+      dirty.view = true;
+    };
+    const onPointerUp = (e: PointerEvent) => {
+      if (drag && !drag.moved) {
+        const [x, y] = toWorld(view, canvas, e);
+        client.pick(x, y, PICK_RADIUS / view.zoom).then((ordinal) => {
+          if (ordinal >= 0) onSelect(ordinal);
+        });
+      }
+      drag = null;
+    };
+    // zoom around the pointer: the layout point under it stays put
+    const onWheel = (e: WheelEvent) => {
+      e.preventDefault();
+      const [x, y] = toWorld(view, canvas, e);
+      const zoom = Math.min(50, Math.max(0.001, view.zoom * Math.pow(ZOOM_STEP, -e.deltaY)));
+      view.cx = x - (x - view.cx) * (view.zoom / zoom);
+      view.cy = y - (y - view.cy) * (view.zoom / zoom);
+      view.zoom = zoom;
+      movedRef.current = true;
+      dirty.view = true;
+    };
+    canvas.addEventListener("pointerdown", onPointerDown);
+    canvas.addEventListener("pointermove", onPointerMove);
+    canvas.addEventListener("pointerup", onPointerUp);
+    canvas.addEventListener("wheel", onWheel, { passive: false });
+
+    return () => {
+      cancelAnimationFrame(frame);
+      unsubscribe();
+      resize.disconnect();
+      canvas.removeEventListener("pointerdown", onPointerDown);
+      canvas.removeEventListener("pointermove", onPointerMove);
+      canvas.removeEventListener("pointerup", onPointerUp);
+      canvas.removeEventListener("wheel", onWheel);
+      renderer.dispose();
+    };
+  }, [client, onSelect]);
+
+  return <canvas ref={canvasRef} className="graph-view" />;
+}
+
+function toWorld(view: View, canvas: HTMLCanvasElement, e: MouseEvent): [number, number] {
+  const rect = canvas.getBoundingClientRect();
+  return [
+    view.cx + (e.clientX - rect.left - rect.width / 2) / view.zoom,
+    view.cy + (e.clientY - rect.top - rect.height / 2) / view.zoom,
+  ];
+}
+
+/**
+ * Centres the view on the bounding box of the positions and zooms to show all of it
+ */
+function fit(view: View, positions: Float32Array, count: number, canvas: HTMLCanvasElement) {
+  if (count === 0 || canvas.clientWidth === 0) return;
+  let minX = Infinity, minY = Infinity, maxX = -Infinity, maxY = -Infinity;
+  for (let i = 0; i < count; i++) {
+    const x = positions[i * 2];
+    const y = positions[i * 2 + 1];
+    if (x < minX) minX = x;
+    if (x > maxX) maxX = x;
+    if (y < minY) minY = y;
+    if (y > maxY) maxY = y;
+  }
+  view.cx = (minX + maxX) / 2;
+  view.cy = (minY + maxY) / 2;
+  view.zoom = 0.9 * Math.min(canvas.clientWidth / Math.max(1, maxX - minX), canvas.clientHeight / Math.max(1, maxY - minY));
+}
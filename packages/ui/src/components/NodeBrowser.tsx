@@ -0,0 +1,80 @@
+import { useEffect, useState } from "react";
+import type { GraphClient } from "../graph/client";
+import { KINDS } from "../graph/protocol";
+import { VirtualList } from "./VirtualList";
+
+const ROW_HEIGHT = 44;
+
+type Props = {
+  client: GraphClient;
+  version: number; // client.version, refilters as rows stream in
+  selected: number;
+  onSelect: (ordinal: number) => void;
+};
+
+/**
+ * All nodes, filtered by the worker and listed virtually
+ */
+export function NodeBrowser({ client, version, selected, onSelect }: Props) {
+  const [text, setText] = useState("");
+  const [kind, setKind] = useState("");
+  const [matches, setMatches] = useState<Int32Array>(new Int32Array(0));
+
+  useEffect(() => {
+    let current = true;
+    client.filter(text, kind).then((ordinals) => {
+      if (current) setMatches(ordinals);
+    });
+    return () => {
+      current = false;
+    };
+  }, [client, version, text, kind]);
+
+  const selectedIndex = matches.indexOf(selected);
+
+  return (
+    <div className="node-browser">
+      <div className="node-browser-filters">
+        <input
+          type="search"
+          placeholder="Filter by name or id"
+          value={text}
+          onChange={(e) => setText(e.target.value)}
+        />
+        <select value={kind} onChange={(e) => setKind(e.target.value)}>
+          <option value="">All kinds</option>
+          {KINDS.map((k) => (
+            <option key={k} value={k}>{k}</option>
+          ))}
+        </select>
+      </div>
+      <div className="node-browser-count">
+        {matches.length.toLocaleString()} of {client.rows.length.toLocaleString()}
+        {client.total > client.rows.length && ` (loading ${client.total.toLocaleString()})`}
+      </div>
+      <VirtualList
+        className="node-browser-list"
+        count={matches.length}
+        rowHeight={ROW_HEIGHT}
+        scrollToIndex={selectedIndex}
+        renderRow={(index) => {
+          const ordinal = matches[index];
+          const row = client.rows[ordinal];
+          if (!row) return null; // matches of the analysis before a reset
+          return (
+            <button
+              className={`node-row${ordinal === selected ? " selected" : ""}`}
+              onClick={() => onSelect(ordinal)}
+              title={row.id}
+            >
+              <span className="node-row-name">
+                {row.name} <span className={`kind kind-${row.kind.toLowerCase()}`}>{row.kind}</span>
+              </span>
+              <span className="node-row-id">{row.fqcn ?? row.id}</span>
+            </button>
+          );
+        }}
+      />
+    </div>
+  );
+}
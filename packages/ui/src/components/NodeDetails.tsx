@@ -0,0 +1,70 @@
+import { useEffect, useState } from "react";
+import type { NodeRow } from "../graph/protocol";
+
+const NEIGHBOUR_LIMIT = 200;
+
+type Neighbour = {
+  direction: "out" | "in";
+  edge: { type: string };
+  node: { id: string; name?: string; kind: string };
+};
+
+type Props = {
+  row: NodeRow;
+  onSelectId: (id: string) => void;
+};
+
+/**
+ * The selected node and its edges, from /api/neighbours
+ */
+export function NodeDetails({ row, onSelectId }: Props) {
+  const [neighbours, setNeighbours] = useState<{ id: string; list: Neighbour[] } | null>(null);
+  const [err, setErr] = useState<string | null>(null);
+
+  useEffect(() => {
+    const aborted = new AbortController();
+    fetch(`/api/neighbours?id=${encodeURIComponent(row.id)}&limit=${NEIGHBOUR_LIMIT}`, { signal: aborted.signal })
+      .then(async (r) => {
+        if (!r.ok) throw new Error(`HTTP ${r.status}`);
+        return (await r.json()) as Neighbour[];
+      })
+      .then((list) => {
+        setErr(null);
+        setNeighbours({ id: row.id, list });
+      })
+      .catch((e) => {
+        if (!aborted.signal.aborted) setErr(String(e));
+      });
+    return () => aborted.abort();
+  }, [row.id]);
+
+  const list = neighbours?.id === row.id ? neighbours.list : null;
+
+  return (
+    <div className="node-details">
+      <h2>{row.name}</h2>
+      <div className={`kind kind-${row.kind.toLowerCase()}`}>{row.kind}</div>
+      <div className="node-details-id">{row.id}</div>
+      {row.file && <div className="node-details-file">{row.file}</div>}
+
+      <h3>Edges{list && list.length >= NEIGHBOUR_LIMIT && ` (first ${NEIGHBOUR_LIMIT})`}</h3>
+      {err && <pre style={{ whiteSpace: "pre-wrap" }}>{err}</pre>}
+      {!err && !list && <div>Loading…</div>}
+      {list && list.length === 0 && <div>None</div>}
+      {list && (
+        <ul className="node-details-edges">
+          {list.map((n, i) => (
+            <li key={i}>
+              <span className="edge-type">
+                {n.direction === "out" ? "→" : "←"} {n.edge.type}
+              </span>{" "}
+              <button className="link" onClick={() => onSelectId(n.node.id)} title={n.node.id}>
+                {n.node.name ?? n.node.id}
+              </button>
+            </li>
+          ))}
+        </ul>
+      )}
+    </div>
+  );
+}
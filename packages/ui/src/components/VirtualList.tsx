@@ -0,0 +1,75 @@
+import { type ReactNode, useEffect, useRef, useState } from "react";
+
+// below the largest element height browsers lay out (about 17.9M px in Firefox, 33.5M px in Chrome)
+const MAX_SPACER_PX = 8_000_000;
+
+type Props = {
+  count: number;
+  rowHeight: number; // px, the same for every row
+  renderRow: (index: number) => ReactNode;
+  overscan?: number; // rows rendered beyond each edge of the viewport
+  scrollToIndex?: number; // brought into view when it changes
+  className?: string;
+};
+
+/**
+ * A list that only mounts the rows in view (plus overscan), positioned absolutely inside a spacer as tall as
+ * the whole list: the DOM stays a few dozen rows whether count is 10 or 200k.
+ *
+ * Past MAX_SPACER_PX the spacer stays at that height and the scroll position is scaled onto the full list, so
+ * the scrollbar still spans every row (a pixel of scrolling then moves more than a pixel of rows).
+ */
+export function VirtualList({ count, rowHeight, renderRow, overscan = 8, scrollToIndex, className }: Props) {
+  const ref = useRef<HTMLDivElement>(null);
+  const [scrollTop, setScrollTop] = useState(0);
+  const [height, setHeight] = useState(0);
+
+  useEffect(() => {
+    const el = ref.current!;
+    // also called once right after observe, with the initial size
+    const observer = new ResizeObserver(() => setHeight(el.clientHeight));
+    observer.observe(el);
+    return () => observer.disconnect();
+  }, []);
+
+  const listHeight = count * rowHeight;
+  const spacerHeight = Math.min(listHeight, MAX_SPACER_PX);
+
+  useEffect(() => {
+    const el = ref.current;
+    if (!el || scrollToIndex === undefined || scrollToIndex < 0) return;
+    const ratio = scale(count * rowHeight, el.clientHeight);
+    const top = scrollToIndex * rowHeight;
+    const viewTop = el.scrollTop * ratio;
+    if (top < viewTop || top + rowHeight > viewTop + el.clientHeight) {
+      el.scrollTop = (top - el.clientHeight / 2) / ratio;
+    }
+  }, [scrollToIndex, rowHeight, count]);
+
+  // the list offset at the top of the viewport; rows are placed relative to it
+  const viewTop = scrollTop * scale(listHeight, height);
+  const first = Math.max(0, Math.floor(viewTop / rowHeight) - overscan);
+  const last = Math.min(count, Math.ceil((viewTop + height) / rowHeight) + overscan);
+  const rows: ReactNode[] = [];
+  for (let index = first; index < last; index++) {
+    rows.push(
+      <div key={index} className="virtual-row" style={{ top: index * rowHeight - viewTop + scrollTop, height: rowHeight }}>
+        {renderRow(index)}
+      </div>,
+    );
+  }
+
+  return (
+    <div ref={ref} className={`virtual-list ${className ?? ""}`} onScroll={(e) => setScrollTop(e.currentTarget.scrollTop)}>
+      <div style={{ height: spacerHeight, position: "relative" }}>{rows}</div>
+    </div>
+  );
+}
+
+/**
+ * List px per scrolled px: maps the capped spacer's scroll range onto the whole list's.
+ */
+function scale(listHeight: number, viewport: number): number {
+  const spacerHeight = Math.min(listHeight, MAX_SPACER_PX);
+  return spacerHeight > viewport ? Math.max(1, (listHeight - viewport) / (spacerHeight - viewport)) : 1;
+}
@@ -0,0 +1,187 @@
+import { type FromWorker, kindIndex, type NodeRow, type ToWorker } from "./protocol";
+
+/**
+ * UI side of the graph worker: the rows, edges and latest layout positions it has streamed so far, in plain
+ * arrays the views read from directly. Views subscribe to changes instead of receiving the data as React state,
+ * so a batch of 10k rows or a new set of positions is not a re-render of everything.
+ *
+ * The worker runs between connect and the disconnect it returns; messages sent before connect wait for it.
+ */
+export class GraphClient {
+  readonly rows: NodeRow[] = [];
+  readonly ordinals = new Map<string, number>();
+  total = 0;
+  loaded = false;
+  error: string | null = null;
+  version = 0; // bumped on every change of the above
+
+  kinds = new Uint8Array(1024);   // kind index per node, for the renderer
+  edges = new Uint32Array(2048);  // from, to pairs
+  edgeCount = 0;
+  positions = new Float32Array(0);
+  positionCount = 0;
+
+  private worker: Worker | null = null;
+  private readonly queued: ToWorker[] = [];
+  private readonly listeners = new Set<() => void>();
+  private readonly sceneListeners = new Set<() => void>();
+  private readonly pending = new Map<number, (value: never) => void>();
+  private seq = 0;
+
+  /**
+   * Starts a worker that streams the graph from scratch; returns the function that stops it
+   */
+  connect(): () => void {
+    const worker = new Worker(new URL("./worker.ts", import.meta.url), { type: "module" });
+    worker.onmessage = (event: MessageEvent<FromWorker>) => this.receive(event.data);
+    worker.onerror = (event) => {
+      this.error = event.message;
+      this.changed();
+    };
+    this.worker = worker;
+    this.clear();
+    this.error = null;
+    this.loaded = false;
+    worker.postMessage({ type: "load" } satisfies ToWorker);
+    this.queued.splice(0).forEach((message) => worker.postMessage(message));
+    this.changed();
+    return () => {
+      worker.terminate();
+      this.worker = null;
+      this.pending.clear();
+    };
+  }
+
+  /**
+   * Ordinals of the nodes whose name or id contains text (case-insensitive), of the given kind when set
+   */
+  filter(text: string, kind: string): Promise<Int32Array> {
+    const seq = ++this.seq;
+    this.send({ type: "filter", seq, text, kind });
+    return this.reply(seq);
+  }
+
+  /**
+   * The node nearest to a layout position within radius (layout units), -1 if none
+   */
+  pick(x: number, y: number, radius: number): Promise<number> {
+    const seq = ++this.seq;
+    this.send({ type: "pick", seq, x, y, radius });
+    return this.reply(seq);
+  }
+
+  /**
+   * Layout costs worker CPU: it only runs while a graph view shows it
+   */
+  setLayoutRunning(running: boolean) {
+    this.send({ type: "layout", running });
+  }
+
+  /**
+   * Called on every change of rows, totals and load state; returns the unsubscribe function
+   */
+  subscribe(listener: () => void): () => void {
+    this.listeners.add(listener);
+    return () => this.listeners.delete(listener);
+  }
+
+  /**
+   * Called when positions or edges change
+   */
+  onScene(listener: () => void): () => void {
+    this.sceneListeners.add(listener);
+    return () => this.sceneListeners.delete(listener);
+  }
+
+  private send(message: ToWorker) {
+    if (this.worker) {
+      this.worker.postMessage(message);
+    } else {
+      this.queued.push(message);
+    }
+  }
+
+  private reply<T>(seq: number): Promise<T> {
+    return new Promise((resolve) => this.pending.set(seq, resolve as (value: never) => void));
+  }
+
+  private resolve(seq: number, value: unknown) {
+    const resolve = this.pending.get(seq);
+    this.pending.delete(seq);
+    resolve?.(value as never);
+  }
+
+  private receive(message: FromWorker) {
+    switch (message.type) {
+      case "nodes": {
+        const first = this.rows.length;
+        this.kinds = grow(this.kinds, first + message.rows.length);
+        message.rows.forEach((row, i) => {
+          this.ordinals.set(row.id, first + i);
+          this.kinds[first + i] = kindIndex(row.kind);
+          this.rows.push(row);
+        });
+        this.total = message.total;
+        this.changed();
+        break;
+      }
+      case "edges": {
+        this.edges = grow(this.edges, (this.edgeCount + message.from.length) * 2);
+        for (let i = 0; i < message.from.length; i++) {
+          this.edges[this.edgeCount * 2] = message.from[i];
+          this.edges[this.edgeCount * 2 + 1] = message.to[i];
+          this.edgeCount++;
+        }
+        this.changed();
+        this.sceneListeners.forEach((listener) => listener());
+        break;
+      }
+      case "loaded":
+        this.loaded = true;
+        this.changed();
+        break;
+      case "reset":
+        this.clear();
+        this.changed();
+        break;
+      case "positions":
+        this.positions = message.positions;
+        this.positionCount = message.count;
+        this.sceneListeners.forEach((listener) => listener());
+        break;
+      case "filtered":
+        this.resolve(message.seq, message.ordinals);
+        break;
+      case "picked":
+        this.resolve(message.seq, message.ordinal);
+        break;
+      case "error":
+        this.error = message.message;
+        this.changed();
+        break;
+    }
+  }
+
+  private clear() {
+    this.rows.length = 0;
+    this.ordinals.clear();
+    this.edgeCount = 0;
+    this.positionCount = 0;
+    this.total = 0;
+    this.sceneListeners.forEach((listener) => listener());
+  }
+
+  private changed() {
+    this.version++;
+    this.listeners.forEach((listener) => listener());
+  }
+}
+
+function grow<T extends Uint8Array | Uint32Array>(array: T, length: number): T {
+  if (array.length >= length) {
+    return array;
+  }
+  const grown = new (array.constructor as new (length: number) => T)(Math.max(length, array.length * 2));
+  grown.set(array);
+  return grown;
+}
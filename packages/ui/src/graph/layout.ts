@@ -0,0 +1,230 @@
+const SPACING = 10;          // ideal edge length, world units
+const PACKAGE_SPACING = 120; // between neighbouring package centres
+const CELL = SPACING * 2;    // repulsion reaches one cell around a node
+const CELL_SAMPLE = 16;      // nodes per cell a node is repelled by, bounds dense cells
+const ANCHOR_PULL = 0.02;    // keeps nodes near their package
+const COOLING = 0.95;
+const MIN_TEMPERATURE = 0.5;
+const GOLDEN_ANGLE = Math.PI * (3 - Math.sqrt(5));
+
+/**
+ * Incremental force-directed layout for graphs too large to lay out in one go.
+ *
+ * Nodes are placed as they arrive, around the centre of their package (packages on a sunflower spiral), so the
+ * picture is meaningful before the first step. Each step then moves every node by edge springs, repulsion from
+ * the nodes in the surrounding grid cells (sampled, so a step is linear in nodes and edges) and a weak pull to
+ * its package centre, limited by a temperature that cools between steps and heats up again when nodes arrive.
+ * A step over a few hundred thousand nodes takes longer than a frame, so it is worked on until a deadline and
+ * resumed by the next call (advance).
+ */
+export class Layout {
+  positions = new Float32Array(0); // x, y per node
+  count = 0;
+  private anchors = new Float32Array(0);
+  private displacement = new Float32Array(0);
+  private from = new Int32Array(0);
+  private to = new Int32Array(0);
+  private edgeCount = 0;
+  private readonly packages = new Map<string, number>();
+  private temperature = SPACING;
+  // the step in progress: nodes it covers, the next one to repel, and the grid of the positions it started from
+  private stepNodes = 0;
+  private cursor = 0;
+  private starts = new Int32Array(1);
+  private sorted = new Int32Array(0);
+
+  addNode(pkg: string) {
+    let index = this.packages.get(pkg);
+    if (index === undefined) {
+      index = this.packages.size;
+      this.packages.set(pkg, index);
+    }
+    const radius = PACKAGE_SPACING * Math.sqrt(index);
+    const ax = radius * Math.cos(index * GOLDEN_ANGLE);
+    const ay = radius * Math.sin(index * GOLDEN_ANGLE);
+    const jitter = PACKAGE_SPACING * 0.4 * Math.sqrt(Math.random());
+    const angle = Math.random() * 2 * Math.PI;
+    const node = this.count++;
+    this.positions = grow(this.positions, this.count * 2);
+    this.anchors = grow(this.anchors, this.count * 2);
+    this.anchors[node * 2] = ax;
+    this.anchors[node * 2 + 1] = ay;
+    this.positions[node * 2] = ax + jitter * Math.cos(angle);
+    this.positions[node * 2 + 1] = ay + jitter * Math.sin(angle);
+    this.temperature = SPACING;
+  }
+
+  addEdge(from: number, to: number) {
+    if (from === to) {
+      return;
+    }
+    this.from = grow(this.from, this.edgeCount + 1);
+    this.to = grow(this.to, this.edgeCount + 1);
+    this.from[this.edgeCount] = from;
+    this.to[this.edgeCount++] = to;
+    this.temperature = SPACING;
+  }
+
+  settled(): boolean {
+    return this.temperature <= MIN_TEMPERATURE;
+  }
+
+  /**
+   * Works on the current step until deadline (a performance.now() time); true when a step completed
+   */
+  advance(deadline: number): boolean {
+    if (this.cursor === 0) {
+      this.beginStep();
+    }
+    while (this.cursor < this.stepNodes) {
+      const end = Math.min(this.stepNodes, this.cursor + 1024);
+      for (; this.cursor < end; this.cursor++) {
+        this.repel(this.cursor);
+      }
+      if (performance.now() >= deadline && this.cursor < this.stepNodes) {
+        return false;
+      }
+    }
+    this.finishStep();
+    this.cursor = 0;
+    return true;
+  }
+
+  /**
+   * Clears the displacements and sorts the nodes into grid cells (a counting sort by cell hash)
+   */
+  private beginStep() {
+    const n = this.count;
+    const pos = this.positions;
+    this.stepNodes = n;
+    if (this.displacement.length < n * 2) {
+      this.displacement = new Float32Array(this.positions.length);
+    }
+    this.displacement.fill(0, 0, n * 2);
+    const buckets = Math.max(1, n);
+    const cellOf = new Int32Array(n);
+    const starts = new Int32Array(buckets + 1);
+    for (let i = 0; i < n; i++) {
+      cellOf[i] = cellHash(Math.floor(pos[i * 2] / CELL), Math.floor(pos[i * 2 + 1] / CELL), buckets);
+      starts[cellOf[i] + 1]++;
+    }
+    for (let b = 0; b < buckets; b++) {
+      starts[b + 1] += starts[b];
+    }
+    const next = starts.slice(0, buckets);
+    const sorted = new Int32Array(n);
+    for (let i = 0; i < n; i++) {
+      sorted[next[cellOf[i]]++] = i;
+    }
+    this.starts = starts;
+    this.sorted = sorted;
+  }
+
+  /**
+   * Repulsion on node i from the nodes of the 3x3 cells around it
+   */
+  private repel(i: number) {
+    const pos = this.positions;
+    const disp = this.displacement;
+    const buckets = this.starts.length - 1;
+    const k2 = SPACING * SPACING;
+    const x = pos[i * 2];
+    const y = pos[i * 2 + 1];
+    const cx = Math.floor(x / CELL);
+    const cy = Math.floor(y / CELL);
+    for (let dx = -1; dx <= 1; dx++) {
+      for (let dy = -1; dy <= 1; dy++) {
+        const b = cellHash(cx + dx, cy + dy, buckets);
+        const end = Math.min(this.starts[b + 1], this.starts[b] + CELL_SAMPLE);
+        for (let s = this.starts[b]; s < end; s++) {
+          const j = this.sorted[s];
+          if (j === i) {
+            continue;
+          }
+          let ddx = x - pos[j * 2];
+          let ddy = y - pos[j * 2 + 1];
+          let d2 = ddx * ddx + ddy * ddy;
+          if (d2 > CELL * CELL) {
+            continue;
+          }
+          if (d2 < 0.01) {
+            ddx = Math.random() - 0.5;
+            ddy = Math.random() - 0.5;
+            d2 = 0.01;
+          }
+          const f = k2 / d2; // k^2 / d, times the unit vector (dx, dy) / d
+          disp[i * 2] += ddx * f;
+          disp[i * 2 + 1] += ddy * f;
+        }
+      }
+    }
+  }
+
+  /**
+   * Springs along edges and the pull to the package centre, then moves the nodes by at most the temperature
+   */
+  private finishStep() {
+    const n = this.stepNodes;
+    const pos = this.positions;
+    const disp = this.displacement;
+    for (let e = 0; e < this.edgeCount; e++) {
+      const a = this.from[e];
+      const b = this.to[e];
+      if (a >= n || b >= n) {
+        continue;
+      }
+      const ddx = pos[a * 2] - pos[b * 2];
+      const ddy = pos[a * 2 + 1] - pos[b * 2 + 1];
+      const f = Math.sqrt(ddx * ddx + ddy * ddy) / SPACING; // d^2 / k, times the unit vector
+      disp[a * 2] -= ddx * f;
+      disp[a * 2 + 1] -= ddy * f;
+      disp[b * 2] += ddx * f;
+      disp[b * 2 + 1] += ddy * f;
+    }
+
+    const t = this.temperature;
+    for (let i = 0; i < n; i++) {
+      let dx = disp[i * 2] + (this.anchors[i * 2] - pos[i * 2]) * ANCHOR_PULL;
+      let dy = disp[i * 2 + 1] + (this.anchors[i * 2 + 1] - pos[i * 2 + 1]) * ANCHOR_PULL;
+      const d = Math.sqrt(dx * dx + dy * dy);
+      if (d > t) {
+        dx *= t / d;
+        dy *= t / d;
+      }
+      pos[i * 2] += dx;
+      pos[i * 2 + 1] += dy;
+    }
+    this.temperature = Math.max(MIN_TEMPERATURE, t * COOLING);
+  }
+
+  /**
+   * The node nearest to (x, y) within radius, -1 if none
+   */
+  nearest(x: number, y: number, radius: number): number {
+    let best = -1;
+    let bestD2 = radius * radius;
+    for (let i = 0; i < this.count; i++) {
+      const dx = this.positions[i * 2] - x;
+      const dy = this.positions[i * 2 + 1] - y;
+      const d2 = dx * dx + dy * dy;
+      if (d2 <= bestD2) {
+        best = i;
+        bestD2 = d2;
+      }
+    }
+    return best;
+  }
+}
+
+function cellHash(cx: number, cy: number, buckets: number): number {
+  return (((Math.imul(cx, 73856093) ^ Math.imul(cy, 19349663)) >>> 0) % buckets);
+}
+
+function grow<T extends Float32Array | Int32Array>(array: T, length: number): T {
+  if (array.length >= length) {
+    return array;
+  }
+  const grown = new (array.constructor as new (length: number) => T)(Math.max(length, array.length * 2, 1024));
+  grown.set(array);
+  return grown;
+}
@@ -0,0 +1,38 @@
+// Messages between the UI and the graph worker (worker.ts). Nodes are addressed by ordinal: their position
+// in the order the worker streamed them, the same on both sides.
+
+export type NodeRow = {
+  id: string;
+  name: string;
+  kind: string;
+  fqcn: string | null;
+  file: string | null;
+};
+
+export type ToWorker =
+  | { type: "load" }
+  | { type: "filter"; seq: number; text: string; kind: string }
+  | { type: "pick"; seq: number; x: number; y: number; radius: number }
+  | { type: "layout"; running: boolean };
+
+export type FromWorker =
+  // rows appended in ordinal order; total: node count of the analysis
+  | { type: "nodes"; rows: NodeRow[]; total: number }
+  // edges appended, as node ordinals
+  | { type: "edges"; from: Int32Array; to: Int32Array }
+  | { type: "loaded" }
+  // the analysis changed while streaming: drop everything, a new load follows
+  | { type: "reset" }
+  // x, y per node for the first count nodes
+  | { type: "positions"; positions: Float32Array; count: number }
+  | { type: "filtered"; seq: number; ordinals: Int32Array }
+  | { type: "picked"; seq: number; ordinal: number }
+  | { type: "error"; message: string };
+
+// colour index per node kind in the renderer; unknown kinds use the last
+export const KINDS = ["CLASS", "METHOD", "ENTRYPOINT", "BEAN", "REPOSITORY", "PERSISTENCE", "OUTBOUND", "CONFIG", "RESOURCE"];
+
+export function kindIndex(kind: string): number {
+  const index = KINDS.indexOf(kind);
+  return index < 0 ? KINDS.length : index;
+}
@@ -0,0 +1,235 @@
+import { KINDS } from "./protocol";
+
+// node colour per kind index (see kindIndex), the last one for unknown kinds
+const PALETTE: [number, number, number][] = [
+  [0.39, 0.58, 0.93], // CLASS
+  [0.55, 0.75, 0.55], // METHOD
+  [0.98, 0.62, 0.25], // ENTRYPOINT
+  [0.75, 0.52, 0.90], // BEAN
+  [0.93, 0.40, 0.45], // REPOSITORY
+  [0.85, 0.30, 0.35], // PERSISTENCE
+  [0.95, 0.85, 0.35], // OUTBOUND
+  [0.60, 0.60, 0.60], // CONFIG
+  [0.50, 0.80, 0.85], // RESOURCE
+  [0.70, 0.70, 0.70], // other
+];
+
+const MAX_CANVAS_EDGES = 50_000; // the 2D fallback skips edges beyond this
+
+/**
+ * World to screen: screen = (world - center) * zoom + viewport centre
+ */
+export type View = {
+  cx: number;
+  cy: number;
+  zoom: number; // pixels per world unit
+};
+
+export type Scene = {
+  positions: Float32Array; // x, y per node
+  count: number;
+  kinds: Uint8Array;       // kind index per node
+  edges: Uint32Array;      // from, to pairs
+  edgeCount: number;
+  selected: number;        // -1: none
+};
+
+export interface Renderer {
+  draw(scene: Scene, view: View, width: number, height: number, sceneChanged: boolean): void;
+  dispose(): void;
+}
+
+/**
+ * WebGL2 when available: nodes as points and edges as lines from GPU buffers, re-uploaded only when the scene
+ * changes, so panning and zooming a six-figure graph is a uniform update. Falls back to batched 2D canvas paths.
+ */
+export function createRenderer(canvas: HTMLCanvasElement): Renderer {
+  const gl = canvas.getContext("webgl2", { antialias: true, premultipliedAlpha: false });
+  return gl ? new WebGlRenderer(gl) : new CanvasRenderer(canvas.getContext("2d")!);
+}
+
+const VERTEX_SHADER = `#version 300 es
+in vec2 position;
+in float kind;
+uniform vec2 center;
+uniform vec2 scale;
+uniform float pointSize;
+uniform vec3 palette[${PALETTE.length}];
+out vec3 color;
+void main() {
+  gl_Position = vec4((position - center) * scale, 0.0, 1.0);
+  gl_PointSize = pointSize;
+  color = palette[int(min(kind, ${PALETTE.length - 1}.0))];
+}`;
+
+const FRAGMENT_SHADER = `#version 300 es
+precision mediump float;
+in vec3 color;
+uniform vec4 tint; // a > 0: draw in this colour instead
+uniform bool roundPoints;
+out vec4 fragColor;
+void main() {
+  if (roundPoints && length(gl_PointCoord - 0.5) > 0.5) {
+    discard;
+  }
+  fragColor = tint.a > 0.0 ? tint : vec4(color, 1.0);
+}`;
+
+class WebGlRenderer implements Renderer {
+  private readonly gl: WebGL2RenderingContext;
+  private readonly program: WebGLProgram;
+  private readonly positionBuffer: WebGLBuffer;
+  private readonly kindBuffer: WebGLBuffer;
+  private readonly edgeBuffer: WebGLBuffer;
+  private readonly vao: WebGLVertexArrayObject;
+  private uploadedEdges = -1;
+
+  constructor(gl: WebGL2RenderingContext) {
+    this.gl = gl;
+    this.program = link(gl, VERTEX_SHADER, FRAGMENT_SHADER);
+    this.positionBuffer = gl.createBuffer()!;
+    this.kindBuffer = gl.createBuffer()!;
+    this.edgeBuffer = gl.createBuffer()!;
+    this.vao = gl.createVertexArray()!;
+    gl.bindVertexArray(this.vao);
+    gl.bindBuffer(gl.ARRAY_BUFFER, this.positionBuffer);
+    const position = gl.getAttribLocation(this.program, "position");
+    gl.enableVertexAttribArray(position);
+    gl.vertexAttribPointer(position, 2, gl.FLOAT, false, 0, 0);
+    gl.bindBuffer(gl.ARRAY_BUFFER, this.kindBuffer);
+    const kind = gl.getAttribLocation(this.program, "kind");
+    gl.enableVertexAttribArray(kind);
+    gl.vertexAttribPointer(kind, 1, gl.UNSIGNED_BYTE, false, 0, 0);
+    gl.bindBuffer(gl.ELEMENT_ARRAY_BUFFER, this.edgeBuffer);
+    gl.bindVertexArray(null);
+    gl.useProgram(this.program);
+    gl.uniform3fv(gl.getUniformLocation(this.program, "palette"), PALETTE.flat());
+    gl.enable(gl.BLEND);
+    gl.blendFunc(gl.SRC_ALPHA, gl.ONE_MINUS_SRC_ALPHA);
+  }
+
+  draw(scene: Scene, view: View, width: number, height: number, sceneChanged: boolean) {
+    const gl = this.gl;
+    gl.viewport(0, 0, gl.drawingBufferWidth, gl.drawingBufferHeight);
+    gl.clearColor(0, 0, 0, 0);
+    gl.clear(gl.COLOR_BUFFER_BIT);
+    gl.useProgram(this.program);
+    gl.bindVertexArray(this.vao);
+    if (sceneChanged) {
+      gl.bindBuffer(gl.ARRAY_BUFFER, this.positionBuffer);
+      gl.bufferData(gl.ARRAY_BUFFER, scene.positions.subarray(0, scene.count * 2), gl.DYNAMIC_DRAW);
+      gl.bindBuffer(gl.ARRAY_BUFFER, this.kindBuffer);
+      gl.bufferData(gl.ARRAY_BUFFER, scene.kinds.subarray(0, scene.count), gl.DYNAMIC_DRAW);
+      if (scene.edgeCount !== this.uploadedEdges) {
+        gl.bufferData(gl.ELEMENT_ARRAY_BUFFER, scene.edges.subarray(0, scene.edgeCount * 2), gl.STATIC_DRAW);
+        this.uploadedEdges = scene.edgeCount;
+      }
+    }
+    const uniform = (name: string) => gl.getUniformLocation(this.program, name);
+    gl.uniform2f(uniform("center"), view.cx, view.cy);
+    gl.uniform2f(uniform("scale"), (2 * view.zoom) / width, (-2 * view.zoom) / height);
+
+    // edges faint and thin under the nodes
+    if (this.uploadedEdges > 0) {
+      gl.uniform4f(uniform("tint"), 0.6, 0.6, 0.6, view.zoom < 0.5 ? 0.08 : 0.25);
+      gl.drawElements(gl.LINES, this.uploadedEdges * 2, gl.UNSIGNED_INT, 0);
+    }
+    gl.uniform1i(uniform("roundPoints"), 1);
+    gl.uniform4f(uniform("tint"), 0, 0, 0, 0);
+    gl.uniform1f(uniform("pointSize"), Math.min(12, Math.max(1.5, view.zoom * 4)) * devicePixelRatio);
+    gl.drawArrays(gl.POINTS, 0, scene.count);
+    if (scene.selected >= 0 && scene.selected < scene.count) {
+      gl.uniform4f(uniform("tint"), 1, 1, 1, 1);
+      gl.uniform1f(uniform("pointSize"), 14 * devicePixelRatio);
+      gl.drawArrays(gl.POINTS, scene.selected, 1);
+    }
+    gl.uniform1i(uniform("roundPoints"), 0);
+    gl.bindVertexArray(null);
+  }
+
+  dispose() {
+    const gl = this.gl;
+    gl.deleteBuffer(this.positionBuffer);
+    gl.deleteBuffer(this.kindBuffer);
+    gl.deleteBuffer(this.edgeBuffer);
+    gl.deleteVertexArray(this.vao);
+    gl.deleteProgram(this.program);
+  }
+}
+
+class CanvasRenderer implements Renderer {
+  private readonly ctx: CanvasRenderingContext2D;
+
+  constructor(ctx: CanvasRenderingContext2D) {
+    this.ctx = ctx;
+  }
+
+  draw(scene: Scene, view: View, width: number, height: number) {
+    const ctx = this.ctx;
+    const ratio = devicePixelRatio;
+    ctx.setTransform(ratio, 0, 0, ratio, 0, 0);
+    ctx.clearRect(0, 0, width, height);
+    const sx = (x: number) => (x - view.cx) * view.zoom + width / 2;
+    const sy = (y: number) => (y - view.cy) * view.zoom + height / 2;
+    const p = scene.positions;
+
+    if (scene.edgeCount <= MAX_CANVAS_EDGES) {
+      ctx.strokeStyle = "rgba(150, 150, 150, 0.25)";
+      ctx.lineWidth = 1;
+      ctx.beginPath();
+      for (let e = 0; e < scene.edgeCount; e++) {
+        const a = scene.edges[e * 2];
+        const b = scene.edges[e * 2 + 1];
+        if (a < scene.count && b < scene.count) {
+          ctx.moveTo(sx(p[a * 2]), sy(p[a * 2 + 1]));
+          ctx.lineTo(sx(p[b * 2]), sy(p[b * 2 + 1]));
+        }
+      }
+      ctx.stroke();
+    }
+
+    // one path per kind: a fill per colour instead of per node
+    const size = Math.min(8, Math.max(1.5, view.zoom * 3));
+    for (let kind = 0; kind < PALETTE.length; kind++) {
+      const [r, g, b] = PALETTE[kind];
+      ctx.fillStyle = `rgb(${r * 255}, ${g * 255}, ${b * 255})`;
+      ctx.beginPath();
+      for (let i = 0; i < scene.count; i++) {
+        if (Math.min(scene.kinds[i], KINDS.length) !== kind) {
+          continue;
+        }
+        const x = sx(p[i * 2]);
+        const y = sy(p[i * 2 + 1]);
+        if (x >= -size && y >= -size && x <= width + size && y <= height + size) {
+          ctx.rect(x - size / 2, y - size / 2, size, size);
+        }
+      }
+      ctx.fill();
+    }
+    if (scene.selected >= 0 && scene.selected < scene.count) {
+      ctx.strokeStyle = "white";
+      ctx.lineWidth = 2;
+      ctx.strokeRect(sx(p[scene.selected * 2]) - 6, sy(p[scene.selected * 2 + 1]) - 6, 12, 12);
+    }
+  }
+
+  dispose() {}
+}
+
+function link(gl: WebGL2RenderingContext, vertexSource: string, fragmentSource: string): WebGLProgram {
+  const program = gl.createProgram()!;
+  for (const [type, source] of [[gl.VERTEX_SHADER, vertexSource], [gl.FRAGMENT_SHADER, fragmentSource]] as const) {
+    const shader = gl.createShader(type)!;
+    gl.shaderSource(shader, source);
+    gl.compileShader(shader);
+    if (!gl.getShaderParameter(shader, gl.COMPILE_STATUS)) {
+      throw new Error(`Shader: ${gl.getShaderInfoLog(shader)}`);
+    }
+    gl.attachShader(program, shader);
+  }
+  gl.linkProgram(program);
+  if (!gl.getProgramParameter(program, gl.LINK_STATUS)) {
+    throw new Error(`Shader program: ${gl.getProgramInfoLog(program)}`);
+  }
+  return program;
+}
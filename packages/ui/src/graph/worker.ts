@@ -0,0 +1,211 @@
+import { Layout } from "./layout";
+import type { FromWorker, NodeRow, ToWorker } from "./protocol";
+
+// Graph worker: streams nodes and edges from the server's NDJSON pages, answers filter and pick queries, and
+// runs the layout in time slices between messages. The UI thread only renders.
+
+const PAGE_LINES = 10_000;
+const SLICE_MS = 12;            // layout work between two looks at the message queue
+const POSITIONS_EVERY_MS = 100; // positions posted at most this often
+
+class AnalysisChanged extends Error {}
+
+let layout = new Layout();
+let ordinals = new Map<string, number>();
+let searchText: string[] = []; // lowercase name and id per node
+let kinds: string[] = [];
+let layoutRunning = false;
+let layoutTimer: ReturnType<typeof setTimeout> | null = null;
+let lastPosted = 0;
+let unpostedSteps = 0;
+
+self.onmessage = (event: MessageEvent<ToWorker>) => {
+  const message = event.data;
+  switch (message.type) {
+    case "load":
+      load().catch((e) => post({ type: "error", message: String(e) }));
+      break;
+    case "filter":
+      post({ type: "filtered", seq: message.seq, ordinals: filter(message.text, message.kind) });
+      break;
+    case "pick":
+      post({ type: "picked", seq: message.seq, ordinal: layout.nearest(message.x, message.y, message.radius) });
+      break;
+    case "layout":
+      layoutRunning = message.running;
+      scheduleLayout();
+      break;
+  }
+};
+
+function post(message: FromWorker) {
+  const transfer: Transferable[] = [];
+  if (message.type === "filtered") {
+    transfer.push(message.ordinals.buffer);
+  } else if (message.type === "edges") {
+    transfer.push(message.from.buffer, message.to.buffer);
+  } else if (message.type === "positions") {
+    transfer.push(message.positions.buffer);
+  }
+  self.postMessage(message, { transfer });
+}
+
+async function load() {
+  for (;;) {
+    try {
+      // edges are read from the analysis the nodes came from: their ordinals are only valid there
+      const tag = await loadNodes();
+      await loadEdges(tag);
+      post({ type: "loaded" });
+      return;
+    } catch (e) {
+      if (!(e instanceof AnalysisChanged)) {
+        throw e;
+      }
+      // positions of the old graph are meaningless: start over
+      post({ type: "reset" });
+      ordinals = new Map();
+      searchText = [];
+      kinds = [];
+      layout = new Layout();
+    }
+  }
+}
+
+async function loadNodes(): Promise<string> {
+  return streamPages("nodes", (lines, total) => {
+    const rows: NodeRow[] = [];
+    for (const line of lines) {
+      const node = JSON.parse(line);
+      const row: NodeRow = {
+        id: node.id,
+        name: node.name ?? node.id,
+        kind: node.kind,
+        fqcn: node.fqcn ?? null,
+        file: node.source?.file ?? null,
+      };
+      ordinals.set(row.id, ordinals.size);
+      searchText.push(`${row.name}\n${row.id}`.toLowerCase());
+      kinds.push(row.kind);
+      layout.addNode(packageOf(row.fqcn));
+      rows.push(row);
+    }
+    post({ type: "nodes", rows, total });
+    scheduleLayout();
+  });
+}
+
+async function loadEdges(tag: string) {
+  await streamPages("edges", (lines) => {
+    const from = new Int32Array(lines.length);
+    const to = new Int32Array(lines.length);
+    let count = 0;
+    for (const line of lines) {
+      const edge = JSON.parse(line);
+      const a = ordinals.get(edge.fromId);
+      const b = ordinals.get(edge.toId);
+      if (a !== undefined && b !== undefined) {
+        from[count] = a;
+        to[count++] = b;
+        layout.addEdge(a, b);
+      }
+    }
+    post({ type: "edges", from: from.slice(0, count), to: to.slice(0, count) });
+    scheduleLayout();
+  }, tag);
+}
+
+/**
+ * Reads /api/stream/<artifact> page by page, handing over the lines of each page as it completes. Returns the tag of
+ * the analysis it read; given tag, the first page must come from that analysis too (410 otherwise).
+ */
+async function streamPages(artifact: string, onPage: (lines: string[], total: number) => void, tag?: string): Promise<string> {
+  let url: string | null = tag === undefined
+    ? `/api/stream/${artifact}?limit=${PAGE_LINES}`
+    : `/api/stream/${artifact}?cursor=${encodeURIComponent(`${tag}.0`)}&limit=${PAGE_LINES}`;
+  let streamed = tag ?? "";
+  while (url) {
+    const response: Response = await fetch(url);
+    if (response.status === 410) {
+      throw new AnalysisChanged();
+    }
+    if (!response.ok || !response.body) {
+      throw new Error(`${url}: HTTP ${response.status}`);
+    }
+    // the ETag starts with the analysis tag, the part of a cursor before the line
+    streamed = (response.headers.get("ETag") ?? "").split("-")[0].replace("\"", "");
+    const total = Number(response.headers.get("X-Total-Count") ?? 0);
+    const lines: string[] = [];
+    let rest = "";
+    const reader = response.body.pipeThrough(new TextDecoderStream()).getReader();
+    for (;;) {
+      const { done, value } = await reader.read();
+      if (done) {
+        break;
+      }
+      const parts = (rest + value).split("\n");
+      rest = parts.pop()!;
+      for (const part of parts) {
+        if (part) {
+          lines.push(part);
+        }
+      }
+    }
+    if (rest) {
+      lines.push(rest);
+    }
+    onPage(lines, total);
+    const next = response.headers.get("X-Next-Cursor");
+    url = next ? `/api/stream/${artifact}?cursor=${encodeURIComponent(next)}&limit=${PAGE_LINES}` : null;
+  }
+  return streamed;
+}
+
+/**
+ * Case-insensitive substring of name or id, and kind when set; empty text matches all
+ */
+function filter(text: string, kind: string): Int32Array {
+  const needle = text.trim().toLowerCase();
+  const matches = new Int32Array(searchText.length);
+  let count = 0;
+  for (let i = 0; i < searchText.length; i++) {
+    if ((!kind || kinds[i] === kind) && (!needle || searchText[i].includes(needle))) {
+      matches[count++] = i;
+    }
+  }
+  return matches.slice(0, count);
+}
+
+function packageOf(fqcn: string | null): string {
+  if (!fqcn) {
+    return "";
+  }
+  const dot = fqcn.lastIndexOf(".");
+  return dot < 0 ? "" : fqcn.slice(0, dot);
+}
+
+function scheduleLayout() {
+  if (layoutRunning && !layoutTimer && !layout.settled()) {
+    layoutTimer = setTimeout(runLayout, 0);
+  }
+}
+
+/**
+ * Layout work for one slice, then back to the event loop so filter and pick queries are not held up
+ */
+function runLayout() {
+  layoutTimer = null;
+  const until = performance.now() + SLICE_MS;
+  while (performance.now() < until && !layout.settled()) {
+    if (layout.advance(until)) {
+      unpostedSteps++;
+    }
+  }
+  const now = performance.now();
+  if (unpostedSteps > 0 && (now - lastPosted >= POSITIONS_EVERY_MS || layout.settled())) {
+    lastPosted = now;
+    unpostedSteps = 0;
+    post({ type: "positions", positions: layout.positions.slice(0, layout.count * 2), count: layout.count });
+  }
+  scheduleLayout();
+}